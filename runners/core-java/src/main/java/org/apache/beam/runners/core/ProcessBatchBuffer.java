@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.core;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.reflect.DoFnSignature;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Collects consecutive elements of a bundle into batches for a {@link DoFn.ProcessBatch} method.
+ *
+ * <p>Elements are only batched together while they share the same windows, timestamp and pane, so
+ * that outputs of the batch can inherit that metadata. Depending on the declared batch type the
+ * values are accumulated into a {@link List} or unboxed directly into a primitive array.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @param <InputT> the type of the {@link DoFn} (main) input elements
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+public class ProcessBatchBuffer<InputT> {
+
+  /** Experiment that overrides the maximum number of elements per batch. */
+  public static final String MAX_BATCH_SIZE_EXPERIMENT = "process_batch_max_size";
+
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+  private enum BatchKind {
+    LIST,
+    LONGS,
+    INTS,
+    DOUBLES
+  }
+
+  private final BatchKind kind;
+  private final int maxBatchSize;
+
+  private @Nullable WindowedValue<InputT> first;
+  private int size;
+  private @Nullable List<InputT> values;
+  private long @Nullable [] longs;
+  private int @Nullable [] ints;
+  private double @Nullable [] doubles;
+
+  /**
+   * Returns a buffer for the {@link DoFn.ProcessBatch} method of the given signature, or {@code
+   * null} if the {@link DoFn} does not declare one.
+   */
+  public static <InputT> @Nullable ProcessBatchBuffer<InputT> forSignature(
+      DoFnSignature signature, PipelineOptions options) {
+    DoFnSignature.ProcessBatchMethod processBatch = signature.processBatch();
+    if (processBatch == null) {
+      return null;
+    }
+    String maxBatchSize =
+        ExperimentalOptions.getExperimentValue(options, MAX_BATCH_SIZE_EXPERIMENT);
+    return new ProcessBatchBuffer<>(
+        processBatch.batchT().getRawType(),
+        maxBatchSize == null ? DEFAULT_MAX_BATCH_SIZE : Integer.parseInt(maxBatchSize));
+  }
+
+  ProcessBatchBuffer(Class<?> batchClass, int maxBatchSize) {
+    checkArgument(maxBatchSize > 0, "maxBatchSize must be positive, but was %s", maxBatchSize);
+    if (long[].class.equals(batchClass)) {
+      this.kind = BatchKind.LONGS;
+    } else if (int[].class.equals(batchClass)) {
+      this.kind = BatchKind.INTS;
+    } else if (double[].class.equals(batchClass)) {
+      this.kind = BatchKind.DOUBLES;
+    } else {
+      this.kind = BatchKind.LIST;
+    }
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean isFull() {
+    return size >= maxBatchSize;
+  }
+
+  /**
+   * Whether the element can join the current batch, that is the batch is empty or the element has
+   * the same windows, timestamp and pane as the elements already buffered.
+   */
+  public boolean accepts(WindowedValue<InputT> elem) {
+    WindowedValue<InputT> current = first;
+    return current == null
+        || (current.getTimestamp().equals(elem.getTimestamp())
+            && current.getPaneInfo().equals(elem.getPaneInfo())
+            && Iterables.elementsEqual(current.getWindows(), elem.getWindows()));
+  }
+
+  /** Adds an element that {@link #accepts} to the current batch. */
+  public void add(WindowedValue<InputT> elem) {
+    checkState(!isFull(), "Batch is full");
+    if (first == null) {
+      first = elem;
+    }
+    InputT value = elem.getValue();
+    if (kind != BatchKind.LIST) {
+      checkArgument(
+          value != null, "Null elements cannot be passed to a primitive @ProcessBatch method");
+    }
+    switch (kind) {
+      case LONGS:
+        longs = grow(longs == null ? new long[initialCapacity()] : longs);
+        longs[size] = (Long) value;
+        break;
+      case INTS:
+        ints = grow(ints == null ? new int[initialCapacity()] : ints);
+        ints[size] = (Integer) value;
+        break;
+      case DOUBLES:
+        doubles = grow(doubles == null ? new double[initialCapacity()] : doubles);
+        doubles[size] = (Double) value;
+        break;
+      default:
+        if (values == null) {
+          values = new ArrayList<>(initialCapacity());
+        }
+        values.add(value);
+    }
+    size++;
+  }
+
+  /**
+   * Returns the buffered batch as the value of a {@link WindowedValue} carrying the windows,
+   * timestamp and pane of its elements, and resets the buffer.
+   */
+  public WindowedValue<Object> takeBatch() {
+    WindowedValue<InputT> current = first;
+    checkState(current != null, "Batch is empty");
+    Object batch;
+    switch (kind) {
+      case LONGS:
+        batch = Arrays.copyOf(longs, size);
+        break;
+      case INTS:
+        batch = Arrays.copyOf(ints, size);
+        break;
+      case DOUBLES:
+        batch = Arrays.copyOf(doubles, size);
+        break;
+      default:
+        batch = values;
+        values = null;
+    }
+    first = null;
+    size = 0;
+    return current.withValue(batch);
+  }
+
+  private int initialCapacity() {
+    return Math.min(maxBatchSize, 64);
+  }
+
+  private long[] grow(long[] array) {
+    return size < array.length ? array : Arrays.copyOf(array, newCapacity(array.length));
+  }
+
+  private int[] grow(int[] array) {
+    return size < array.length ? array : Arrays.copyOf(array, newCapacity(array.length));
+  }
+
+  private double[] grow(double[] array) {
+    return size < array.length ? array : Arrays.copyOf(array, newCapacity(array.length));
+  }
+
+  private int newCapacity(int capacity) {
+    return Math.min(maxBatchSize, capacity * 2);
+  }
+}
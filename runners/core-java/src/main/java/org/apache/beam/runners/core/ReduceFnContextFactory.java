@@ -213,8 +213,14 @@ class ReduceFnContextFactory<K, InputT, OutputT, W extends BoundedWindow> {
         case DIRECT:
           return stateInternals.state(windowNamespace(), address, context);
         case RENAMED:
-          return stateInternals.state(
-              namespaceFor(activeWindows.writeStateAddress(context.window())), address, context);
+          W stateAddress = activeWindows.writeStateAddress(context.window());
+          // Windows which are their own state address, such as all non-merging windows, reuse the
+          // namespace of the window rather than creating one on each access.
+          StateNamespace namespace =
+              stateAddress.equals(context.window())
+                  ? windowNamespace()
+                  : namespaceFor(stateAddress);
+          return stateInternals.state(namespace, address, context);
       }
       throw new RuntimeException(); // cases are exhaustive.
     }
@@ -210,6 +210,13 @@ public class ReduceFnRunner<K, InputT, OutputT, W extends BoundedWindow> {
    */
   private final NonEmptyPanes<K, W> nonEmptyPanes;
 
+  /**
+   * Whether windows may have state address windows other than themselves. When windows do not
+   * merge every window is its own state address, so the {@link StateStyle#DIRECT} context for an
+   * element is also used as its {@link StateStyle#RENAMED} context rather than allocating another.
+   */
+  private final boolean hasRenamedState;
+
   public ReduceFnRunner(
       K key,
       WindowingStrategy<?, W> windowingStrategy,
@@ -235,6 +242,7 @@ public class ReduceFnRunner<K, InputT, OutputT, W extends BoundedWindow> {
     this.windowingStrategy = objectWindowingStrategy;
 
     this.nonEmptyPanes = NonEmptyPanes.create(this.windowingStrategy, this.reduceFn);
+    this.hasRenamedState = this.windowingStrategy.needsMerge();
 
     // Note this may incur I/O to load persisted window set data.
     this.activeWindows = createActiveWindowSet();
@@ -577,10 +585,15 @@ public class ReduceFnRunner<K, InputT, OutputT, W extends BoundedWindow> {
    */
   private void processElement(Map<W, W> windowToMergeResult, WindowedValue<InputT> value)
       throws Exception {
-    ImmutableSet<W> windows = toMergedWindows(windowToMergeResult, value.getWindows());
+    Collection<? extends BoundedWindow> windows = value.getWindows();
+    if (!windowToMergeResult.isEmpty() || windows.size() > 1) {
+      windows = toMergedWindows(windowToMergeResult, windows);
+    }
 
     // Process the element for each (mergeResultWindow, not closed) window it belongs to.
-    for (W window : windows) {
+    for (BoundedWindow untypedWindow : windows) {
+      @SuppressWarnings("unchecked")
+      W window = (W) untypedWindow;
       ReduceFn<K, InputT, OutputT, W>.ProcessValueContext directContext =
           contextFactory.forValue(
               window, value.getValue(), value.getTimestamp(), StateStyle.DIRECT);
@@ -600,8 +613,10 @@ public class ReduceFnRunner<K, InputT, OutputT, W extends BoundedWindow> {
 
       activeWindows.ensureWindowIsActive(window);
       ReduceFn<K, InputT, OutputT, W>.ProcessValueContext renamedContext =
-          contextFactory.forValue(
-              window, value.getValue(), value.getTimestamp(), StateStyle.RENAMED);
+          hasRenamedState
+              ? contextFactory.forValue(
+                  window, value.getValue(), value.getTimestamp(), StateStyle.RENAMED)
+              : directContext;
 
       nonEmptyPanes.recordContent(renamedContext.state());
       scheduleGarbageCollectionTimer(directContext);
@@ -119,6 +119,9 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
 
   private final Map<String, PCollectionView<?>> sideInputMapping;
 
+  /** Buffers elements for the {@link DoFn.ProcessBatch} method, if the {@link DoFn} has one. */
+  private final @Nullable ProcessBatchBuffer<InputT> batchBuffer;
+
   /** Constructor. */
   public SimpleDoFnRunner(
       PipelineOptions options,
@@ -162,6 +165,7 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
     this.allowedLateness = windowingStrategy.getAllowedLateness();
     this.doFnSchemaInformation = doFnSchemaInformation;
     this.sideInputMapping = sideInputMapping;
+    this.batchBuffer = ProcessBatchBuffer.forSignature(signature, options);
   }
 
   @Override
@@ -182,7 +186,16 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
 
   @Override
   public void processElement(WindowedValue<InputT> compressedElem) {
-    if (observesWindow) {
+    if (batchBuffer != null) {
+      // The batch method cannot observe windows, so elements are batched without exploding them.
+      if (!batchBuffer.accepts(compressedElem)) {
+        invokeProcessBatch();
+      }
+      batchBuffer.add(compressedElem);
+      if (batchBuffer.isFull()) {
+        invokeProcessBatch();
+      }
+    } else if (observesWindow) {
       for (WindowedValue<InputT> elem : compressedElem.explodeWindows()) {
         invokeProcessElement(elem);
       }
@@ -216,8 +229,25 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private void invokeProcessBatch() {
+    // The batch is handed to the DoFn through the element of an ordinary process context, so that
+    // outputs inherit the windows, timestamp and pane shared by the batched elements.
+    WindowedValue<InputT> batch =
+        (WindowedValue<InputT>) (WindowedValue<?>) batchBuffer.takeBatch();
+    // This can contain user code. Wrap it in case it throws an exception.
+    try {
+      invoker.invokeProcessBatch(new DoFnProcessContext(batch));
+    } catch (Exception ex) {
+      throw wrapUserCodeException(ex);
+    }
+  }
+
   @Override
   public void finishBundle() {
+    if (batchBuffer != null && !batchBuffer.isEmpty()) {
+      invokeProcessBatch();
+    }
     // This can contain user code. Wrap it in case it throws an exception.
     try {
       invoker.invokeFinishBundle(new DoFnFinishBundleArgumentProvider());
@@ -0,0 +1,441 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.core;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkElementIndex;
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterators;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.PeekingIterator;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.primitives.UnsignedBytes;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Groups the values of {@link KV KVs} by key into {@link KeyedWorkItem KeyedWorkItems} without
+ * keeping every value on heap.
+ *
+ * <p>Each element is encoded with the key and value coders and assigned to a partition by the hash
+ * of its encoded key. Every partition buffers its records in memory until its share of the memory
+ * budget is exhausted, after which it sorts them by encoded key and spills them as a run to a
+ * temporary file. Grouping a partition merges its runs with the records still in memory. Elements
+ * may be added from multiple threads, and partitions may be grouped in parallel, so a table with
+ * one partition per core can use every core for both phases.
+ *
+ * <p>The values of each key are decoded from the merged runs as they are iterated, so not even the
+ * values of a single key have to fit on heap. At most a fixed number of runs is read at once;
+ * partitions that spilled more runs than that first merge them into longer runs. The key coder
+ * must be deterministic, as keys are compared by their encoded form.
+ *
+ * <p>The table must be {@link #close() closed} once it is no longer used, which deletes any runs
+ * that have not been read to the end.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class SpillingGroupingTable<K, V> implements Closeable {
+  // Approximate heap used by a buffered record besides its encoded key and value: the KV, the
+  // headers of both arrays and the reference held by the buffer.
+  private static final long RECORD_OVERHEAD_BYTES = 64;
+  private static final int DEFAULT_MAX_OPEN_RUNS = 64;
+
+  private static final Comparator<KV<byte[], byte[]>> BY_ENCODED_KEY =
+      (a, b) -> UnsignedBytes.lexicographicalComparator().compare(a.getKey(), b.getKey());
+
+  private final Coder<K> keyCoder;
+  private final Coder<WindowedValue<V>> valueCoder;
+  private final List<Partition> partitions;
+
+  /**
+   * Creates a {@link SpillingGroupingTable} that spills to files in the {@code tempLocation}
+   * directory once the records added to it exceed {@code memoryMB} megabytes, which are split
+   * evenly between the partitions.
+   */
+  public static <K, V> SpillingGroupingTable<K, V> create(
+      Coder<K> keyCoder,
+      Coder<WindowedValue<V>> valueCoder,
+      int numPartitions,
+      String tempLocation,
+      int memoryMB) {
+    return create(
+        keyCoder, valueCoder, numPartitions, tempLocation, memoryMB, DEFAULT_MAX_OPEN_RUNS);
+  }
+
+  @VisibleForTesting
+  static <K, V> SpillingGroupingTable<K, V> create(
+      Coder<K> keyCoder,
+      Coder<WindowedValue<V>> valueCoder,
+      int numPartitions,
+      String tempLocation,
+      int memoryMB,
+      int maxOpenRuns) {
+    try {
+      keyCoder.verifyDeterministic();
+    } catch (Coder.NonDeterministicException e) {
+      throw new IllegalArgumentException(
+          "SpillingGroupingTable requires a deterministic key coder", e);
+    }
+    checkArgument(numPartitions > 0, "numPartitions must be positive, got %s", numPartitions);
+    checkArgument(memoryMB > 0, "memoryMB must be positive, got %s", memoryMB);
+    checkArgument(maxOpenRuns > 1, "maxOpenRuns must be at least 2, got %s", maxOpenRuns);
+    Path tempDirectory = Paths.get(tempLocation);
+    long memoryBytesPerPartition = Math.max(1, ((long) memoryMB << 20) / numPartitions);
+    List<Partition> partitions = new ArrayList<>(numPartitions);
+    for (int i = 0; i < numPartitions; i++) {
+      partitions.add(new Partition(tempDirectory, memoryBytesPerPartition, maxOpenRuns));
+    }
+    return new SpillingGroupingTable<>(keyCoder, valueCoder, partitions);
+  }
+
+  private SpillingGroupingTable(
+      Coder<K> keyCoder, Coder<WindowedValue<V>> valueCoder, List<Partition> partitions) {
+    this.keyCoder = keyCoder;
+    this.valueCoder = valueCoder;
+    this.partitions = partitions;
+  }
+
+  /** Returns the number of partitions of this table. */
+  public int getNumPartitions() {
+    return partitions.size();
+  }
+
+  /**
+   * Adds the provided element to the partition of its key. Must not be called once any partition
+   * has been grouped.
+   */
+  public void add(WindowedValue<KV<K, V>> element) throws IOException {
+    KV<K, V> kv = element.getValue();
+    byte[] encodedKey = CoderUtils.encodeToByteArray(keyCoder, kv.getKey());
+    byte[] encodedValue =
+        CoderUtils.encodeToByteArray(valueCoder, element.withValue(kv.getValue()));
+    int partition = Math.floorMod(Arrays.hashCode(encodedKey), partitions.size());
+    partitions.get(partition).add(KV.of(encodedKey, encodedValue));
+  }
+
+  /**
+   * Sorts the provided partition and returns a {@link KeyedWorkItem} for each of its keys, in order
+   * of encoded key. Each partition can be grouped at most once.
+   *
+   * <p>The returned {@link Iterable} and the {@link KeyedWorkItem#elementsIterable() values} of
+   * each work item can be iterated at most once, and the values of a work item must be read before
+   * the returned iterator is used again; any values left unread at that point are skipped. The
+   * spilled runs of the partition are deleted once they have been read to the end, or when the
+   * table is closed.
+   */
+  public Iterable<KeyedWorkItem<K, V>> groupPartition(int partition) throws IOException {
+    checkElementIndex(partition, partitions.size());
+    Iterator<KV<byte[], byte[]>> sorted = partitions.get(partition).sort();
+    return () -> new GroupingIterator(Iterators.peekingIterator(sorted));
+  }
+
+  /**
+   * Releases the spilled runs of every partition, including runs still being read. Must not be
+   * called while a partition is added to or iterated over.
+   */
+  @Override
+  public void close() throws IOException {
+    @Nullable IOException failure = null;
+    for (Partition partition : partitions) {
+      try {
+        partition.close();
+      } catch (IOException e) {
+        failure = addFailure(failure, e);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static IOException addFailure(@Nullable IOException failure, IOException e) {
+    if (failure == null) {
+      return e;
+    }
+    failure.addSuppressed(e);
+    return failure;
+  }
+
+  /** The records of a single partition: a sorted run per spill, and the unsorted remainder. */
+  private static class Partition {
+    private final Path tempDirectory;
+    private final long memoryBytes;
+    private final int maxOpenRuns;
+    private final List<Path> runs = new ArrayList<>();
+    // Every run written by this partition; the ones still present are deleted on close
+    private final List<Path> files = new ArrayList<>();
+    private final List<RunIterator> openRuns = new ArrayList<>();
+    private List<KV<byte[], byte[]>> buffer = new ArrayList<>();
+    private long bufferedBytes;
+    private boolean grouped;
+    private boolean closed;
+
+    private Partition(Path tempDirectory, long memoryBytes, int maxOpenRuns) {
+      this.tempDirectory = tempDirectory;
+      this.memoryBytes = memoryBytes;
+      this.maxOpenRuns = maxOpenRuns;
+    }
+
+    private synchronized void add(KV<byte[], byte[]> record) throws IOException {
+      checkState(!closed, "Elements cannot be added to a closed table");
+      checkState(!grouped, "Elements cannot be added after grouping");
+      buffer.add(record);
+      bufferedBytes +=
+          record.getKey().length + record.getValue().length + RECORD_OVERHEAD_BYTES;
+      if (bufferedBytes >= memoryBytes) {
+        buffer.sort(BY_ENCODED_KEY);
+        runs.add(writeRun(buffer.size(), buffer.iterator()));
+        buffer = new ArrayList<>();
+        bufferedBytes = 0;
+      }
+    }
+
+    private synchronized Iterator<KV<byte[], byte[]>> sort() throws IOException {
+      checkState(!closed, "Cannot group a closed table");
+      checkState(!grouped, "Partition has already been grouped");
+      grouped = true;
+      // Merge the oldest runs into longer ones until the remaining runs and the buffer can all be
+      // read at once.
+      while (runs.size() >= maxOpenRuns) {
+        List<Path> merged = runs.subList(0, maxOpenRuns);
+        Iterator<KV<byte[], byte[]>> records = mergeRuns(merged);
+        long count = 0;
+        for (RunIterator run : openRuns) {
+          count += run.remaining;
+        }
+        Path longer = writeRun(count, records);
+        merged.clear();
+        runs.add(longer);
+      }
+      buffer.sort(BY_ENCODED_KEY);
+      Iterator<KV<byte[], byte[]>> sorted =
+          Iterators.mergeSorted(
+              ImmutableList.of(mergeRuns(runs), buffer.iterator()), BY_ENCODED_KEY);
+      runs.clear();
+      buffer = new ArrayList<>();
+      return sorted;
+    }
+
+    /** Opens the given runs and merges them; the runs opened so far are all fully read. */
+    private Iterator<KV<byte[], byte[]>> mergeRuns(List<Path> toMerge) throws IOException {
+      openRuns.clear();
+      for (Path run : toMerge) {
+        openRuns.add(new RunIterator(run));
+      }
+      return Iterators.mergeSorted(new ArrayList<>(openRuns), BY_ENCODED_KEY);
+    }
+
+    private Path writeRun(long count, Iterator<KV<byte[], byte[]>> records) throws IOException {
+      Path run = Files.createTempFile(tempDirectory, "grouping-table-", ".run");
+      files.add(run);
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+        out.writeLong(count);
+        while (records.hasNext()) {
+          KV<byte[], byte[]> record = records.next();
+          writeBytes(out, record.getKey());
+          writeBytes(out, record.getValue());
+        }
+      }
+      return run;
+    }
+
+    private synchronized void close() throws IOException {
+      closed = true;
+      buffer = new ArrayList<>();
+      @Nullable IOException failure = null;
+      for (RunIterator run : openRuns) {
+        try {
+          run.in.close();
+        } catch (IOException e) {
+          failure = addFailure(failure, e);
+        }
+      }
+      openRuns.clear();
+      for (Path file : files) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          failure = addFailure(failure, e);
+        }
+      }
+      files.clear();
+      runs.clear();
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /** Reads the records of a spilled run, deleting the run once they have all been read. */
+  private static class RunIterator implements Iterator<KV<byte[], byte[]>> {
+    private final Path run;
+    private final DataInputStream in;
+    private long remaining;
+
+    private RunIterator(Path run) throws IOException {
+      this.run = run;
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+      try {
+        this.remaining = in.readLong();
+      } catch (IOException e) {
+        in.close();
+        throw e;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public KV<byte[], byte[]> next() {
+      if (remaining == 0) {
+        throw new NoSuchElementException();
+      }
+      try {
+        KV<byte[], byte[]> record = KV.of(readBytes(), readBytes());
+        if (--remaining == 0) {
+          in.close();
+          Files.delete(run);
+        }
+        return record;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    private byte[] readBytes() throws IOException {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return bytes;
+    }
+  }
+
+  /** Splits the sorted records into a {@link KeyedWorkItem} per run of equal encoded keys. */
+  private class GroupingIterator implements Iterator<KeyedWorkItem<K, V>> {
+    private final PeekingIterator<KV<byte[], byte[]>> records;
+    private @Nullable ValuesIterator current;
+
+    private GroupingIterator(PeekingIterator<KV<byte[], byte[]>> records) {
+      this.records = records;
+    }
+
+    @Override
+    public boolean hasNext() {
+      skipCurrent();
+      return records.hasNext();
+    }
+
+    @Override
+    public KeyedWorkItem<K, V> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      byte[] encodedKey = records.peek().getKey();
+      ValuesIterator values = new ValuesIterator(encodedKey);
+      current = values;
+      try {
+        return KeyedWorkItems.elementsWorkItem(
+            CoderUtils.decodeFromByteArray(keyCoder, encodedKey), values);
+      } catch (CoderException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    private void skipCurrent() {
+      ValuesIterator values = current;
+      if (values != null) {
+        values.skipRemaining();
+        current = null;
+      }
+    }
+
+    /** Decodes the values of a single key directly from the sorted records. */
+    private class ValuesIterator implements Iterable<WindowedValue<V>>, Iterator<WindowedValue<V>> {
+      private final byte[] encodedKey;
+      private boolean iterated;
+      private boolean done;
+
+      private ValuesIterator(byte[] encodedKey) {
+        this.encodedKey = encodedKey;
+      }
+
+      @Override
+      public Iterator<WindowedValue<V>> iterator() {
+        checkState(!iterated, "The values of a grouped key can only be iterated once");
+        iterated = true;
+        return this;
+      }
+
+      @Override
+      public boolean hasNext() {
+        if (!done
+            && !(records.hasNext() && Arrays.equals(encodedKey, records.peek().getKey()))) {
+          done = true;
+        }
+        return !done;
+      }
+
+      @Override
+      public WindowedValue<V> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        try {
+          return CoderUtils.decodeFromByteArray(valueCoder, records.next().getValue());
+        } catch (CoderException e) {
+          throw new RuntimeException(e);
+        }
+      }
+
+      private void skipRemaining() {
+        while (hasNext()) {
+          records.next();
+        }
+      }
+    }
+  }
+}
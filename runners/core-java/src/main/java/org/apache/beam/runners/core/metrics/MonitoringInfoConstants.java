@@ -65,6 +65,15 @@ public final class MonitoringInfoConstants {
     public static final String WORK_REMAINING = extractUrn(MonitoringInfoSpecs.Enum.WORK_REMAINING);
     public static final String DATA_CHANNEL_READ_INDEX =
         extractUrn(MonitoringInfoSpecs.Enum.DATA_CHANNEL_READ_INDEX);
+    public static final String DATA_CHANNEL_OUTBOUND_BATCH_SIZE =
+        extractUrn(MonitoringInfoSpecs.Enum.DATA_CHANNEL_OUTBOUND_BATCH_SIZE);
+    public static final String HOT_KEY_FREQUENCY =
+        extractUrn(MonitoringInfoSpecs.Enum.HOT_KEY_FREQUENCY);
+    public static final String HOT_KEYS = extractUrn(MonitoringInfoSpecs.Enum.HOT_KEYS);
+    public static final String PROFILE_SAMPLES =
+        extractUrn(MonitoringInfoSpecs.Enum.PROFILE_SAMPLES);
+    public static final String PROFILE_HOT_FRAMES =
+        extractUrn(MonitoringInfoSpecs.Enum.PROFILE_HOT_FRAMES);
     public static final String API_REQUEST_COUNT =
         extractUrn(MonitoringInfoSpecs.Enum.API_REQUEST_COUNT);
     public static final String API_REQUEST_LATENCIES =
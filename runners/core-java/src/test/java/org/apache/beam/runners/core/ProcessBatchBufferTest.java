@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues;
+import org.joda.time.Instant;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ProcessBatchBuffer}. */
+@RunWith(JUnit4.class)
+public class ProcessBatchBufferTest {
+
+  @Test
+  public void testListBatch() {
+    ProcessBatchBuffer<String> buffer = new ProcessBatchBuffer<>(List.class, 10);
+    assertTrue(buffer.isEmpty());
+
+    buffer.add(WindowedValues.timestampedValueInGlobalWindow("a", new Instant(5)));
+    buffer.add(WindowedValues.timestampedValueInGlobalWindow("b", new Instant(5)));
+    assertFalse(buffer.isEmpty());
+
+    WindowedValue<Object> batch = buffer.takeBatch();
+    assertEquals(Arrays.asList("a", "b"), batch.getValue());
+    assertEquals(new Instant(5), batch.getTimestamp());
+    assertTrue(buffer.isEmpty());
+  }
+
+  @Test
+  public void testPrimitiveBatchGrowsUpToMaxBatchSize() {
+    ProcessBatchBuffer<Long> buffer = new ProcessBatchBuffer<>(long[].class, 100);
+    for (long i = 0; i < 100; i++) {
+      assertFalse(buffer.isFull());
+      buffer.add(WindowedValues.valueInGlobalWindow(i));
+    }
+    assertTrue(buffer.isFull());
+
+    long[] batch = (long[]) buffer.takeBatch().getValue();
+    assertEquals(100, batch.length);
+    assertEquals(99L, batch[99]);
+
+    buffer.add(WindowedValues.valueInGlobalWindow(7L));
+    assertArrayEquals(new long[] {7L}, (long[]) buffer.takeBatch().getValue());
+  }
+
+  @Test
+  public void testAcceptsOnlyMatchingMetadata() {
+    ProcessBatchBuffer<Integer> buffer = new ProcessBatchBuffer<>(int[].class, 10);
+    IntervalWindow window = new IntervalWindow(new Instant(0), new Instant(10));
+    IntervalWindow otherWindow = new IntervalWindow(new Instant(10), new Instant(20));
+    buffer.add(WindowedValues.of(1, new Instant(1), window, PaneInfo.NO_FIRING));
+
+    assertTrue(buffer.accepts(WindowedValues.of(2, new Instant(1), window, PaneInfo.NO_FIRING)));
+    assertFalse(buffer.accepts(WindowedValues.of(2, new Instant(2), window, PaneInfo.NO_FIRING)));
+    assertFalse(
+        buffer.accepts(WindowedValues.of(2, new Instant(1), otherWindow, PaneInfo.NO_FIRING)));
+    assertFalse(
+        buffer.accepts(
+            WindowedValues.of(2, new Instant(1), window, PaneInfo.ON_TIME_AND_ONLY_FIRING)));
+  }
+}
@@ -433,6 +433,29 @@ public class ReduceFnRunnerTest {
     tester.assertHasOnlyGlobalAndFinishedSetsFor(firstWindow);
   }
 
+  /**
+   * Tests that elements of non-merging windows under the default trigger are combined into the
+   * state of their own window when a single bundle spans several windows.
+   */
+  @Test
+  public void testCombiningNonMergingWindowsDefaultTrigger() throws Exception {
+    ReduceFnTester<Integer, Integer, IntervalWindow> tester =
+        ReduceFnTester.combining(
+            WindowingStrategy.of(FixedWindows.of(Duration.millis(10))),
+            Sum.ofIntegers(),
+            VarIntCoder.of());
+
+    injectElements(tester, 1, 2, 13, 3, 14);
+    assertThat(tester.extractOutput(), emptyIterable());
+
+    tester.advanceInputWatermark(new Instant(100));
+    assertThat(
+        tester.extractOutput(),
+        containsInAnyOrder(
+            isSingleWindowedValue(equalTo(6), 9, 0, 10),
+            isSingleWindowedValue(equalTo(27), 19, 10, 20)));
+  }
+
   /**
    * Tests that when a processing time timer comes in after a window is expired it is just ignored.
    */
@@ -23,11 +23,13 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.isA;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import org.apache.beam.runners.core.TimerInternals.TimerData;
@@ -641,6 +643,43 @@ public class SimpleDoFnRunnerTest {
                     PeriodFormat.getDefault().print(Duration.ZERO.toPeriod())))));
   }
 
+  /**
+   * Tests that a {@link DoFn.ProcessBatch} method is called with consecutive elements sharing the
+   * same timestamp, and that its outputs inherit that timestamp.
+   */
+  @Test
+  public void testProcessBatch() {
+    SummingBatchDoFn fn = new SummingBatchDoFn();
+    ListOutputManager outputManager = new ListOutputManager();
+    TupleTag<Long> mainOutputTag = new TupleTag<>();
+    DoFnRunner<Long, Long> runner =
+        new SimpleDoFnRunner<>(
+            null,
+            fn,
+            NullSideInputReader.empty(),
+            outputManager,
+            mainOutputTag,
+            Collections.emptyList(),
+            mockStepContext,
+            null,
+            Collections.emptyMap(),
+            WindowingStrategy.of(new GlobalWindows()),
+            DoFnSchemaInformation.create(),
+            Collections.emptyMap());
+
+    runner.startBundle();
+    runner.processElement(WindowedValues.timestampedValueInGlobalWindow(1L, new Instant(0)));
+    runner.processElement(WindowedValues.timestampedValueInGlobalWindow(2L, new Instant(0)));
+    runner.processElement(WindowedValues.timestampedValueInGlobalWindow(4L, new Instant(1)));
+    runner.finishBundle();
+
+    assertEquals(
+        Arrays.asList(
+            WindowedValues.timestampedValueInGlobalWindow(3L, new Instant(0)),
+            WindowedValues.timestampedValueInGlobalWindow(4L, new Instant(1))),
+        outputManager.outputs.get(mainOutputTag));
+  }
+
   static class ThrowingDoFn extends DoFn<String, String> {
     final Exception exceptionToThrow = new UnsupportedOperationException("Expected exception");
 
@@ -790,6 +829,23 @@ public class SimpleDoFnRunnerTest {
     }
   }
 
+  /** Outputs the sum of each batch, or each element when called without batching. */
+  private static class SummingBatchDoFn extends DoFn<Long, Long> {
+    @ProcessElement
+    public void processElement(@Element Long element, OutputReceiver<Long> receiver) {
+      receiver.output(element);
+    }
+
+    @ProcessBatch
+    public void processBatch(long[] batch, OutputReceiver<Long> receiver) {
+      long sum = 0;
+      for (long value : batch) {
+        sum += value;
+      }
+      receiver.output(sum);
+    }
+  }
+
   private static class ListOutputManager implements WindowedValueMultiReceiver {
     private final ListMultimap<TupleTag<?>, WindowedValue<?>> outputs = ArrayListMultimap.create();
 
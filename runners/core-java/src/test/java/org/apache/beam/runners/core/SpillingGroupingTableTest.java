@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.DoubleCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Strings;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SpillingGroupingTable}. */
+@RunWith(JUnit4.class)
+public class SpillingGroupingTableTest {
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private static final Coder<WindowedValue<String>> VALUE_CODER =
+      WindowedValues.getFullCoder(StringUtf8Coder.of(), GlobalWindow.Coder.INSTANCE);
+
+  @Test
+  public void testGroupsValuesByKey() throws Exception {
+    SpillingGroupingTable<Integer, String> table =
+        SpillingGroupingTable.create(
+            VarIntCoder.of(), VALUE_CODER, 3, tmp.getRoot().getAbsolutePath(), 16);
+    table.add(WindowedValues.valueInGlobalWindow(KV.of(1, "a")));
+    table.add(WindowedValues.valueInGlobalWindow(KV.of(2, "b")));
+    table.add(WindowedValues.valueInGlobalWindow(KV.of(1, "c")));
+
+    Map<Integer, List<String>> groups = groupAll(table);
+    assertThat(groups.keySet(), containsInAnyOrder(1, 2));
+    assertThat(groups.get(1), containsInAnyOrder("a", "c"));
+    assertThat(groups.get(2), containsInAnyOrder("b"));
+  }
+
+  @Test
+  public void testGroupsValuesLargerThanMemory() throws Exception {
+    // 1MB split across two partitions, with 8MB of values
+    SpillingGroupingTable<Integer, String> table =
+        SpillingGroupingTable.create(
+            VarIntCoder.of(), VALUE_CODER, 2, tmp.getRoot().getAbsolutePath(), 1);
+    String value = Strings.repeat("v", 1024);
+    int numKeys = 16;
+    int valuesPerKey = 512;
+    for (int i = 0; i < valuesPerKey; i++) {
+      for (int key = 0; key < numKeys; key++) {
+        table.add(WindowedValues.valueInGlobalWindow(KV.of(key, value)));
+      }
+    }
+
+    Map<Integer, List<String>> groups = groupAll(table);
+    assertThat(groups.size(), equalTo(numKeys));
+    for (List<String> values : groups.values()) {
+      assertThat(values.size(), equalTo(valuesPerKey));
+    }
+    // Every spilled run is deleted once it has been merged
+    assertThat(tmp.getRoot().list(), emptyArray());
+  }
+
+  @Test
+  public void testMergesRunsInSeveralPasses() throws Exception {
+    // Every run holds fewer than 1000 records, and at most two runs are read at once
+    SpillingGroupingTable<Integer, String> table =
+        SpillingGroupingTable.create(
+            VarIntCoder.of(), VALUE_CODER, 1, tmp.getRoot().getAbsolutePath(), 1, 2);
+    String value = Strings.repeat("v", 1024);
+    int numKeys = 16;
+    int valuesPerKey = 512;
+    for (int i = 0; i < valuesPerKey; i++) {
+      for (int key = 0; key < numKeys; key++) {
+        table.add(WindowedValues.valueInGlobalWindow(KV.of(key, value)));
+      }
+    }
+
+    Map<Integer, List<String>> groups = groupAll(table);
+    assertThat(groups.size(), equalTo(numKeys));
+    for (List<String> values : groups.values()) {
+      assertThat(values.size(), equalTo(valuesPerKey));
+    }
+    assertThat(tmp.getRoot().list(), emptyArray());
+  }
+
+  @Test
+  public void testCloseDeletesUnreadRuns() throws Exception {
+    SpillingGroupingTable<Integer, String> table =
+        SpillingGroupingTable.create(
+            VarIntCoder.of(), VALUE_CODER, 1, tmp.getRoot().getAbsolutePath(), 1);
+    String value = Strings.repeat("v", 1024);
+    for (int i = 0; i < 4096; i++) {
+      table.add(WindowedValues.valueInGlobalWindow(KV.of(i % 8, value)));
+    }
+    assertThat(tmp.getRoot().list().length > 0, equalTo(true));
+
+    // Abandon the iteration after the first key
+    table.groupPartition(0).iterator().next();
+    table.close();
+
+    assertThat(tmp.getRoot().list(), emptyArray());
+    assertThrows(
+        IllegalStateException.class,
+        () -> table.add(WindowedValues.valueInGlobalWindow(KV.of(1, "a"))));
+  }
+
+  @Test
+  public void testUnreadValuesAreSkipped() throws Exception {
+    SpillingGroupingTable<Integer, String> table =
+        SpillingGroupingTable.create(
+            VarIntCoder.of(), VALUE_CODER, 1, tmp.getRoot().getAbsolutePath(), 16);
+    table.add(WindowedValues.valueInGlobalWindow(KV.of(1, "a")));
+    table.add(WindowedValues.valueInGlobalWindow(KV.of(1, "b")));
+    table.add(WindowedValues.valueInGlobalWindow(KV.of(2, "c")));
+
+    Iterator<KeyedWorkItem<Integer, String>> workItems = table.groupPartition(0).iterator();
+    KeyedWorkItem<Integer, String> first = workItems.next();
+    first.elementsIterable().iterator().next();
+    KeyedWorkItem<Integer, String> second = workItems.next();
+
+    assertThat(first.key(), equalTo(1));
+    assertThat(second.key(), equalTo(2));
+    List<String> values = new ArrayList<>();
+    for (WindowedValue<String> value : second.elementsIterable()) {
+      values.add(value.getValue());
+    }
+    assertThat(values, contains("c"));
+    assertThat(workItems.hasNext(), equalTo(false));
+    assertThrows(IllegalStateException.class, () -> second.elementsIterable().iterator());
+  }
+
+  @Test
+  public void testAddAfterGroupingThrows() throws Exception {
+    SpillingGroupingTable<Integer, String> table =
+        SpillingGroupingTable.create(
+            VarIntCoder.of(), VALUE_CODER, 1, tmp.getRoot().getAbsolutePath(), 16);
+    table.groupPartition(0);
+
+    assertThrows(
+        IllegalStateException.class,
+        () -> table.add(WindowedValues.valueInGlobalWindow(KV.of(1, "a"))));
+    assertThrows(IllegalStateException.class, () -> table.groupPartition(0));
+  }
+
+  @Test
+  public void testNonDeterministicKeyCoderThrows() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            SpillingGroupingTable.create(
+                DoubleCoder.of(), VALUE_CODER, 1, tmp.getRoot().getAbsolutePath(), 16));
+  }
+
+  private static <K> Map<K, List<String>> groupAll(SpillingGroupingTable<K, String> table)
+      throws Exception {
+    Map<K, List<String>> groups = new HashMap<>();
+    for (int partition = 0; partition < table.getNumPartitions(); partition++) {
+      for (KeyedWorkItem<K, String> workItem : table.groupPartition(partition)) {
+        List<String> values = new ArrayList<>();
+        for (WindowedValue<String> value : workItem.elementsIterable()) {
+          values.add(value.getValue());
+        }
+        // Each key is produced by exactly one partition, exactly once
+        assertThat(groups.put(workItem.key(), values), nullValue());
+      }
+    }
+    return groups;
+  }
+}
@@ -63,6 +63,16 @@ public interface DirectOptions extends PipelineOptions, ApplicationNameOptions {
 
   void setTargetParallelism(int target);
 
+  @Default.Boolean(false)
+  @Description(
+      "Controls whether the DirectRunner evaluates bundles on a work stealing executor. Each worker"
+          + " thread keeps a local queue and preferably evaluates the bundles that it produced,"
+          + " while idle workers steal queued work from busy ones. This improves cache locality"
+          + " and CPU utilization of CPU bound pipelines.")
+  boolean isWorkStealingExecution();
+
+  void setWorkStealingExecution(boolean workStealingExecution);
+
   /**
    * A {@link DefaultValueFactory} that returns the result of {@link Runtime#availableProcessors()}
    * from the {@link #create(PipelineOptions)} method. Uses {@link Runtime#getRuntime()} to obtain
@@ -42,6 +42,7 @@ import org.apache.beam.sdk.runners.AppliedPTransform;
 import org.apache.beam.sdk.util.UserCodeException;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PValue;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.CacheBuilder;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.CacheLoader;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.LoadingCache;
@@ -70,6 +71,10 @@ final class ExecutorServiceParallelExecutor
 
   private final int targetParallelism;
   private final ExecutorService executorService;
+  // Set if executorService is a work stealing executor.
+  private final @Nullable WorkStealingExecutorService workStealingExecutor;
+  // The worker that produced a bundle, whose caches are most likely to contain its elements.
+  private final Cache<CommittedBundle<?>, Integer> bundleAffinity;
 
   private final TransformEvaluatorRegistry registry;
 
@@ -91,12 +96,29 @@ final class ExecutorServiceParallelExecutor
       Map<String, Collection<ModelEnforcementFactory>> transformEnforcements,
       EvaluationContext context,
       ExecutorService metricsExecutor) {
+    return create(
+        targetParallelism, false, registry, transformEnforcements, context, metricsExecutor);
+  }
+
+  /**
+   * Creates an executor that evaluates bundles on {@code targetParallelism} threads. If {@code
+   * workStealing} is set, the bundles produced by a thread are preferably evaluated by the same
+   * thread, see {@link WorkStealingExecutorService}.
+   */
+  public static ExecutorServiceParallelExecutor create(
+      int targetParallelism,
+      boolean workStealing,
+      TransformEvaluatorRegistry registry,
+      Map<String, Collection<ModelEnforcementFactory>> transformEnforcements,
+      EvaluationContext context,
+      ExecutorService metricsExecutor) {
     return new ExecutorServiceParallelExecutor(
-        targetParallelism, registry, transformEnforcements, context, metricsExecutor);
+        targetParallelism, workStealing, registry, transformEnforcements, context, metricsExecutor);
   }
 
   private ExecutorServiceParallelExecutor(
       int targetParallelism,
+      boolean workStealing,
       TransformEvaluatorRegistry registry,
       Map<String, Collection<ModelEnforcementFactory>> transformEnforcements,
       EvaluationContext context,
@@ -105,13 +127,22 @@ final class ExecutorServiceParallelExecutor
     this.metricsExecutor = metricsExecutor;
     // Don't use Daemon threads for workers. The Pipeline should continue to execute even if there
     // are no other active threads (for example, because waitUntilFinish was not called)
-    this.executorService =
-        Executors.newFixedThreadPool(
-            targetParallelism,
-            new ThreadFactoryBuilder()
-                .setThreadFactory(MoreExecutors.platformThreadFactory())
-                .setNameFormat("direct-runner-worker")
-                .build());
+    if (workStealing) {
+      this.workStealingExecutor =
+          WorkStealingExecutorService.create(targetParallelism, "direct-runner-worker-");
+      this.executorService = workStealingExecutor;
+    } else {
+      this.workStealingExecutor = null;
+      this.executorService =
+          Executors.newFixedThreadPool(
+              targetParallelism,
+              new ThreadFactoryBuilder()
+                  .setThreadFactory(MoreExecutors.platformThreadFactory())
+                  .setNameFormat("direct-runner-worker")
+                  .build());
+    }
+    // Weak keys compare bundles by identity and let evaluated bundles be reclaimed.
+    this.bundleAffinity = CacheBuilder.newBuilder().weakKeys().build();
     this.registry = registry;
     this.evaluationContext = context;
 
@@ -202,6 +233,10 @@ final class ExecutorServiceParallelExecutor
                       String.format("Unknown %s %s", DriverState.class.getSimpleName(), drive));
               }
               shutdownIfNecessary(newPipelineState);
+            } else if (workStealingExecutor != null) {
+              // Keep the driver out of the local queue of this worker, it would otherwise run
+              // again before the work it just scheduled.
+              workStealingExecutor.executeOn(WorkStealingExecutorService.NO_AFFINITY, this);
             } else {
               executorService.submit(this);
             }
@@ -237,9 +272,59 @@ final class ExecutorServiceParallelExecutor
     }
 
     TransformExecutor callable =
-        executorFactory.create(bundle, transform, onComplete, transformExecutor);
+        executorFactory.create(
+            bundle,
+            transform,
+            workStealingExecutor == null ? onComplete : new AffinityRecordingCallback(onComplete),
+            transformExecutor);
     if (!pipelineState.get().isTerminal()) {
-      transformExecutor.schedule(callable);
+      if (workStealingExecutor != null) {
+        Integer worker = bundleAffinity.getIfPresent(bundle);
+        workStealingExecutor.scheduleWithAffinity(
+            worker == null ? WorkStealingExecutorService.NO_AFFINITY : worker,
+            () -> transformExecutor.schedule(callable));
+      } else {
+        transformExecutor.schedule(callable);
+      }
+    }
+  }
+
+  /**
+   * Records the worker that evaluated a bundle as the preferred worker for the bundles it produced.
+   */
+  private class AffinityRecordingCallback implements CompletionCallback {
+    private final CompletionCallback delegate;
+
+    private AffinityRecordingCallback(CompletionCallback delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public CommittedResult handleResult(
+        CommittedBundle<?> inputBundle, TransformResult<?> result) {
+      CommittedResult<?> committedResult = delegate.handleResult(inputBundle, result);
+      int worker = workStealingExecutor.currentWorker();
+      if (worker != WorkStealingExecutorService.NO_AFFINITY) {
+        for (CommittedBundle<?> output : committedResult.getOutputs()) {
+          bundleAffinity.put(output, worker);
+        }
+      }
+      return committedResult;
+    }
+
+    @Override
+    public void handleEmpty(AppliedPTransform<?, ?, ?> transform) {
+      delegate.handleEmpty(transform);
+    }
+
+    @Override
+    public void handleException(CommittedBundle<?> inputBundle, Exception e) {
+      delegate.handleException(inputBundle, e);
+    }
+
+    @Override
+    public void handleError(Error err) {
+      delegate.handleError(err);
     }
   }
 
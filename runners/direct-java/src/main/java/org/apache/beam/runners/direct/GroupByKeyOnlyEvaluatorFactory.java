@@ -85,7 +85,9 @@ class GroupByKeyOnlyEvaluatorFactory implements TransformEvaluatorFactory {
             PCollection<KV<K, V>>, PCollection<KeyedWorkItem<K, V>>, DirectGroupByKeyOnly<K, V>>
         application;
     private final Coder<K> keyCoder;
-    private Map<StructuralKey<K>, List<WindowedValue<V>>> groupingMap;
+    // Keyed by the structural value of each key, which for coders that are consistent with equals
+    // is the key itself, so that each element does not have to be encoded to find its group.
+    private Map<Object, KeyGroup<K, V>> groupingMap;
 
     public GroupByKeyOnlyEvaluator(
         EvaluationContext evaluationContext,
@@ -118,23 +120,22 @@ class GroupByKeyOnlyEvaluatorFactory implements TransformEvaluatorFactory {
     public void processElement(WindowedValue<KV<K, V>> element) {
       KV<K, V> kv = element.getValue();
       K key = kv.getKey();
-      StructuralKey<K> groupingKey = StructuralKey.of(key, keyCoder);
-      List<WindowedValue<V>> values =
-          groupingMap.computeIfAbsent(groupingKey, k -> new ArrayList<>());
-      values.add(element.withValue(kv.getValue()));
+      KeyGroup<K, V> group =
+          groupingMap.computeIfAbsent(
+              keyCoder.structuralValue(key),
+              k -> new KeyGroup<>(StructuralKey.of(key, keyCoder)));
+      group.values.add(element.withValue(kv.getValue()));
     }
 
     @Override
     public TransformResult<KV<K, V>> finishBundle() {
       StepTransformResult.Builder resultBuilder = StepTransformResult.withoutHold(application);
-      for (Map.Entry<StructuralKey<K>, List<WindowedValue<V>>> groupedEntry :
-          groupingMap.entrySet()) {
-        K key = groupedEntry.getKey().getKey();
+      for (KeyGroup<K, V> group : groupingMap.values()) {
         KeyedWorkItem<K, V> groupedKv =
-            KeyedWorkItems.elementsWorkItem(key, groupedEntry.getValue());
+            KeyedWorkItems.elementsWorkItem(group.key.getKey(), group.values);
         UncommittedBundle<KeyedWorkItem<K, V>> bundle =
             evaluationContext.createKeyedBundle(
-                StructuralKey.of(key, keyCoder),
+                group.key,
                 (PCollection<KeyedWorkItem<K, V>>)
                     Iterables.getOnlyElement(application.getOutputs().values()));
         bundle.add(WindowedValues.valueInGlobalWindow(groupedKv));
@@ -143,4 +144,15 @@ class GroupByKeyOnlyEvaluatorFactory implements TransformEvaluatorFactory {
       return resultBuilder.build();
     }
   }
+
+  /** The values of a single key, along with the {@link StructuralKey} of that key. */
+  private static class KeyGroup<K, V> {
+    private final StructuralKey<K> key;
+    private final List<WindowedValue<V>> values;
+
+    private KeyGroup(StructuralKey<K> key) {
+      this.key = key;
+      this.values = new ArrayList<>();
+    }
+  }
 }
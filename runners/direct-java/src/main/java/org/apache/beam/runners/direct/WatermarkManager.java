@@ -26,12 +26,15 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
@@ -232,6 +235,10 @@ class WatermarkManager<ExecutableT, CollectionT> {
     // minimum
     private final SortedMultiset<TimerData> pendingTimers;
 
+    // The output timestamps of all pending timers, so the earliest output timestamp can be found
+    // without a scan over pendingTimers, which is ordered by firing timestamp instead
+    private final SortedMultiset<Instant> pendingTimerOutputTimestamps;
+
     // Entries in this table represent the authoritative timestamp for which
     // a per-key-and-StateNamespace timer is set.
     private final Map<StructuralKey<?>, Map<String, TimerData>> existingTimers;
@@ -260,6 +267,7 @@ class WatermarkManager<ExecutableT, CollectionT> {
           new BundleByElementTimestampComparator().compound(Ordering.arbitrary());
       this.pendingElements = TreeMultiset.create(pendingBundleComparator);
       this.pendingTimers = TreeMultiset.create();
+      this.pendingTimerOutputTimestamps = TreeMultiset.create();
       this.objectTimers = new HashMap<>();
       this.existingTimers = new HashMap<>();
       this.currentWatermark = new AtomicReference<>(BoundedWindow.TIMESTAMP_MIN_VALUE);
@@ -318,20 +326,26 @@ class WatermarkManager<ExecutableT, CollectionT> {
 
     @VisibleForTesting
     synchronized Instant getEarliestTimerTimestamp() {
-      if (pendingTimers.isEmpty()) {
+      if (pendingTimerOutputTimestamps.isEmpty()) {
         return BoundedWindow.TIMESTAMP_MAX_VALUE;
       } else {
-        return getMinimumOutputTimestamp(pendingTimers);
+        return pendingTimerOutputTimestamps.firstEntry().getElement();
       }
     }
 
-    private Instant getMinimumOutputTimestamp(SortedMultiset<TimerData> timers) {
-      Instant minimumOutputTimestamp = timers.firstEntry().getElement().getOutputTimestamp();
-      for (TimerData timerData : timers) {
-        minimumOutputTimestamp =
-            INSTANT_ORDERING.min(timerData.getOutputTimestamp(), minimumOutputTimestamp);
+    synchronized boolean hasPendingTimers() {
+      return !pendingTimers.isEmpty();
+    }
+
+    private void addPendingTimer(TimerData timer) {
+      pendingTimers.add(timer);
+      pendingTimerOutputTimestamps.add(timer.getOutputTimestamp());
+    }
+
+    private void removePendingTimer(TimerData timer) {
+      if (pendingTimers.remove(timer)) {
+        pendingTimerOutputTimestamps.remove(timer.getOutputTimestamp());
       }
-      return minimumOutputTimestamp;
     }
 
     @VisibleForTesting
@@ -347,15 +361,15 @@ class WatermarkManager<ExecutableT, CollectionT> {
           newSetTimers.add(timer.stringKey());
           @Nullable TimerData existingTimer = existingTimersForKey.get(timer.stringKey());
           if (existingTimer == null) {
-            pendingTimers.add(timer);
+            addPendingTimer(timer);
             keyTimers.add(timer);
           } else {
             // reinitialize the timer even if identical,
             // because it might be removed from objectTimers
             // by timer push back
-            pendingTimers.remove(existingTimer);
+            removePendingTimer(existingTimer);
             keyTimers.remove(existingTimer);
-            pendingTimers.add(timer);
+            addPendingTimer(timer);
             keyTimers.add(timer);
           }
 
@@ -368,7 +382,7 @@ class WatermarkManager<ExecutableT, CollectionT> {
           @Nullable TimerData existingTimer = existingTimersForKey.get(timer.stringKey());
 
           if (existingTimer != null) {
-            pendingTimers.remove(existingTimer);
+            removePendingTimer(existingTimer);
             keyTimers.remove(existingTimer);
             existingTimersForKey.remove(existingTimer.stringKey());
           }
@@ -379,7 +393,7 @@ class WatermarkManager<ExecutableT, CollectionT> {
         if (TimeDomain.EVENT_TIME.equals(timer.getDomain())) {
           if (!newSetTimers.contains(timer.stringKey())) {
             keyTimers.remove(timer);
-            pendingTimers.remove(timer);
+            removePendingTimer(timer);
             existingTimersForKey.remove(timer.stringKey());
           }
         }
@@ -609,6 +623,27 @@ class WatermarkManager<ExecutableT, CollectionT> {
       return earliest;
     }
 
+    /**
+     * Returns true if any processing time timer is set, or has been delivered but has not been
+     * completed.
+     */
+    public synchronized boolean hasPendingTimers() {
+      if (!pendingTimers.isEmpty()) {
+        return true;
+      }
+      for (NavigableSet<TimerData> timers : processingTimers.values()) {
+        if (!timers.isEmpty()) {
+          return true;
+        }
+      }
+      for (NavigableSet<TimerData> timers : synchronizedProcessingTimers.values()) {
+        if (!timers.isEmpty()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
     private Instant getMinimumOutputTimestamp(NavigableSet<TimerData> timers) {
       Instant minimumOutputTimestamp = timers.first().getOutputTimestamp();
       for (TimerData timerData : timers) {
@@ -891,6 +926,21 @@ class WatermarkManager<ExecutableT, CollectionT> {
   @GuardedBy("refreshLock")
   private final Set<ExecutableT> pendingRefreshes;
 
+  /**
+   * The depth of each executable in the graph, where root transforms have depth zero and every
+   * other executable is deeper than the producers of all of its inputs. Refreshing pending
+   * executables in order of depth refreshes each affected executable at most once per call to
+   * {@link #refreshAll()}, after all of its affected upstream executables.
+   */
+  private final Map<ExecutableT, Integer> topologicalDepths;
+
+  /**
+   * The executables which have timers that are set, or that have been extracted but not completed.
+   * Only these executables are examined when extracting fired timers.
+   */
+  @GuardedBy("refreshLock")
+  private final Set<ExecutableT> transformsWithPendingTimers;
+
   /**
    * A set of executables with currently extracted timers, that are to be processed. Note that, due
    * to consistency, we can have only single extracted set of timers that are being processed by
@@ -929,15 +979,31 @@ class WatermarkManager<ExecutableT, CollectionT> {
 
     this.refreshLock = new ReentrantLock();
     this.pendingRefreshes = new HashSet<>();
+    this.transformsWithPendingTimers = new HashSet<>();
 
     transformToWatermarks = new HashMap<>();
+    topologicalDepths = new HashMap<>();
 
     for (ExecutableT rootTransform : graph.getRootTransforms()) {
       getTransformWatermark(rootTransform);
+      getTopologicalDepth(rootTransform);
     }
     for (ExecutableT primitiveTransform : graph.getExecutables()) {
       getTransformWatermark(primitiveTransform);
+      getTopologicalDepth(primitiveTransform);
+    }
+  }
+
+  private int getTopologicalDepth(ExecutableT executable) {
+    Integer depth = topologicalDepths.get(executable);
+    if (depth == null) {
+      depth = 0;
+      for (CollectionT input : graph.getPerElementInputs(executable)) {
+        depth = Math.max(depth, getTopologicalDepth(graph.getProducer(input)) + 1);
+      }
+      topologicalDepths.put(executable, depth);
     }
+    return depth;
   }
 
   private TransformWatermarks getValueWatermark(CollectionT value) {
@@ -1193,6 +1259,9 @@ class WatermarkManager<ExecutableT, CollectionT> {
       completedTransform.addPending(unprocessedInputs);
     }
     completedTransform.updateTimers(timerUpdate);
+    if (!Iterables.isEmpty(timerUpdate.getSetTimers())) {
+      transformsWithPendingTimers.add(executable);
+    }
     if (input != null) {
       completedTransform.removePending(input);
     }
@@ -1206,9 +1275,20 @@ class WatermarkManager<ExecutableT, CollectionT> {
     refreshLock.lock();
     try {
       applyAllPendingUpdates();
-      Set<ExecutableT> toRefresh = pendingRefreshes;
+      // Only the executables downstream of an advanced watermark are visited, in order of depth,
+      // so that an executable reachable along several paths is refreshed once rather than once per
+      // path.
+      PriorityQueue<ExecutableT> toRefresh =
+          new PriorityQueue<>(
+              Math.max(1, pendingRefreshes.size()), Comparator.comparing(topologicalDepths::get));
+      toRefresh.addAll(pendingRefreshes);
       while (!toRefresh.isEmpty()) {
-        toRefresh = refreshAllOf(toRefresh);
+        ExecutableT executable = toRefresh.poll();
+        for (ExecutableT consumer : refreshWatermarks(executable)) {
+          if (pendingRefreshes.add(consumer)) {
+            toRefresh.add(consumer);
+          }
+        }
       }
       pendingRefreshes.clear();
     } finally {
@@ -1216,14 +1296,6 @@ class WatermarkManager<ExecutableT, CollectionT> {
     }
   }
 
-  private Set<ExecutableT> refreshAllOf(Set<ExecutableT> toRefresh) {
-    Set<ExecutableT> newRefreshes = new HashSet<>();
-    for (ExecutableT executable : toRefresh) {
-      newRefreshes.addAll(refreshWatermarks(executable));
-    }
-    return newRefreshes;
-  }
-
   private Set<ExecutableT> refreshWatermarks(final ExecutableT toRefresh) {
     TransformWatermarks myWatermarks = transformToWatermarks.get(toRefresh);
     WatermarkUpdate updateResult = myWatermarks.refresh();
@@ -1252,15 +1324,19 @@ class WatermarkManager<ExecutableT, CollectionT> {
     Collection<FiredTimers<ExecutableT>> allTimers = new ArrayList<>();
     refreshLock.lock();
     try {
-      for (Map.Entry<ExecutableT, TransformWatermarks> watermarksEntry :
-          transformToWatermarks.entrySet()) {
-        ExecutableT transform = watermarksEntry.getKey();
+      Iterator<ExecutableT> transforms = transformsWithPendingTimers.iterator();
+      while (transforms.hasNext()) {
+        ExecutableT transform = transforms.next();
+        TransformWatermarks watermarks = transformToWatermarks.get(transform);
+        if (!watermarks.hasPendingTimers()) {
+          transforms.remove();
+          continue;
+        }
         if (ignoredExecutables.contains(transform)) {
           continue;
         }
         synchronized (transformsWithAlreadyExtractedTimers) {
           if (!transformsWithAlreadyExtractedTimers.containsKey(transform)) {
-            TransformWatermarks watermarks = watermarksEntry.getValue();
             Collection<FiredTimers<ExecutableT>> firedTimers = watermarks.extractFiredTimers();
             if (!firedTimers.isEmpty()) {
               List<TimerData> newTimers =
@@ -1518,6 +1594,11 @@ class WatermarkManager<ExecutableT, CollectionT> {
       synchronizedProcessingInputWatermark.updateTimers(update);
     }
 
+    private boolean hasPendingTimers() {
+      return inputWatermark.hasPendingTimers()
+          || synchronizedProcessingInputWatermark.hasPendingTimers();
+    }
+
     @Override
     public String toString() {
       return MoreObjects.toStringHelper(TransformWatermarks.class)
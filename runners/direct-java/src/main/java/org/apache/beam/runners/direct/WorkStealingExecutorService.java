@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.direct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link java.util.concurrent.ExecutorService} with a fixed number of worker threads that each
+ * keep a local queue of work.
+ *
+ * <p>Work submitted by a worker is added to the local queue of that worker, and work can be
+ * directed to a particular worker with {@link #executeOn}. A worker evaluates the most recently
+ * added work in its local queue first, which is the work most likely to find its input in the
+ * worker's caches. Workers that run out of work steal the oldest work from the local queues of
+ * other workers, so no worker stays idle while work is queued.
+ *
+ * <p>Unlike a {@link java.util.concurrent.ThreadPoolExecutor}, a worker does not die if a task
+ * throws, whether an exception or an {@link Error}; the pool has no way to replace dead workers.
+ * The throwable is logged instead. Tasks submitted with {@link #submit} report failures
+ * through their {@link java.util.concurrent.Future}.
+ */
+final class WorkStealingExecutorService extends AbstractExecutorService {
+  private static final Logger LOG = LoggerFactory.getLogger(WorkStealingExecutorService.class);
+
+  /** Directs work to the shared queue rather than the local queue of a worker. */
+  static final int NO_AFFINITY = -1;
+
+  // Workers check the shared queue periodically even if they have local work, so that work from
+  // outside of the pool is not starved by workers that keep producing local work.
+  private static final int SHARED_QUEUE_CHECK_INTERVAL = 61;
+  // Bounds the time a lost wake up can delay work, idle workers are woken whenever work arrives.
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final Worker[] workers;
+  private final Queue<Runnable> sharedQueue;
+  private final AtomicInteger idleWorkers;
+  // The worker that work submitted by the current thread is directed to, if any.
+  private final ThreadLocal<@Nullable Integer> affinity;
+  private final CountDownLatch terminated;
+  private volatile boolean shutdown;
+
+  /**
+   * Creates and starts an executor with {@code parallelism} non-daemon worker threads named {@code
+   * namePrefix} followed by the index of the worker.
+   */
+  static WorkStealingExecutorService create(int parallelism, String namePrefix) {
+    WorkStealingExecutorService executor =
+        new WorkStealingExecutorService(parallelism, namePrefix);
+    for (Worker worker : executor.workers) {
+      worker.start();
+    }
+    return executor;
+  }
+
+  @SuppressWarnings("nullness" /* The workers are only started once construction completes */)
+  private WorkStealingExecutorService(int parallelism, String namePrefix) {
+    Preconditions.checkArgument(
+        parallelism > 0, "parallelism must be positive, but was %s", parallelism);
+    this.sharedQueue = new ConcurrentLinkedQueue<>();
+    this.idleWorkers = new AtomicInteger();
+    this.affinity = new ThreadLocal<>();
+    this.terminated = new CountDownLatch(parallelism);
+    this.workers = new Worker[parallelism];
+    for (int i = 0; i < parallelism; i++) {
+      workers[i] = new Worker(i, namePrefix + i);
+    }
+  }
+
+  /** Returns the number of worker threads. */
+  int getParallelism() {
+    return workers.length;
+  }
+
+  @VisibleForTesting
+  int getQueuedWork(int worker) {
+    return workers[worker].localQueue.size();
+  }
+
+  /**
+   * Returns the index of the worker of this executor that runs the current thread, or {@link
+   * #NO_AFFINITY} if the current thread is not one of its workers.
+   */
+  int currentWorker() {
+    Thread thread = Thread.currentThread();
+    if (thread instanceof Worker && ((Worker) thread).getExecutor() == this) {
+      return ((Worker) thread).index;
+    }
+    return NO_AFFINITY;
+  }
+
+  /**
+   * Executes the command, preferably on the current worker if called from one of the workers of
+   * this executor or on the worker chosen by an enclosing {@link #scheduleWithAffinity}.
+   */
+  @Override
+  public void execute(Runnable command) {
+    Integer worker = affinity.get();
+    executeOn(worker == null ? currentWorker() : worker, command);
+  }
+
+  /**
+   * Runs {@code scheduler} on the current thread, directing any work it submits to this executor to
+   * the worker with the given index, or to the shared queue if {@code worker} is {@link
+   * #NO_AFFINITY}.
+   */
+  void scheduleWithAffinity(int worker, Runnable scheduler) {
+    Integer previous = affinity.get();
+    affinity.set(worker);
+    try {
+      scheduler.run();
+    } finally {
+      affinity.set(previous);
+    }
+  }
+
+  /**
+   * Executes the command, preferably on the worker with the given index. The command is added to
+   * the shared queue if {@code worker} is {@link #NO_AFFINITY}.
+   */
+  void executeOn(int worker, Runnable command) {
+    Preconditions.checkNotNull(command);
+    if (shutdown) {
+      throw new RejectedExecutionException(
+          String.format(
+              "%s has been shut down", WorkStealingExecutorService.class.getSimpleName()));
+    }
+    if (worker == NO_AFFINITY) {
+      sharedQueue.offer(command);
+    } else {
+      workers[worker].localQueue.offerLast(command);
+    }
+    wakeIdleWorker(worker);
+  }
+
+  private void wakeIdleWorker(int preferredWorker) {
+    if (idleWorkers.get() == 0) {
+      return;
+    }
+    if (preferredWorker != NO_AFFINITY && workers[preferredWorker].idle) {
+      LockSupport.unpark(workers[preferredWorker]);
+      return;
+    }
+    // Wake any idle worker, which will steal the work if it was added to a busy worker's queue.
+    int start = ThreadLocalRandom.current().nextInt(workers.length);
+    for (int i = 0; i < workers.length; i++) {
+      Worker worker = workers[(start + i) % workers.length];
+      if (worker.idle) {
+        LockSupport.unpark(worker);
+        return;
+      }
+    }
+  }
+
+  private @Nullable Runnable steal(int thief) {
+    int start = ThreadLocalRandom.current().nextInt(workers.length);
+    for (int i = 0; i < workers.length; i++) {
+      int victim = (start + i) % workers.length;
+      if (victim != thief) {
+        Runnable task = workers[victim].localQueue.pollFirst();
+        if (task != null) {
+          return task;
+        }
+      }
+    }
+    return null;
+  }
+
+  private boolean hasQueuedWork() {
+    if (!sharedQueue.isEmpty()) {
+      return true;
+    }
+    for (Worker worker : workers) {
+      if (!worker.localQueue.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void shutdown() {
+    shutdown = true;
+    for (Worker worker : workers) {
+      LockSupport.unpark(worker);
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    shutdown = true;
+    List<Runnable> pending = new ArrayList<>();
+    drainTo(sharedQueue, pending);
+    for (Worker worker : workers) {
+      drainTo(worker.localQueue, pending);
+      worker.interrupt();
+    }
+    return Collections.unmodifiableList(pending);
+  }
+
+  private static void drainTo(Queue<Runnable> queue, List<Runnable> target) {
+    Runnable task = queue.poll();
+    while (task != null) {
+      target.add(task);
+      task = queue.poll();
+    }
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return terminated.getCount() == 0;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return terminated.await(timeout, unit);
+  }
+
+  /** A worker thread with a local queue. */
+  private class Worker extends Thread {
+    private final int index;
+    private final ConcurrentLinkedDeque<Runnable> localQueue;
+    private volatile boolean idle;
+    private int tasksSinceSharedQueueCheck;
+
+    private Worker(int index, String name) {
+      super(name);
+      this.index = index;
+      this.localQueue = new ConcurrentLinkedDeque<>();
+    }
+
+    private WorkStealingExecutorService getExecutor() {
+      return WorkStealingExecutorService.this;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          Runnable task = findTask();
+          if (task == null) {
+            task = awaitTask();
+          }
+          if (task != null) {
+            runTask(task);
+          } else if (shutdown && !hasQueuedWork()) {
+            return;
+          }
+        }
+      } finally {
+        terminated.countDown();
+      }
+    }
+
+    private @Nullable Runnable findTask() {
+      Runnable task = null;
+      if (++tasksSinceSharedQueueCheck >= SHARED_QUEUE_CHECK_INTERVAL) {
+        tasksSinceSharedQueueCheck = 0;
+        task = sharedQueue.poll();
+      }
+      if (task == null) {
+        task = localQueue.pollLast();
+      }
+      if (task == null) {
+        task = sharedQueue.poll();
+      }
+      if (task == null) {
+        task = steal(index);
+      }
+      return task;
+    }
+
+    private @Nullable Runnable awaitTask() {
+      idle = true;
+      idleWorkers.incrementAndGet();
+      try {
+        // Check again after announcing that this worker is idle, work added before the
+        // announcement would not have woken this worker.
+        Runnable task = findTask();
+        if (task == null && !shutdown) {
+          LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        return task;
+      } finally {
+        idleWorkers.decrementAndGet();
+        idle = false;
+      }
+    }
+
+    private void runTask(Runnable task) {
+      try {
+        task.run();
+      } catch (Throwable t) {
+        // Also catch Errors and checked exceptions thrown sneakily, a worker that died would never
+        // be replaced and work in its local queue would only run once stolen.
+        LOG.error("Uncaught exception in worker {}", getName(), t);
+      } finally {
+        // Don't let an interrupt of one task leak into the next one, unless shutting down.
+        if (!shutdown) {
+          Thread.interrupted();
+        }
+      }
+    }
+  }
+}
@@ -81,6 +81,7 @@ import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.transforms.SimpleFunction;
 import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.WithKeys;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.transforms.windowing.AfterWatermark;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
@@ -166,6 +167,23 @@ public class DirectRunnerTest implements Serializable {
     result.waitUntilFinish();
   }
 
+  @Test
+  public void workStealingExecutionShouldSucceed() throws Throwable {
+    Pipeline p = getPipeline();
+    p.getOptions().as(DirectOptions.class).setWorkStealingExecution(true);
+
+    PCollection<KV<Long, Long>> sums =
+        p.apply(GenerateSequence.from(0).to(1000))
+            .apply(WithKeys.of((Long input) -> input % 3).withKeyType(TypeDescriptors.longs()))
+            .apply(Sum.longsPerKey());
+
+    PAssert.that(sums)
+        .containsInAnyOrder(KV.of(0L, 166833L), KV.of(1L, 166167L), KV.of(2L, 166500L));
+
+    DirectPipelineResult result = (DirectPipelineResult) p.run();
+    result.waitUntilFinish();
+  }
+
   private static AtomicInteger changed;
 
   @Test
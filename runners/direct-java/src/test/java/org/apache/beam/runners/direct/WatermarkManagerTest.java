@@ -1652,6 +1652,48 @@ public class WatermarkManagerTest implements Serializable {
     assertThat(fired.entrySet(), empty());
   }
 
+  @Test
+  public void inputWatermarkEarliestTimerTimestampUsesOutputTimestamps() {
+    Watermark mockWatermark = Mockito.mock(Watermark.class);
+    when(mockWatermark.get()).thenReturn(new Instant(0));
+
+    AppliedPTransformInputWatermark underTest =
+        new AppliedPTransformInputWatermark(
+            "underTest", ImmutableList.of(mockWatermark), update -> {});
+    underTest.refresh();
+
+    StructuralKey<String> key = StructuralKey.of("key", StringUtf8Coder.of());
+    TimerData earlyFiringLateOutput =
+        TimerData.of(
+            "a",
+            StateNamespaces.global(),
+            new Instant(100),
+            new Instant(50),
+            TimeDomain.EVENT_TIME);
+    TimerData lateFiringEarlyOutput =
+        TimerData.of(
+            "b",
+            StateNamespaces.global(),
+            new Instant(200),
+            new Instant(10),
+            TimeDomain.EVENT_TIME);
+    underTest.updateTimers(
+        TimerUpdate.builder(key)
+            .setTimer(earlyFiringLateOutput)
+            .setTimer(lateFiringEarlyOutput)
+            .build());
+    assertEquals(new Instant(10), underTest.getEarliestTimerTimestamp());
+
+    underTest.updateTimers(TimerUpdate.builder(key).deletedTimer(lateFiringEarlyOutput).build());
+    assertEquals(new Instant(50), underTest.getEarliestTimerTimestamp());
+
+    underTest.updateTimers(
+        TimerUpdate.builder(key)
+            .withCompletedTimers(ImmutableList.of(earlyFiringLateOutput))
+            .build());
+    assertEquals(BoundedWindow.TIMESTAMP_MAX_VALUE, underTest.getEarliestTimerTimestamp());
+  }
+
   @Test
   public void timerUpdateBuilderBuildAddsAllAddedTimers() {
     TimerData set =
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.direct;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link WorkStealingExecutorService}. */
+@RunWith(JUnit4.class)
+public class WorkStealingExecutorServiceTest {
+  private WorkStealingExecutorService executor =
+      WorkStealingExecutorService.create(2, "test-worker-");
+
+  @After
+  public void teardown() throws InterruptedException {
+    executor.shutdownNow();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void executesAllWork() throws Exception {
+    AtomicInteger executed = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(1000);
+    for (int i = 0; i < 1000; i++) {
+      executor.execute(
+          () -> {
+            executed.incrementAndGet();
+            done.countDown();
+          });
+    }
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(1000, executed.get());
+    assertThat(executor.submit(() -> "result").get(10, TimeUnit.SECONDS), equalTo("result"));
+  }
+
+  @Test
+  public void workersSurviveTasksThrowingErrors() throws Exception {
+    // More failing tasks than workers, all of them only run if workers survive failures.
+    CountDownLatch failed = new CountDownLatch(4);
+    for (int i = 0; i < 4; i++) {
+      executor.execute(
+          () -> {
+            failed.countDown();
+            throw new AssertionError("Expected failure");
+          });
+    }
+    assertTrue(failed.await(10, TimeUnit.SECONDS));
+
+    CountDownLatch done = new CountDownLatch(100);
+    for (int i = 0; i < 100; i++) {
+      executor.execute(done::countDown);
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertThat(executor.submit(() -> "result").get(10, TimeUnit.SECONDS), equalTo("result"));
+  }
+
+  @Test
+  public void workSubmittedByWorkerRunsOnThatWorker() throws Exception {
+    // Keep the other worker busy so that it cannot steal the follow-up work.
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch blocked = new CountDownLatch(1);
+    AtomicReference<Thread> blockedThread = new AtomicReference<>();
+    executor.execute(
+        () -> {
+          blockedThread.set(Thread.currentThread());
+          blocked.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+    AtomicReference<Thread> parent = new AtomicReference<>();
+    AtomicReference<Thread> child = new AtomicReference<>();
+    CountDownLatch done = new CountDownLatch(1);
+    executor.execute(
+        () -> {
+          parent.set(Thread.currentThread());
+          executor.execute(
+              () -> {
+                child.set(Thread.currentThread());
+                done.countDown();
+              });
+        });
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(parent.get(), child.get());
+    assertTrue(parent.get() != blockedThread.get());
+    release.countDown();
+  }
+
+  @Test
+  public void idleWorkersStealWork() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch stolen = new CountDownLatch(1);
+    executor.execute(
+        () -> {
+          // Queue work locally and block, the other worker has to steal it.
+          executor.execute(stolen::countDown);
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+
+    assertTrue(stolen.await(10, TimeUnit.SECONDS));
+    release.countDown();
+  }
+
+  @Test
+  public void scheduleWithAffinityDirectsWork() throws Exception {
+    // Block both workers so that the directed work stays queued.
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch blocked = new CountDownLatch(2);
+    for (int i = 0; i < 2; i++) {
+      executor.execute(
+          () -> {
+            blocked.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+    }
+    assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+    CountDownLatch done = new CountDownLatch(2);
+    executor.scheduleWithAffinity(1, () -> executor.execute(done::countDown));
+    assertEquals(0, executor.getQueuedWork(0));
+    assertEquals(1, executor.getQueuedWork(1));
+
+    // Work submitted outside of scheduleWithAffinity goes to the shared queue.
+    executor.execute(done::countDown);
+    assertEquals(0, executor.getQueuedWork(0));
+    assertEquals(1, executor.getQueuedWork(1));
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shutdownCompletesQueuedWorkAndRejectsNewWork() throws Exception {
+    Future<?> queued = executor.submit(() -> {});
+    executor.shutdown();
+
+    assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertTrue(executor.isTerminated());
+    assertTrue(queued.isDone());
+  }
+}
@@ -415,11 +415,12 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
     PreparedClient preparedClient = new PreparedClient();
     try {
       preparedClient.wrappedClient = wrappedClient;
+      GrpcFnServer<GrpcDataService> dataServer = wrappedClient.getServerInfo().getDataServer();
       preparedClient.processBundleDescriptor =
           ProcessBundleDescriptors.fromExecutableStage(
               stageIdGenerator.getId(),
               executableStage,
-              wrappedClient.getServerInfo().getDataServer().getApiServiceDescriptor(),
+              dataServer.getService().getApiServiceDescriptor(dataServer.getApiServiceDescriptor()),
               wrappedClient.getServerInfo().getStateServer().getApiServiceDescriptor());
     } catch (IOException e) {
       throw new RuntimeException("Failed to create ProcessBundleDescriptor.", e);
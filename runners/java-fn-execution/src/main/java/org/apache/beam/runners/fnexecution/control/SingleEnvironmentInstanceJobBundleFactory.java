@@ -110,7 +110,9 @@ public class SingleEnvironmentInstanceJobBundleFactory implements JobBundleFacto
           ProcessBundleDescriptors.fromExecutableStage(
               idGenerator.getId(),
               stage,
-              dataService.getApiServiceDescriptor(),
+              dataService
+                  .getService()
+                  .getApiServiceDescriptor(dataService.getApiServiceDescriptor()),
               stateService.getApiServiceDescriptor());
     } catch (IOException e) {
       throw new RuntimeException(e);
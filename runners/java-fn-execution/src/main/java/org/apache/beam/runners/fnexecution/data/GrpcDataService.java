@@ -17,6 +17,8 @@
  */
 package org.apache.beam.runners.fnexecution.data;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Queue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -27,14 +29,19 @@ import java.util.function.Supplier;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
 import org.apache.beam.model.fnexecution.v1.BeamFnDataGrpc;
+import org.apache.beam.model.pipeline.v1.Endpoints.ApiServiceDescriptor;
+import org.apache.beam.model.pipeline.v1.Endpoints.SharedMemorySpec;
 import org.apache.beam.sdk.fn.data.BeamFnDataGrpcMultiplexer;
 import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator;
 import org.apache.beam.sdk.fn.data.CloseableFnDataReceiver;
+import org.apache.beam.sdk.fn.data.SharedMemoryTransport;
 import org.apache.beam.sdk.fn.server.FnService;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.StreamObserver;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.util.concurrent.SettableFuture;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +52,10 @@ import org.slf4j.LoggerFactory;
  *
  * <p>This service transmits all outgoing {@link BeamFnApi.Elements} messages to the first client
  * that connects.
+ *
+ * <p>With the {@link #SHARED_MEMORY_EXPERIMENT} experiment, the service offers clients on the same
+ * host to exchange elements through shared memory while gRPC is only used for signaling. See
+ * {@link SharedMemoryTransport} for details.
  */
 @SuppressWarnings({
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
@@ -53,6 +64,22 @@ public class GrpcDataService extends BeamFnDataGrpc.BeamFnDataImplBase
     implements FnService, FnDataService {
   private static final Logger LOG = LoggerFactory.getLogger(GrpcDataService.class);
 
+  /** Enables offering the shared memory transport to clients. */
+  public static final String SHARED_MEMORY_EXPERIMENT = "use_shared_memory_data_plane";
+
+  /**
+   * The directory in which clients create shared memory rings. Defaults to {@code /dev/shm} if it
+   * exists and the temporary directory otherwise.
+   */
+  public static final String SHARED_MEMORY_DIRECTORY_EXPERIMENT =
+      "shared_memory_data_plane_directory";
+
+  /** The size of each shared memory ring in MiB. */
+  public static final String SHARED_MEMORY_RING_SIZE_MB_EXPERIMENT =
+      "shared_memory_data_plane_ring_size_mb";
+
+  private static final int DEFAULT_SHARED_MEMORY_RING_SIZE_MB = 32;
+
   public static GrpcDataService create(
       PipelineOptions options,
       ExecutorService executor,
@@ -73,6 +100,7 @@ public class GrpcDataService extends BeamFnDataGrpc.BeamFnDataImplBase
   private final PipelineOptions options;
   private final ExecutorService executor;
   private final OutboundObserverFactory outboundObserverFactory;
+  private final @Nullable SharedMemorySpec sharedMemorySpec;
 
   private GrpcDataService(
       PipelineOptions options,
@@ -83,6 +111,30 @@ public class GrpcDataService extends BeamFnDataGrpc.BeamFnDataImplBase
     this.options = options;
     this.executor = executor;
     this.outboundObserverFactory = outboundObserverFactory;
+    this.sharedMemorySpec = sharedMemorySpecFromOptions(options);
+  }
+
+  private static @Nullable SharedMemorySpec sharedMemorySpecFromOptions(PipelineOptions options) {
+    if (!ExperimentalOptions.hasExperiment(options, SHARED_MEMORY_EXPERIMENT)) {
+      return null;
+    }
+    String directory =
+        ExperimentalOptions.getExperimentValue(options, SHARED_MEMORY_DIRECTORY_EXPERIMENT);
+    if (directory == null) {
+      directory =
+          Files.isDirectory(Paths.get("/dev/shm"))
+              ? "/dev/shm"
+              : System.getProperty("java.io.tmpdir");
+    }
+    String ringSizeMb =
+        ExperimentalOptions.getExperimentValue(options, SHARED_MEMORY_RING_SIZE_MB_EXPERIMENT);
+    long ringSizeBytes =
+        (ringSizeMb == null ? DEFAULT_SHARED_MEMORY_RING_SIZE_MB : Long.parseLong(ringSizeMb))
+            << 20;
+    return SharedMemorySpec.newBuilder()
+        .setDirectory(directory)
+        .setRingSizeBytes(ringSizeBytes)
+        .build();
   }
 
   /** @deprecated This constructor is for migrating Dataflow purpose only. */
@@ -93,18 +145,45 @@ public class GrpcDataService extends BeamFnDataGrpc.BeamFnDataImplBase
     this.options = null;
     this.executor = null;
     this.outboundObserverFactory = null;
+    this.sharedMemorySpec = null;
+  }
+
+  /**
+   * Returns the descriptor which clients should use to connect to this service given the {@code
+   * descriptor} of the server the service is exposed on.
+   */
+  public ApiServiceDescriptor getApiServiceDescriptor(ApiServiceDescriptor descriptor) {
+    if (sharedMemorySpec == null) {
+      return descriptor;
+    }
+    return descriptor.toBuilder().setSharedMemory(sharedMemorySpec).build();
   }
 
   @Override
   public StreamObserver<BeamFnApi.Elements> data(
       final StreamObserver<BeamFnApi.Elements> outboundElementObserver) {
     LOG.info("Beam Fn Data client connected.");
+    SharedMemoryTransport sharedMemoryTransport =
+        sharedMemorySpec == null ? null : SharedMemoryTransport.forServer(sharedMemorySpec);
     BeamFnDataGrpcMultiplexer multiplexer =
         new BeamFnDataGrpcMultiplexer(
-            null, outboundObserverFactory, inbound -> outboundElementObserver);
+            null,
+            outboundObserverFactory,
+            inbound -> outboundElementObserver,
+            sharedMemoryTransport);
     // First client that connects completes this future.
     if (!connectedClient.set(multiplexer)) {
       additionalMultiplexers.offer(multiplexer);
+      if (sharedMemoryTransport != null) {
+        // Only the first client is sent elements, additional clients keep using gRPC and the
+        // closed transport ignores their rings.
+        sharedMemoryTransport.close();
+        try {
+          return sharedMemoryTransport.inboundObserver(connectedClient.get().getInboundObserver());
+        } catch (InterruptedException | ExecutionException e) {
+          throw new RuntimeException(e);
+        }
+      }
     }
     try {
       // We specifically return the connected clients inbound observer so that all
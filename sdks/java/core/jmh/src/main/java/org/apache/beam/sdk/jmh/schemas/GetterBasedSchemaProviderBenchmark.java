@@ -19,10 +19,13 @@ package org.apache.beam.sdk.jmh.schemas;
 
 import org.apache.beam.sdk.jmh.schemas.RowBundles.ArrayOfNestedStringBundle;
 import org.apache.beam.sdk.jmh.schemas.RowBundles.ArrayOfStringBundle;
+import org.apache.beam.sdk.jmh.schemas.RowBundles.BooleanBundle;
 import org.apache.beam.sdk.jmh.schemas.RowBundles.ByteBufferBundle;
 import org.apache.beam.sdk.jmh.schemas.RowBundles.BytesBundle;
 import org.apache.beam.sdk.jmh.schemas.RowBundles.DateTimeBundle;
+import org.apache.beam.sdk.jmh.schemas.RowBundles.DoubleBundle;
 import org.apache.beam.sdk.jmh.schemas.RowBundles.IntBundle;
+import org.apache.beam.sdk.jmh.schemas.RowBundles.LongBundle;
 import org.apache.beam.sdk.jmh.schemas.RowBundles.MapOfIntBundle;
 import org.apache.beam.sdk.jmh.schemas.RowBundles.MapOfNestedIntBundle;
 import org.apache.beam.sdk.jmh.schemas.RowBundles.NestedBytesBundle;
@@ -63,6 +66,21 @@ public class GetterBasedSchemaProviderBenchmark {
     state.processRows(bh);
   }
 
+  @Benchmark
+  public void processLongField(LongBundle state, Blackhole bh) {
+    state.processRows(bh);
+  }
+
+  @Benchmark
+  public void processDoubleField(DoubleBundle state, Blackhole bh) {
+    state.processRows(bh);
+  }
+
+  @Benchmark
+  public void processBooleanField(BooleanBundle state, Blackhole bh) {
+    state.processRows(bh);
+  }
+
   @Benchmark
   public void processNestedIntField(NestedIntBundle state, Blackhole bh) {
     state.processRows(bh);
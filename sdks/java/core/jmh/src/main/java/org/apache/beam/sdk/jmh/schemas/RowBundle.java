@@ -178,6 +178,12 @@ public class RowBundle<T> {
         return String.valueOf(val);
       case INT32:
         return val;
+      case INT64:
+        return (long) val;
+      case DOUBLE:
+        return (double) val;
+      case BOOLEAN:
+        return val % 2 == 0;
       case BYTES:
         return String.valueOf(val).getBytes(StandardCharsets.UTF_8);
       case DATETIME:
@@ -41,6 +41,42 @@ public interface RowBundles {
     }
   }
 
+  @State(Scope.Benchmark)
+  class LongBundle extends RowBundle<LongBundle.Field> {
+    public LongBundle() {
+      super(Field.class);
+    }
+
+    @DefaultSchema(JavaFieldSchema.class)
+    public static class Field {
+      public long field;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  class DoubleBundle extends RowBundle<DoubleBundle.Field> {
+    public DoubleBundle() {
+      super(Field.class);
+    }
+
+    @DefaultSchema(JavaFieldSchema.class)
+    public static class Field {
+      public double field;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  class BooleanBundle extends RowBundle<BooleanBundle.Field> {
+    public BooleanBundle() {
+      super(Field.class);
+    }
+
+    @DefaultSchema(JavaFieldSchema.class)
+    public static class Field {
+      public boolean field;
+    }
+  }
+
   @State(Scope.Benchmark)
   class NestedIntBundle extends RowBundle<NestedIntBundle.Field> {
     public NestedIntBundle() {
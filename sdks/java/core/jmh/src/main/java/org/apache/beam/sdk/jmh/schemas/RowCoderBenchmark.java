@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.jmh.schemas;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.util.ExposedByteArrayOutputStream;
+import org.apache.beam.sdk.values.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for encoding and decoding rows with {@link RowCoder}.
+ *
+ * <p>Rows consist of {@link #FIELDS_PER_TYPE} fields of each of the primitive types INT32, INT64,
+ * DOUBLE and BOOLEAN followed by the same number of STRING fields, so that the inline primitive
+ * encoding of the generated coder can be compared with fields encoded through their component
+ * coders.
+ */
+@OperationsPerInvocation(RowCoderBenchmark.ROWS_PER_INVOCATION)
+public class RowCoderBenchmark {
+  static final int ROWS_PER_INVOCATION = 1024;
+  private static final int FIELDS_PER_TYPE = 5;
+
+  /** Encoded and decoded rows for the configured schema. */
+  @State(Scope.Benchmark)
+  public static class Rows {
+    @Param({"PRIMITIVE", "STRING", "MIXED"})
+    String fields;
+
+    RowCoder coder;
+    Row[] rows;
+    byte[][] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+      Schema.Builder builder = Schema.builder();
+      boolean primitive = !"STRING".equals(fields);
+      boolean string = !"PRIMITIVE".equals(fields);
+      for (int i = 0; i < FIELDS_PER_TYPE; i++) {
+        if (primitive) {
+          builder
+              .addInt32Field("int32_" + i)
+              .addInt64Field("int64_" + i)
+              .addDoubleField("double_" + i)
+              .addBooleanField("boolean_" + i);
+        }
+        if (string) {
+          builder.addStringField("string_" + i);
+        }
+      }
+      Schema schema = builder.build();
+      coder = RowCoder.of(schema);
+
+      rows = new Row[ROWS_PER_INVOCATION];
+      encoded = new byte[ROWS_PER_INVOCATION][];
+      ExposedByteArrayOutputStream out = new ExposedByteArrayOutputStream();
+      for (int r = 0; r < ROWS_PER_INVOCATION; r++) {
+        Row.Builder row = Row.withSchema(schema);
+        for (int i = 0; i < FIELDS_PER_TYPE; i++) {
+          if (primitive) {
+            row.addValues(r * i, (long) r << i, r * 0.5d, (r + i) % 2 == 0);
+          }
+          if (string) {
+            row.addValue("value_" + r + "_" + i);
+          }
+        }
+        rows[r] = row.build();
+        out.reset();
+        coder.encode(rows[r], out);
+        encoded[r] = out.toByteArray();
+      }
+    }
+  }
+
+  @Benchmark
+  public void encode(Rows state, Blackhole bh) throws IOException {
+    ExposedByteArrayOutputStream out = new ExposedByteArrayOutputStream();
+    for (Row row : state.rows) {
+      out.reset();
+      state.coder.encode(row, out);
+      bh.consume(out);
+    }
+  }
+
+  @Benchmark
+  public void decode(Rows state, Blackhole bh) throws IOException {
+    for (byte[] bytes : state.encoded) {
+      bh.consume(state.coder.decode(new ByteArrayInputStream(bytes)));
+    }
+  }
+
+  @Benchmark
+  public void decodeFromBuffer(Rows state, Blackhole bh) throws IOException {
+    for (byte[] bytes : state.encoded) {
+      bh.consume(state.coder.decode(ByteBuffer.wrap(bytes)));
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.io.ByteStreams;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.primitives.Longs;
 
@@ -47,6 +48,18 @@ class BitConverters {
     return (b1 & 255) << 24 | (b2 & 255) << 16 | (b3 & 255) << 8 | (b4 & 255);
   }
 
+  static int readBigEndianInt(ByteBuffer buffer) throws IOException {
+    if (buffer.remaining() < 4) {
+      throw new EOFException();
+    }
+    int b1 = buffer.get();
+    int b2 = buffer.get();
+    int b3 = buffer.get();
+    int b4 = buffer.get();
+
+    return (b1 & 255) << 24 | (b2 & 255) << 16 | (b3 & 255) << 8 | (b4 & 255);
+  }
+
   static short readBigEndianShort(InputStream in) throws IOException {
     int b1 = in.read();
     int b2 = in.read();
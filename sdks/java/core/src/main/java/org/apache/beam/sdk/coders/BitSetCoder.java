@@ -20,7 +20,9 @@ package org.apache.beam.sdk.coders;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
+import org.apache.beam.sdk.util.VarInt;
 
 /** Coder for {@link BitSet}. */
 public class BitSetCoder extends AtomicCoder<BitSet> {
@@ -47,6 +49,20 @@ public class BitSetCoder extends AtomicCoder<BitSet> {
     BYTE_ARRAY_CODER.encodeAndOwn(value.toByteArray(), outStream, context);
   }
 
+  @Override
+  public BitSet decode(ByteBuffer buffer) throws CoderException, IOException {
+    int length = VarInt.decodeInt(buffer);
+    if (length < 0 || length > buffer.remaining()) {
+      throw new CoderException(
+          "invalid length " + length + ", " + buffer.remaining() + " bytes remaining");
+    }
+    // BitSet.valueOf copies the bytes out of the slice, so the buffer is not retained.
+    ByteBuffer bits = buffer.slice();
+    bits.limit(length);
+    buffer.position(buffer.position() + length);
+    return BitSet.valueOf(bits);
+  }
+
   @Override
   public BitSet decode(InputStream inStream) throws CoderException, IOException {
     return decode(inStream, Context.NESTED);
@@ -20,6 +20,7 @@ package org.apache.beam.sdk.coders;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.util.ExposedByteArrayOutputStream;
 import org.apache.beam.sdk.util.StreamUtils;
 import org.apache.beam.sdk.util.VarInt;
@@ -90,6 +91,30 @@ public class ByteArrayCoder extends AtomicCoder<byte[]> {
     }
   }
 
+  @Override
+  public void encode(byte[] value, ByteBuffer buffer) throws IOException, CoderException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null byte[]");
+    }
+    VarInt.encode(value.length, buffer);
+    buffer.put(value);
+  }
+
+  @Override
+  public byte[] decode(ByteBuffer buffer) throws IOException, CoderException {
+    int length = VarInt.decodeInt(buffer);
+    if (length < 0) {
+      throw new IOException("invalid length " + length);
+    }
+    if (length > buffer.remaining()) {
+      throw new CoderException(
+          "invalid length " + length + ", only " + buffer.remaining() + " bytes remaining");
+    }
+    byte[] value = new byte[length];
+    buffer.get(value);
+    return value;
+  }
+
   @Override
   public byte[] decode(InputStream inStream) throws IOException, CoderException {
     return decode(inStream, Context.NESTED);
@@ -24,9 +24,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import org.apache.beam.sdk.PipelineRunner;
+import org.apache.beam.sdk.util.ByteBufferInputStream;
+import org.apache.beam.sdk.util.ByteBufferOutputStream;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
 import org.apache.beam.sdk.values.TypeDescriptor;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Joiner;
@@ -159,6 +162,41 @@ public abstract class Coder<T> implements Serializable {
     return decode(inStream);
   }
 
+  /**
+   * Encodes the given value of type {@code T} into the given buffer, starting at the buffer's
+   * current position and advancing it past the encoded bytes. The value is encoded as if in a
+   * nested context, so that several values can be encoded next to each other in the same buffer.
+   *
+   * <p>The encoding is identical to the one produced by {@link #encode(Object, OutputStream)}. By
+   * default, this adapts the buffer into an {@link OutputStream} and delegates to {@link
+   * #encode(Object, OutputStream)}. Coders for which a direct buffer based implementation is
+   * cheaper may override this method.
+   *
+   * @throws java.nio.BufferOverflowException if the buffer does not have enough space remaining
+   * @throws IOException if writing to the buffer fails for some reason
+   * @throws CoderException if the value could not be encoded for some reason
+   */
+  public void encode(T value, ByteBuffer buffer) throws CoderException, IOException {
+    encode(value, new ByteBufferOutputStream(buffer));
+  }
+
+  /**
+   * Decodes a value of type {@code T} from the given buffer, starting at the buffer's current
+   * position and advancing it past the consumed bytes. The value is decoded as if in a nested
+   * context, so that several values encoded next to each other can be read from the same buffer.
+   *
+   * <p>This allows decoding data which is already held in a contiguous (and possibly direct) buffer
+   * without first wrapping it in an {@link InputStream}. By default, this adapts the buffer into an
+   * {@link InputStream} and delegates to {@link #decode(InputStream)}. Coders for which a direct
+   * buffer based implementation is cheaper may override this method.
+   *
+   * @throws IOException if reading from the buffer fails for some reason
+   * @throws CoderException if the value could not be decoded for some reason
+   */
+  public T decode(ByteBuffer buffer) throws CoderException, IOException {
+    return decode(new ByteBufferInputStream(buffer));
+  }
+
   /**
    * If this is a {@link Coder} for a parameterized type, returns the list of {@link Coder}s being
    * used for each of the parameters in the same order they appear within the parameterized type's
@@ -22,6 +22,7 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -29,6 +30,7 @@ import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 import org.apache.beam.sdk.util.BufferedElementCountingOutputStream;
+import org.apache.beam.sdk.util.ByteBufferInputStream;
 import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.sdk.util.common.ElementByteSizeObservableIterable;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
@@ -153,6 +155,35 @@ public abstract class IterableLikeCoder<T, IterableT extends Iterable<T>>
     }
   }
 
+  @Override
+  public IterableT decode(ByteBuffer buffer) throws IOException, CoderException {
+    int size = BitConverters.readBigEndianInt(buffer);
+    if (size >= 0) {
+      List<T> elements = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        elements.add(elementCoder.decode(buffer));
+      }
+      return decodeToIterable(elements);
+    }
+    List<T> elements = new ArrayList<>();
+    // We don't know the size a priori.  Check if we're done with
+    // each block of elements.
+    long count = VarInt.decodeLong(buffer);
+    while (count > 0L) {
+      elements.add(elementCoder.decode(buffer));
+      --count;
+      if (count == 0L) {
+        count = VarInt.decodeLong(buffer);
+      }
+    }
+    if (count == 0) {
+      return decodeToIterable(elements);
+    } else {
+      // Subclasses handling non zero terminators consume the remainder as a stream.
+      return decodeToIterable(elements, count, new ByteBufferInputStream(buffer));
+    }
+  }
+
   @Override
   public List<? extends Coder<?>> getCoderArguments() {
     return Arrays.asList(elementCoder);
@@ -17,21 +17,59 @@
  */
 package org.apache.beam.sdk.coders;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.transforms.SerializableFunctions;
+import org.apache.beam.sdk.util.ByteBufferInputStream;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedBytes;
 import org.apache.beam.sdk.values.TypeDescriptors;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** A sub-class of SchemaCoder that can only encode {@link Row} instances. */
 public class RowCoder extends SchemaCoder<Row> {
+  private final boolean lazy;
+
+  // Lazily initialized by decodeLazily.
+  private transient volatile @Nullable LazyDecoding lazyDecoding;
+
+  /** The component coders and encoding positions shared by all lazily decoded rows. */
+  private static class LazyDecoding {
+    private final Coder<?>[] componentCoders;
+    private final int[] encodingPosToRowIndex;
+
+    private LazyDecoding(Coder<?>[] componentCoders, int[] encodingPosToRowIndex) {
+      this.componentCoders = componentCoders;
+      this.encodingPosToRowIndex = encodingPosToRowIndex;
+    }
+  }
+
   public static RowCoder of(Schema schema) {
-    return new RowCoder(schema);
+    return new RowCoder(schema, false);
+  }
+
+  /**
+   * Returns a coder with the same encoding as this one whose {@link #decode} returns rows that
+   * decode their fields only when they are first accessed, as {@link #decodeLazily} does.
+   *
+   * <p>Setting such a coder on a {@link org.apache.beam.sdk.values.PCollection} read by {@code
+   * Select}, {@code Filter} or SQL projections avoids materializing the fields of wide rows which
+   * are never read, at the cost of copying the encoded bytes of each row.
+   */
+  public RowCoder withLazyDecoding() {
+    return lazy ? this : new RowCoder(schema, true);
+  }
+
+  /** Returns whether {@link #decode} returns lazily decoded rows. */
+  public boolean isLazyDecoding() {
+    return lazy;
   }
 
   /** Override encoding positions for the given schema. */
@@ -44,12 +82,58 @@ public class RowCoder extends SchemaCoder<Row> {
     RowCoderGenerator.clearRowCoderCache();
   }
 
-  private RowCoder(Schema schema) {
+  /**
+   * Returns a {@link Row} backed by {@code encoded}, the encoding of a single row produced by this
+   * coder, whose fields are decoded only when they are first accessed.
+   *
+   * <p>This is cheaper than {@link #decode} when only a few fields of wide rows are read, for
+   * example by projections or filters. The array is not copied and must not be modified afterwards.
+   *
+   * <p>Transforms such as {@code Select} and {@code Filter} never decode their input themselves:
+   * they receive rows which the runner decoded with the coder of the input {@link
+   * org.apache.beam.sdk.values.PCollection}. This method is therefore meant for runners and IOs
+   * which hold encoded rows and hand them to such transforms; pipelines use {@link
+   * #withLazyDecoding} instead.
+   */
+  public Row decodeLazily(byte[] encoded) {
+    LazyDecoding decoding = getLazyDecoding();
+    return new RowWithEncodedBytes(
+        schema, decoding.componentCoders, decoding.encodingPosToRowIndex, encoded);
+  }
+
+  @Override
+  public Row decode(InputStream inStream) throws IOException {
+    if (!lazy) {
+      return super.decode(inStream);
+    }
+    LazyDecoding decoding = getLazyDecoding();
+    return RowWithEncodedBytes.readFrom(
+        schema, decoding.componentCoders, decoding.encodingPosToRowIndex, inStream);
+  }
+
+  @Override
+  public Row decode(ByteBuffer buffer) throws IOException {
+    return lazy ? decode(new ByteBufferInputStream(buffer)) : super.decode(buffer);
+  }
+
+  private LazyDecoding getLazyDecoding() {
+    LazyDecoding decoding = lazyDecoding;
+    if (decoding == null) {
+      int[] positions = RowCoderGenerator.getEncodingPosToRowIndex(schema);
+      decoding =
+          new LazyDecoding(RowCoderGenerator.getComponentCoders(schema, positions), positions);
+      lazyDecoding = decoding;
+    }
+    return decoding;
+  }
+
+  private RowCoder(Schema schema, boolean lazy) {
     super(
         schema,
         TypeDescriptors.rows(),
         SerializableFunctions.identity(),
         SerializableFunctions.identity());
+    this.lazy = lazy;
   }
 
   @Override
@@ -61,11 +145,11 @@ public class RowCoder extends SchemaCoder<Row> {
       return false;
     }
     RowCoder rowCoder = (RowCoder) o;
-    return schema.equals(rowCoder.schema);
+    return schema.equals(rowCoder.schema) && lazy == rowCoder.lazy;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(schema);
+    return Objects.hash(schema, lazy);
   }
 }
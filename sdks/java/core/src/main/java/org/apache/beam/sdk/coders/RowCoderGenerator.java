@@ -20,11 +20,13 @@ package org.apache.beam.sdk.coders;
 import static org.apache.beam.sdk.util.ByteBuddyUtils.getClassLoadingStrategy;
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Map;
@@ -53,8 +55,10 @@ import net.bytebuddy.matcher.ElementMatchers;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.schemas.Schema.Field;
 import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.Schema.TypeName;
 import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.util.StringUtils;
+import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.sdk.util.common.ReflectHelpers;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
@@ -72,6 +76,11 @@ import org.slf4j.LoggerFactory;
  * bytecode generation, and hardcodes encodings for all fields of the Schema. Empirically, this is
  * 30-40% faster than a coder that introspects the schema.
  *
+ * <p>Fields of type {@link TypeName#INT32}, {@link TypeName#INT64}, {@link TypeName#DOUBLE} and
+ * {@link TypeName#BOOLEAN} are encoded and decoded inline by the delegate methods instead of going
+ * through their component {@link Coder}, which avoids a megamorphic call per field for the most
+ * common column types. The wire format is identical to that of the respective component coders.
+ *
  * <p>The generated class corresponds to the following Java class:
  *
  * <pre><code>
@@ -79,6 +88,9 @@ import org.slf4j.LoggerFactory;
  *   // Generated array containing a coder for each field in the Schema.
  *   private static final Coder[] FIELD_CODERS;
  *
+ *   // Generated array containing the inline encoding kind for each field in the Schema.
+ *   private static final byte[] FIELD_KINDS;
+ *
  *   // Generated method to return the schema this class corresponds to. Used during code
  *   // generation.
  *   private static getSchema() {
@@ -88,13 +100,19 @@ import org.slf4j.LoggerFactory;
  *  {@literal @}Override
  *   public void encode(T value, OutputStream outStream) {
  *     // Delegate to a method that evaluates each coder in the static array.
- *     encodeDelegate(FIELD_CODERS, value, outStream);
+ *     encodeDelegate(FIELD_CODERS, FIELD_KINDS, value, outStream);
  *   }
  *
  *  {@literal @}Override
  *   public abstract T decode(InputStream inStream) {
  *     // Delegate to a method that evaluates each coder in the static array.
- *     return decodeDelegate(FIELD_CODERS, inStream);
+ *     return decodeDelegate(FIELD_CODERS, FIELD_KINDS, inStream);
+ *   }
+ *
+ *  {@literal @}Override
+ *   public abstract T decode(ByteBuffer buffer) {
+ *     // Delegate to a method that evaluates each coder in the static array directly on the buffer.
+ *     return decodeBufferDelegate(FIELD_CODERS, FIELD_KINDS, buffer);
  *   }
  * }
  * </code></pre>
@@ -113,6 +131,15 @@ public abstract class RowCoderGenerator {
 
   private static final String CODERS_FIELD_NAME = "FIELD_CODERS";
   private static final String POSITIONS_FIELD_NAME = "FIELD_ENCODING_POSITIONS";
+  private static final String KINDS_FIELD_NAME = "FIELD_KINDS";
+
+  // Inline encoding kinds for fields, indexed by encoding position. Fields of KIND_CODER are
+  // encoded by their component coder, all others are encoded directly by the delegate methods.
+  private static final byte KIND_CODER = 0;
+  private static final byte KIND_INT32 = 1;
+  private static final byte KIND_INT64 = 2;
+  private static final byte KIND_DOUBLE = 3;
+  private static final byte KIND_BOOLEAN = 4;
 
   static class WithStackTrace<T> {
     private final T value;
@@ -212,32 +239,13 @@ public abstract class RowCoderGenerator {
           (DynamicType.Builder<Coder>) BYTE_BUDDY.subclass(coderType);
       builder = implementMethods(schema, builder);
 
-      int[] encodingPosToRowIndex = new int[schema.getFieldCount()];
-      @Nullable
-      WithStackTrace<Map<String, Integer>> existingEncodingPositions =
-          ENCODING_POSITION_OVERRIDES.get(uuid);
-      Map<String, Integer> encodingPositions =
-          existingEncodingPositions == null
-              ? schema.getEncodingPositions()
-              : existingEncodingPositions.getValue();
-      for (int recordIndex = 0; recordIndex < schema.getFieldCount(); ++recordIndex) {
-        String name = schema.getField(recordIndex).getName();
-        int encodingPosition = encodingPositions.get(name);
-        encodingPosToRowIndex[encodingPosition] = recordIndex;
-      }
-      // There should never be duplicate encoding positions.
-      Preconditions.checkState(
-          schema.getFieldCount() == Arrays.stream(encodingPosToRowIndex).distinct().count());
-
-      // Component coders are ordered by encoding position, but may encode a field with a different
-      // row index.
-      Coder[] componentCoders = new Coder[schema.getFieldCount()];
+      Map<String, Integer> encodingPositions = getEncodingPositions(schema);
+      int[] encodingPosToRowIndex = getEncodingPosToRowIndex(schema);
+      Coder[] componentCoders = getComponentCoders(schema, encodingPosToRowIndex);
+      byte[] fieldKinds = new byte[schema.getFieldCount()];
       for (int i = 0; i < schema.getFieldCount(); ++i) {
-        int rowIndex = encodingPosToRowIndex[i];
-        // We use withNullable(false) as nulls are handled by the RowCoder and the individual
-        // component coders therefore do not need to handle nulls.
-        componentCoders[i] =
-            SchemaCoder.coderForFieldType(schema.getField(rowIndex).getType().withNullable(false));
+        fieldKinds[i] =
+            fieldKind(schema.getField(encodingPosToRowIndex[i]).getType().withNullable(false));
       }
 
       builder =
@@ -246,8 +254,10 @@ public abstract class RowCoderGenerator {
                   CODERS_FIELD_NAME, Coder[].class, Visibility.PRIVATE, FieldManifestation.FINAL)
               .defineField(
                   POSITIONS_FIELD_NAME, int[].class, Visibility.PRIVATE, FieldManifestation.FINAL)
+              .defineField(
+                  KINDS_FIELD_NAME, byte[].class, Visibility.PRIVATE, FieldManifestation.FINAL)
               .defineConstructor(Modifier.PUBLIC)
-              .withParameters(Coder[].class, int[].class)
+              .withParameters(Coder[].class, int[].class, byte[].class)
               .intercept(new GeneratedCoderConstructor());
 
       Coder<Row> rowCoder;
@@ -259,8 +269,9 @@ public abstract class RowCoderGenerator {
                     ReflectHelpers.findClassLoader(Coder.class.getClassLoader()),
                     getClassLoadingStrategy(Coder.class))
                 .getLoaded()
-                .getDeclaredConstructor(Coder[].class, int[].class)
-                .newInstance((Object) componentCoders, (Object) encodingPosToRowIndex);
+                .getDeclaredConstructor(Coder[].class, int[].class, byte[].class)
+                .newInstance(
+                    (Object) componentCoders, (Object) encodingPosToRowIndex, (Object) fieldKinds);
       } catch (InstantiationException
           | IllegalAccessException
           | NoSuchMethodException
@@ -278,6 +289,69 @@ public abstract class RowCoderGenerator {
     }
   }
 
+  private static Map<String, Integer> getEncodingPositions(Schema schema) {
+    synchronized (cacheLock) {
+      @Nullable
+      WithStackTrace<Map<String, Integer>> existingEncodingPositions =
+          ENCODING_POSITION_OVERRIDES.get(schema.getUUID());
+      return existingEncodingPositions == null
+          ? schema.getEncodingPositions()
+          : existingEncodingPositions.getValue();
+    }
+  }
+
+  /**
+   * Returns the mapping from encoding position to field index in the {@link Row} for the given
+   * schema, taking overridden encoding positions into account.
+   */
+  static int[] getEncodingPosToRowIndex(Schema schema) {
+    Map<String, Integer> encodingPositions = getEncodingPositions(schema);
+    int[] encodingPosToRowIndex = new int[schema.getFieldCount()];
+    for (int recordIndex = 0; recordIndex < schema.getFieldCount(); ++recordIndex) {
+      String name = schema.getField(recordIndex).getName();
+      int encodingPosition = encodingPositions.get(name);
+      encodingPosToRowIndex[encodingPosition] = recordIndex;
+    }
+    // There should never be duplicate encoding positions.
+    Preconditions.checkState(
+        schema.getFieldCount() == Arrays.stream(encodingPosToRowIndex).distinct().count());
+    return encodingPosToRowIndex;
+  }
+
+  /**
+   * Returns the non-nullable component coder for each field of the schema, ordered by encoding
+   * position.
+   */
+  static Coder[] getComponentCoders(Schema schema, int[] encodingPosToRowIndex) {
+    // Component coders are ordered by encoding position, but may encode a field with a different
+    // row index.
+    Coder[] componentCoders = new Coder[schema.getFieldCount()];
+    for (int i = 0; i < schema.getFieldCount(); ++i) {
+      int rowIndex = encodingPosToRowIndex[i];
+      // We use withNullable(false) as nulls are handled by the RowCoder and the individual
+      // component coders therefore do not need to handle nulls.
+      componentCoders[i] =
+          SchemaCoder.coderForFieldType(schema.getField(rowIndex).getType().withNullable(false));
+    }
+    return componentCoders;
+  }
+
+  /** Returns the inline encoding kind for a non-nullable field of the given type. */
+  private static byte fieldKind(FieldType fieldType) {
+    switch (fieldType.getTypeName()) {
+      case INT32:
+        return KIND_INT32;
+      case INT64:
+        return KIND_INT64;
+      case DOUBLE:
+        return KIND_DOUBLE;
+      case BOOLEAN:
+        return KIND_BOOLEAN;
+      default:
+        return KIND_CODER;
+    }
+  }
+
   private static class GeneratedCoderConstructor implements Implementation {
     @Override
     public InstrumentedType prepare(InstrumentedType instrumentedType) {
@@ -309,6 +383,7 @@ public abstract class RowCoderGenerator {
                             .filter(ElementMatchers.named(CODERS_FIELD_NAME))
                             .getOnly())
                     .write(),
+                Duplication.SINGLE,
                 // Store the list of encoding offsets as a member variable.
                 MethodVariableAccess.REFERENCE.loadFrom(2),
                 FieldAccess.forField(
@@ -318,6 +393,15 @@ public abstract class RowCoderGenerator {
                             .filter(ElementMatchers.named(POSITIONS_FIELD_NAME))
                             .getOnly())
                     .write(),
+                // Store the list of inline field kinds as a member variable.
+                MethodVariableAccess.REFERENCE.loadFrom(3),
+                FieldAccess.forField(
+                        implementationTarget
+                            .getInstrumentedType()
+                            .getDeclaredFields()
+                            .filter(ElementMatchers.named(KINDS_FIELD_NAME))
+                            .getOnly())
+                    .write(),
                 MethodReturn.VOID);
         StackManipulation.Size size = stackManipulation.apply(methodVisitor, implementationContext);
         return new Size(size.getMaximalSize(), numLocals);
@@ -334,10 +418,18 @@ public abstract class RowCoderGenerator {
         .intercept(FixedValue.reference(schema))
         .defineMethod("hasNullableFields", boolean.class, Visibility.PRIVATE, Ownership.STATIC)
         .intercept(FixedValue.reference(hasNullableFields))
-        .method(ElementMatchers.named("encode"))
+        .method(
+            ElementMatchers.named("encode")
+                .and(ElementMatchers.takesArgument(1, OutputStream.class)))
         .intercept(new EncodeInstruction())
-        .method(ElementMatchers.named("decode"))
-        .intercept(new DecodeInstruction());
+        .method(
+            ElementMatchers.named("decode")
+                .and(ElementMatchers.takesArgument(0, InputStream.class)))
+        .intercept(new DecodeInstruction("decodeDelegate"))
+        .method(
+            ElementMatchers.named("decode")
+                .and(ElementMatchers.takesArgument(0, ByteBuffer.class)))
+        .intercept(new DecodeInstruction("decodeBufferDelegate"));
   }
 
   private static class EncodeInstruction implements Implementation {
@@ -365,6 +457,14 @@ public abstract class RowCoderGenerator {
                             .filter(ElementMatchers.named(POSITIONS_FIELD_NAME))
                             .getOnly())
                     .read(),
+                MethodVariableAccess.loadThis(),
+                FieldAccess.forField(
+                        implementationContext
+                            .getInstrumentedType()
+                            .getDeclaredFields()
+                            .filter(ElementMatchers.named(KINDS_FIELD_NAME))
+                            .getOnly())
+                    .read(),
                 // Element to encode. (offset 1, as offset 0 is always "this").
                 MethodVariableAccess.REFERENCE.loadFrom(1),
                 // OutputStream.
@@ -400,6 +500,7 @@ public abstract class RowCoderGenerator {
     static void encodeDelegate(
         Coder[] coders,
         int[] encodingPosToIndex,
+        byte[] fieldKinds,
         Row value,
         OutputStream outputStream,
         boolean hasNullableFields)
@@ -424,7 +525,7 @@ public abstract class RowCoderGenerator {
         for (int encodingPos = 0; encodingPos < fieldValues.length; ++encodingPos) {
           @Nullable Object fieldValue = fieldValues[encodingPosToIndex[encodingPos]];
           if (fieldValue != null) {
-            coders[encodingPos].encode(fieldValue, outputStream);
+            encodeField(coders[encodingPos], fieldKinds[encodingPos], fieldValue, outputStream);
           }
         }
       } else {
@@ -434,12 +535,39 @@ public abstract class RowCoderGenerator {
         for (int encodingPos = 0; encodingPos < value.getFieldCount(); ++encodingPos) {
           @Nullable Object fieldValue = value.getValue(encodingPosToIndex[encodingPos]);
           if (fieldValue != null) {
-            coders[encodingPos].encode(fieldValue, outputStream);
+            encodeField(coders[encodingPos], fieldKinds[encodingPos], fieldValue, outputStream);
           }
         }
       }
     }
 
+    // Encodes a single non-null field, writing the common primitive types inline using the same
+    // wire format as VarIntCoder, VarLongCoder, DoubleCoder and BooleanCoder respectively.
+    @SuppressWarnings("unchecked")
+    private static void encodeField(
+        Coder coder, byte fieldKind, Object fieldValue, OutputStream outputStream)
+        throws IOException {
+      switch (fieldKind) {
+        case KIND_INT32:
+          VarInt.encode((int) (Integer) fieldValue, outputStream);
+          break;
+        case KIND_INT64:
+          VarInt.encode((long) (Long) fieldValue, outputStream);
+          break;
+        case KIND_DOUBLE:
+          long bits = Double.doubleToLongBits((Double) fieldValue);
+          for (int shift = 56; shift >= 0; shift -= 8) {
+            outputStream.write((int) (bits >>> shift));
+          }
+          break;
+        case KIND_BOOLEAN:
+          outputStream.write((Boolean) fieldValue ? 1 : 0);
+          break;
+        default:
+          coder.encode(fieldValue, outputStream);
+      }
+    }
+
     // Figure out which fields of the Row are null, and returns a BitSet. This allows us to save
     // on encoding each null field separately.
     private static BitSet scanNullFields(Object[] fieldValues, int[] encodingPosToIndex) {
@@ -458,6 +586,13 @@ public abstract class RowCoderGenerator {
   private static class DecodeInstruction implements Implementation {
     static final ForLoadedType LOADED_TYPE = new ForLoadedType(DecodeInstruction.class);
 
+    // Name of the static method in this class that the generated method delegates to.
+    private final String delegateMethodName;
+
+    DecodeInstruction(String delegateMethodName) {
+      this.delegateMethodName = delegateMethodName;
+    }
+
     @Override
     public ByteCodeAppender appender(Target implementationTarget) {
       return (methodVisitor, implementationContext, instrumentedMethod) -> {
@@ -487,13 +622,22 @@ public abstract class RowCoderGenerator {
                             .filter(ElementMatchers.named(POSITIONS_FIELD_NAME))
                             .getOnly())
                     .read(),
-                // read the InputStream. (offset 1, as offset 0 is always "this").
+                MethodVariableAccess.loadThis(),
+                FieldAccess.forField(
+                        implementationContext
+                            .getInstrumentedType()
+                            .getDeclaredFields()
+                            .filter(ElementMatchers.named(KINDS_FIELD_NAME))
+                            .getOnly())
+                    .read(),
+                // read the InputStream or ByteBuffer. (offset 1, as offset 0 is always "this").
                 MethodVariableAccess.REFERENCE.loadFrom(1),
                 MethodInvocation.invoke(
                     LOADED_TYPE
                         .getDeclaredMethods()
                         .filter(
-                            ElementMatchers.isStatic().and(ElementMatchers.named("decodeDelegate")))
+                            ElementMatchers.isStatic()
+                                .and(ElementMatchers.named(delegateMethodName)))
                         .getOnly()),
                 MethodReturn.REFERENCE);
         StackManipulation.Size size = manipulation.apply(methodVisitor, implementationContext);
@@ -509,7 +653,11 @@ public abstract class RowCoderGenerator {
     // The decode method of the generated Coder delegates to this method to evaluate all of the
     // per-field Coders.
     static Row decodeDelegate(
-        Schema schema, Coder[] coders, int[] encodingPosToIndex, InputStream inputStream)
+        Schema schema,
+        Coder[] coders,
+        int[] encodingPosToIndex,
+        byte[] fieldKinds,
+        InputStream inputStream)
         throws IOException {
       int fieldCount = VAR_INT_CODER.decode(inputStream);
 
@@ -523,7 +671,8 @@ public abstract class RowCoderGenerator {
           if (nullFields.get(encodingPos)) {
             fieldValues[rowIndex] = null;
           } else {
-            Object fieldValue = coders[encodingPos].decode(inputStream);
+            Object fieldValue =
+                decodeField(coders[encodingPos], fieldKinds[encodingPos], inputStream);
             fieldValues[rowIndex] = fieldValue;
           }
         }
@@ -540,5 +689,102 @@ public abstract class RowCoderGenerator {
       // some processing by simply transferring ownership of the list to the Row.
       return Row.withSchema(schema).attachValues(fieldValues);
     }
+
+    // The decode(ByteBuffer) method of the generated Coder delegates to this method. It mirrors
+    // decodeDelegate, but lets each per-field Coder read directly from the buffer.
+    static Row decodeBufferDelegate(
+        Schema schema,
+        Coder[] coders,
+        int[] encodingPosToIndex,
+        byte[] fieldKinds,
+        ByteBuffer buffer)
+        throws IOException {
+      int fieldCount = VAR_INT_CODER.decode(buffer);
+
+      BitSet nullFields = NULL_LIST_CODER.decode(buffer);
+      Object[] fieldValues = new Object[coders.length];
+      for (int encodingPos = 0; encodingPos < fieldCount; ++encodingPos) {
+        // In the case of a schema change going backwards, fieldCount might be > coders.length,
+        // in which case we drop the extra fields.
+        if (encodingPos < coders.length) {
+          int rowIndex = encodingPosToIndex[encodingPos];
+          if (nullFields.get(encodingPos)) {
+            fieldValues[rowIndex] = null;
+          } else {
+            fieldValues[rowIndex] =
+                decodeField(coders[encodingPos], fieldKinds[encodingPos], buffer);
+          }
+        }
+      }
+      // If the schema was evolved to contain more fields, they are left as nulls.
+      return Row.withSchema(schema).attachValues(fieldValues);
+    }
+
+    // Decodes a single non-null field, reading the common primitive types inline. See encodeField.
+    private static Object decodeField(Coder coder, byte fieldKind, InputStream inputStream)
+        throws IOException {
+      try {
+        switch (fieldKind) {
+          case KIND_INT32:
+            return VarInt.decodeInt(inputStream);
+          case KIND_INT64:
+            return VarInt.decodeLong(inputStream);
+          case KIND_DOUBLE:
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+              int b = inputStream.read();
+              if (b < 0) {
+                throw new EOFException();
+              }
+              bits = (bits << 8) | b;
+            }
+            return Double.longBitsToDouble(bits);
+          case KIND_BOOLEAN:
+            return decodeBoolean(inputStream.read());
+          default:
+            return coder.decode(inputStream);
+        }
+      } catch (EOFException exn) {
+        throw new CoderException(exn);
+      }
+    }
+
+    private static Object decodeField(Coder coder, byte fieldKind, ByteBuffer buffer)
+        throws IOException {
+      try {
+        switch (fieldKind) {
+          case KIND_INT32:
+            return VarInt.decodeInt(buffer);
+          case KIND_INT64:
+            return VarInt.decodeLong(buffer);
+          case KIND_DOUBLE:
+            if (buffer.remaining() < 8) {
+              throw new EOFException();
+            }
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+              bits = (bits << 8) | (buffer.get() & 0xFF);
+            }
+            return Double.longBitsToDouble(bits);
+          case KIND_BOOLEAN:
+            return decodeBoolean(buffer.hasRemaining() ? buffer.get() & 0xFF : -1);
+          default:
+            return coder.decode(buffer);
+        }
+      } catch (EOFException exn) {
+        throw new CoderException(exn);
+      }
+    }
+
+    private static Boolean decodeBoolean(int value) throws IOException {
+      if (value == 0) {
+        return Boolean.FALSE;
+      } else if (value == 1) {
+        return Boolean.TRUE;
+      } else if (value < 0) {
+        throw new EOFException();
+      }
+      throw new IOException(String.format("Expected 0 or 1, got %d", (byte) value));
+    }
   }
 }
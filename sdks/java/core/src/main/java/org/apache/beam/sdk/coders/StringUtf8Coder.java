@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import org.apache.beam.sdk.util.ExposedByteArrayOutputStream;
 import org.apache.beam.sdk.util.StreamUtils;
@@ -61,6 +62,29 @@ public class StringUtf8Coder extends AtomicCoder<String> {
     return new String(bytes, StandardCharsets.UTF_8);
   }
 
+  private static String readString(ByteBuffer buffer) throws IOException {
+    int len = VarInt.decodeInt(buffer);
+    if (len < 0) {
+      throw new CoderException("Invalid encoded string length: " + len);
+    }
+    if (len > buffer.remaining()) {
+      throw new EOFException(
+          "Encoded string length " + len + " exceeds remaining " + buffer.remaining() + " bytes");
+    }
+    String value;
+    if (buffer.hasArray()) {
+      // Decode directly out of the backing array, avoiding an intermediate copy.
+      int offset = buffer.arrayOffset() + buffer.position();
+      value = new String(buffer.array(), offset, len, StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + len);
+    } else {
+      byte[] bytes = new byte[len];
+      buffer.get(bytes);
+      value = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return value;
+  }
+
   private StringUtf8Coder() {}
 
   @Override
@@ -85,6 +109,27 @@ public class StringUtf8Coder extends AtomicCoder<String> {
     }
   }
 
+  @Override
+  public void encode(String value, ByteBuffer buffer) throws IOException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null String");
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    VarInt.encode(bytes.length, buffer);
+    buffer.put(bytes);
+  }
+
+  @Override
+  public String decode(ByteBuffer buffer) throws IOException {
+    try {
+      return readString(buffer);
+    } catch (EOFException exn) {
+      // These exceptions correspond to decoding problems, so change
+      // what kind of exception they're branded as.
+      throw new CoderException(exn);
+    }
+  }
+
   @Override
   public String decode(InputStream inStream) throws IOException {
     return decode(inStream, Context.NESTED);
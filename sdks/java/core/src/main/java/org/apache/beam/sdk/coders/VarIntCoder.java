@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.sdk.values.TypeDescriptor;
 
@@ -51,6 +52,23 @@ public class VarIntCoder extends AtomicCoder<Integer> {
     VarInt.encode(value, outStream);
   }
 
+  @Override
+  public void encode(Integer value, ByteBuffer buffer) throws IOException, CoderException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null Integer");
+    }
+    VarInt.encode(value, buffer);
+  }
+
+  @Override
+  public Integer decode(ByteBuffer buffer) throws IOException, CoderException {
+    try {
+      return VarInt.decodeInt(buffer);
+    } catch (EOFException exn) {
+      throw new CoderException(exn);
+    }
+  }
+
   @Override
   public Integer decode(InputStream inStream) throws IOException, CoderException {
     try {
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import org.apache.beam.sdk.util.VarInt;
@@ -52,6 +53,23 @@ public class VarLongCoder extends StructuredCoder<Long> {
     VarInt.encode(value, outStream);
   }
 
+  @Override
+  public void encode(Long value, ByteBuffer buffer) throws IOException, CoderException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null Long");
+    }
+    VarInt.encode(value, buffer);
+  }
+
+  @Override
+  public Long decode(ByteBuffer buffer) throws IOException, CoderException {
+    try {
+      return VarInt.decodeLong(buffer);
+    } catch (EOFException exn) {
+      throw new CoderException(exn);
+    }
+  }
+
   @Override
   public Long decode(InputStream inStream) throws IOException, CoderException {
     try {
@@ -20,6 +20,7 @@ package org.apache.beam.sdk.fn.channel;
 import java.net.SocketAddress;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 import org.apache.beam.model.pipeline.v1.Endpoints.ApiServiceDescriptor;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.ClientInterceptor;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.ManagedChannel;
@@ -31,6 +32,7 @@ import org.apache.beam.vendor.grpc.v1p69p0.io.netty.channel.epoll.EpollEventLoop
 import org.apache.beam.vendor.grpc.v1p69p0.io.netty.channel.epoll.EpollSocketChannel;
 import org.apache.beam.vendor.grpc.v1p69p0.io.netty.channel.unix.DomainSocketAddress;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** A Factory which creates {@link ManagedChannel} instances. */
 public class ManagedChannelFactory {
@@ -39,7 +41,7 @@ public class ManagedChannelFactory {
    * channel type.
    */
   public static ManagedChannelFactory createDefault() {
-    return new ManagedChannelFactory(Type.DEFAULT, Collections.emptyList(), false);
+    return new ManagedChannelFactory(Type.DEFAULT, Collections.emptyList(), false, null);
   }
 
   /**
@@ -49,12 +51,12 @@ public class ManagedChannelFactory {
    */
   public static ManagedChannelFactory createEpoll() {
     org.apache.beam.vendor.grpc.v1p69p0.io.netty.channel.epoll.Epoll.ensureAvailability();
-    return new ManagedChannelFactory(Type.EPOLL, Collections.emptyList(), false);
+    return new ManagedChannelFactory(Type.EPOLL, Collections.emptyList(), false, null);
   }
 
   /** Creates a {@link ManagedChannel} using an in-process channel. */
   public static ManagedChannelFactory createInProcess() {
-    return new ManagedChannelFactory(Type.IN_PROCESS, Collections.emptyList(), false);
+    return new ManagedChannelFactory(Type.IN_PROCESS, Collections.emptyList(), false, null);
   }
 
   public ManagedChannel forDescriptor(ApiServiceDescriptor apiServiceDescriptor) {
@@ -97,6 +99,8 @@ public class ManagedChannelFactory {
             .intercept(interceptors);
     if (directExecutor) {
       channelBuilder = channelBuilder.directExecutor();
+    } else if (executor != null) {
+      channelBuilder = channelBuilder.executor(executor);
     }
     return channelBuilder.build();
   }
@@ -111,12 +115,17 @@ public class ManagedChannelFactory {
   private final Type type;
   private final List<ClientInterceptor> interceptors;
   private final boolean directExecutor;
+  private final @Nullable Executor executor;
 
   private ManagedChannelFactory(
-      Type type, List<ClientInterceptor> interceptors, boolean directExecutor) {
+      Type type,
+      List<ClientInterceptor> interceptors,
+      boolean directExecutor,
+      @Nullable Executor executor) {
     this.type = type;
     this.interceptors = interceptors;
     this.directExecutor = directExecutor;
+    this.executor = executor;
   }
 
   /**
@@ -130,7 +139,8 @@ public class ManagedChannelFactory {
             .addAll(this.interceptors)
             .addAll(interceptors)
             .build(),
-        directExecutor);
+        directExecutor,
+        executor);
   }
 
   /**
@@ -138,6 +148,14 @@ public class ManagedChannelFactory {
    * the direct executor.
    */
   public ManagedChannelFactory withDirectExecutor() {
-    return new ManagedChannelFactory(type, interceptors, true);
+    return new ManagedChannelFactory(type, interceptors, true, null);
+  }
+
+  /**
+   * Returns a {@link ManagedChannelFactory} like this one, but will construct the channel to run
+   * callbacks on the provided {@link Executor} instead of the gRPC default shared thread pool.
+   */
+  public ManagedChannelFactory withExecutor(Executor executor) {
+    return new ManagedChannelFactory(type, interceptors, false, executor);
   }
 }
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Tunes the size and time limits of a {@link BeamFnDataOutboundAggregator} based upon the observed
+ * flushes.
+ *
+ * <p>A flush is considered backpressured when sending it blocked for a significant portion of the
+ * time it took to fill the buffer, for example because the outbound gRPC stream was not ready. In
+ * that case larger frames are used and the deadline is relaxed since the data would otherwise wait
+ * within gRPC. Without backpressure:
+ *
+ * <ul>
+ *   <li>buffers which fill within a fraction of the latency target grow, reducing the per-message
+ *       overhead for throughput oriented pipelines,
+ *   <li>buffers which are flushed because of the deadline shrink towards the amount of data that is
+ *       produced within the latency target, lowering the latency of sparse outputs.
+ * </ul>
+ */
+@NotThreadSafe
+class AdaptiveFlushPolicy {
+  static final int MIN_SIZE_LIMIT_BYTES = 8 << 10;
+  static final int MAX_SIZE_LIMIT_BYTES = 8 << 20;
+  // The deadline is relaxed up to this multiple of the latency target under backpressure.
+  static final int MAX_DEADLINE_MULTIPLIER = 8;
+  // A flush is backpressured if sending it took longer than this fraction of the fill time.
+  private static final int BACKPRESSURE_RATIO = 4;
+  // Buffers which filled within this fraction of the latency target grow.
+  private static final int GROWTH_RATIO = 4;
+
+  private final long latencyTargetNanos;
+  private final int maxSizeLimit;
+  private int sizeLimit;
+  private long deadlineNanos;
+
+  AdaptiveFlushPolicy(int initialSizeLimit, long latencyTargetMillis) {
+    checkArgument(
+        latencyTargetMillis > 0,
+        "Expected a positive latency target but got %s",
+        latencyTargetMillis);
+    this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+    this.maxSizeLimit = Math.max(MAX_SIZE_LIMIT_BYTES, initialSizeLimit);
+    this.sizeLimit = Math.min(Math.max(MIN_SIZE_LIMIT_BYTES, initialSizeLimit), maxSizeLimit);
+    this.deadlineNanos = latencyTargetNanos;
+  }
+
+  /** The number of buffered bytes after which the buffer should be flushed. */
+  int getSizeLimit() {
+    return sizeLimit;
+  }
+
+  /** The amount of time since the last flush after which the buffer should be flushed. */
+  long getDeadlineNanos() {
+    return deadlineNanos;
+  }
+
+  /**
+   * Updates the limits based upon a flush of {@code bytes} which were buffered for {@code
+   * fillNanos} and took {@code sendNanos} to be accepted by the outbound observer.
+   */
+  void onFlush(long bytes, long fillNanos, long sendNanos, boolean deadlineExpired) {
+    if (sendNanos * BACKPRESSURE_RATIO > fillNanos) {
+      sizeLimit = (int) Math.min((long) sizeLimit * 2, maxSizeLimit);
+      deadlineNanos = Math.min(deadlineNanos * 2, latencyTargetNanos * MAX_DEADLINE_MULTIPLIER);
+      return;
+    }
+    deadlineNanos = latencyTargetNanos;
+    if (deadlineExpired) {
+      sizeLimit = (int) Math.max(MIN_SIZE_LIMIT_BYTES, Math.max(bytes, sizeLimit / 2));
+    } else if (fillNanos * GROWTH_RATIO < latencyTargetNanos) {
+      sizeLimit = (int) Math.min((long) sizeLimit * 2, maxSizeLimit);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "AdaptiveFlushPolicy{sizeLimit=%s, deadlineMs=%s}",
+        sizeLimit, TimeUnit.NANOSECONDS.toMillis(deadlineNanos));
+  }
+}
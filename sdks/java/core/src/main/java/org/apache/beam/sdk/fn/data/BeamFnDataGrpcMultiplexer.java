@@ -61,6 +61,7 @@ public class BeamFnDataGrpcMultiplexer implements AutoCloseable {
           /*instructionId=*/ String, CompletableFuture<CloseableFnDataReceiver<BeamFnApi.Elements>>>
       receivers;
   private final Cache</*instructionId=*/ String, /*unused=*/ Boolean> poisonedInstructionIds;
+  private final @Nullable SharedMemoryTransport sharedMemoryTransport;
 
   private static class PoisonedException extends RuntimeException {
     public PoisonedException() {
@@ -73,13 +74,35 @@ public class BeamFnDataGrpcMultiplexer implements AutoCloseable {
       OutboundObserverFactory outboundObserverFactory,
       OutboundObserverFactory.BasicFactory<BeamFnApi.Elements, BeamFnApi.Elements>
           baseOutboundObserverFactory) {
+    this(apiServiceDescriptor, outboundObserverFactory, baseOutboundObserverFactory, null);
+  }
+
+  /**
+   * Creates a multiplexer which exchanges elements through the {@link SharedMemoryTransport} if
+   * one is provided and uses gRPC only to signal which elements to read.
+   */
+  public BeamFnDataGrpcMultiplexer(
+      Endpoints.@Nullable ApiServiceDescriptor apiServiceDescriptor,
+      OutboundObserverFactory outboundObserverFactory,
+      OutboundObserverFactory.BasicFactory<BeamFnApi.Elements, BeamFnApi.Elements>
+          baseOutboundObserverFactory,
+      @Nullable SharedMemoryTransport sharedMemoryTransport) {
     this.apiServiceDescriptor = apiServiceDescriptor;
     this.receivers = new ConcurrentHashMap<>();
     this.poisonedInstructionIds =
         CacheBuilder.newBuilder().expireAfterWrite(POISONED_INSTRUCTION_ID_CACHE_TIMEOUT).build();
-    this.inboundObserver = new InboundObserver();
-    this.outboundObserver =
-        outboundObserverFactory.outboundObserverFor(baseOutboundObserverFactory, inboundObserver);
+    this.sharedMemoryTransport = sharedMemoryTransport;
+    if (sharedMemoryTransport == null) {
+      this.inboundObserver = new InboundObserver();
+      this.outboundObserver =
+          outboundObserverFactory.outboundObserverFor(baseOutboundObserverFactory, inboundObserver);
+    } else {
+      this.inboundObserver = sharedMemoryTransport.inboundObserver(new InboundObserver());
+      this.outboundObserver =
+          sharedMemoryTransport.outboundObserver(
+              outboundObserverFactory.outboundObserverFor(
+                  baseOutboundObserverFactory, inboundObserver));
+    }
   }
 
   @Override
@@ -87,6 +110,7 @@ public class BeamFnDataGrpcMultiplexer implements AutoCloseable {
     return MoreObjects.toStringHelper(this)
         .omitNullValues()
         .add("apiServiceDescriptor", apiServiceDescriptor)
+        .add("sharedMemoryTransport", sharedMemoryTransport)
         .add("consumers", receivers)
         .toString();
   }
@@ -190,6 +214,9 @@ public class BeamFnDataGrpcMultiplexer implements AutoCloseable {
         }
       }
     }
+    if (sharedMemoryTransport != null) {
+      sharedMemoryTransport.close();
+    }
     // Cancel any outbound calls and complete any inbound calls, as this multiplexer is hanging up
     outboundObserver.onError(
         Status.CANCELLED.withDescription("Multiplexer hanging up").asException());
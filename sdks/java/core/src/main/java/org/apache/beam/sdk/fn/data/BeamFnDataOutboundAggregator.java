@@ -17,6 +17,7 @@
  */
 package org.apache.beam.sdk.fn.data;
 
+import com.google.auto.value.AutoValue;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
@@ -26,6 +27,7 @@ import java.util.Objects;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
@@ -52,6 +54,12 @@ import org.slf4j.LoggerFactory;
  *
  * <p>The default time-based buffer threshold can be overridden by specifying the experiment {@code
  * data_buffer_time_limit_ms=<milliseconds>}
+ *
+ * <p>Specifying the experiment {@code data_buffer_adaptive} tunes both thresholds based upon the
+ * observed backpressure of the outbound stream and the rate at which buffers fill, see {@link
+ * AdaptiveFlushPolicy}. The size-based threshold is then used as the initial buffer size and the
+ * time-based threshold as the latency target, which defaults to {@link
+ * #DEFAULT_ADAPTIVE_LATENCY_TARGET_MS}.
  */
 @SuppressWarnings({
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
@@ -68,10 +76,15 @@ public class BeamFnDataOutboundAggregator {
   public static final int DEFAULT_BUFFER_LIMIT_BYTES = 1_000_000;
   public static final String DATA_BUFFER_TIME_LIMIT_MS = "data_buffer_time_limit_ms=";
   public static final long DEFAULT_BUFFER_LIMIT_TIME_MS = -1L;
+  public static final String DATA_BUFFER_ADAPTIVE = "data_buffer_adaptive";
+  public static final long DEFAULT_ADAPTIVE_LATENCY_TARGET_MS = 100L;
 
   private static final Logger LOG = LoggerFactory.getLogger(BeamFnDataOutboundAggregator.class);
-  private final int sizeLimit;
+  private int sizeLimit;
   private final long timeLimit;
+  private final @Nullable AdaptiveFlushPolicy adaptiveFlushPolicy;
+  // The time at which the oldest buffered element was written, only tracked in adaptive mode.
+  private long firstBufferedNanos;
   private final Supplier<String> processBundleRequestIdSupplier;
   @VisibleForTesting final Map<String, Receiver<?>> outputDataReceivers;
   @VisibleForTesting final Map<TimerEndpoint, Receiver<?>> outputTimersReceivers;
@@ -87,8 +100,19 @@ public class BeamFnDataOutboundAggregator {
       Supplier<String> processBundleRequestIdSupplier,
       StreamObserver<Elements> outboundObserver,
       boolean collectElementsIfNoFlushes) {
-    this.sizeLimit = getSizeLimit(options);
-    this.timeLimit = getTimeLimit(options);
+    if (ExperimentalOptions.hasExperiment(options, DATA_BUFFER_ADAPTIVE)) {
+      long latencyTarget = getTimeLimit(options);
+      if (latencyTarget <= 0) {
+        latencyTarget = DEFAULT_ADAPTIVE_LATENCY_TARGET_MS;
+      }
+      this.adaptiveFlushPolicy = new AdaptiveFlushPolicy(getSizeLimit(options), latencyTarget);
+      this.sizeLimit = adaptiveFlushPolicy.getSizeLimit();
+      this.timeLimit = latencyTarget;
+    } else {
+      this.adaptiveFlushPolicy = null;
+      this.sizeLimit = getSizeLimit(options);
+      this.timeLimit = getTimeLimit(options);
+    }
     this.collectElementsIfNoFlushes = collectElementsIfNoFlushes;
     this.outputDataReceivers = new HashMap<>();
     this.outputTimersReceivers = new HashMap<>();
@@ -99,16 +123,65 @@ public class BeamFnDataOutboundAggregator {
     this.hasFlushedForBundle = false;
   }
 
-  /** Starts the flushing daemon thread if data_buffer_time_limit_ms is set. */
+  /**
+   * Starts the flushing daemon thread if data_buffer_time_limit_ms or data_buffer_adaptive is set.
+   */
   public void start() {
     if (timeLimit > 0 && this.flushFuture == null) {
-      this.flushFuture =
+      ScheduledExecutorService executor =
           Executors.newSingleThreadScheduledExecutor(
-                  new ThreadFactoryBuilder()
-                      .setDaemon(true)
-                      .setNameFormat("DataBufferOutboundFlusher-thread")
-                      .build())
-              .scheduleAtFixedRate(this::flush, timeLimit, timeLimit, TimeUnit.MILLISECONDS);
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("DataBufferOutboundFlusher-thread")
+                  .build());
+      if (adaptiveFlushPolicy != null) {
+        // The deadline changes over time so check it more frequently than the latency target.
+        long period = Math.max(1L, timeLimit / 4);
+        this.flushFuture =
+            executor.scheduleAtFixedRate(
+                this::flushIfDeadlineExpired, period, period, TimeUnit.MILLISECONDS);
+      } else {
+        this.flushFuture =
+            executor.scheduleAtFixedRate(this::flush, timeLimit, timeLimit, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /** Returns whether the buffer limits are tuned based upon the observed flushes. */
+  public boolean isAdaptive() {
+    return adaptiveFlushPolicy != null;
+  }
+
+  /**
+   * Returns the sizes of the data blocks sent for the outbound data endpoint of {@code
+   * pTransformId} since the last call to {@link #resetDataBatchStatistics}.
+   */
+  public DataBatchStatistics getDataBatchStatistics(String pTransformId) {
+    Receiver<?> receiver = outputDataReceivers.get(pTransformId);
+    if (receiver == null) {
+      throw new IllegalArgumentException(
+          "No outbound data endpoint registered for " + pTransformId);
+    }
+    if (timeLimit > 0) {
+      synchronized (flushLock) {
+        return receiver.getBatchStatistics();
+      }
+    }
+    return receiver.getBatchStatistics();
+  }
+
+  /** Resets the statistics returned by {@link #getDataBatchStatistics}. */
+  public void resetDataBatchStatistics(String pTransformId) {
+    Receiver<?> receiver = outputDataReceivers.get(pTransformId);
+    if (receiver == null) {
+      return;
+    }
+    if (timeLimit > 0) {
+      synchronized (flushLock) {
+        receiver.resetBatchStatistics();
+      }
+    } else {
+      receiver.resetBatchStatistics();
     }
   }
 
@@ -160,15 +233,27 @@ public class BeamFnDataOutboundAggregator {
     return receiver;
   }
 
-  private void flushInternal() {
+  private void flushInternal(boolean deadlineExpired) {
     if (bytesWrittenSinceFlush == 0) {
       return;
     }
+    long bytes = bytesWrittenSinceFlush;
     Elements.Builder elements = convertBufferForTransmission();
+    long sendStartNanos = adaptiveFlushPolicy == null ? 0L : System.nanoTime();
     if (elements.getDataCount() > 0 || elements.getTimersCount() > 0) {
       outboundObserver.onNext(elements.build());
     }
     hasFlushedForBundle = true;
+    if (adaptiveFlushPolicy != null) {
+      // The outbound observer blocks while the stream isn't ready which is how backpressure is
+      // observed.
+      adaptiveFlushPolicy.onFlush(
+          bytes,
+          sendStartNanos - firstBufferedNanos,
+          System.nanoTime() - sendStartNanos,
+          deadlineExpired);
+      sizeLimit = adaptiveFlushPolicy.getSizeLimit();
+    }
   }
 
   /**
@@ -241,6 +326,7 @@ public class BeamFnDataOutboundAggregator {
         continue;
       }
       ByteString bytes = entry.getValue().toByteStringAndResetBuffer();
+      entry.getValue().recordBatch(bytes.size());
       bufferedElements
           .addDataBuilder()
           .setInstructionId(processBundleRequestIdSupplier.get())
@@ -266,13 +352,32 @@ public class BeamFnDataOutboundAggregator {
   void flush() {
     try {
       synchronized (flushLock) {
-        flushInternal();
+        flushInternal(true);
       }
     } catch (Throwable t) {
       throw new RuntimeException(t);
     }
   }
 
+  @VisibleForTesting
+  void flushIfDeadlineExpired() {
+    try {
+      synchronized (flushLock) {
+        if (bytesWrittenSinceFlush > 0
+            && System.nanoTime() - firstBufferedNanos >= adaptiveFlushPolicy.getDeadlineNanos()) {
+          flushInternal(true);
+        }
+      }
+    } catch (Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  @VisibleForTesting
+  int getSizeLimit() {
+    return sizeLimit;
+  }
+
   /** Check if the flush thread failed with an exception. */
   private void checkFlushThreadException() throws IOException {
     if (timeLimit > 0 && flushFuture.isDone()) {
@@ -326,16 +431,24 @@ public class BeamFnDataOutboundAggregator {
     private final Coder<T> coder;
     private long perBundleByteCount;
     private long perBundleElementCount;
+    private long batchCount;
+    private long batchBytes;
+    private long minBatchBytes;
+    private long maxBatchBytes;
 
     public Receiver(Coder<T> coder) {
       this.output = new ByteStringOutputStream();
       this.coder = coder;
       this.perBundleByteCount = 0L;
       this.perBundleElementCount = 0L;
+      resetBatchStatistics();
     }
 
     @Override
     public void accept(T input) throws Exception {
+      if (adaptiveFlushPolicy != null && bytesWrittenSinceFlush == 0) {
+        firstBufferedNanos = System.nanoTime();
+      }
       int size = output.size();
       coder.encode(input, output);
       if (output.size() - size == 0) {
@@ -346,7 +459,7 @@ public class BeamFnDataOutboundAggregator {
       perBundleByteCount += delta;
       perBundleElementCount += 1;
       if (bytesWrittenSinceFlush > sizeLimit) {
-        flushInternal();
+        flushInternal(false);
       }
     }
 
@@ -371,6 +484,24 @@ public class BeamFnDataOutboundAggregator {
       this.perBundleByteCount = 0L;
     }
 
+    void recordBatch(long bytes) {
+      batchCount += 1;
+      batchBytes += bytes;
+      minBatchBytes = Math.min(minBatchBytes, bytes);
+      maxBatchBytes = Math.max(maxBatchBytes, bytes);
+    }
+
+    DataBatchStatistics getBatchStatistics() {
+      return DataBatchStatistics.create(batchCount, batchBytes, minBatchBytes, maxBatchBytes);
+    }
+
+    void resetBatchStatistics() {
+      this.batchCount = 0L;
+      this.batchBytes = 0L;
+      this.minBatchBytes = Long.MAX_VALUE;
+      this.maxBatchBytes = Long.MIN_VALUE;
+    }
+
     @Override
     public String toString() {
       return String.format(
@@ -378,6 +509,22 @@ public class BeamFnDataOutboundAggregator {
     }
   }
 
+  /** The number, total, minimum and maximum size in bytes of the data blocks that were sent. */
+  @AutoValue
+  public abstract static class DataBatchStatistics {
+    static DataBatchStatistics create(long count, long sum, long min, long max) {
+      return new AutoValue_BeamFnDataOutboundAggregator_DataBatchStatistics(count, sum, min, max);
+    }
+
+    public abstract long getCount();
+
+    public abstract long getSum();
+
+    public abstract long getMin();
+
+    public abstract long getMax();
+  }
+
   private static class TimerEndpoint {
 
     private final String pTransformId;
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A ring of bytes within a memory mapped file which is shared by a single writer and a single
+ * reader that may run in different processes.
+ *
+ * <p>The writer {@link #allocate allocates} contiguous ranges of the ring which are identified by
+ * their position within the unbounded stream of bytes written to the ring. Positions and lengths
+ * are communicated to the reader out of band. The reader consumes ranges in the order they were
+ * allocated and {@link #release releases} them afterwards. The released position is the only state
+ * that is shared through the file.
+ */
+final class SharedMemoryRing {
+  private static final int MAGIC = 0x4245414d;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int RELEASED_POSITION_OFFSET = 8;
+  // Keeps the released position on its own cache line.
+  private static final int HEADER_SIZE = 64;
+
+  private final Path path;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+  // Only accessed by the writer.
+  private long writePosition;
+  private volatile int fence;
+
+  /** Creates a new ring of {@code capacity} bytes backed by the file at {@code path}. */
+  static SharedMemoryRing create(Path path, int capacity) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity);
+    }
+    buffer.putInt(MAGIC_OFFSET, MAGIC);
+    return new SharedMemoryRing(path, buffer);
+  }
+
+  /** Opens a ring which was {@link #create created} by another process. */
+  static SharedMemoryRing open(Path path) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long size = channel.size();
+      if (size <= HEADER_SIZE || size > Integer.MAX_VALUE) {
+        throw new IOException(
+            String.format("Shared memory ring %s has an invalid size of %s bytes.", path, size));
+      }
+      buffer = channel.map(MapMode.READ_WRITE, 0, size);
+    }
+    if (buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+      throw new IOException(String.format("%s is not a shared memory ring.", path));
+    }
+    return new SharedMemoryRing(path, buffer);
+  }
+
+  private SharedMemoryRing(Path path, MappedByteBuffer buffer) {
+    this.path = path;
+    this.buffer = buffer;
+    this.capacity = buffer.capacity() - HEADER_SIZE;
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the position of a range of {@code length} bytes that the writer may fill or {@code -1}
+   * if the ring doesn't have enough free space. Ranges never wrap around the end of the ring.
+   */
+  long allocate(int length) {
+    long position = writePosition;
+    int offset = offset(position);
+    if (offset + (long) length > capacity) {
+      // Skip the remainder of the ring. It is released together with the new range.
+      position += capacity - offset;
+    }
+    fullFence();
+    long releasedPosition = buffer.getLong(RELEASED_POSITION_OFFSET);
+    if (position + length - releasedPosition > capacity) {
+      return -1;
+    }
+    writePosition = position + length;
+    return position;
+  }
+
+  /**
+   * Ensures that the bytes written to allocated ranges are visible to the reader before it is
+   * signalled to read them.
+   */
+  void publish() {
+    fullFence();
+  }
+
+  /** Returns a view of the {@code length} bytes of the range at {@code position}. */
+  ByteBuffer slice(long position, int length) {
+    int offset = offset(position);
+    if (position < 0 || length < 0 || offset + (long) length > capacity) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Range of %s bytes at position %s is outside of shared memory ring %s of %s bytes.",
+              length, position, path, capacity));
+    }
+    fullFence();
+    ByteBuffer slice = buffer.duplicate();
+    slice.position(HEADER_SIZE + offset);
+    slice.limit(HEADER_SIZE + offset + length);
+    return slice.slice();
+  }
+
+  /** Returns all ranges up to {@code position} to the writer. */
+  void release(long position) {
+    // Ensure that the reader is done with the range before the writer may overwrite it.
+    fullFence();
+    buffer.putLong(RELEASED_POSITION_OFFSET, position);
+  }
+
+  /** Deletes the backing file. The ring remains usable by anyone who already mapped it. */
+  void delete() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  private int offset(long position) {
+    return (int) (position % capacity);
+  }
+
+  /**
+   * Java 8 has no explicit fences but a volatile store followed by a volatile load orders all
+   * memory accesses before the store with all memory accesses after the load.
+   */
+  @SuppressWarnings("unused")
+  private void fullFence() {
+    fence = 0;
+    int unused = fence;
+  }
+}
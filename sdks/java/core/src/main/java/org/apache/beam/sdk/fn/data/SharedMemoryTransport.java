@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
+import org.apache.beam.model.pipeline.v1.Endpoints.SharedMemorySpec;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.CodedOutputStream;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.StreamObserver;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.MoreObjects;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exchanges {@link Elements} between a data service and a client on the same host through a pair
+ * of memory mapped rings while the gRPC stream between them only carries references to the ranges
+ * of the rings to read.
+ *
+ * <p>A client which is offered a {@link SharedMemorySpec} by the data service creates both rings
+ * and names them in the first message of the stream. The data service opens the rings and replies
+ * with the same name. Until then, and whenever an {@link Elements} message doesn't fit into the
+ * ring, messages are sent over gRPC as usual. Since references travel over the same gRPC stream as
+ * regular messages, the order of messages is preserved.
+ */
+@ThreadSafe
+public class SharedMemoryTransport implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(SharedMemoryTransport.class);
+  private static final Pattern RING_ID_PATTERN = Pattern.compile("beam-[0-9a-f-]+");
+  // Each ring is written by the side that its suffix names.
+  private static final String CLIENT_RING_SUFFIX = ".client";
+  private static final String SERVER_RING_SUFFIX = ".server";
+
+  private final boolean isClient;
+  private final Path directory;
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private @Nullable StreamObserver<Elements> outboundDelegate;
+
+  @GuardedBy("lock")
+  private @Nullable SharedMemoryRing outboundRing;
+
+  @GuardedBy("lock")
+  private boolean closed;
+
+  private volatile @Nullable String ringId;
+  private volatile @Nullable SharedMemoryRing inboundRing;
+  // The rings created by a client which are used once the data service opened them.
+  private final @Nullable SharedMemoryRing clientRing;
+  private final @Nullable SharedMemoryRing serverRing;
+
+  /**
+   * Returns a transport for a client of a data service which offered {@code spec} or {@code null}
+   * if the rings can't be created, for example because the client doesn't share the file system
+   * with the data service.
+   */
+  public static @Nullable SharedMemoryTransport forClient(SharedMemorySpec spec) {
+    if (spec.getRingSizeBytes() <= 0 || spec.getRingSizeBytes() > Integer.MAX_VALUE / 2) {
+      LOG.warn("Ignoring shared memory transport with invalid ring size {}.", spec);
+      return null;
+    }
+    Path directory = Paths.get(spec.getDirectory());
+    String ringId = "beam-" + UUID.randomUUID();
+    SharedMemoryRing clientRing = null;
+    try {
+      clientRing =
+          SharedMemoryRing.create(
+              directory.resolve(ringId + CLIENT_RING_SUFFIX), (int) spec.getRingSizeBytes());
+      SharedMemoryRing serverRing =
+          SharedMemoryRing.create(
+              directory.resolve(ringId + SERVER_RING_SUFFIX), (int) spec.getRingSizeBytes());
+      return new SharedMemoryTransport(directory, ringId, clientRing, serverRing);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn(
+          "Unable to create shared memory rings in {}, using gRPC for the data plane.",
+          directory,
+          e);
+      if (clientRing != null) {
+        deleteQuietly(clientRing);
+      }
+      return null;
+    }
+  }
+
+  /** Returns a transport for a data service which offers {@code spec} to its clients. */
+  public static SharedMemoryTransport forServer(SharedMemorySpec spec) {
+    return new SharedMemoryTransport(Paths.get(spec.getDirectory()), null, null, null);
+  }
+
+  private SharedMemoryTransport(
+      Path directory,
+      @Nullable String ringId,
+      @Nullable SharedMemoryRing clientRing,
+      @Nullable SharedMemoryRing serverRing) {
+    this.isClient = clientRing != null;
+    this.directory = directory;
+    this.ringId = ringId;
+    this.clientRing = clientRing;
+    this.serverRing = serverRing;
+    this.inboundRing = serverRing;
+  }
+
+  /**
+   * Returns an observer for messages received over gRPC which resolves references to the inbound
+   * ring before passing messages on to {@code delegate}.
+   */
+  public StreamObserver<Elements> inboundObserver(StreamObserver<Elements> delegate) {
+    return new InboundObserver(delegate);
+  }
+
+  /**
+   * Returns an observer which writes messages to the outbound ring once the rings were exchanged
+   * and sends references to them over {@code delegate}. For clients, this also sends the name of
+   * the rings to the data service.
+   *
+   * <p>The returned observer is thread safe if {@code delegate} is thread safe.
+   */
+  public StreamObserver<Elements> outboundObserver(StreamObserver<Elements> delegate) {
+    synchronized (lock) {
+      outboundDelegate = delegate;
+      String clientRingId = ringId;
+      if (isClient && !closed && clientRingId != null) {
+        delegate.onNext(
+            Elements.newBuilder()
+                .setSharedMemory(Elements.SharedMemory.newBuilder().setRingId(clientRingId))
+                .build());
+      }
+    }
+    return new OutboundObserver(delegate);
+  }
+
+  /** Returns whether the data service opened the rings. */
+  public boolean isConnected() {
+    synchronized (lock) {
+      return outboundRing != null;
+    }
+  }
+
+  /**
+   * Stops writing to the outbound ring. A data service which wasn't connected yet will ignore the
+   * rings of the client.
+   */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      closed = true;
+      outboundRing = null;
+    }
+    if (isClient) {
+      // The data service deletes the files once it opened them.
+      deleteQuietly(clientRing);
+      deleteQuietly(serverRing);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("directory", directory)
+        .add("ringId", ringId)
+        .add("connected", isConnected())
+        .toString();
+  }
+
+  private void onRingId(String receivedRingId) {
+    if (isClient) {
+      synchronized (lock) {
+        if (!closed && receivedRingId.equals(ringId)) {
+          outboundRing = clientRing;
+          LOG.info("Using shared memory rings {} in {} for the data plane.", ringId, directory);
+        } else {
+          LOG.warn("Ignoring unexpected shared memory rings {}.", receivedRingId);
+        }
+      }
+      return;
+    }
+
+    synchronized (lock) {
+      StreamObserver<Elements> delegate = outboundDelegate;
+      if (closed || ringId != null || delegate == null) {
+        LOG.debug("Ignoring shared memory rings {} offered by client.", receivedRingId);
+        return;
+      }
+      if (!RING_ID_PATTERN.matcher(receivedRingId).matches()) {
+        LOG.warn("Ignoring invalid shared memory rings {} offered by client.", receivedRingId);
+        return;
+      }
+      SharedMemoryRing inbound;
+      SharedMemoryRing outbound;
+      try {
+        inbound = SharedMemoryRing.open(directory.resolve(receivedRingId + CLIENT_RING_SUFFIX));
+        outbound = SharedMemoryRing.open(directory.resolve(receivedRingId + SERVER_RING_SUFFIX));
+        // The rings stay mapped which ensures that they are cleaned up whenever either side exits.
+        inbound.delete();
+        outbound.delete();
+      } catch (IOException e) {
+        LOG.warn(
+            "Unable to open shared memory rings {} in {}, using gRPC for the data plane.",
+            receivedRingId,
+            directory,
+            e);
+        return;
+      }
+      ringId = receivedRingId;
+      inboundRing = inbound;
+      // The reply must precede any reference to the outbound ring.
+      delegate.onNext(
+          Elements.newBuilder()
+              .setSharedMemory(Elements.SharedMemory.newBuilder().setRingId(receivedRingId))
+              .build());
+      outboundRing = outbound;
+      LOG.info("Using shared memory rings {} in {} for the data plane.", receivedRingId, directory);
+    }
+  }
+
+  private Elements read(Elements.SharedMemory reference) {
+    SharedMemoryRing ring = inboundRing;
+    if (ring == null) {
+      throw new IllegalStateException(
+          "Received a reference to a shared memory ring before the rings were exchanged.");
+    }
+    ByteBuffer encoded = ring.slice(reference.getPosition(), reference.getLength());
+    try {
+      return Elements.parseFrom(encoded);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException(
+          String.format("Failed to decode elements from shared memory ring %s.", ring.getPath()),
+          e);
+    } finally {
+      // Parsing copies all the data so the range can be reused right away.
+      ring.release(reference.getPosition() + reference.getLength());
+    }
+  }
+
+  private static void deleteQuietly(@Nullable SharedMemoryRing ring) {
+    if (ring == null) {
+      return;
+    }
+    try {
+      ring.delete();
+    } catch (IOException e) {
+      LOG.warn("Failed to delete shared memory ring {}.", ring.getPath(), e);
+    }
+  }
+
+  private class InboundObserver implements StreamObserver<Elements> {
+    private final StreamObserver<Elements> delegate;
+
+    private InboundObserver(StreamObserver<Elements> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void onNext(Elements value) {
+      if (!value.hasSharedMemory()) {
+        delegate.onNext(value);
+      } else if (!value.getSharedMemory().getRingId().isEmpty()) {
+        onRingId(value.getSharedMemory().getRingId());
+      } else {
+        delegate.onNext(read(value.getSharedMemory()));
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      delegate.onError(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      delegate.onCompleted();
+    }
+  }
+
+  private class OutboundObserver implements StreamObserver<Elements> {
+    private final StreamObserver<Elements> delegate;
+
+    private OutboundObserver(StreamObserver<Elements> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void onNext(Elements value) {
+      synchronized (lock) {
+        SharedMemoryRing ring = outboundRing;
+        if (ring != null) {
+          int length = value.getSerializedSize();
+          long position = length <= ring.getCapacity() ? ring.allocate(length) : -1;
+          if (position >= 0) {
+            try {
+              CodedOutputStream output =
+                  CodedOutputStream.newInstance(ring.slice(position, length));
+              value.writeTo(output);
+              output.flush();
+            } catch (IOException e) {
+              throw new IllegalStateException(
+                  String.format(
+                      "Failed to encode elements to shared memory ring %s.", ring.getPath()),
+                  e);
+            }
+            ring.publish();
+            value =
+                Elements.newBuilder()
+                    .setSharedMemory(
+                        Elements.SharedMemory.newBuilder()
+                            .setPosition(position)
+                            .setLength(length))
+                    .build();
+          }
+        }
+        // References must be sent in the order in which the ranges were allocated.
+        delegate.onNext(value);
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      close();
+      delegate.onError(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      close();
+      delegate.onCompleted();
+    }
+  }
+}
@@ -35,6 +35,8 @@ public interface ExperimentalOptions extends PipelineOptions {
 
   String STATE_SAMPLING_PERIOD_MILLIS = "state_sampling_period_millis";
 
+  String STACK_SAMPLING_PERIOD_MILLIS = "stack_sampling_period_millis";
+
   @Description(
       "Apache Beam provides a number of experimental features that can "
           + "be enabled with this flag. If executing against a managed service, please contact the "
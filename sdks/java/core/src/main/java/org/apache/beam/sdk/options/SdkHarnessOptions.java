@@ -185,6 +185,50 @@ public interface SdkHarnessOptions extends PipelineOptions, MemoryMonitorOptions
 
   void setMaxCacheMemoryUsagePercent(@NonNegative float value);
 
+  /** The storage used for values held in the process wide cache within the SDK harness. */
+  enum CacheBackend {
+    /** All values are stored as objects on the Java heap. */
+    HEAP,
+    /**
+     * Values which support it, such as side inputs and user state, are stored encoded in off-heap
+     * memory and decoded on each read. All other values are stored on the Java heap.
+     */
+    OFF_HEAP
+  }
+
+  /**
+   * The storage used for values held in the process wide cache within the SDK harness.
+   *
+   * <p>{@link CacheBackend#OFF_HEAP} reduces garbage collection pressure and makes memory
+   * accounting exact for large side inputs and user state at the cost of decoding values on each
+   * read. Values stored off-heap are limited by {@link #getMaxOffHeapCacheMemoryUsageMb()} in
+   * addition to {@link #getMaxCacheMemoryUsageMb()} which continues to apply to values stored on
+   * the Java heap.
+   */
+  @Description(
+      "The storage used for values held in the process wide cache within the SDK harness. "
+          + "OFF_HEAP stores side inputs and user state encoded in off-heap memory.")
+  @Default.Enum("HEAP")
+  CacheBackend getCacheBackend();
+
+  void setCacheBackend(CacheBackend value);
+
+  /**
+   * Size (in MB) of the off-heap memory used to store encoded values when the {@link
+   * #getCacheBackend() cache backend} is {@link CacheBackend#OFF_HEAP}.
+   *
+   * <p>CAUTION: The JVM must allow for at least this much direct memory, see {@code
+   * -XX:MaxDirectMemorySize}.
+   */
+  @Description(
+      "The size (in MB) of the off-heap memory used to store encoded values when --cacheBackend "
+          + "is OFF_HEAP. The JVM must allow at least this much direct memory.")
+  @Default.Integer(1024)
+  @NonNegative
+  int getMaxOffHeapCacheMemoryUsageMb();
+
+  void setMaxOffHeapCacheMemoryUsageMb(@NonNegative int value);
+
   /**
    * An instance of this class will be used to specify the maximum amount of memory to allocate to a
    * cache within an SDK harness instance.
@@ -439,4 +483,20 @@ public interface SdkHarnessOptions extends PipelineOptions, MemoryMonitorOptions
   int getElementProcessingTimeoutMinutes();
 
   void setElementProcessingTimeoutMinutes(int value);
+
+  /**
+   * Whether the SDK harness processes each bundle, and the state and data callbacks it waits on, on
+   * virtual threads.
+   *
+   * <p>Bundles that spend most of their time blocked on state requests or remote services no longer
+   * pin a platform thread each, allowing many more concurrent bundles per worker. Requires Java 21
+   * or newer; the harness falls back to platform threads with a warning otherwise.
+   */
+  @Description(
+      "Whether the SDK harness processes bundles, and the state and data callbacks they wait on, "
+          + "on virtual threads. Requires Java 21+, otherwise platform threads are used.")
+  @Default.Boolean(false)
+  boolean getEnableVirtualThreadBundleProcessing();
+
+  void setEnableVirtualThreadBundleProcessing(boolean value);
 }
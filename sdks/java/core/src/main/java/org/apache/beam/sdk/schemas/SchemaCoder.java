@@ -22,6 +22,7 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
@@ -126,6 +127,11 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     return fromRowFunction.apply(getDelegateCoder().decode(inStream));
   }
 
+  @Override
+  public T decode(ByteBuffer buffer) throws IOException {
+    return fromRowFunction.apply(getDelegateCoder().decode(buffer));
+  }
+
   @Override
   public void verifyDeterministic()
       throws org.apache.beam.sdk.coders.Coder.NonDeterministicException {
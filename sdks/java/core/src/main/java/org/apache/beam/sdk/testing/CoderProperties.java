@@ -22,11 +22,13 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.emptyIterable;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -118,6 +120,40 @@ public class CoderProperties {
     assertThat(decodeEncode(coder, context, value), matcher);
   }
 
+  /**
+   * Verifies that for the given {@code Coder<T>} and value of type {@code T}, the buffer based
+   * {@link Coder#encode(Object, ByteBuffer)} and {@link Coder#decode(ByteBuffer)} methods agree
+   * with the nested stream encoding, for both heap and direct buffers, and consume exactly the
+   * encoded bytes.
+   */
+  public static <T> void coderDecodeEncodeInBufferEqual(Coder<T> coder, T value) throws Exception {
+    @SuppressWarnings("unchecked")
+    Coder<T> deserializedCoder = SerializableUtils.clone(coder);
+    byte[] expected = encode(coder, Coder.Context.NESTED, value);
+
+    for (boolean direct : Arrays.asList(false, true)) {
+      // Surround the encoded value with padding so that offsets and trailing data are exercised.
+      int capacity = expected.length + 2;
+      ByteBuffer buffer =
+          direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+      buffer.put((byte) 1);
+      deserializedCoder.encode(value, buffer);
+      assertThat("encoded bytes written", buffer.position(), equalTo(expected.length + 1));
+      buffer.put((byte) 1);
+
+      byte[] actual = new byte[expected.length];
+      buffer.position(1);
+      buffer.get(actual);
+      assertArrayEquals("buffer encoding equal to stream encoding", expected, actual);
+
+      buffer.position(1);
+      T decoded = deserializedCoder.decode(buffer);
+      assertThat(decoded, equalTo(value));
+      assertThat(
+          "consumed bytes equal to encoded bytes", buffer.position(), equalTo(expected.length + 1));
+    }
+  }
+
   /**
    * Verifies that for the given {@code Coder<Collection<T>>}, and value of type {@code
    * Collection<T>}, encoding followed by decoding yields an equal value of type {@code
@@ -804,6 +804,46 @@ public abstract class DoFn<InputT extends @Nullable Object, OutputT extends @Nul
   @Target(ElementType.METHOD)
   public @interface ProcessElement {}
 
+  /**
+   * Annotation for the method that processes a batch of elements at once.
+   *
+   * <p>A {@link DoFn} may declare a {@code @ProcessBatch} method in addition to its {@link
+   * ProcessElement} method. Runners that support batched invocation collect consecutive elements
+   * of a bundle that share the same windows, timestamp and pane into a batch and call this method
+   * once per batch instead of calling {@link ProcessElement} once per element. Runners without
+   * batching support keep calling {@link ProcessElement}, so both methods must produce the same
+   * output.
+   *
+   * <p>The first parameter of the method is the batch. It must be a {@code List<InputT>}, or a
+   * primitive array when the input type is boxed primitive: {@code long[]} for {@code Long}, {@code
+   * int[]} for {@code Integer} and {@code double[]} for {@code Double}. The method may additionally
+   * take an {@link OutputReceiver}, a {@link MultiOutputReceiver} and {@link PipelineOptions}.
+   * Elements emitted through the receivers inherit the windows, timestamp and pane of the batch.
+   *
+   * <pre><code>{@literal new DoFn<Double, Double>()} {
+   *
+   *   {@literal @ProcessElement}
+   *    public void processElement({@literal @Element Double} score,
+   *        {@literal OutputReceiver<Double>} out) {
+   *      out.output(normalize(score));
+   *    }
+   *
+   *   {@literal @ProcessBatch}
+   *    public void processBatch(double[] scores, {@literal OutputReceiver<Double>} out) {
+   *      for (double score : normalizeAll(scores)) {
+   *        out.output(score);
+   *      }
+   *    }
+   * }</code></pre>
+   *
+   * <p>A {@link DoFn} with a {@code @ProcessBatch} method must not use state, timers, or be
+   * splittable, since those are scoped to individual elements.
+   */
+  @Documented
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target(ElementType.METHOD)
+  public @interface ProcessBatch {}
+
   /**
    * Parameter annotation for the input element for {@link ProcessElement}, {@link
    * GetInitialRestriction}, {@link GetSize}, {@link SplitRestriction}, {@link
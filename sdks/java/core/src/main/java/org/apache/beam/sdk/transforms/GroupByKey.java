@@ -17,11 +17,17 @@
  */
 package org.apache.beam.sdk.transforms;
 
+import static org.apache.beam.sdk.util.Preconditions.checkStateNotNull;
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.Coder.NonDeterministicException;
 import org.apache.beam.sdk.coders.IterableCoder;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.transforms.windowing.AfterWatermark.AfterWatermarkEarlyAndLate;
@@ -32,10 +38,14 @@ import org.apache.beam.sdk.transforms.windowing.Never.NeverTrigger;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.transforms.windowing.Window;
 import org.apache.beam.sdk.transforms.windowing.WindowFn;
+import org.apache.beam.sdk.util.HotKeySketch;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollection.IsBounded;
+import org.apache.beam.sdk.values.PCollectionList;
+import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
 import org.apache.beam.sdk.values.WindowingStrategy;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -148,6 +158,24 @@ public class GroupByKey<K, V>
     return fewKeys;
   }
 
+  /**
+   * Returns a {@code PTransform} identical to this, but that spreads keys detected as hot at
+   * runtime over {@code fanout} sub-keys before grouping.
+   *
+   * <p>Each bundle estimates the frequency of its keys with a {@link HotKeySketch}. Values of keys
+   * that make up a large share of the bundle are grouped under a salted key first, and the partial
+   * groups are merged with the remaining values by a second {@code GroupByKey}. This keeps a single
+   * hot key from overwhelming one worker at the cost of shuffling the values of hot keys twice. The
+   * order of the grouped values is unspecified, as for {@code GroupByKey}.
+   *
+   * <p>Unlike {@link Combine.PerKey#withHotKeyFanout}, the hot keys do not have to be known when
+   * the pipeline is constructed.
+   */
+  public GroupByKeyWithHotKeyFanout<K, V> withHotKeyFanout(int fanout) {
+    return new GroupByKeyWithHotKeyFanout<>(
+        fewKeys, fanout, GroupByKeyWithHotKeyFanout.DEFAULT_HOT_KEY_THRESHOLD);
+  }
+
   /////////////////////////////////////////////////////////////////////////////
 
   public static void applicableTo(PCollection<?> input) {
@@ -298,4 +326,183 @@ public class GroupByKey<K, V>
       builder.add(DisplayData.item("fewKeys", true).withLabel("Has Few Keys"));
     }
   }
+
+  /**
+   * A {@code GroupByKey} that salts the keys it detects as hot at runtime.
+   *
+   * @see GroupByKey#withHotKeyFanout
+   */
+  public static class GroupByKeyWithHotKeyFanout<K, V>
+      extends PTransform<PCollection<KV<K, V>>, PCollection<KV<K, Iterable<V>>>> {
+
+    static final double DEFAULT_HOT_KEY_THRESHOLD = 0.01;
+
+    private final boolean fewKeys;
+    private final int fanout;
+    private final double hotKeyThreshold;
+
+    private GroupByKeyWithHotKeyFanout(boolean fewKeys, int fanout, double hotKeyThreshold) {
+      checkArgument(fanout > 1, "fanout must be greater than 1, but was %s", fanout);
+      checkArgument(
+          hotKeyThreshold > 0 && hotKeyThreshold <= 1,
+          "hotKeyThreshold must be in (0, 1], but was %s",
+          hotKeyThreshold);
+      this.fewKeys = fewKeys;
+      this.fanout = fanout;
+      this.hotKeyThreshold = hotKeyThreshold;
+    }
+
+    /**
+     * Returns a {@code PTransform} identical to this, but that considers a key hot once it is
+     * estimated to make up at least the given share of the elements of a bundle. Defaults to {@code
+     * 0.01}.
+     */
+    public GroupByKeyWithHotKeyFanout<K, V> withHotKeyThreshold(double hotKeyThreshold) {
+      return new GroupByKeyWithHotKeyFanout<>(fewKeys, fanout, hotKeyThreshold);
+    }
+
+    @Override
+    public PCollection<KV<K, Iterable<V>>> expand(PCollection<KV<K, V>> input) {
+      KvCoder<K, V> inputCoder = getInputKvCoder(input.getCoder());
+      Coder<K> keyCoder = inputCoder.getKeyCoder();
+      KvCoder<K, Iterable<V>> outputCoder = getOutputKvCoder(input.getCoder());
+
+      // Split the input into values of hot keys, which are salted with a sub-key, and the rest.
+      TupleTag<KV<KV<K, Integer>, V>> hot = new TupleTag<>();
+      TupleTag<KV<K, V>> cold = new TupleTag<>();
+      PCollectionTuple split =
+          input.apply(
+              "SaltHotKeys",
+              ParDo.of(new SaltHotKeysFn<>(keyCoder, fanout, hotKeyThreshold, hot, cold))
+                  .withOutputTags(cold, TupleTagList.of(hot)));
+
+      // The first level of grouping should never use accumulating mode.
+      WindowingStrategy<?, ?> preGroupStrategy = input.getWindowingStrategy();
+      if (preGroupStrategy.getMode()
+          == WindowingStrategy.AccumulationMode.ACCUMULATING_FIRED_PANES) {
+        preGroupStrategy =
+            preGroupStrategy.withMode(WindowingStrategy.AccumulationMode.DISCARDING_FIRED_PANES);
+      }
+
+      PCollection<KV<K, Iterable<V>>> groupedHot =
+          split
+              .get(hot)
+              .setCoder(
+                  KvCoder.of(KvCoder.of(keyCoder, VarIntCoder.of()), inputCoder.getValueCoder()))
+              .setWindowingStrategyInternal(preGroupStrategy)
+              .apply("GroupHot", new GroupByKey<>(fewKeys))
+              .apply(
+                  "StripSalt",
+                  MapElements.via(
+                      new SimpleFunction<KV<KV<K, Integer>, Iterable<V>>, KV<K, Iterable<V>>>() {
+                        @Override
+                        public KV<K, Iterable<V>> apply(KV<KV<K, Integer>, Iterable<V>> elem) {
+                          return KV.of(elem.getKey().getKey(), elem.getValue());
+                        }
+                      }))
+              .setCoder(outputCoder)
+              .apply(Window.remerge())
+              .setWindowingStrategyInternal(input.getWindowingStrategy());
+      PCollection<KV<K, Iterable<V>>> preparedCold =
+          split
+              .get(cold)
+              .setCoder(inputCoder)
+              .apply(
+                  "PrepareCold",
+                  MapElements.via(
+                      new SimpleFunction<KV<K, V>, KV<K, Iterable<V>>>() {
+                        @Override
+                        public KV<K, Iterable<V>> apply(KV<K, V> elem) {
+                          return KV.of(elem.getKey(), Collections.singletonList(elem.getValue()));
+                        }
+                      }))
+              .setCoder(outputCoder);
+
+      // Group the partial groups of hot keys together with the values of all other keys.
+      return PCollectionList.of(groupedHot)
+          .and(preparedCold)
+          .apply(Flatten.pCollections())
+          .apply("GroupAll", new GroupByKey<>(fewKeys))
+          .apply(
+              "FlattenGroups",
+              MapElements.via(
+                  new SimpleFunction<KV<K, Iterable<Iterable<V>>>, KV<K, Iterable<V>>>() {
+                    @Override
+                    public KV<K, Iterable<V>> apply(KV<K, Iterable<Iterable<V>>> elem) {
+                      return KV.of(elem.getKey(), Iterables.concat(elem.getValue()));
+                    }
+                  }))
+          .setCoder(outputCoder);
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      super.populateDisplayData(builder);
+      if (fewKeys) {
+        builder.add(DisplayData.item("fewKeys", true).withLabel("Has Few Keys"));
+      }
+      builder
+          .add(DisplayData.item("fanout", fanout).withLabel("Hot Key Fanout"))
+          .add(DisplayData.item("hotKeyThreshold", hotKeyThreshold).withLabel("Hot Key Threshold"));
+    }
+  }
+
+  /**
+   * Salts the keys that make up at least {@code hotKeyThreshold} of the elements seen so far in a
+   * bundle with a sub-key and outputs them to the {@code hot} tag.
+   */
+  private static class SaltHotKeysFn<K, V> extends DoFn<KV<K, V>, KV<K, V>> {
+    // Frequencies are too noisy to act on before a bundle has seen a few elements.
+    private static final long MIN_ELEMENTS_FOR_DETECTION = 100;
+
+    private final Coder<K> keyCoder;
+    private final int fanout;
+    private final double hotKeyThreshold;
+    private final TupleTag<KV<KV<K, Integer>, V>> hot;
+    private final TupleTag<KV<K, V>> cold;
+
+    private transient @Nullable HotKeySketch sketch;
+    private transient int nonce;
+
+    private SaltHotKeysFn(
+        Coder<K> keyCoder,
+        int fanout,
+        double hotKeyThreshold,
+        TupleTag<KV<KV<K, Integer>, V>> hot,
+        TupleTag<KV<K, V>> cold) {
+      this.keyCoder = keyCoder;
+      this.fanout = fanout;
+      this.hotKeyThreshold = hotKeyThreshold;
+      this.hot = hot;
+      this.cold = cold;
+    }
+
+    @Setup
+    public void setup() {
+      sketch = HotKeySketch.create();
+    }
+
+    @StartBundle
+    public void startBundle() {
+      checkStateNotNull(sketch).reset();
+      // As in Combine.PerKeyWithHotKeyFanout, each bundle sends all values of a hot key to the
+      // same sub-key so that the partial groups stay large.
+      nonce = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+    }
+
+    @ProcessElement
+    public void processElement(@Element KV<K, V> kv, MultiOutputReceiver receiver) {
+      K key = kv.getKey();
+      if (key != null) {
+        HotKeySketch sketch = checkStateNotNull(this.sketch);
+        long count = sketch.add(keyCoder.structuralValue(key), key);
+        long total = sketch.getTotalCount();
+        if (total >= MIN_ELEMENTS_FOR_DETECTION && count >= hotKeyThreshold * total) {
+          receiver.get(hot).output(KV.of(KV.of(key, nonce % fanout), kv.getValue()));
+          return;
+        }
+      }
+      receiver.get(cold).output(kv);
+    }
+  }
 }
@@ -484,6 +484,14 @@ class ByteBuddyDoFnInvokerFactory implements DoFnInvokerFactory {
             .method(ElementMatchers.named("invokeProcessElement"))
             .intercept(new ProcessElementDelegation(clazzDescription, signature.processElement()))
 
+            //   public invokeProcessBatch(ExtraContextFactory) {
+            //     delegate.<@ProcessBatch>((<batch type>) extra.element(delegate), ...);
+            //   }
+            .method(ElementMatchers.named("invokeProcessBatch"))
+            .intercept(
+                delegateMethodWithExtraParametersOrThrow(
+                    clazzDescription, signature.processBatch()))
+
             //   public invokeStartBundle(Context c) { delegate.<@StartBundle>(c); }
             //   ... etc ...
             .method(ElementMatchers.named("invokeStartBundle"))
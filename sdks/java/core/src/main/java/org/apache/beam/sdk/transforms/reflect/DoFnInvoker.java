@@ -78,6 +78,16 @@ public interface DoFnInvoker<InputT, OutputT> {
    */
   DoFn.ProcessContinuation invokeProcessElement(ArgumentProvider<InputT, OutputT> extra);
 
+  /**
+   * Invoke the {@link DoFn.ProcessBatch} method on the bound {@link DoFn}. The batch is obtained
+   * from {@link ArgumentProvider#element}, which must return a {@link java.util.List} or primitive
+   * array as declared by the method.
+   *
+   * @throws UnsupportedOperationException if the {@link DoFn} has no {@link DoFn.ProcessBatch}
+   *     method.
+   */
+  void invokeProcessBatch(ArgumentProvider<InputT, OutputT> extra);
+
   /** Invoke the appropriate {@link DoFn.OnTimer} method on the bound {@link DoFn}. */
   void invokeOnTimer(
       String timerId, String timerFamilyId, ArgumentProvider<InputT, OutputT> arguments);
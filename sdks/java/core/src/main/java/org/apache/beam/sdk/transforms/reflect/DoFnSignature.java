@@ -79,6 +79,10 @@ public abstract class DoFnSignature {
   @Pure
   public abstract ProcessElementMethod processElement();
 
+  /** Details about this {@link DoFn}'s {@link DoFn.ProcessBatch} method. */
+  @Pure
+  public abstract @Nullable ProcessBatchMethod processBatch();
+
   /** Details about the state cells that this {@link DoFn} declares. Immutable. */
   @Pure
   public abstract Map<String, StateDeclaration> stateDeclarations();
@@ -192,6 +196,8 @@ public abstract class DoFnSignature {
 
     abstract Builder setProcessElement(ProcessElementMethod processElement);
 
+    abstract Builder setProcessBatch(ProcessBatchMethod processBatch);
+
     abstract Builder setStartBundle(BundleMethod startBundle);
 
     abstract Builder setFinishBundle(BundleMethod finishBundle);
@@ -1065,6 +1071,42 @@ public abstract class DoFnSignature {
     }
   }
 
+  /** Describes a {@link DoFn.ProcessBatch} method. */
+  @AutoValue
+  public abstract static class ProcessBatchMethod implements MethodWithExtraParameters {
+    /** The annotated method itself. */
+    @Override
+    public abstract Method targetMethod();
+
+    /**
+     * The type of the batch parameter: a {@link List} of the input type, or a primitive array for
+     * boxed primitive inputs.
+     */
+    public abstract TypeDescriptor<?> batchT();
+
+    /**
+     * Types of the parameters of the annotated method, in the order they appear. The batch itself
+     * is the leading {@link ElementParameter}.
+     */
+    @Override
+    public abstract List<Parameter> extraParameters();
+
+    /** Batches never observe an individual window, so this is always {@code null}. */
+    @Override
+    public abstract @Nullable TypeDescriptor<? extends BoundedWindow> windowT();
+
+    /** Whether the batch is passed as a primitive array rather than a {@link List}. */
+    public boolean isPrimitiveBatch() {
+      return batchT().isArray();
+    }
+
+    static ProcessBatchMethod create(
+        Method targetMethod, TypeDescriptor<?> batchT, List<Parameter> extraParameters) {
+      return new AutoValue_DoFnSignature_ProcessBatchMethod(
+          targetMethod, batchT, Collections.unmodifiableList(extraParameters), null);
+    }
+  }
+
   /** Describes a {@link DoFn.OnTimer} method. */
   @AutoValue
   public abstract static class OnTimerMethod implements MethodWithExtraParameters {
@@ -214,6 +214,17 @@ public class DoFnSignatures {
               Parameter.TimestampParameter.class,
               Parameter.KeyParameter.class);
 
+  private static final Collection<Class<? extends Parameter>> ALLOWED_PROCESS_BATCH_PARAMETERS =
+      ImmutableList.of(
+          Parameter.PipelineOptionsParameter.class,
+          Parameter.OutputReceiverParameter.class,
+          Parameter.TaggedOutputReceiverParameter.class);
+
+  /** Boxed input types that a {@link DoFn.ProcessBatch} method may receive as primitive arrays. */
+  private static final Map<Class<?>, Class<?>> PRIMITIVE_BATCH_TYPES =
+      ImmutableMap.of(
+          Long.class, long[].class, Integer.class, int[].class, Double.class, double[].class);
+
   private static final Collection<Class<? extends Parameter>>
       ALLOWED_GET_INITIAL_RESTRICTION_PARAMETERS =
           ImmutableList.of(
@@ -537,6 +548,8 @@ public class DoFnSignatures {
 
     Method processElementMethod =
         findAnnotatedMethod(errors, DoFn.ProcessElement.class, fnClass, true);
+    Method processBatchMethod =
+        findAnnotatedMethod(errors, DoFn.ProcessBatch.class, fnClass, false);
     Method startBundleMethod = findAnnotatedMethod(errors, DoFn.StartBundle.class, fnClass, false);
     Method finishBundleMethod =
         findAnnotatedMethod(errors, DoFn.FinishBundle.class, fnClass, false);
@@ -646,6 +659,21 @@ public class DoFnSignatures {
             processElementErrors, fnT, processElementMethod, inputT, outputT, fnContext);
     signatureBuilder.setProcessElement(processElement);
 
+    if (processBatchMethod != null) {
+      ErrorReporter processBatchErrors =
+          errors.forMethod(DoFn.ProcessBatch.class, processBatchMethod);
+      processBatchErrors.checkArgument(
+          !processElement.isSplittable(), "Splittable DoFns cannot process batches");
+      processBatchErrors.checkArgument(
+          fnContext.getStateDeclarations().isEmpty()
+              && fnContext.getTimerDeclarations().isEmpty()
+              && fnContext.getTimerFamilyDeclarations().isEmpty(),
+          "DoFns that use state or timers cannot process batches");
+      signatureBuilder.setProcessBatch(
+          analyzeProcessBatchMethod(
+              processBatchErrors, fnT, processBatchMethod, inputT, outputT, fnContext));
+    }
+
     if (startBundleMethod != null) {
       ErrorReporter startBundleErrors = errors.forMethod(DoFn.StartBundle.class, startBundleMethod);
       signatureBuilder.setStartBundle(
@@ -1210,6 +1238,56 @@ public class DoFnSignatures {
         m, requiresStableInput, windowT, extraParameters);
   }
 
+  @VisibleForTesting
+  static DoFnSignature.ProcessBatchMethod analyzeProcessBatchMethod(
+      ErrorReporter errors,
+      TypeDescriptor<? extends DoFn<?, ?>> fnClass,
+      Method m,
+      TypeDescriptor<?> inputT,
+      TypeDescriptor<?> outputT,
+      FnAnalysisContext fnContext) {
+    errors.checkArgument(void.class.equals(m.getReturnType()), "Must return void");
+
+    Type[] params = m.getGenericParameterTypes();
+    errors.checkArgument(params.length > 0, "Must take the batch as its first parameter");
+
+    TypeDescriptor<?> batchT = fnClass.resolveType(params[0]);
+    TypeDescriptor<?> listT = TypeDescriptors.lists(inputT);
+    @Nullable Class<?> primitiveBatchClass = PRIMITIVE_BATCH_TYPES.get(inputT.getRawType());
+    errors.checkArgument(
+        batchT.equals(listT)
+            || (primitiveBatchClass != null && primitiveBatchClass.equals(batchT.getRawType())),
+        "First parameter must be the batch of type %s%s, but was %s",
+        format(listT),
+        primitiveBatchClass == null ? "" : " or " + primitiveBatchClass.getSimpleName(),
+        format(batchT));
+
+    MethodAnalysisContext methodContext = MethodAnalysisContext.create();
+
+    List<Parameter> extraParameters = new ArrayList<>();
+    extraParameters.add(Parameter.elementParameter(batchT));
+    for (int i = 1; i < params.length; ++i) {
+      Parameter parameter =
+          analyzeExtraParameter(
+              errors,
+              fnContext,
+              methodContext,
+              ParameterDescription.of(
+                  m,
+                  i,
+                  fnClass.resolveType(params[i]),
+                  Arrays.asList(m.getParameterAnnotations()[i])),
+              inputT,
+              outputT);
+
+      checkParameterOneOf(errors, parameter, ALLOWED_PROCESS_BATCH_PARAMETERS);
+
+      extraParameters.add(parameter);
+    }
+
+    return DoFnSignature.ProcessBatchMethod.create(m, batchT, extraParameters);
+  }
+
   @VisibleForTesting
   static DoFnSignature.ProcessElementMethod analyzeProcessElementMethod(
       ErrorReporter errors,
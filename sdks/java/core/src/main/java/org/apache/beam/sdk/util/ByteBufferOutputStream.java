@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.util;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.apache.beam.sdk.annotations.Internal;
+
+/**
+ * An {@link OutputStream} that writes into a {@link ByteBuffer}, advancing the buffer's position as
+ * bytes are written.
+ *
+ * <p>Writing more bytes than the buffer has remaining throws a {@link
+ * java.nio.BufferOverflowException}.
+ */
+@Internal
+public class ByteBufferOutputStream extends OutputStream {
+  private final ByteBuffer buffer;
+
+  public ByteBufferOutputStream(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public void write(int b) {
+    buffer.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    buffer.put(b, off, len);
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.util;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import com.google.auto.value.AutoValue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.beam.sdk.annotations.Internal;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Estimates the most frequent keys of a stream in constant memory.
+ *
+ * <p>Frequencies are tracked in a count-min sketch, which never underestimates the number of times
+ * a key was added. The keys with the highest estimates are additionally remembered so that they
+ * can be reported. A key only has to be looked up in that small set of candidates once its
+ * estimate exceeds the smallest candidate count, so adding a key costs a few array increments in
+ * the common case of a key that is not hot.
+ *
+ * <p>Keys are compared by their structural value, see {@link
+ * org.apache.beam.sdk.coders.Coder#structuralValue}, which must have a stable {@link
+ * Object#hashCode}.
+ */
+@Internal
+@NotThreadSafe
+public class HotKeySketch {
+
+  /** A key along with the estimated number of times it was added. */
+  @AutoValue
+  public abstract static class HotKey {
+    public abstract Object getKey();
+
+    public abstract long getCount();
+
+    static HotKey create(Object key, long count) {
+      return new AutoValue_HotKeySketch_HotKey(key, count);
+    }
+  }
+
+  private static final int DEPTH = 4;
+  private static final int DEFAULT_WIDTH = 1024;
+  private static final int DEFAULT_CAPACITY = 8;
+
+  private static final class Candidate {
+    private final Object key;
+    private long count;
+
+    private Candidate(Object key, long count) {
+      this.key = key;
+      this.count = count;
+    }
+  }
+
+  private final int widthMask;
+  private final int capacity;
+  private final long[] counts;
+  private final Map<Object, Candidate> candidates;
+  // A lower bound of the smallest candidate count once all candidate slots are taken.
+  private long minCandidateCount;
+  private long totalCount;
+
+  /** Returns a sketch that tracks a handful of candidates in a few tens of kilobytes. */
+  public static HotKeySketch create() {
+    return new HotKeySketch(DEFAULT_CAPACITY, DEFAULT_WIDTH);
+  }
+
+  /**
+   * Creates a sketch remembering up to {@code capacity} candidate hot keys, with {@code width}
+   * counters per hash function. {@code width} must be a power of two.
+   */
+  public HotKeySketch(int capacity, int width) {
+    checkArgument(capacity > 0, "capacity must be positive, but was %s", capacity);
+    checkArgument(
+        width > 0 && Integer.bitCount(width) == 1,
+        "width must be a power of two, but was %s",
+        width);
+    this.widthMask = width - 1;
+    this.capacity = capacity;
+    this.counts = new long[DEPTH * width];
+    this.candidates = new HashMap<>();
+  }
+
+  /** Adds a key whose structural value is the key itself, see {@link #add(Object, Object)}. */
+  public long add(Object key) {
+    return add(key, key);
+  }
+
+  /**
+   * Adds a key. {@code structuralKey} identifies the key and {@code key} is the user facing value
+   * that is reported if the key turns out to be hot.
+   *
+   * @return an upper bound of the number of times the key was added, including this time
+   */
+  public long add(Object structuralKey, Object key) {
+    totalCount++;
+    int hash = structuralKey.hashCode();
+    long estimate = Long.MAX_VALUE;
+    for (int i = 0; i < DEPTH; i++) {
+      estimate = Math.min(estimate, ++counts[index(hash, i)]);
+    }
+
+    if (candidates.size() == capacity && estimate <= minCandidateCount) {
+      return estimate;
+    }
+    Candidate candidate = candidates.get(structuralKey);
+    if (candidate != null) {
+      candidate.count = estimate;
+    } else if (candidates.size() < capacity) {
+      candidates.put(structuralKey, new Candidate(key, estimate));
+      if (candidates.size() == capacity) {
+        minCandidateCount = smallestCandidate().getValue().count;
+      }
+    } else {
+      // The estimate exceeds the lower bound, check whether it beats the actual smallest count.
+      Map.Entry<Object, Candidate> smallest = smallestCandidate();
+      if (estimate > smallest.getValue().count) {
+        candidates.remove(smallest.getKey());
+        candidates.put(structuralKey, new Candidate(key, estimate));
+        minCandidateCount = smallestCandidate().getValue().count;
+      } else {
+        minCandidateCount = smallest.getValue().count;
+      }
+    }
+    return estimate;
+  }
+
+  /** Returns an upper bound of the number of times the key was added. */
+  public long estimateCount(Object structuralKey) {
+    int hash = structuralKey.hashCode();
+    long estimate = Long.MAX_VALUE;
+    for (int i = 0; i < DEPTH; i++) {
+      estimate = Math.min(estimate, counts[index(hash, i)]);
+    }
+    return estimate;
+  }
+
+  /** Returns the number of keys added since the sketch was created or last reset. */
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  /**
+   * Returns the candidate keys estimated to make up at least {@code minFraction} of all added keys,
+   * most frequent first.
+   */
+  public List<HotKey> getHotKeys(double minFraction) {
+    List<HotKey> hotKeys = new ArrayList<>();
+    for (Candidate candidate : candidates.values()) {
+      if (candidate.count > 0 && candidate.count >= minFraction * totalCount) {
+        hotKeys.add(HotKey.create(candidate.key, candidate.count));
+      }
+    }
+    hotKeys.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+    return hotKeys;
+  }
+
+  /** Forgets all keys added so far. */
+  public void reset() {
+    Arrays.fill(counts, 0L);
+    candidates.clear();
+    minCandidateCount = 0;
+    totalCount = 0;
+  }
+
+  private Map.Entry<Object, Candidate> smallestCandidate() {
+    Map.@Nullable Entry<Object, Candidate> smallest = null;
+    for (Map.Entry<Object, Candidate> entry : candidates.entrySet()) {
+      if (smallest == null || entry.getValue().count < smallest.getValue().count) {
+        smallest = entry;
+      }
+    }
+    return Preconditions.checkStateNotNull(smallest);
+  }
+
+  private int index(int hash, int row) {
+    // Derive independent hash functions by mixing the key hash with a per-row seed.
+    int h = (hash + row * 0x9E3779B9) * 0x85EBCA6B;
+    h ^= h >>> 15;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 13;
+    return row * (widthMask + 1) + (h & widthMask);
+  }
+}
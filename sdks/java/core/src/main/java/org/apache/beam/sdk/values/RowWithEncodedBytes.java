@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.values;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.BitSetCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.TypeName;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A concrete subclass of {@link Row} that wraps the {@link RowCoder} encoding of a row and decodes
+ * individual fields only when they are accessed.
+ *
+ * <p>On first access, the encoded bytes are scanned once to build a table of field offsets. Fields
+ * of primitive, string and bytes type are skipped without being materialized during this scan;
+ * other fields are decoded by their component coder and retained. Each field is decoded at most
+ * once, so that rows which are wide but of which only a few fields are read (for example by
+ * projections and filters) avoid materializing every field.
+ *
+ * <p>Like other rows, instances may be shared between threads. The offset table is published
+ * through a single volatile field, and a field which is read concurrently by several threads may
+ * be decoded more than once, but every thread observes a fully decoded value.
+ *
+ * <p>Instances are created by {@link RowCoder#decodeLazily}, and by {@link RowCoder#decode} for
+ * coders returned by {@link RowCoder#withLazyDecoding}.
+ */
+@Internal
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+public class RowWithEncodedBytes extends Row {
+  private static final BitSetCoder NULL_LIST_CODER = BitSetCoder.of();
+
+  // Offset marker for fields which are null or not present in the encoding.
+  private static final int NULL_OFFSET = -1;
+
+  // Marker for values in FieldTable#values which have not been decoded yet.
+  private static final Object NOT_DECODED = new Object();
+
+  private final byte[] encoded;
+  private final Coder<?>[] coders;
+  private final int[] encodingPosToIndex;
+
+  // Lazily initialized by ensureFieldTable.
+  private transient volatile @Nullable FieldTable fieldTable;
+
+  /** The offsets and decoded values of the fields of a row, indexed by field index in the row. */
+  private static class FieldTable {
+    private final int[] fieldOffsets;
+    private final int[] indexToEncodingPos;
+    private final AtomicReferenceArray<@Nullable Object> values;
+
+    private FieldTable(
+        int[] fieldOffsets,
+        int[] indexToEncodingPos,
+        AtomicReferenceArray<@Nullable Object> values) {
+      this.fieldOffsets = fieldOffsets;
+      this.indexToEncodingPos = indexToEncodingPos;
+      this.values = values;
+    }
+  }
+
+  /**
+   * Creates a row backed by {@code encoded}, the {@link RowCoder} encoding of a row with the given
+   * schema. {@code coders} are the non-nullable component coders of the fields ordered by encoding
+   * position, and {@code encodingPosToIndex} maps encoding positions to field indices.
+   *
+   * <p>The array is not copied and must not be modified afterwards.
+   */
+  public RowWithEncodedBytes(
+      Schema schema, Coder<?>[] coders, int[] encodingPosToIndex, byte[] encoded) {
+    super(schema);
+    this.encoded = encoded;
+    this.coders = coders;
+    this.encodingPosToIndex = encodingPosToIndex;
+  }
+
+  private RowWithEncodedBytes(
+      Schema schema,
+      Coder<?>[] coders,
+      int[] encodingPosToIndex,
+      byte[] encoded,
+      FieldTable fieldTable) {
+    this(schema, coders, encodingPosToIndex, encoded);
+    this.fieldTable = fieldTable;
+  }
+
+  /**
+   * Reads the {@link RowCoder} encoding of a single row from {@code inStream} and returns a row
+   * backed by a copy of the bytes read. The arguments are the same as those of the constructor.
+   *
+   * <p>The encoding is not length prefixed, so the end of the row is found by scanning its fields.
+   * The field offsets are recorded during that scan, so that the bytes are not scanned again when
+   * the first field is accessed.
+   */
+  public static RowWithEncodedBytes readFrom(
+      Schema schema, Coder<?>[] coders, int[] encodingPosToIndex, InputStream inStream)
+      throws IOException {
+    RecordingInputStream in = new RecordingInputStream(inStream);
+    int fieldCount = schema.getFieldCount();
+    int[] offsets = new int[fieldCount];
+    int[] encodingPositions = new int[fieldCount];
+    AtomicReferenceArray<@Nullable Object> fieldValues = new AtomicReferenceArray<>(fieldCount);
+    int encodedFieldCount = VarInt.decodeInt(in);
+    BitSet nullFields = NULL_LIST_CODER.decode(in);
+    for (int encodingPos = 0; encodingPos < coders.length; ++encodingPos) {
+      int rowIndex = encodingPosToIndex[encodingPos];
+      encodingPositions[rowIndex] = encodingPos;
+      // Like RowCoder#decode, fields missing from the encoding decode as null, and fields which
+      // are only known to a newer schema are dropped.
+      if (encodingPos >= encodedFieldCount || nullFields.get(encodingPos)) {
+        offsets[rowIndex] = NULL_OFFSET;
+        continue;
+      }
+      offsets[rowIndex] = in.size();
+      if (in.copyField(schema.getField(rowIndex).getType().getTypeName())) {
+        fieldValues.set(rowIndex, NOT_DECODED);
+      } else {
+        fieldValues.set(rowIndex, coders[encodingPos].decode(in));
+      }
+    }
+    return new RowWithEncodedBytes(
+        schema,
+        coders,
+        encodingPosToIndex,
+        in.toByteArray(),
+        new FieldTable(offsets, encodingPositions, fieldValues));
+  }
+
+  @Override
+  @SuppressWarnings({"TypeParameterUnusedInFormals", "unchecked"})
+  public <T extends @Nullable Object> T getValue(int fieldIdx) {
+    if (fieldIdx < 0 || fieldIdx >= getFieldCount()) {
+      throw new IllegalArgumentException("No field at index " + fieldIdx);
+    }
+    FieldTable table = ensureFieldTable();
+    Object value = table.values.get(fieldIdx);
+    if (value == NOT_DECODED) {
+      // Decoding is deterministic, so a concurrent decode of the same field yields an equal value.
+      value = decodeField(table, fieldIdx);
+      table.values.set(fieldIdx, value);
+    }
+    return (T) value;
+  }
+
+  @Override
+  public int getFieldCount() {
+    return getSchema().getFieldCount();
+  }
+
+  @Override
+  public List<@Nullable Object> getValues() {
+    List<@Nullable Object> result = new ArrayList<>(getFieldCount());
+    for (int i = 0; i < getFieldCount(); i++) {
+      result.add(getValue(i));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /** Returns whether the value of the field has been materialized; null fields always are. */
+  @VisibleForTesting
+  public boolean isDecoded(int fieldIdx) {
+    FieldTable table = fieldTable;
+    return table != null && table.values.get(fieldIdx) != NOT_DECODED;
+  }
+
+  /** Returns the encoded bytes backing this row. */
+  public byte[] getEncoded() {
+    return encoded;
+  }
+
+  private Object decodeField(FieldTable table, int fieldIdx) {
+    int offset = table.fieldOffsets[fieldIdx];
+    if (offset == NULL_OFFSET) {
+      return null;
+    }
+    int encodingPos = table.indexToEncodingPos[fieldIdx];
+    try {
+      return coders[encodingPos].decode(ByteBuffer.wrap(encoded, offset, encoded.length - offset));
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          "Unable to decode field " + getSchema().getField(fieldIdx).getName(), e);
+    }
+  }
+
+  /**
+   * Scans the encoded bytes once, recording the offset of every field. Concurrent callers may each
+   * scan the bytes, but all of them return a complete table.
+   */
+  private FieldTable ensureFieldTable() {
+    FieldTable table = fieldTable;
+    if (table != null) {
+      return table;
+    }
+    int fieldCount = getFieldCount();
+    int[] offsets = new int[fieldCount];
+    int[] encodingPositions = new int[fieldCount];
+    AtomicReferenceArray<@Nullable Object> fieldValues = new AtomicReferenceArray<>(fieldCount);
+    ByteBuffer buffer = ByteBuffer.wrap(encoded);
+    try {
+      int encodedFieldCount = VarInt.decodeInt(buffer);
+      BitSet nullFields = NULL_LIST_CODER.decode(buffer);
+      for (int encodingPos = 0; encodingPos < coders.length; ++encodingPos) {
+        int rowIndex = encodingPosToIndex[encodingPos];
+        encodingPositions[rowIndex] = encodingPos;
+        // Fields missing from an encoding of an older schema, and null fields, decode as null.
+        if (encodingPos >= encodedFieldCount || nullFields.get(encodingPos)) {
+          offsets[rowIndex] = NULL_OFFSET;
+          continue;
+        }
+        offsets[rowIndex] = buffer.position();
+        if (skipField(rowIndex, buffer)) {
+          fieldValues.set(rowIndex, NOT_DECODED);
+        } else {
+          // The field can not be skipped cheaply, so keep the decoded value around.
+          fieldValues.set(rowIndex, coders[encodingPos].decode(buffer));
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to scan encoded row with schema " + getSchema(), e);
+    }
+    table = new FieldTable(offsets, encodingPositions, fieldValues);
+    fieldTable = table;
+    return table;
+  }
+
+  /**
+   * Advances the buffer past the encoded field if its length can be determined without decoding
+   * the value, returning whether it did so.
+   */
+  private boolean skipField(int fieldIdx, ByteBuffer buffer) throws IOException {
+    TypeName typeName = getSchema().getField(fieldIdx).getType().getTypeName();
+    switch (typeName) {
+      case BYTE:
+      case BOOLEAN:
+        skip(buffer, 1);
+        return true;
+      case INT16:
+        skip(buffer, 2);
+        return true;
+      case FLOAT:
+        skip(buffer, 4);
+        return true;
+      case DOUBLE:
+      case DATETIME:
+        skip(buffer, 8);
+        return true;
+      case INT32:
+      case INT64:
+        VarInt.decodeLong(buffer);
+        return true;
+      case STRING:
+      case BYTES:
+        skip(buffer, VarInt.decodeInt(buffer));
+        return true;
+      case DECIMAL:
+        // Scale followed by the length prefixed unscaled value.
+        VarInt.decodeInt(buffer);
+        skip(buffer, VarInt.decodeInt(buffer));
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** An {@link InputStream} which keeps a copy of every byte read from the wrapped stream. */
+  private static class RecordingInputStream extends FilterInputStream {
+    private final ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+    private final byte[] scratch = new byte[256];
+
+    private RecordingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b >= 0) {
+        recorded.write(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = in.read(b, off, len);
+      if (read > 0) {
+        recorded.write(b, off, read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      int length = (int) Math.min(n, scratch.length);
+      int read = read(scratch, 0, length);
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    /**
+     * Copies the encoded field if its length can be determined without decoding the value,
+     * returning whether it did so. Mirrors {@code skipField}.
+     */
+    private boolean copyField(TypeName typeName) throws IOException {
+      switch (typeName) {
+        case BYTE:
+        case BOOLEAN:
+          copy(1);
+          return true;
+        case INT16:
+          copy(2);
+          return true;
+        case FLOAT:
+          copy(4);
+          return true;
+        case DOUBLE:
+        case DATETIME:
+          copy(8);
+          return true;
+        case INT32:
+        case INT64:
+          VarInt.decodeLong(this);
+          return true;
+        case STRING:
+        case BYTES:
+          copy(VarInt.decodeInt(this));
+          return true;
+        case DECIMAL:
+          VarInt.decodeInt(this);
+          copy(VarInt.decodeInt(this));
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    private void copy(int length) throws IOException {
+      if (length < 0) {
+        throw new IOException("Invalid field length " + length);
+      }
+      int remaining = length;
+      while (remaining > 0) {
+        int read = read(scratch, 0, Math.min(remaining, scratch.length));
+        if (read < 0) {
+          throw new EOFException("Unable to read " + length + " bytes, " + remaining + " missing");
+        }
+        remaining -= read;
+      }
+    }
+
+    private int size() {
+      return recorded.size();
+    }
+
+    private byte[] toByteArray() {
+      return recorded.toByteArray();
+    }
+  }
+
+  private static void skip(ByteBuffer buffer, int length) throws IOException {
+    if (length < 0 || length > buffer.remaining()) {
+      throw new EOFException(
+          "Unable to skip " + length + " bytes, " + buffer.remaining() + " bytes remaining");
+    }
+    buffer.position(buffer.position() + length);
+  }
+}
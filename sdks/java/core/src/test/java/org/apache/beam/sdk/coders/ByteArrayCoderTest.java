@@ -51,6 +51,13 @@ public class ByteArrayCoderTest {
     }
   }
 
+  @Test
+  public void testDecodeEncodeInBufferEquals() throws Exception {
+    for (byte[] value : TEST_VALUES) {
+      CoderProperties.coderDecodeEncodeInBufferEqual(TEST_CODER, value);
+    }
+  }
+
   @Test
   public void testRegisterByteSizeObserver() throws Exception {
     CoderProperties.testByteCount(
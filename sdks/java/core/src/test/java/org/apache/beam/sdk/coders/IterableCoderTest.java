@@ -59,6 +59,13 @@ public class IterableCoderTest {
     }
   }
 
+  @Test
+  public void testDecodeEncodeInBufferEqual() throws Exception {
+    for (Iterable<Integer> value : TEST_VALUES) {
+      CoderProperties.coderDecodeEncodeInBufferEqual(TEST_CODER, value);
+    }
+  }
+
   @Test
   public void testCoderSerializable() throws Exception {
     CoderProperties.coderSerializable(TEST_CODER);
@@ -112,6 +112,13 @@ public class KvCoderTest {
     CoderProperties.coderEncodesBase64(TEST_CODER, TEST_VALUES, TEST_ENCODINGS);
   }
 
+  @Test
+  public void testDecodeEncodeInBufferEqual() throws Exception {
+    for (KV<String, Integer> value : TEST_VALUES) {
+      CoderProperties.coderDecodeEncodeInBufferEqual(TEST_CODER, value);
+    }
+  }
+
   @Rule public ExpectedException thrown = ExpectedException.none();
 
   @Test
@@ -17,25 +17,39 @@
  */
 package org.apache.beam.sdk.coders;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.beam.sdk.coders.Coder.NonDeterministicException;
+import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.schemas.Schema.LogicalType;
 import org.apache.beam.sdk.schemas.logicaltypes.EnumerationType;
 import org.apache.beam.sdk.schemas.logicaltypes.EnumerationType.Value;
+import org.apache.beam.sdk.schemas.utils.RowSelector;
+import org.apache.beam.sdk.schemas.utils.SelectHelpers;
 import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedBytes;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Lists;
@@ -84,6 +98,210 @@ public class RowCoderTest {
     CoderProperties.coderDecodeEncodeEqual(RowCoder.of(schema), row);
   }
 
+  @Test
+  public void testInlinePrimitiveFieldsMatchComponentCoders() throws Exception {
+    Schema schema =
+        Schema.builder()
+            .addInt32Field("f_int32")
+            .addInt64Field("f_int64")
+            .addDoubleField("f_double")
+            .addBooleanField("f_boolean")
+            .addNullableField("f_nullable_int64", FieldType.INT64)
+            .addStringField("f_string")
+            .build();
+    Row row =
+        Row.withSchema(schema).addValues(-7, Long.MAX_VALUE, -0.5d, true, null, "str").build();
+
+    // The generated coder writes primitive fields inline; the bytes must match what the
+    // individual component coders would produce.
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    VarIntCoder.of().encode(6, expected);
+    BitSet nulls = new BitSet();
+    nulls.set(4);
+    BitSetCoder.of().encode(nulls, expected);
+    VarIntCoder.of().encode(-7, expected);
+    VarLongCoder.of().encode(Long.MAX_VALUE, expected);
+    DoubleCoder.of().encode(-0.5d, expected);
+    BooleanCoder.of().encode(true, expected);
+    StringUtf8Coder.of().encode("str", expected);
+
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    RowCoder.of(schema).encode(row, actual);
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+    CoderProperties.coderDecodeEncodeEqual(RowCoder.of(schema), row);
+    CoderProperties.coderDecodeEncodeInBufferEqual(RowCoder.of(schema), row);
+  }
+
+  @Test
+  public void testDecodeLazily() throws Exception {
+    Schema nestedSchema = Schema.builder().addInt32Field("f1_int").addStringField("f1_str").build();
+    Schema schema =
+        Schema.builder()
+            .addByteField("f_byte")
+            .addInt16Field("f_int16")
+            .addInt32Field("f_int32")
+            .addInt64Field("f_int64")
+            .addDecimalField("f_decimal")
+            .addFloatField("f_float")
+            .addDoubleField("f_double")
+            .addStringField("f_string")
+            .addDateTimeField("f_datetime")
+            .addBooleanField("f_boolean")
+            .addByteArrayField("f_bytes")
+            .addNullableField("f_nullable", FieldType.STRING)
+            .addRowField("f_row", nestedSchema)
+            .addArrayField("f_array", FieldType.STRING)
+            .addMapField("f_map", FieldType.STRING, FieldType.INT32)
+            .build();
+    DateTime dateTime =
+        new DateTime().withDate(1979, 3, 14).withTime(1, 2, 3, 4).withZone(DateTimeZone.UTC);
+    Row row =
+        Row.withSchema(schema)
+            .addValues(
+                (byte) 0,
+                (short) 1,
+                -2,
+                3L,
+                new BigDecimal("-2.3"),
+                1.2f,
+                3.0d,
+                "str",
+                dateTime,
+                true,
+                new byte[] {1, 2, 3},
+                null,
+                Row.withSchema(nestedSchema).addValues(18, "foobar").build(),
+                Arrays.asList("a", "b"),
+                ImmutableMap.of("k", 1))
+            .build();
+
+    RowCoder coder = RowCoder.of(schema);
+    byte[] encoded = CoderUtils.encodeToByteArray(coder, row);
+
+    Row lazy = coder.decodeLazily(encoded);
+    assertEquals("str", lazy.getString("f_string"));
+    assertEquals(Arrays.asList("a", "b"), lazy.getArray("f_array"));
+    assertEquals(new BigDecimal("-2.3"), lazy.getDecimal("f_decimal"));
+    assertNull(lazy.getString("f_nullable"));
+    assertEquals(CoderUtils.decodeFromByteArray(coder, encoded), lazy);
+    assertEquals(row, coder.decodeLazily(encoded));
+  }
+
+  @Test
+  public void testDecodeLazilyWithEncodingPositions() throws Exception {
+    Schema schema1 =
+        Schema.builder()
+            .addNullableField("f_int32", FieldType.INT32)
+            .addNullableField("f_string", FieldType.STRING)
+            .build();
+    Schema schema2 =
+        Schema.builder()
+            .addNullableField("f_string", FieldType.STRING)
+            .addNullableField("f_int32", FieldType.INT32)
+            .addNullableField("f_int64", FieldType.INT64)
+            .build();
+    schema2.setEncodingPositions(ImmutableMap.of("f_int32", 0, "f_string", 1, "f_int64", 2));
+    Row row = Row.withSchema(schema1).addValues(42, "hello world!").build();
+
+    byte[] encoded = CoderUtils.encodeToByteArray(RowCoder.of(schema1), row);
+    Row lazy = RowCoder.of(schema2).decodeLazily(encoded);
+
+    assertEquals("hello world!", lazy.getString("f_string"));
+    assertEquals((Integer) 42, lazy.getInt32("f_int32"));
+    assertNull(lazy.getInt64("f_int64"));
+  }
+
+  @Test
+  public void testDecodeLazilySharedBetweenThreads() throws Exception {
+    Schema schema =
+        Schema.builder()
+            .addInt64Field("f_int64")
+            .addStringField("f_string")
+            .addArrayField("f_array", FieldType.STRING)
+            .build();
+    RowCoder coder = RowCoder.of(schema);
+    Row row = Row.withSchema(schema).addValues(7L, "str", Arrays.asList("a", "b")).build();
+    byte[] encoded = CoderUtils.encodeToByteArray(coder, row);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int i = 0; i < 100; ++i) {
+        Row lazy = coder.decodeLazily(encoded);
+        List<Future<List<Object>>> reads = new ArrayList<>();
+        for (int thread = 0; thread < 4; ++thread) {
+          reads.add(executor.submit(() -> lazy.getValues()));
+        }
+        for (Future<List<Object>> read : reads) {
+          assertEquals(row.getValues(), read.get());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testLazyDecodingCoder() throws Exception {
+    Schema nestedSchema = Schema.builder().addInt32Field("f1_int").build();
+    Schema schema =
+        Schema.builder()
+            .addInt64Field("f_int64")
+            .addNullableField("f_nullable", FieldType.STRING)
+            .addRowField("f_row", nestedSchema)
+            .addStringField("f_string")
+            .build();
+    Row row =
+        Row.withSchema(schema)
+            .addValues(7L, null, Row.withSchema(nestedSchema).addValue(3).build(), "str")
+            .build();
+    RowCoder coder = RowCoder.of(schema).withLazyDecoding();
+
+    assertTrue(coder.isLazyDecoding());
+    assertFalse(RowCoder.of(schema).isLazyDecoding());
+    assertEquals(coder, RowCoder.of(schema).withLazyDecoding());
+    assertFalse(coder.equals(RowCoder.of(schema)));
+    // Lazily decoded rows are read back from streams and buffers holding several rows.
+    CoderProperties.coderDecodeEncodeEqual(coder, row);
+    CoderProperties.coderDecodeEncodeInBufferEqual(coder, row);
+    assertEquals(
+        row,
+        CoderUtils.decodeFromByteArray(
+            RowCoder.of(schema), CoderUtils.encodeToByteArray(coder, row)));
+  }
+
+  @Test
+  public void testProjectionOverLazilyDecodedRowDecodesOnlyAccessedFields() throws Exception {
+    Schema.Builder schemaBuilder = Schema.builder();
+    List<Object> values = new ArrayList<>();
+    for (int i = 0; i < 50; ++i) {
+      schemaBuilder.addStringField("f_" + i);
+      values.add("value " + i);
+    }
+    Schema schema = schemaBuilder.build();
+    Row row = Row.withSchema(schema).addValues(values).build();
+    RowCoder coder = RowCoder.of(schema).withLazyDecoding();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    coder.encode(row, out);
+    coder.encode(row, out);
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    RowWithEncodedBytes first = (RowWithEncodedBytes) coder.decode(in);
+    RowWithEncodedBytes second = (RowWithEncodedBytes) coder.decode(in);
+    assertEquals(0, in.available());
+
+    RowSelector selector =
+        SelectHelpers.getRowSelectorOptimized(
+            schema, FieldAccessDescriptor.withFieldNames("f_3", "f_42").resolve(schema));
+    Row projected = selector.select(first);
+    assertEquals(Arrays.asList("value 3", "value 42"), projected.getValues());
+    for (int i = 0; i < schema.getFieldCount(); ++i) {
+      assertEquals("f_" + i, i == 3 || i == 42, first.isDecoded(i));
+      assertFalse(second.isDecoded(i));
+    }
+    assertEquals(row, second);
+  }
+
   @Test
   public void testNestedTypes() throws Exception {
     Schema nestedSchema = Schema.builder().addInt32Field("f1_int").addStringField("f1_str").build();
@@ -96,6 +314,23 @@ public class RowCoderTest {
     CoderProperties.coderDecodeEncodeEqual(RowCoder.of(schema), row);
   }
 
+  @Test
+  public void testDecodeEncodeInBuffer() throws Exception {
+    Schema nestedSchema = Schema.builder().addInt32Field("f1_int").addStringField("f1_str").build();
+    Schema schema =
+        Schema.builder()
+            .addInt64Field("f_int64")
+            .addNullableField("f_nullable", FieldType.STRING)
+            .addRowField("nested", nestedSchema)
+            .addArrayField("f_array", FieldType.INT32)
+            .build();
+
+    Row nestedRow = Row.withSchema(nestedSchema).addValues(18, "foobar").build();
+    Row row = Row.withSchema(schema).addValues(3L, null, nestedRow, Arrays.asList(1, 2)).build();
+
+    CoderProperties.coderDecodeEncodeInBufferEqual(RowCoder.of(schema), row);
+  }
+
   @Test
   public void testArrays() throws Exception {
     Schema schema = Schema.builder().addArrayField("f_array", FieldType.STRING).build();
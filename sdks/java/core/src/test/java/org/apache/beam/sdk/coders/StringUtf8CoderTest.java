@@ -54,6 +54,13 @@ public class StringUtf8CoderTest {
     }
   }
 
+  @Test
+  public void testDecodeEncodeInBufferEqual() throws Exception {
+    for (String value : TEST_VALUES) {
+      CoderProperties.coderDecodeEncodeInBufferEqual(TEST_CODER, value);
+    }
+  }
+
   /**
    * Generated data to check that the wire format has not changed. To regenerate, see {@link
    * org.apache.beam.sdk.coders.PrintBase64Encodings}.
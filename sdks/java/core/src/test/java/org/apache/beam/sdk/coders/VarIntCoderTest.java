@@ -47,6 +47,13 @@ public class VarIntCoderTest {
     }
   }
 
+  @Test
+  public void testDecodeEncodeInBufferEqual() throws Exception {
+    for (Integer value : TEST_VALUES) {
+      CoderProperties.coderDecodeEncodeInBufferEqual(TEST_CODER, value);
+    }
+  }
+
   /**
    * Generated data to check that the wire format has not changed. To regenerate, see {@link
    * org.apache.beam.sdk.coders.PrintBase64Encodings}.
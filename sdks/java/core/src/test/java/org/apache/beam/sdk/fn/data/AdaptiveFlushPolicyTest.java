@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link AdaptiveFlushPolicy}. */
+@RunWith(JUnit4.class)
+public class AdaptiveFlushPolicyTest {
+  private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testInitialLimits() {
+    AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(100, 100);
+    assertEquals(AdaptiveFlushPolicy.MIN_SIZE_LIMIT_BYTES, policy.getSizeLimit());
+    assertEquals(100 * MILLIS, policy.getDeadlineNanos());
+
+    // Larger configured sizes are respected.
+    policy = new AdaptiveFlushPolicy(64 << 20, 100);
+    assertEquals(64 << 20, policy.getSizeLimit());
+  }
+
+  @Test
+  public void testGrowsWhenBuffersFillQuickly() {
+    AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(1 << 20, 100);
+    policy.onFlush(1 << 20, 10 * MILLIS, 0, false);
+    assertEquals(2 << 20, policy.getSizeLimit());
+    for (int i = 0; i < 10; ++i) {
+      policy.onFlush(policy.getSizeLimit(), 10 * MILLIS, 0, false);
+    }
+    assertEquals(AdaptiveFlushPolicy.MAX_SIZE_LIMIT_BYTES, policy.getSizeLimit());
+    assertEquals(100 * MILLIS, policy.getDeadlineNanos());
+  }
+
+  @Test
+  public void testStableWhenBuffersFillWithinLatencyTarget() {
+    AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(1 << 20, 100);
+    policy.onFlush(1 << 20, 50 * MILLIS, MILLIS, false);
+    assertEquals(1 << 20, policy.getSizeLimit());
+    assertEquals(100 * MILLIS, policy.getDeadlineNanos());
+  }
+
+  @Test
+  public void testShrinksWhenDeadlineExpires() {
+    AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(1 << 20, 100);
+    policy.onFlush(1000, 100 * MILLIS, 0, true);
+    assertEquals(1 << 19, policy.getSizeLimit());
+    // The limit doesn't shrink below what was produced within the deadline.
+    policy.onFlush(400_000, 100 * MILLIS, 0, true);
+    assertEquals(400_000, policy.getSizeLimit());
+    for (int i = 0; i < 20; ++i) {
+      policy.onFlush(1000, 100 * MILLIS, 0, true);
+    }
+    assertEquals(AdaptiveFlushPolicy.MIN_SIZE_LIMIT_BYTES, policy.getSizeLimit());
+  }
+
+  @Test
+  public void testBackpressureIncreasesLimits() {
+    AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(1 << 20, 100);
+    policy.onFlush(1 << 20, 10 * MILLIS, 5 * MILLIS, false);
+    assertEquals(2 << 20, policy.getSizeLimit());
+    assertEquals(200 * MILLIS, policy.getDeadlineNanos());
+
+    // Flushes due to the deadline grow as well while backpressured.
+    for (int i = 0; i < 10; ++i) {
+      policy.onFlush(1000, 100 * MILLIS, 100 * MILLIS, true);
+    }
+    assertEquals(AdaptiveFlushPolicy.MAX_SIZE_LIMIT_BYTES, policy.getSizeLimit());
+    assertEquals(
+        100 * MILLIS * AdaptiveFlushPolicy.MAX_DEADLINE_MULTIPLIER, policy.getDeadlineNanos());
+
+    // The latency target is restored once the backpressure is gone.
+    policy.onFlush(1 << 20, 50 * MILLIS, 0, false);
+    assertEquals(100 * MILLIS, policy.getDeadlineNanos());
+  }
+}
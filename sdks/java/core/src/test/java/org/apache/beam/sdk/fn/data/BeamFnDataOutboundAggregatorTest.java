@@ -19,6 +19,7 @@ package org.apache.beam.sdk.fn.data;
 
 import static org.hamcrest.Matchers.empty;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
@@ -270,6 +271,59 @@ public class BeamFnDataOutboundAggregatorTest {
     }
   }
 
+  @Test
+  public void testAdaptiveBufferLimit() throws Exception {
+    List<Elements> values = new ArrayList<>();
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(
+            Arrays.asList(
+                "data_buffer_adaptive",
+                "data_buffer_size_limit=100",
+                "data_buffer_time_limit_ms=60000"));
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            options,
+            endpoint::getInstructionId,
+            TestStreams.<Elements>withOnNext(values::add).build(),
+            false);
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+    try {
+      assertTrue(aggregator.isAdaptive());
+      // The configured size is clamped to the minimum size.
+      assertEquals(AdaptiveFlushPolicy.MIN_SIZE_LIMIT_BYTES, aggregator.getSizeLimit());
+
+      // Test that a buffer which filled well within the latency target grows the limit.
+      dataReceiver.accept(new byte[AdaptiveFlushPolicy.MIN_SIZE_LIMIT_BYTES]);
+      assertEquals(1, values.size());
+      assertEquals(2 * AdaptiveFlushPolicy.MIN_SIZE_LIMIT_BYTES, aggregator.getSizeLimit());
+
+      // Test that nothing is flushed before the deadline expires.
+      dataReceiver.accept(new byte[1]);
+      aggregator.flushIfDeadlineExpired();
+      assertEquals(1, values.size());
+
+      aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+      assertEquals(2, values.size());
+      if (!endpoint.isTimer()) {
+        // The length prefix takes two bytes for the first block and one for the second.
+        BeamFnDataOutboundAggregator.DataBatchStatistics statistics =
+            aggregator.getDataBatchStatistics(endpoint.getTransformId());
+        assertEquals(2, statistics.getCount());
+        assertEquals(AdaptiveFlushPolicy.MIN_SIZE_LIMIT_BYTES + 4, statistics.getSum());
+        assertEquals(2, statistics.getMin());
+        assertEquals(AdaptiveFlushPolicy.MIN_SIZE_LIMIT_BYTES + 2, statistics.getMax());
+
+        aggregator.resetDataBatchStatistics(endpoint.getTransformId());
+        assertEquals(0, aggregator.getDataBatchStatistics(endpoint.getTransformId()).getCount());
+      }
+    } finally {
+      aggregator.discard();
+    }
+  }
+
   @Test
   public void testConfiguredBufferLimitMultipleEndpoints() throws Exception {
     List<BeamFnApi.Elements> values = new ArrayList<>();
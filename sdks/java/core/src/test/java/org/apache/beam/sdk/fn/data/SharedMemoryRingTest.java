@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SharedMemoryRing}. */
+@RunWith(JUnit4.class)
+public class SharedMemoryRingTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    Path path = tempFolder.getRoot().toPath().resolve("ring");
+    SharedMemoryRing writer = SharedMemoryRing.create(path, 100);
+    SharedMemoryRing reader = SharedMemoryRing.open(path);
+    assertEquals(100, reader.getCapacity());
+
+    long position = writer.allocate(3);
+    assertEquals(0, position);
+    writer.slice(position, 3).put(new byte[] {1, 2, 3});
+    writer.publish();
+
+    ByteBuffer read = reader.slice(position, 3);
+    assertEquals(1, read.get());
+    assertEquals(2, read.get());
+    assertEquals(3, read.get());
+    assertFalse(read.hasRemaining());
+    reader.release(position + 3);
+  }
+
+  @Test
+  public void testAllocateWaitsForRelease() throws Exception {
+    Path path = tempFolder.getRoot().toPath().resolve("ring");
+    SharedMemoryRing writer = SharedMemoryRing.create(path, 100);
+    SharedMemoryRing reader = SharedMemoryRing.open(path);
+
+    assertEquals(0, writer.allocate(60));
+    assertEquals(60, writer.allocate(30));
+    // Neither the remaining 10 bytes nor the start of the ring are free.
+    assertEquals(-1, writer.allocate(20));
+
+    reader.release(60);
+    // Ranges don't wrap around so the remainder of the ring is skipped.
+    assertEquals(100, writer.allocate(20));
+    assertEquals(-1, writer.allocate(50));
+    reader.release(120);
+    assertEquals(120, writer.allocate(80));
+  }
+
+  @Test
+  public void testSliceOutsideOfRingFails() throws Exception {
+    SharedMemoryRing ring =
+        SharedMemoryRing.create(tempFolder.getRoot().toPath().resolve("ring"), 100);
+    assertThrows(IllegalArgumentException.class, () -> ring.slice(90, 20));
+    assertThrows(IllegalArgumentException.class, () -> ring.slice(-1, 20));
+  }
+
+  @Test
+  public void testOpenValidatesFile() throws Exception {
+    Path path = tempFolder.newFile().toPath();
+    Files.write(path, new byte[128]);
+    assertThrows(IOException.class, () -> SharedMemoryRing.open(path));
+  }
+
+  @Test
+  public void testDelete() throws Exception {
+    Path path = tempFolder.getRoot().toPath().resolve("ring");
+    SharedMemoryRing ring = SharedMemoryRing.create(path, 100);
+    ring.delete();
+    assertFalse(Files.exists(path));
+    // The ring remains usable.
+    assertEquals(0, ring.allocate(10));
+  }
+}
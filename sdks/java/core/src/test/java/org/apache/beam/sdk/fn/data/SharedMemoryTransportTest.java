@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
+import org.apache.beam.model.pipeline.v1.Endpoints.SharedMemorySpec;
+import org.apache.beam.sdk.fn.test.TestStreams;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.StreamObserver;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SharedMemoryTransport}. */
+@RunWith(JUnit4.class)
+public class SharedMemoryTransportTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private SharedMemorySpec spec;
+  // Messages as sent over gRPC.
+  private final List<Elements> sentByClient = new ArrayList<>();
+  private final List<Elements> sentByServer = new ArrayList<>();
+  // Messages as received by the multiplexers.
+  private final List<Elements> receivedByClient = new ArrayList<>();
+  private final List<Elements> receivedByServer = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    spec =
+        SharedMemorySpec.newBuilder()
+            .setDirectory(tempFolder.getRoot().getAbsolutePath())
+            .setRingSizeBytes(1024)
+            .build();
+  }
+
+  private static Elements elements(String instructionId, int size) {
+    return Elements.newBuilder()
+        .addData(
+            Elements.Data.newBuilder()
+                .setInstructionId(instructionId)
+                .setTransformId("transform")
+                .setData(ByteString.copyFrom(new byte[size])))
+        .build();
+  }
+
+  /** Connects the transports as if the observers were the two ends of a gRPC stream. */
+  private List<StreamObserver<Elements>> connect(
+      SharedMemoryTransport client, SharedMemoryTransport server) {
+    StreamObserver<Elements> clientInbound =
+        client.inboundObserver(TestStreams.withOnNext(receivedByClient::add).build());
+    StreamObserver<Elements> serverInbound =
+        server.inboundObserver(TestStreams.withOnNext(receivedByServer::add).build());
+    StreamObserver<Elements> serverOutbound =
+        server.outboundObserver(
+            TestStreams.<Elements>withOnNext(
+                    value -> {
+                      sentByServer.add(value);
+                      clientInbound.onNext(value);
+                    })
+                .build());
+    StreamObserver<Elements> clientOutbound =
+        client.outboundObserver(
+            TestStreams.<Elements>withOnNext(
+                    value -> {
+                      sentByClient.add(value);
+                      serverInbound.onNext(value);
+                    })
+                .build());
+    List<StreamObserver<Elements>> outbound = new ArrayList<>();
+    outbound.add(clientOutbound);
+    outbound.add(serverOutbound);
+    return outbound;
+  }
+
+  @Test
+  public void testElementsAreExchangedThroughSharedMemory() throws Exception {
+    SharedMemoryTransport client = SharedMemoryTransport.forClient(spec);
+    SharedMemoryTransport server = SharedMemoryTransport.forServer(spec);
+    List<StreamObserver<Elements>> outbound = connect(client, server);
+    assertTrue(client.isConnected());
+    assertTrue(server.isConnected());
+    // The rings are deleted once both sides mapped them.
+    assertEquals(0, tempFolder.getRoot().list().length);
+
+    List<Elements> expected = new ArrayList<>();
+    for (int i = 0; i < 100; ++i) {
+      // The ring is reused many times.
+      expected.add(elements("instruction" + i, i * 3));
+    }
+    for (Elements value : expected) {
+      outbound.get(0).onNext(value);
+      outbound.get(1).onNext(value);
+    }
+    assertEquals(expected, receivedByServer);
+    assertEquals(expected, receivedByClient);
+
+    // Only the exchange of the rings and references were sent over gRPC.
+    for (Elements sent : sentByClient) {
+      assertTrue(sent.hasSharedMemory());
+      assertThat(sent.getDataList(), empty());
+    }
+    for (Elements sent : sentByServer) {
+      assertTrue(sent.hasSharedMemory());
+      assertThat(sent.getDataList(), empty());
+    }
+  }
+
+  @Test
+  public void testLargeElementsAreSentOverGrpc() throws Exception {
+    SharedMemoryTransport client = SharedMemoryTransport.forClient(spec);
+    SharedMemoryTransport server = SharedMemoryTransport.forServer(spec);
+    List<StreamObserver<Elements>> outbound = connect(client, server);
+
+    Elements small = elements("small", 10);
+    Elements large = elements("large", 2048);
+    outbound.get(0).onNext(small);
+    outbound.get(0).onNext(large);
+    outbound.get(0).onNext(small);
+
+    assertEquals(3, receivedByServer.size());
+    assertEquals(small, receivedByServer.get(0));
+    assertEquals(large, receivedByServer.get(1));
+    assertEquals(small, receivedByServer.get(2));
+    assertEquals(large, sentByClient.get(2));
+  }
+
+  @Test
+  public void testClosedServerIgnoresRings() throws Exception {
+    SharedMemoryTransport client = SharedMemoryTransport.forClient(spec);
+    SharedMemoryTransport server = SharedMemoryTransport.forServer(spec);
+    server.close();
+    List<StreamObserver<Elements>> outbound = connect(client, server);
+    assertFalse(client.isConnected());
+    assertFalse(server.isConnected());
+
+    Elements value = elements("instruction", 10);
+    outbound.get(0).onNext(value);
+    outbound.get(1).onNext(value);
+    assertEquals(value, receivedByServer.get(0));
+    assertEquals(value, receivedByClient.get(0));
+
+    client.close();
+    assertEquals(0, tempFolder.getRoot().list().length);
+  }
+
+  @Test
+  public void testClientWithoutAccessToDirectory() throws Exception {
+    File missing = new File(tempFolder.getRoot(), "missing");
+    assertNull(
+        SharedMemoryTransport.forClient(
+            spec.toBuilder().setDirectory(missing.getAbsolutePath()).build()));
+  }
+}
@@ -545,6 +545,63 @@ public class GroupByKeyTest implements Serializable {
       assertThat(fewKeysDisplayData, hasDisplayItem("fewKeys", true));
     }
 
+    @Test
+    @Category(NeedsRunner.class)
+    public void testGroupByKeyWithHotKeyFanout() {
+      List<KV<String, Integer>> ungroupedPairs = new ArrayList<>();
+      List<Integer> hotValues = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        ungroupedPairs.add(KV.of("hot", i));
+        hotValues.add(i);
+        if (i % 100 == 0) {
+          ungroupedPairs.add(KV.of("cold" + i, i));
+        }
+      }
+
+      PCollection<KV<String, Iterable<Integer>>> output =
+          p.apply(
+                  Create.of(ungroupedPairs)
+                      .withCoder(KvCoder.of(StringUtf8Coder.of(), BigEndianIntegerCoder.of())))
+              .apply(GroupByKey.<String, Integer>create().withHotKeyFanout(4));
+
+      PAssert.that(output)
+          .satisfies(
+              containsKvs(
+                  kv("hot", hotValues.toArray(new Integer[0])),
+                  kv("cold0", 0),
+                  kv("cold100", 100),
+                  kv("cold200", 200),
+                  kv("cold300", 300),
+                  kv("cold400", 400),
+                  kv("cold500", 500),
+                  kv("cold600", 600),
+                  kv("cold700", 700),
+                  kv("cold800", 800),
+                  kv("cold900", 900)));
+
+      p.run();
+    }
+
+    @Test
+    public void testHotKeyFanoutDisplayData() {
+      DisplayData displayData =
+          DisplayData.from(
+              GroupByKey.<String, String>create().withHotKeyFanout(8).withHotKeyThreshold(0.5));
+
+      assertThat(displayData, hasDisplayItem("fanout", 8));
+      assertThat(displayData, hasDisplayItem("hotKeyThreshold", 0.5));
+    }
+
+    @Test
+    public void testHotKeyFanoutRejectsInvalidArguments() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> GroupByKey.<String, String>create().withHotKeyFanout(1));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> GroupByKey.<String, String>create().withHotKeyFanout(4).withHotKeyThreshold(0));
+    }
+
     /** Verify that runners correctly hash/group on the encoded value and not the value itself. */
     @Test
     @Category({ValidatesRunner.class})
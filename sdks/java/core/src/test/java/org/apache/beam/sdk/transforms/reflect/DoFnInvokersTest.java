@@ -346,6 +346,60 @@ public class DoFnInvokersTest {
     verify(fn).onWindowExpiration(mockWindow);
   }
 
+  @Test
+  public void testProcessBatch() throws Exception {
+    class MockFn extends DoFn<String, String> {
+      @ProcessElement
+      public void process(ProcessContext c) {}
+
+      @ProcessBatch
+      public void processBatch(List<String> batch, OutputReceiver<String> receiver) {}
+    }
+
+    MockFn fn = mock(MockFn.class);
+    List<String> batch = Arrays.asList("a", "b");
+    DoFnInvoker.ArgumentProvider batchArgumentProvider = mock(DoFnInvoker.ArgumentProvider.class);
+    when(batchArgumentProvider.element(any())).thenReturn(batch);
+    when(batchArgumentProvider.outputReceiver(any())).thenReturn(mockOutputReceiver);
+
+    DoFnInvokers.invokerFor(fn).invokeProcessBatch(batchArgumentProvider);
+    verify(fn).processBatch(batch, mockOutputReceiver);
+  }
+
+  @Test
+  public void testProcessBatchPrimitiveArray() throws Exception {
+    class MockFn extends DoFn<Long, Long> {
+      @ProcessElement
+      public void process(ProcessContext c) {}
+
+      @ProcessBatch
+      public void processBatch(long[] batch, PipelineOptions options) {}
+    }
+
+    MockFn fn = mock(MockFn.class);
+    long[] batch = new long[] {1L, 2L, 3L};
+    DoFnInvoker.ArgumentProvider batchArgumentProvider = mock(DoFnInvoker.ArgumentProvider.class);
+    when(batchArgumentProvider.element(any())).thenReturn(batch);
+    when(batchArgumentProvider.pipelineOptions()).thenReturn(mockOptions);
+
+    DoFnInvokers.invokerFor(fn).invokeProcessBatch(batchArgumentProvider);
+    verify(fn).processBatch(batch, mockOptions);
+  }
+
+  @Test
+  public void testProcessBatchNotDefined() throws Exception {
+    DoFnInvoker<String, String> invoker =
+        DoFnInvokers.invokerFor(
+            new DoFn<String, String>() {
+              @ProcessElement
+              public void process(ProcessContext c) {}
+            });
+
+    assertThrows(
+        UnsupportedOperationException.class,
+        () -> invoker.invokeProcessBatch(mockArgumentProvider));
+  }
+
   @Test
   public void testDoFnWithReturn() throws Exception {
     class MockFn extends DoFn<String, String> {
@@ -26,6 +26,7 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -1297,6 +1298,101 @@ public class DoFnSignaturesTest {
     assertThat(sig.onWindowExpiration().extraParameters().size(), equalTo(0));
   }
 
+  @Test
+  public void testProcessBatchList() {
+    DoFnSignature sig =
+        DoFnSignatures.getSignature(
+            new DoFn<String, String>() {
+              @ProcessElement
+              public void process(@Element String element) {}
+
+              @ProcessBatch
+              public void processBatch(List<String> batch, OutputReceiver<String> receiver) {}
+            }.getClass());
+
+    assertThat(sig.processBatch().batchT(), equalTo(new TypeDescriptor<List<String>>() {}));
+    assertFalse(sig.processBatch().isPrimitiveBatch());
+    assertThat(sig.processBatch().extraParameters().size(), equalTo(2));
+    assertThat(sig.processBatch().extraParameters().get(0), instanceOf(ElementParameter.class));
+    assertThat(
+        sig.processBatch().extraParameters().get(1), instanceOf(OutputReceiverParameter.class));
+  }
+
+  @Test
+  public void testProcessBatchPrimitiveArray() {
+    DoFnSignature sig =
+        DoFnSignatures.getSignature(
+            new DoFn<Long, Long>() {
+              @ProcessElement
+              public void process(@Element Long element) {}
+
+              @ProcessBatch
+              public void processBatch(long[] batch, PipelineOptions options) {}
+            }.getClass());
+
+    assertThat(sig.processBatch().batchT(), equalTo(TypeDescriptor.of(long[].class)));
+    assertTrue(sig.processBatch().isPrimitiveBatch());
+  }
+
+  @Test
+  public void testNoProcessBatch() {
+    DoFnSignature sig =
+        DoFnSignatures.getSignature(
+            new DoFn<String, String>() {
+              @ProcessElement
+              public void process(@Element String element) {}
+            }.getClass());
+
+    assertThat(sig.processBatch(), nullValue());
+  }
+
+  @Test
+  public void testProcessBatchWrongBatchType() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("First parameter must be the batch of type");
+    thrown.expectMessage("or long[]");
+    DoFnSignatures.getSignature(
+        new DoFn<Long, Long>() {
+          @ProcessElement
+          public void process(@Element Long element) {}
+
+          @ProcessBatch
+          public void processBatch(int[] batch) {}
+        }.getClass());
+  }
+
+  @Test
+  public void testProcessBatchDisallowedParameter() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Illegal parameter type");
+    thrown.expectMessage("WindowParameter");
+    DoFnSignatures.getSignature(
+        new DoFn<String, String>() {
+          @ProcessElement
+          public void process(@Element String element) {}
+
+          @ProcessBatch
+          public void processBatch(List<String> batch, BoundedWindow window) {}
+        }.getClass());
+  }
+
+  @Test
+  public void testProcessBatchWithState() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("DoFns that use state or timers cannot process batches");
+    DoFnSignatures.getSignature(
+        new DoFn<KV<String, Integer>, String>() {
+          @StateId("foo")
+          private final StateSpec<ValueState<Integer>> state = StateSpecs.value(VarIntCoder.of());
+
+          @ProcessElement
+          public void process(@Element KV<String, Integer> element) {}
+
+          @ProcessBatch
+          public void processBatch(List<KV<String, Integer>> batch) {}
+        }.getClass());
+  }
+
   @Test
   public void testOnWindowExpirationWithAllowedParams() {
     DoFnSignature sig =
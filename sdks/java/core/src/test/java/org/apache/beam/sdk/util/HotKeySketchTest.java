@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.apache.beam.sdk.coders.StructuralByteArray;
+import org.apache.beam.sdk.util.HotKeySketch.HotKey;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link HotKeySketch}. */
+@RunWith(JUnit4.class)
+public class HotKeySketchTest {
+
+  @Test
+  public void testEstimatesAreUpperBounds() {
+    HotKeySketch sketch = new HotKeySketch(4, 16);
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j <= i % 10; j++) {
+        sketch.add("key" + i);
+      }
+    }
+
+    assertEquals(550, sketch.getTotalCount());
+    for (int i = 0; i < 100; i++) {
+      assertTrue(sketch.estimateCount("key" + i) >= i % 10 + 1);
+    }
+  }
+
+  @Test
+  public void testFindsHotKeys() {
+    HotKeySketch sketch = HotKeySketch.create();
+    for (int i = 0; i < 10_000; i++) {
+      sketch.add("cold" + i);
+      if (i % 2 == 0) {
+        sketch.add("hot");
+      }
+      if (i % 4 == 0) {
+        sketch.add("warm");
+      }
+    }
+
+    List<HotKey> hotKeys = sketch.getHotKeys(0.1);
+    assertEquals(2, hotKeys.size());
+    assertEquals("hot", hotKeys.get(0).getKey());
+    assertTrue(hotKeys.get(0).getCount() >= 5_000);
+    assertEquals("warm", hotKeys.get(1).getKey());
+    assertTrue(hotKeys.get(1).getCount() >= 2_500);
+  }
+
+  @Test
+  public void testReportsUserFacingKey() {
+    HotKeySketch sketch = HotKeySketch.create();
+    byte[] key = new byte[] {1, 2, 3};
+    for (int i = 0; i < 10; i++) {
+      sketch.add(new StructuralByteArray(key), key);
+    }
+
+    List<HotKey> hotKeys = sketch.getHotKeys(0.5);
+    assertEquals(1, hotKeys.size());
+    assertSame(key, hotKeys.get(0).getKey());
+    assertEquals(10, hotKeys.get(0).getCount());
+  }
+
+  @Test
+  public void testReset() {
+    HotKeySketch sketch = HotKeySketch.create();
+    sketch.add("key");
+    sketch.add("key");
+    sketch.reset();
+
+    assertEquals(0, sketch.getTotalCount());
+    assertEquals(0, sketch.estimateCount("key"));
+    assertTrue(sketch.getHotKeys(0.0).isEmpty());
+  }
+
+  @Test
+  public void testWidthMustBePowerOfTwo() {
+    assertThrows(IllegalArgumentException.class, () -> new HotKeySketch(8, 1000));
+  }
+}
@@ -25,6 +25,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -226,6 +227,33 @@ public class VarIntTest {
     }
   }
 
+  @Test
+  public void encodeAndDecodeValuesInBuffer() throws IOException {
+    for (int i = 0; i < LONG_VALUES.length; ++i) {
+      ByteBuffer buffer = ByteBuffer.allocate(LONG_ENCODED[i].length);
+      VarInt.encode(LONG_VALUES[i], buffer);
+      assertThat(buffer.array(), equalTo(LONG_ENCODED[i]));
+      buffer.flip();
+      assertEquals(LONG_VALUES[i], VarInt.decodeLong(buffer));
+      assertEquals(0, buffer.remaining());
+    }
+
+    for (int i = 0; i < INT_VALUES.length; ++i) {
+      ByteBuffer buffer = ByteBuffer.allocate(INT_ENCODED[i].length);
+      VarInt.encode(INT_VALUES[i], buffer);
+      assertThat(buffer.array(), equalTo(INT_ENCODED[i]));
+      buffer.flip();
+      assertEquals(INT_VALUES[i], VarInt.decodeInt(buffer));
+      assertEquals(0, buffer.remaining());
+    }
+  }
+
+  @Test
+  public void endOfBufferThrowsException() throws Exception {
+    thrown.expect(EOFException.class);
+    VarInt.decodeInt(ByteBuffer.allocate(0));
+  }
+
   @Test
   public void decodeThrowsExceptionForOverflow() throws IOException {
     final byte[] tooLargeNumber = {
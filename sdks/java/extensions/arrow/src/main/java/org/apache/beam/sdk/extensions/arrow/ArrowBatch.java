@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.arrow;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.beam.sdk.extensions.arrow.ArrowConversion.ArrowSchemaTranslator;
+import org.apache.beam.sdk.extensions.arrow.ArrowConversion.RecordBatchRowIterator;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.Field;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.values.Row;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Instant;
+import org.joda.time.ReadableInstant;
+
+/**
+ * A batch of {@link Row}s stored in columnar form as a single Arrow record batch.
+ *
+ * <p>An {@link ArrowBatch} is an immutable on-heap value holding the Arrow IPC stream encoding of
+ * the record batch, so it can be used as a {@link org.apache.beam.sdk.values.PCollection} element
+ * without tying off-heap buffers to the lifetime of a bundle. Operations such as {@link
+ * #select}, {@link #filter} and {@link #addFields} work directly on the Arrow vectors of the batch
+ * and only touch the columns they need; the rows are never materialized as {@link Row} objects.
+ * Each of them deserializes and serializes the whole batch, so chains of operations should be
+ * applied at once with {@link #transform}. See {@link ArrowBatchTransforms} for the corresponding
+ * {@link org.apache.beam.sdk.transforms.PTransform}s.
+ *
+ * <p>Only schemas whose fields have primitive types are supported; see {@link
+ * ArrowSchemaTranslator#toArrowSchema}. An Arrow allocation manager (either {@code
+ * arrow-memory-netty} or {@code arrow-memory-unsafe}) must be on the classpath at runtime.
+ */
+public final class ArrowBatch {
+  private static final BufferAllocator ALLOCATOR = new RootAllocator();
+
+  private final Schema schema;
+  private final int rowCount;
+  private final byte[] encoded;
+
+  private ArrowBatch(Schema schema, int rowCount, byte[] encoded) {
+    this.schema = schema;
+    this.rowCount = rowCount;
+    this.encoded = encoded;
+  }
+
+  /**
+   * Creates an {@link ArrowBatch} from its Arrow IPC stream encoding, as returned by {@link
+   * #getEncoded()}.
+   */
+  public static ArrowBatch fromEncoded(Schema schema, int rowCount, byte[] encoded) {
+    return new ArrowBatch(schema, rowCount, encoded);
+  }
+
+  /** Creates an {@link ArrowBatch} holding the given rows, which must all have {@code schema}. */
+  public static ArrowBatch fromRows(Schema schema, List<Row> rows) throws IOException {
+    try (BufferAllocator allocator = newAllocator();
+        VectorSchemaRoot root =
+            VectorSchemaRoot.create(ArrowSchemaTranslator.toArrowSchema(schema), allocator)) {
+      root.allocateNew();
+      for (int i = 0; i < schema.getFieldCount(); ++i) {
+        FieldVector vector = root.getVector(i);
+        for (int j = 0; j < rows.size(); ++j) {
+          setValue(vector, j, rows.get(j).getValue(i));
+        }
+        vector.setValueCount(rows.size());
+      }
+      root.setRowCount(rows.size());
+      return new ArrowBatch(schema, rows.size(), serialize(root));
+    }
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /** Returns the Arrow IPC stream encoding of this batch, which must not be mutated. */
+  public byte[] getEncoded() {
+    return encoded;
+  }
+
+  /** Materializes the rows of this batch. */
+  public List<Row> toRows() throws IOException {
+    return apply(
+        (root, allocator) -> {
+          List<Row> rows = new ArrayList<>(rowCount);
+          RecordBatchRowIterator iterator = ArrowConversion.rowsFromRecordBatch(schema, root);
+          while (iterator.hasNext()) {
+            rows.add(Row.withSchema(schema).addValues(iterator.next().getValues()).build());
+          }
+          return rows;
+        });
+  }
+
+  /**
+   * Returns the result of applying {@code operations} to this batch. The batch is deserialized and
+   * the result serialized once, however many operations are chained. Returns this batch if the
+   * operations leave its vectors unchanged, for example filters selecting every row.
+   */
+  public ArrowBatch transform(ArrowBatchOperations operations) throws IOException {
+    Schema outputSchema = operations.getOutputSchema(schema);
+    return apply(
+        (root, allocator) -> {
+          List<FieldVector> allocated = new ArrayList<>();
+          try {
+            VectorSchemaRoot result = root;
+            for (ArrowBatchOperations.Operation operation : operations.getOperations()) {
+              result = operation.apply(result, allocator, allocated);
+            }
+            if (result == root) {
+              return this;
+            }
+            return new ArrowBatch(outputSchema, result.getRowCount(), serialize(result));
+          } finally {
+            for (FieldVector vector : allocated) {
+              vector.close();
+            }
+          }
+        });
+  }
+
+  /**
+   * Returns a batch containing only the given fields, in the given order. The selected columns
+   * are serialized as they are, no per-row work is done.
+   */
+  public ArrowBatch select(List<String> fieldNames) throws IOException {
+    return transform(ArrowBatchOperations.create().select(fieldNames));
+  }
+
+  /**
+   * Returns a batch containing only the rows for which {@code predicate} returns true when applied
+   * to the value of {@code fieldName}. See {@link ArrowBatchOperations#filter}.
+   */
+  public ArrowBatch filter(
+      String fieldName, SerializableFunction<@Nullable Object, Boolean> predicate)
+      throws IOException {
+    return transform(ArrowBatchOperations.create().filter(fieldName, predicate));
+  }
+
+  /** A predicate on the unboxed values of an integral field. */
+  @FunctionalInterface
+  public interface LongPredicate extends Serializable {
+    boolean test(long value);
+  }
+
+  /** A predicate on the unboxed values of a floating point field. */
+  @FunctionalInterface
+  public interface DoublePredicate extends Serializable {
+    boolean test(double value);
+  }
+
+  /** Like {@link #filter}, see {@link ArrowBatchOperations#filterLong}. */
+  public ArrowBatch filterLong(String fieldName, LongPredicate predicate) throws IOException {
+    return transform(ArrowBatchOperations.create().filterLong(fieldName, predicate));
+  }
+
+  /** Like {@link #filter}, see {@link ArrowBatchOperations#filterDouble}. */
+  public ArrowBatch filterDouble(String fieldName, DoublePredicate predicate) throws IOException {
+    return transform(ArrowBatchOperations.create().filterDouble(fieldName, predicate));
+  }
+
+  /** Returns a batch with the given nullable fields appended, all set to null. */
+  public ArrowBatch addFields(List<Field> fields) throws IOException {
+    return transform(ArrowBatchOperations.create().addFields(fields));
+  }
+
+  /** A function of the Arrow vectors backing a batch. */
+  interface VectorFunction<T> {
+    T apply(VectorSchemaRoot root, BufferAllocator allocator) throws IOException;
+  }
+
+  /**
+   * Deserializes the vectors of this batch and applies {@code fn} to them. The vectors, and any
+   * vectors allocated from the given allocator, are released once {@code fn} returns.
+   */
+  <T> T apply(VectorFunction<T> fn) throws IOException {
+    try (BufferAllocator allocator = newAllocator();
+        ArrowStreamReader reader =
+            new ArrowStreamReader(new ByteArrayInputStream(encoded), allocator)) {
+      VectorSchemaRoot root = reader.getVectorSchemaRoot();
+      if (!reader.loadNextBatch()) {
+        root.setRowCount(0);
+      }
+      return fn.apply(root, allocator);
+    }
+  }
+
+  /** Returns the value at {@code index} in the same representation as {@link Row#getValue}. */
+  static @Nullable Object getValue(FieldVector vector, int index) {
+    if (vector.isNull(index)) {
+      return null;
+    } else if (vector instanceof VarCharVector) {
+      return new String(((VarCharVector) vector).get(index), StandardCharsets.UTF_8);
+    } else if (vector instanceof TimeStampMilliTZVector) {
+      return new Instant(((TimeStampMilliTZVector) vector).get(index));
+    } else {
+      return vector.getObject(index);
+    }
+  }
+
+  private static void setValue(FieldVector vector, int index, @Nullable Object value) {
+    if (value == null) {
+      vector.setNull(index);
+    } else if (vector instanceof TinyIntVector) {
+      ((TinyIntVector) vector).setSafe(index, (Byte) value);
+    } else if (vector instanceof SmallIntVector) {
+      ((SmallIntVector) vector).setSafe(index, (Short) value);
+    } else if (vector instanceof IntVector) {
+      ((IntVector) vector).setSafe(index, (Integer) value);
+    } else if (vector instanceof BigIntVector) {
+      ((BigIntVector) vector).setSafe(index, (Long) value);
+    } else if (vector instanceof Float4Vector) {
+      ((Float4Vector) vector).setSafe(index, (Float) value);
+    } else if (vector instanceof Float8Vector) {
+      ((Float8Vector) vector).setSafe(index, (Double) value);
+    } else if (vector instanceof BitVector) {
+      ((BitVector) vector).setSafe(index, (Boolean) value ? 1 : 0);
+    } else if (vector instanceof VarCharVector) {
+      ((VarCharVector) vector).setSafe(index, ((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (vector instanceof VarBinaryVector) {
+      ((VarBinaryVector) vector).setSafe(index, (byte[]) value);
+    } else if (vector instanceof TimeStampMilliTZVector) {
+      ((TimeStampMilliTZVector) vector).setSafe(index, ((ReadableInstant) value).getMillis());
+    } else {
+      throw new IllegalArgumentException(
+          "Unsupported vector type " + vector.getClass().getSimpleName());
+    }
+  }
+
+  private static byte[] serialize(VectorSchemaRoot root) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ArrowStreamWriter writer = new ArrowStreamWriter(root, null, Channels.newChannel(out))) {
+      writer.start();
+      writer.writeBatch();
+      writer.end();
+    }
+    return out.toByteArray();
+  }
+
+  private static BufferAllocator newAllocator() {
+    return ALLOCATOR.newChildAllocator("ArrowBatch", 0, Long.MAX_VALUE);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ArrowBatch)) {
+      return false;
+    }
+    ArrowBatch that = (ArrowBatch) o;
+    return rowCount == that.rowCount
+        && schema.equals(that.schema)
+        && Arrays.equals(encoded, that.encoded);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * schema.hashCode() + rowCount) + Arrays.hashCode(encoded);
+  }
+
+  @Override
+  public String toString() {
+    return "ArrowBatch{schema=" + schema + ", rowCount=" + rowCount + "}";
+  }
+}
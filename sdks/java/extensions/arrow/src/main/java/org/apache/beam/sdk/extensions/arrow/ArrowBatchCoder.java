@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.arrow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link CustomCoder} for {@link ArrowBatch}es of a fixed {@link Schema}. Batches are encoded as
+ * their row count followed by their Arrow IPC stream encoding.
+ */
+public class ArrowBatchCoder extends CustomCoder<ArrowBatch> {
+  private static final VarIntCoder ROW_COUNT_CODER = VarIntCoder.of();
+  private static final ByteArrayCoder BYTES_CODER = ByteArrayCoder.of();
+
+  private final Schema schema;
+
+  public static ArrowBatchCoder of(Schema schema) {
+    return new ArrowBatchCoder(schema);
+  }
+
+  private ArrowBatchCoder(Schema schema) {
+    this.schema = schema;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  @Override
+  public void encode(ArrowBatch value, OutputStream outStream) throws IOException {
+    ROW_COUNT_CODER.encode(value.getRowCount(), outStream);
+    BYTES_CODER.encode(value.getEncoded(), outStream);
+  }
+
+  @Override
+  public ArrowBatch decode(InputStream inStream) throws IOException {
+    int rowCount = ROW_COUNT_CODER.decode(inStream);
+    return ArrowBatch.fromEncoded(schema, rowCount, BYTES_CODER.decode(inStream));
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return schema.equals(((ArrowBatchCoder) o).schema);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(schema);
+  }
+}
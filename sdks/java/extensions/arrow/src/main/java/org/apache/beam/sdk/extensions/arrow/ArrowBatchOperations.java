@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.arrow;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.util.TransferPair;
+import org.apache.beam.sdk.extensions.arrow.ArrowConversion.ArrowSchemaTranslator;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.Field;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable chain of operations applied to the Arrow vectors of an {@link ArrowBatch} by {@link
+ * ArrowBatch#transform}.
+ *
+ * <p>The batch is deserialized once, every operation works on the vectors left by the previous
+ * one, and only the final vectors are serialized. Chaining operations here is therefore cheaper
+ * than calling {@link ArrowBatch#select}, {@link ArrowBatch#filter} and {@link
+ * ArrowBatch#addFields} one after the other, each of which deserializes and serializes the whole
+ * batch:
+ *
+ * <pre>{@code
+ * ArrowBatchOperations operations =
+ *     ArrowBatchOperations.create()
+ *         .filterLong("amount", amount -> amount > 0)
+ *         .select("user", "amount")
+ *         .addFields(Field.nullable("note", FieldType.STRING));
+ * }</pre>
+ */
+public final class ArrowBatchOperations implements Serializable {
+  private static final ArrowBatchOperations EMPTY =
+      new ArrowBatchOperations(Collections.emptyList());
+
+  private final List<Operation> operations;
+
+  private ArrowBatchOperations(List<Operation> operations) {
+    this.operations = operations;
+  }
+
+  /** Returns an empty chain, which leaves batches unchanged. */
+  public static ArrowBatchOperations create() {
+    return EMPTY;
+  }
+
+  /** Appends an operation keeping only the given fields, in the given order. */
+  public ArrowBatchOperations select(String... fieldNames) {
+    return select(Arrays.asList(fieldNames));
+  }
+
+  /** Like {@link #select(String...)}. */
+  public ArrowBatchOperations select(List<String> fieldNames) {
+    return then(new Select(new ArrayList<>(fieldNames)));
+  }
+
+  /**
+   * Appends an operation keeping only the rows for which {@code predicate} returns true when
+   * applied to the value of {@code fieldName}.
+   *
+   * <p>Only the filtered column is read to build a selection vector, the selected rows are then
+   * copied column by column. Values are passed to the predicate as they would be returned by
+   * {@link org.apache.beam.sdk.values.Row#getValue}, boxing each of them; prefer {@link
+   * #filterLong} and {@link #filterDouble} for numeric fields.
+   */
+  public ArrowBatchOperations filter(
+      String fieldName, SerializableFunction<@Nullable Object, Boolean> predicate) {
+    return then(new Filter(fieldName, new BoxedSelector(predicate)));
+  }
+
+  /**
+   * Like {@link #filter}, for a field of type {@link Schema.FieldType#INT32} or {@link
+   * Schema.FieldType#INT64}. Values are read through the primitive accessor of the column and
+   * passed to {@code predicate} unboxed; null values never match.
+   */
+  public ArrowBatchOperations filterLong(String fieldName, ArrowBatch.LongPredicate predicate) {
+    return then(new Filter(fieldName, new LongSelector(fieldName, predicate)));
+  }
+
+  /**
+   * Like {@link #filter}, for a field of type {@link Schema.FieldType#FLOAT} or {@link
+   * Schema.FieldType#DOUBLE}. Values are read through the primitive accessor of the column and
+   * passed to {@code predicate} unboxed; null values never match.
+   */
+  public ArrowBatchOperations filterDouble(
+      String fieldName, ArrowBatch.DoublePredicate predicate) {
+    return then(new Filter(fieldName, new DoubleSelector(fieldName, predicate)));
+  }
+
+  /** Appends an operation adding the given nullable fields, all set to null. */
+  public ArrowBatchOperations addFields(Field... fields) {
+    return addFields(Arrays.asList(fields));
+  }
+
+  /** Like {@link #addFields(Field...)}. */
+  public ArrowBatchOperations addFields(List<Field> fields) {
+    for (Field field : fields) {
+      checkArgument(field.getType().getNullable(), "Added field %s must be nullable", field);
+    }
+    return then(new AddFields(new ArrayList<>(fields)));
+  }
+
+  /** Returns the schema of the batches produced from batches with {@code inputSchema}. */
+  public Schema getOutputSchema(Schema inputSchema) {
+    Schema schema = inputSchema;
+    for (Operation operation : operations) {
+      schema = operation.getOutputSchema(schema);
+    }
+    return schema;
+  }
+
+  List<Operation> getOperations() {
+    return operations;
+  }
+
+  private ArrowBatchOperations then(Operation operation) {
+    List<Operation> chained = new ArrayList<>(operations.size() + 1);
+    chained.addAll(operations);
+    chained.add(operation);
+    return new ArrowBatchOperations(Collections.unmodifiableList(chained));
+  }
+
+  @Override
+  public String toString() {
+    return "ArrowBatchOperations" + operations;
+  }
+
+  /** An operation on the live vectors of a batch. */
+  interface Operation extends Serializable {
+    Schema getOutputSchema(Schema inputSchema);
+
+    /**
+     * Returns the vectors resulting from applying this operation to {@code root}, possibly {@code
+     * root} itself or vectors shared with it. New vectors are allocated from {@code allocator} and
+     * added to {@code allocated}, which the caller closes once the result has been serialized.
+     */
+    VectorSchemaRoot apply(
+        VectorSchemaRoot root, BufferAllocator allocator, List<FieldVector> allocated);
+  }
+
+  private static class Select implements Operation {
+    private final List<String> fieldNames;
+
+    Select(List<String> fieldNames) {
+      this.fieldNames = fieldNames;
+    }
+
+    @Override
+    public Schema getOutputSchema(Schema inputSchema) {
+      Schema.Builder outputSchema = Schema.builder();
+      for (String fieldName : fieldNames) {
+        outputSchema.addField(inputSchema.getField(fieldName));
+      }
+      return outputSchema.build();
+    }
+
+    @Override
+    public VectorSchemaRoot apply(
+        VectorSchemaRoot root, BufferAllocator allocator, List<FieldVector> allocated) {
+      // The selected columns are kept as they are, no per-row work is done.
+      List<FieldVector> vectors = new ArrayList<>(fieldNames.size());
+      for (String fieldName : fieldNames) {
+        vectors.add(root.getVector(fieldName));
+      }
+      VectorSchemaRoot selected = new VectorSchemaRoot(vectors);
+      selected.setRowCount(root.getRowCount());
+      return selected;
+    }
+
+    @Override
+    public String toString() {
+      return "select" + fieldNames;
+    }
+  }
+
+  /** Fills a selection vector with the indices of the rows of a column that match a predicate. */
+  private interface Selector extends Serializable {
+    /** Returns the number of selected rows, whose indices are stored in {@code selection}. */
+    int select(FieldVector column, int rowCount, int[] selection);
+  }
+
+  private static class BoxedSelector implements Selector {
+    private final SerializableFunction<@Nullable Object, Boolean> predicate;
+
+    BoxedSelector(SerializableFunction<@Nullable Object, Boolean> predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override
+    public int select(FieldVector column, int rowCount, int[] selection) {
+      int selected = 0;
+      for (int i = 0; i < rowCount; ++i) {
+        if (predicate.apply(ArrowBatch.getValue(column, i))) {
+          selection[selected++] = i;
+        }
+      }
+      return selected;
+    }
+  }
+
+  private static class LongSelector implements Selector {
+    private final String fieldName;
+    private final ArrowBatch.LongPredicate predicate;
+
+    LongSelector(String fieldName, ArrowBatch.LongPredicate predicate) {
+      this.fieldName = fieldName;
+      this.predicate = predicate;
+    }
+
+    @Override
+    public int select(FieldVector column, int rowCount, int[] selection) {
+      int selected = 0;
+      if (column instanceof BigIntVector) {
+        BigIntVector longs = (BigIntVector) column;
+        for (int i = 0; i < rowCount; ++i) {
+          if (!longs.isNull(i) && predicate.test(longs.get(i))) {
+            selection[selected++] = i;
+          }
+        }
+      } else if (column instanceof IntVector) {
+        IntVector ints = (IntVector) column;
+        for (int i = 0; i < rowCount; ++i) {
+          if (!ints.isNull(i) && predicate.test(ints.get(i))) {
+            selection[selected++] = i;
+          }
+        }
+      } else {
+        throw new IllegalArgumentException(
+            "Field " + fieldName + " must be of type INT32 or INT64.");
+      }
+      return selected;
+    }
+  }
+
+  private static class DoubleSelector implements Selector {
+    private final String fieldName;
+    private final ArrowBatch.DoublePredicate predicate;
+
+    DoubleSelector(String fieldName, ArrowBatch.DoublePredicate predicate) {
+      this.fieldName = fieldName;
+      this.predicate = predicate;
+    }
+
+    @Override
+    public int select(FieldVector column, int rowCount, int[] selection) {
+      int selected = 0;
+      if (column instanceof Float8Vector) {
+        Float8Vector doubles = (Float8Vector) column;
+        for (int i = 0; i < rowCount; ++i) {
+          if (!doubles.isNull(i) && predicate.test(doubles.get(i))) {
+            selection[selected++] = i;
+          }
+        }
+      } else if (column instanceof Float4Vector) {
+        Float4Vector floats = (Float4Vector) column;
+        for (int i = 0; i < rowCount; ++i) {
+          if (!floats.isNull(i) && predicate.test(floats.get(i))) {
+            selection[selected++] = i;
+          }
+        }
+      } else {
+        throw new IllegalArgumentException(
+            "Field " + fieldName + " must be of type FLOAT or DOUBLE.");
+      }
+      return selected;
+    }
+  }
+
+  private static class Filter implements Operation {
+    private final String fieldName;
+    private final Selector selector;
+
+    Filter(String fieldName, Selector selector) {
+      this.fieldName = fieldName;
+      this.selector = selector;
+    }
+
+    @Override
+    public Schema getOutputSchema(Schema inputSchema) {
+      return inputSchema;
+    }
+
+    @Override
+    public VectorSchemaRoot apply(
+        VectorSchemaRoot root, BufferAllocator allocator, List<FieldVector> allocated) {
+      int rowCount = root.getRowCount();
+      int[] selection = new int[rowCount];
+      int selected = selector.select(root.getVector(fieldName), rowCount, selection);
+      if (selected == rowCount) {
+        return root;
+      }
+      List<FieldVector> vectors = new ArrayList<>(root.getFieldVectors().size());
+      for (FieldVector from : root.getFieldVectors()) {
+        TransferPair transferPair = from.getTransferPair(allocator);
+        FieldVector to = (FieldVector) transferPair.getTo();
+        allocated.add(to);
+        to.setInitialCapacity(selected);
+        to.allocateNew();
+        for (int i = 0; i < selected; ++i) {
+          transferPair.copyValueSafe(selection[i], i);
+        }
+        to.setValueCount(selected);
+        vectors.add(to);
+      }
+      VectorSchemaRoot filtered = new VectorSchemaRoot(vectors);
+      filtered.setRowCount(selected);
+      return filtered;
+    }
+
+    @Override
+    public String toString() {
+      return "filter(" + fieldName + ")";
+    }
+  }
+
+  private static class AddFields implements Operation {
+    private final List<Field> fields;
+
+    AddFields(List<Field> fields) {
+      this.fields = fields;
+    }
+
+    @Override
+    public Schema getOutputSchema(Schema inputSchema) {
+      return Schema.builder().addFields(inputSchema.getFields()).addFields(fields).build();
+    }
+
+    @Override
+    public VectorSchemaRoot apply(
+        VectorSchemaRoot root, BufferAllocator allocator, List<FieldVector> allocated) {
+      int rowCount = root.getRowCount();
+      List<FieldVector> vectors = new ArrayList<>(root.getFieldVectors());
+      for (Field field : fields) {
+        FieldVector vector = ArrowSchemaTranslator.toArrowField(field).createVector(allocator);
+        allocated.add(vector);
+        vector.allocateNew();
+        vector.setValueCount(rowCount);
+        vectors.add(vector);
+      }
+      VectorSchemaRoot withFields = new VectorSchemaRoot(vectors);
+      withFields.setRowCount(rowCount);
+      return withFields;
+    }
+
+    @Override
+    public String toString() {
+      return "addFields" + fields;
+    }
+  }
+}
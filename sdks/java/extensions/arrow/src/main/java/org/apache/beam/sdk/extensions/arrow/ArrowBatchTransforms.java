@@ -0,0 +1,543 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.arrow;
+
+import static org.apache.beam.sdk.util.Preconditions.checkStateNotNull;
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.Field;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.Schema.TypeName;
+import org.apache.beam.sdk.schemas.transforms.Group;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Max;
+import org.apache.beam.sdk.transforms.Min;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link PTransform}s converting between {@link Row}s and {@link ArrowBatch}es, and applying
+ * relational operations to whole batches at a time.
+ *
+ * <p>A typical pipeline converts rows to batches once, applies a chain of batch operations, and
+ * converts back to rows (or aggregates) at the end:
+ *
+ * <pre>{@code
+ * PCollection<Row> rows = ...;
+ * PCollection<Row> totals =
+ *     rows.apply(ArrowBatchTransforms.toBatches(4096))
+ *         .apply(
+ *             ArrowBatchTransforms.transform(
+ *                 ArrowBatchOperations.create()
+ *                     .filterLong("amount", amount -> amount > 0)
+ *                     .select("user", "amount")))
+ *         .apply(
+ *             ArrowBatchTransforms.groupAndAggregate(
+ *                 "user", Aggregation.sum("amount", "total"), Aggregation.max("amount", "max")));
+ * }</pre>
+ */
+public class ArrowBatchTransforms {
+  private ArrowBatchTransforms() {}
+
+  /**
+   * Returns a {@link PTransform} that packs {@link Row}s into {@link ArrowBatch}es of at most
+   * {@code maxBatchSize} rows. Rows are only batched together within a bundle and a window; each
+   * batch is output with the end of its window as timestamp.
+   */
+  public static PTransform<PCollection<Row>, PCollection<ArrowBatch>> toBatches(int maxBatchSize) {
+    checkArgument(maxBatchSize > 0, "maxBatchSize must be positive, got %s", maxBatchSize);
+    return new PTransform<PCollection<Row>, PCollection<ArrowBatch>>() {
+      @Override
+      public PCollection<ArrowBatch> expand(PCollection<Row> input) {
+        Schema schema = input.getSchema();
+        // Fail at construction time for schemas that can't be represented.
+        ArrowConversion.ArrowSchemaTranslator.toArrowSchema(schema);
+        return input
+            .apply(ParDo.of(new ToBatchesFn(schema, maxBatchSize)))
+            .setCoder(ArrowBatchCoder.of(schema));
+      }
+    };
+  }
+
+  /** Returns a {@link PTransform} that unpacks {@link ArrowBatch}es into {@link Row}s. */
+  public static PTransform<PCollection<ArrowBatch>, PCollection<Row>> toRows() {
+    return new PTransform<PCollection<ArrowBatch>, PCollection<Row>>() {
+      @Override
+      public PCollection<Row> expand(PCollection<ArrowBatch> input) {
+        return input
+            .apply(
+                ParDo.of(
+                    new DoFn<ArrowBatch, Row>() {
+                      @ProcessElement
+                      public void processElement(
+                          @Element ArrowBatch batch, OutputReceiver<Row> out) throws Exception {
+                        for (Row row : batch.toRows()) {
+                          out.output(row);
+                        }
+                      }
+                    }))
+            .setRowSchema(schemaOf(input));
+      }
+    };
+  }
+
+  /**
+   * Returns a {@link PTransform} applying {@link ArrowBatch#transform} with {@code operations} to
+   * every batch. Batches left empty by the operations are dropped.
+   *
+   * <p>Each batch is deserialized and serialized once for the whole chain of operations, so
+   * consecutive operations should be chained into a single {@link ArrowBatchOperations} rather than
+   * applied as separate transforms such as {@link #select} and {@link #filter}.
+   */
+  public static PTransform<PCollection<ArrowBatch>, PCollection<ArrowBatch>> transform(
+      ArrowBatchOperations operations) {
+    return new PTransform<PCollection<ArrowBatch>, PCollection<ArrowBatch>>() {
+      @Override
+      public PCollection<ArrowBatch> expand(PCollection<ArrowBatch> input) {
+        Schema outputSchema = operations.getOutputSchema(schemaOf(input));
+        return input
+            .apply(
+                ParDo.of(
+                    new DoFn<ArrowBatch, ArrowBatch>() {
+                      @ProcessElement
+                      public void processElement(
+                          @Element ArrowBatch batch, OutputReceiver<ArrowBatch> out)
+                          throws Exception {
+                        ArrowBatch transformed = batch.transform(operations);
+                        if (transformed.getRowCount() > 0) {
+                          out.output(transformed);
+                        }
+                      }
+                    }))
+            .setCoder(ArrowBatchCoder.of(outputSchema));
+      }
+    };
+  }
+
+  /** Returns a {@link PTransform} applying {@link ArrowBatch#select} to every batch. */
+  public static PTransform<PCollection<ArrowBatch>, PCollection<ArrowBatch>> select(
+      String... fieldNames) {
+    return transform(ArrowBatchOperations.create().select(fieldNames));
+  }
+
+  /**
+   * Returns a {@link PTransform} applying {@link ArrowBatch#filter} to every batch. Batches left
+   * empty by the filter are dropped.
+   */
+  public static PTransform<PCollection<ArrowBatch>, PCollection<ArrowBatch>> filter(
+      String fieldName, SerializableFunction<@Nullable Object, Boolean> predicate) {
+    return transform(ArrowBatchOperations.create().filter(fieldName, predicate));
+  }
+
+  /**
+   * Returns a {@link PTransform} applying {@link ArrowBatch#filterLong} to every batch. Batches
+   * left empty by the filter are dropped.
+   */
+  public static PTransform<PCollection<ArrowBatch>, PCollection<ArrowBatch>> filterLong(
+      String fieldName, ArrowBatch.LongPredicate predicate) {
+    return transform(ArrowBatchOperations.create().filterLong(fieldName, predicate));
+  }
+
+  /**
+   * Returns a {@link PTransform} applying {@link ArrowBatch#filterDouble} to every batch. Batches
+   * left empty by the filter are dropped.
+   */
+  public static PTransform<PCollection<ArrowBatch>, PCollection<ArrowBatch>> filterDouble(
+      String fieldName, ArrowBatch.DoublePredicate predicate) {
+    return transform(ArrowBatchOperations.create().filterDouble(fieldName, predicate));
+  }
+
+  /** Returns a {@link PTransform} applying {@link ArrowBatch#addFields} to every batch. */
+  public static PTransform<PCollection<ArrowBatch>, PCollection<ArrowBatch>> addFields(
+      Field... fields) {
+    return transform(ArrowBatchOperations.create().addFields(fields));
+  }
+
+  /**
+   * An aggregation of the values of a field computed by {@link #groupAndAggregate}. Null values
+   * are ignored.
+   *
+   * <p>The field must be of type {@link FieldType#INT32} or {@link FieldType#INT64}, which are
+   * aggregated as {@code INT64}, or {@link FieldType#FLOAT} or {@link FieldType#DOUBLE}, which are
+   * aggregated as {@code DOUBLE}. Counts are {@code INT64} and may be taken of fields of any type.
+   */
+  public static final class Aggregation implements Serializable {
+    enum Kind {
+      COUNT,
+      SUM,
+      MIN,
+      MAX
+    }
+
+    private final Kind kind;
+    private final String fieldName;
+    private final String outputName;
+
+    private Aggregation(Kind kind, String fieldName, String outputName) {
+      this.kind = kind;
+      this.fieldName = fieldName;
+      this.outputName = outputName;
+    }
+
+    /** Counts the non-null values of {@code fieldName}, like {@link Count#combineFn()}. */
+    public static Aggregation count(String fieldName, String outputName) {
+      return new Aggregation(Kind.COUNT, fieldName, outputName);
+    }
+
+    /** Sums the values of {@code fieldName}, like {@link Sum}; 0 if there are none. */
+    public static Aggregation sum(String fieldName, String outputName) {
+      return new Aggregation(Kind.SUM, fieldName, outputName);
+    }
+
+    /**
+     * The smallest value of {@code fieldName}, like {@link Min}; {@link Long#MAX_VALUE} or {@link
+     * Double#POSITIVE_INFINITY} if there are none.
+     */
+    public static Aggregation min(String fieldName, String outputName) {
+      return new Aggregation(Kind.MIN, fieldName, outputName);
+    }
+
+    /**
+     * The largest value of {@code fieldName}, like {@link Max}; {@link Long#MIN_VALUE} or {@link
+     * Double#NEGATIVE_INFINITY} if there are none.
+     */
+    public static Aggregation max(String fieldName, String outputName) {
+      return new Aggregation(Kind.MAX, fieldName, outputName);
+    }
+
+    /** Whether the values are aggregated as {@code DOUBLE} rather than {@code INT64}. */
+    private boolean isFloatingPoint(Schema inputSchema) {
+      TypeName typeName = inputSchema.getField(fieldName).getType().getTypeName();
+      if (kind == Kind.COUNT) {
+        return false;
+      }
+      switch (typeName) {
+        case INT32:
+        case INT64:
+          return false;
+        case FLOAT:
+        case DOUBLE:
+          return true;
+        default:
+          throw new IllegalArgumentException(
+              "Field " + fieldName + " must be of type INT32, INT64, FLOAT or DOUBLE.");
+      }
+    }
+
+    /** The {@link CombineFn} merging partial aggregates into the final one. */
+    private CombineFn<?, ?, ?> finalCombineFn(boolean floatingPoint) {
+      switch (kind) {
+        case COUNT:
+          return Sum.ofLongs();
+        case SUM:
+          return floatingPoint ? Sum.ofDoubles() : Sum.ofLongs();
+        case MIN:
+          return floatingPoint ? Min.ofDoubles() : Min.ofLongs();
+        case MAX:
+          return floatingPoint ? Max.ofDoubles() : Max.ofLongs();
+        default:
+          throw new IllegalStateException("Unknown aggregation " + kind);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return kind + "(" + fieldName + ") AS " + outputName;
+    }
+  }
+
+  /**
+   * Returns a {@link PTransform} computing the given aggregations per distinct value of {@code
+   * keyField}. This supports the {@code COUNT}, {@code SUM}, {@code MIN} and {@code MAX}
+   * aggregations of {@link Group} over numeric fields; other {@link CombineFn}s require converting
+   * the batches back to rows with {@link #toRows()} and using {@link Group} directly.
+   *
+   * <p>Each batch is first aggregated on its Arrow vectors into one partial row per key, reading
+   * the value columns through their primitive accessors. The partial rows are then combined with
+   * {@link Group}, so the output has the same shape as {@code
+   * Group.byFieldNames(keyField).aggregateField(...)}: a {@code key} row holding {@code keyField},
+   * and a {@code value} row holding one field per aggregation, named by its output name. Every
+   * key of the input is output, even if all the aggregated values of its rows are null. {@link
+   * FieldType#BYTES} keys are compared by content.
+   */
+  public static PTransform<PCollection<ArrowBatch>, PCollection<Row>> groupAndAggregate(
+      String keyField, Aggregation... aggregations) {
+    checkArgument(aggregations.length > 0, "At least one aggregation is required");
+    List<Aggregation> aggregationList = Arrays.asList(aggregations);
+    return new PTransform<PCollection<ArrowBatch>, PCollection<Row>>() {
+      @Override
+      public PCollection<Row> expand(PCollection<ArrowBatch> input) {
+        Schema inputSchema = schemaOf(input);
+        Schema partialSchema = partialSchema(inputSchema, keyField, aggregationList);
+        PCollection<Row> partials =
+            input
+                .apply(
+                    "PartialAggregate",
+                    ParDo.of(new PartialAggregateFn(keyField, aggregationList, partialSchema)))
+                .setRowSchema(partialSchema);
+        Group.ByFields<Row> byKey = Group.byFieldNames(keyField);
+        Group.@Nullable CombineFieldsByFields<Row> combine = null;
+        for (Aggregation aggregation : aggregationList) {
+          CombineFn<?, ?, ?> combineFn =
+              aggregation.finalCombineFn(aggregation.isFloatingPoint(inputSchema));
+          combine =
+              combine == null
+                  ? byKey.aggregateField(aggregation.outputName, combineFn, aggregation.outputName)
+                  : combine.aggregateField(
+                      aggregation.outputName, combineFn, aggregation.outputName);
+        }
+        return partials.apply("FinalAggregate", checkStateNotNull(combine));
+      }
+    };
+  }
+
+  /**
+   * Returns a {@link PTransform} that sums {@code valueField} and counts its non-null values per
+   * distinct value of {@code keyField}, as {@code groupAndAggregate(keyField,
+   * Aggregation.sum(valueField, "sum"), Aggregation.count(valueField, "count"))}.
+   */
+  public static PTransform<PCollection<ArrowBatch>, PCollection<Row>> groupAndSum(
+      String keyField, String valueField) {
+    return groupAndAggregate(
+        keyField, Aggregation.sum(valueField, "sum"), Aggregation.count(valueField, "count"));
+  }
+
+  /** The schema of the rows holding the aggregates of a batch: the key then one per aggregation. */
+  static Schema partialSchema(
+      Schema inputSchema, String keyField, List<Aggregation> aggregations) {
+    Schema.Builder partialSchema = Schema.builder().addField(inputSchema.getField(keyField));
+    for (Aggregation aggregation : aggregations) {
+      partialSchema.addField(
+          aggregation.outputName,
+          aggregation.isFloatingPoint(inputSchema) ? FieldType.DOUBLE : FieldType.INT64);
+    }
+    return partialSchema.build();
+  }
+
+  private static Schema schemaOf(PCollection<ArrowBatch> input) {
+    checkArgument(
+        input.getCoder() instanceof ArrowBatchCoder,
+        "Expected a PCollection with an ArrowBatchCoder, got %s",
+        input.getCoder());
+    return ((ArrowBatchCoder) input.getCoder()).getSchema();
+  }
+
+  private static class ToBatchesFn extends DoFn<Row, ArrowBatch> {
+    private final Schema schema;
+    private final int maxBatchSize;
+    private transient Map<BoundedWindow, List<Row>> buffers = new HashMap<>();
+
+    ToBatchesFn(Schema schema, int maxBatchSize) {
+      this.schema = schema;
+      this.maxBatchSize = maxBatchSize;
+    }
+
+    @StartBundle
+    public void startBundle() {
+      buffers = new HashMap<>();
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element Row row, BoundedWindow window, OutputReceiver<ArrowBatch> out)
+        throws Exception {
+      List<Row> buffer = buffers.computeIfAbsent(window, w -> new ArrayList<>(maxBatchSize));
+      buffer.add(row);
+      if (buffer.size() >= maxBatchSize) {
+        out.outputWithTimestamp(ArrowBatch.fromRows(schema, buffer), window.maxTimestamp());
+        buffers.remove(window);
+      }
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext context) throws Exception {
+      for (Map.Entry<BoundedWindow, List<Row>> entry : buffers.entrySet()) {
+        BoundedWindow window = entry.getKey();
+        context.output(
+            ArrowBatch.fromRows(schema, entry.getValue()), window.maxTimestamp(), window);
+      }
+      buffers.clear();
+    }
+  }
+
+  static class PartialAggregateFn extends DoFn<ArrowBatch, Row> {
+    private final String keyField;
+    private final List<Aggregation> aggregations;
+    private final Schema partialSchema;
+
+    PartialAggregateFn(String keyField, List<Aggregation> aggregations, Schema partialSchema) {
+      this.keyField = keyField;
+      this.aggregations = aggregations;
+      this.partialSchema = partialSchema;
+    }
+
+    @ProcessElement
+    public void processElement(@Element ArrowBatch batch, OutputReceiver<Row> out)
+        throws Exception {
+      for (Row partial : aggregate(batch)) {
+        out.output(partial);
+      }
+    }
+
+    /** Returns one row per key of {@code batch} holding the aggregates of its rows. */
+    List<Row> aggregate(ArrowBatch batch) throws IOException {
+      int aggregationCount = aggregations.size();
+      boolean[] floatingPoint = new boolean[aggregationCount];
+      for (int a = 0; a < aggregationCount; ++a) {
+        floatingPoint[a] =
+            partialSchema.getField(a + 1).getType().getTypeName() == TypeName.DOUBLE;
+      }
+      // Accumulators are kept unboxed and updated in place. Integral aggregates use the slots of
+      // the long array, floating point ones the slots of the double array.
+      Map<@Nullable Object, Accumulators> accumulators = new LinkedHashMap<>();
+      batch.apply(
+          (root, allocator) -> {
+            FieldVector keys = root.getVector(keyField);
+            FieldVector[] values = new FieldVector[aggregationCount];
+            for (int a = 0; a < aggregationCount; ++a) {
+              values[a] = root.getVector(aggregations.get(a).fieldName);
+            }
+            for (int i = 0; i < batch.getRowCount(); ++i) {
+              Object key = toGroupingKey(ArrowBatch.getValue(keys, i));
+              Accumulators acc =
+                  accumulators.computeIfAbsent(key, k -> new Accumulators(aggregations));
+              for (int a = 0; a < aggregationCount; ++a) {
+                FieldVector vector = values[a];
+                if (vector.isNull(i)) {
+                  continue;
+                }
+                Aggregation.Kind kind = aggregations.get(a).kind;
+                if (kind == Aggregation.Kind.COUNT) {
+                  acc.longs[a]++;
+                } else if (floatingPoint[a]) {
+                  double value =
+                      vector instanceof Float8Vector
+                          ? ((Float8Vector) vector).get(i)
+                          : ((Float4Vector) vector).get(i);
+                  acc.doubles[a] = accumulate(kind, acc.doubles[a], value);
+                } else {
+                  long value =
+                      vector instanceof BigIntVector
+                          ? ((BigIntVector) vector).get(i)
+                          : ((IntVector) vector).get(i);
+                  acc.longs[a] = accumulate(kind, acc.longs[a], value);
+                }
+              }
+            }
+            return null;
+          });
+      List<Row> partials = new ArrayList<>(accumulators.size());
+      for (Map.Entry<@Nullable Object, Accumulators> entry : accumulators.entrySet()) {
+        Row.Builder partial =
+            Row.withSchema(partialSchema).addValue(fromGroupingKey(entry.getKey()));
+        for (int a = 0; a < aggregationCount; ++a) {
+          if (floatingPoint[a]) {
+            partial.addValue(entry.getValue().doubles[a]);
+          } else {
+            partial.addValue(entry.getValue().longs[a]);
+          }
+        }
+        partials.add(partial.build());
+      }
+      return partials;
+    }
+
+    private static long accumulate(Aggregation.Kind kind, long acc, long value) {
+      switch (kind) {
+        case SUM:
+          return acc + value;
+        case MIN:
+          return Math.min(acc, value);
+        case MAX:
+          return Math.max(acc, value);
+        default:
+          throw new IllegalStateException("Unexpected aggregation " + kind);
+      }
+    }
+
+    private static double accumulate(Aggregation.Kind kind, double acc, double value) {
+      switch (kind) {
+        case SUM:
+          return acc + value;
+        case MIN:
+          return Math.min(acc, value);
+        case MAX:
+          return Math.max(acc, value);
+        default:
+          throw new IllegalStateException("Unexpected aggregation " + kind);
+      }
+    }
+
+    /** Wraps {@code byte[]} keys, which only have identity equality, into a value type. */
+    private static @Nullable Object toGroupingKey(@Nullable Object key) {
+      return key instanceof byte[] ? ByteBuffer.wrap((byte[]) key) : key;
+    }
+
+    private static @Nullable Object fromGroupingKey(@Nullable Object key) {
+      return key instanceof ByteBuffer ? ((ByteBuffer) key).array() : key;
+    }
+  }
+
+  /** The accumulators of the aggregations of one key, starting at their identities. */
+  private static class Accumulators {
+    private final long[] longs;
+    private final double[] doubles;
+
+    Accumulators(List<Aggregation> aggregations) {
+      longs = new long[aggregations.size()];
+      doubles = new double[aggregations.size()];
+      for (int a = 0; a < aggregations.size(); ++a) {
+        switch (aggregations.get(a).kind) {
+          case MIN:
+            longs[a] = Long.MAX_VALUE;
+            doubles[a] = Double.POSITIVE_INFINITY;
+            break;
+          case MAX:
+            longs[a] = Long.MIN_VALUE;
+            doubles[a] = Double.NEGATIVE_INFINITY;
+            break;
+          default:
+            break;
+        }
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.Channels;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -35,6 +36,7 @@ import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.arrow.vector.ipc.ReadChannel;
 import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
 import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
 import org.apache.arrow.vector.types.TimeUnit;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.util.Text;
@@ -494,7 +496,7 @@ public class ArrowConversion {
 
   private ArrowConversion() {}
 
-  /** Converts Arrow schema to Beam row schema. */
+  /** Converts Arrow schema to Beam row schema, and vice versa. */
   public static class ArrowSchemaTranslator {
 
     public static Schema toBeamSchema(org.apache.arrow.vector.types.pojo.Schema schema) {
@@ -509,5 +511,57 @@ public class ArrowConversion {
       }
       return builder.build();
     }
+
+    /**
+     * Converts a Beam row schema to an Arrow schema.
+     *
+     * <p>Only fields of primitive type are supported. {@link FieldType#DATETIME} fields are
+     * converted to millisecond timestamps in UTC.
+     */
+    public static org.apache.arrow.vector.types.pojo.Schema toArrowSchema(Schema schema) {
+      List<org.apache.arrow.vector.types.pojo.Field> fields = new ArrayList<>();
+      for (Field field : schema.getFields()) {
+        fields.add(toArrowField(field));
+      }
+      return new org.apache.arrow.vector.types.pojo.Schema(fields);
+    }
+
+    /** Converts a Beam field of primitive type to an Arrow field. */
+    public static org.apache.arrow.vector.types.pojo.Field toArrowField(Field field) {
+      FieldType fieldType = field.getType();
+      return new org.apache.arrow.vector.types.pojo.Field(
+          field.getName(),
+          new org.apache.arrow.vector.types.pojo.FieldType(
+              fieldType.getNullable(), toArrowType(fieldType), null),
+          null);
+    }
+
+    private static ArrowType toArrowType(FieldType fieldType) {
+      switch (fieldType.getTypeName()) {
+        case BYTE:
+          return new ArrowType.Int(8, true);
+        case INT16:
+          return new ArrowType.Int(16, true);
+        case INT32:
+          return new ArrowType.Int(32, true);
+        case INT64:
+          return new ArrowType.Int(64, true);
+        case FLOAT:
+          return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+        case DOUBLE:
+          return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+        case STRING:
+          return ArrowType.Utf8.INSTANCE;
+        case BYTES:
+          return ArrowType.Binary.INSTANCE;
+        case BOOLEAN:
+          return ArrowType.Bool.INSTANCE;
+        case DATETIME:
+          return new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC");
+        default:
+          throw new IllegalArgumentException(
+              "Type '" + fieldType + "' not supported for conversion to Arrow.");
+      }
+    }
   }
 }
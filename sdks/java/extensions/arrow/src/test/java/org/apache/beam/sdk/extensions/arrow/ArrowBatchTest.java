@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.arrow;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.Field;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.joda.time.Instant;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ArrowBatchTest {
+  private static final Schema SCHEMA =
+      Schema.builder()
+          .addByteField("byte")
+          .addInt16Field("int16")
+          .addInt32Field("int32")
+          .addNullableField("int64", FieldType.INT64)
+          .addFloatField("float")
+          .addDoubleField("double")
+          .addStringField("string")
+          .addByteArrayField("bytes")
+          .addBooleanField("boolean")
+          .addDateTimeField("datetime")
+          .build();
+
+  private static final List<Row> ROWS =
+      ImmutableList.of(row(0, 10L, "a"), row(1, null, "b"), row(2, 30L, "a"), row(3, 40L, "c"));
+
+  private static Row row(int i, Long int64, String string) {
+    return Row.withSchema(SCHEMA)
+        .addValues(
+            (byte) i,
+            (short) i,
+            i,
+            int64,
+            (float) i,
+            (double) i,
+            string,
+            new byte[] {(byte) i},
+            i % 2 == 0,
+            new Instant(1000L * i))
+        .build();
+  }
+
+  @Test
+  public void rowsRoundTrip() throws Exception {
+    ArrowBatch batch = ArrowBatch.fromRows(SCHEMA, ROWS);
+
+    assertThat(batch.getRowCount(), equalTo(4));
+    assertThat(batch.toRows(), equalTo(ROWS));
+  }
+
+  @Test
+  public void coderRoundTrip() throws Exception {
+    ArrowBatch batch = ArrowBatch.fromRows(SCHEMA, ROWS);
+    ArrowBatchCoder coder = ArrowBatchCoder.of(SCHEMA);
+
+    ArrowBatch decoded =
+        CoderUtils.decodeFromByteArray(coder, CoderUtils.encodeToByteArray(coder, batch));
+
+    assertThat(decoded, equalTo(batch));
+    assertThat(decoded.toRows(), equalTo(ROWS));
+  }
+
+  @Test
+  public void select() throws Exception {
+    ArrowBatch selected =
+        ArrowBatch.fromRows(SCHEMA, ROWS).select(ImmutableList.of("string", "int32"));
+
+    Schema expectedSchema =
+        Schema.builder().addStringField("string").addInt32Field("int32").build();
+    assertThat(selected.getSchema(), equalTo(expectedSchema));
+    assertThat(
+        selected.toRows(),
+        equalTo(
+            ImmutableList.of(
+                Row.withSchema(expectedSchema).addValues("a", 0).build(),
+                Row.withSchema(expectedSchema).addValues("b", 1).build(),
+                Row.withSchema(expectedSchema).addValues("a", 2).build(),
+                Row.withSchema(expectedSchema).addValues("c", 3).build())));
+  }
+
+  @Test
+  public void filter() throws Exception {
+    ArrowBatch batch = ArrowBatch.fromRows(SCHEMA, ROWS);
+
+    ArrowBatch filtered = batch.filter("string", "a"::equals);
+    assertThat(filtered.getRowCount(), equalTo(2));
+    assertThat(filtered.toRows(), equalTo(ImmutableList.of(ROWS.get(0), ROWS.get(2))));
+
+    ArrowBatch nonNull = batch.filter("int64", value -> value != null);
+    assertThat(
+        nonNull.toRows(), equalTo(ImmutableList.of(ROWS.get(0), ROWS.get(2), ROWS.get(3))));
+
+    assertThat(batch.filter("boolean", value -> false).getRowCount(), equalTo(0));
+  }
+
+  @Test
+  public void filterLong() throws Exception {
+    ArrowBatch batch = ArrowBatch.fromRows(SCHEMA, ROWS);
+
+    // Null values never match
+    assertThat(
+        batch.filterLong("int64", value -> value != 30L).toRows(),
+        equalTo(ImmutableList.of(ROWS.get(0), ROWS.get(3))));
+    assertThat(
+        batch.filterLong("int32", value -> value >= 2).toRows(),
+        equalTo(ImmutableList.of(ROWS.get(2), ROWS.get(3))));
+    assertThrows(IllegalArgumentException.class, () -> batch.filterLong("double", value -> true));
+  }
+
+  @Test
+  public void filterDouble() throws Exception {
+    ArrowBatch batch = ArrowBatch.fromRows(SCHEMA, ROWS);
+
+    assertThat(
+        batch.filterDouble("double", value -> value < 1.5).toRows(),
+        equalTo(ImmutableList.of(ROWS.get(0), ROWS.get(1))));
+    assertThat(batch.filterDouble("float", value -> value > 0).getRowCount(), equalTo(3));
+    assertThrows(IllegalArgumentException.class, () -> batch.filterDouble("int64", value -> true));
+  }
+
+  @Test
+  public void addFields() throws Exception {
+    Field added = Field.nullable("added", FieldType.STRING);
+    ArrowBatch batch = ArrowBatch.fromRows(SCHEMA, ROWS).addFields(ImmutableList.of(added));
+
+    Schema expectedSchema = Schema.builder().addFields(SCHEMA.getFields()).addField(added).build();
+    assertThat(batch.getSchema(), equalTo(expectedSchema));
+    List<Row> rows = batch.toRows();
+    for (int i = 0; i < ROWS.size(); ++i) {
+      assertThat(
+          rows.get(i),
+          equalTo(
+              Row.withSchema(expectedSchema)
+                  .addValues(ROWS.get(i).getValues())
+                  .addValue(null)
+                  .build()));
+    }
+  }
+
+  @Test
+  public void transformChainsOperations() throws Exception {
+    ArrowBatch batch = ArrowBatch.fromRows(SCHEMA, ROWS);
+    Field added = Field.nullable("added", FieldType.STRING);
+    ArrowBatchOperations operations =
+        ArrowBatchOperations.create()
+            .filterLong("int32", value -> value >= 1)
+            .filter("string", "a"::equals)
+            .select("string", "int64")
+            .addFields(added);
+
+    ArrowBatch transformed = batch.transform(operations);
+
+    ArrowBatch expected =
+        batch
+            .filterLong("int32", value -> value >= 1)
+            .filter("string", "a"::equals)
+            .select(ImmutableList.of("string", "int64"))
+            .addFields(ImmutableList.of(added));
+    assertThat(transformed.getSchema(), equalTo(operations.getOutputSchema(SCHEMA)));
+    assertThat(transformed.getSchema(), equalTo(expected.getSchema()));
+    assertThat(transformed.toRows(), equalTo(expected.toRows()));
+    assertThat(
+        transformed.toRows(),
+        equalTo(
+            ImmutableList.of(
+                Row.withSchema(expected.getSchema()).addValues("a", 30L, null).build())));
+  }
+
+  @Test
+  public void transformWithoutChangesReturnsSameBatch() throws Exception {
+    ArrowBatch batch = ArrowBatch.fromRows(SCHEMA, ROWS);
+
+    assertThat(batch.transform(ArrowBatchOperations.create()), sameInstance(batch));
+    assertThat(
+        batch.transform(ArrowBatchOperations.create().filterDouble("double", value -> true)),
+        sameInstance(batch));
+  }
+}
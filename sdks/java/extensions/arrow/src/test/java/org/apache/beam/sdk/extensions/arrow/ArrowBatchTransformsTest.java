@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.arrow;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+import org.apache.beam.sdk.extensions.arrow.ArrowBatchTransforms.Aggregation;
+import org.apache.beam.sdk.extensions.arrow.ArrowBatchTransforms.PartialAggregateFn;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ArrowBatchTransformsTest {
+  private static final Schema SCHEMA =
+      Schema.builder()
+          .addStringField("key")
+          .addNullableField("amount", FieldType.INT64)
+          .addDoubleField("price")
+          .build();
+
+  private static final List<Row> ROWS =
+      ImmutableList.of(
+          Row.withSchema(SCHEMA).addValues("a", 10L, 1.0).build(),
+          Row.withSchema(SCHEMA).addValues("b", null, 2.0).build(),
+          Row.withSchema(SCHEMA).addValues("a", 30L, 0.5).build(),
+          Row.withSchema(SCHEMA).addValues("c", 40L, 3.0).build());
+
+  @Test
+  public void partialAggregate() throws Exception {
+    List<Aggregation> aggregations =
+        ImmutableList.of(
+            Aggregation.count("amount", "count"),
+            Aggregation.sum("amount", "total"),
+            Aggregation.min("price", "cheapest"),
+            Aggregation.max("amount", "largest"));
+    Schema partialSchema = ArrowBatchTransforms.partialSchema(SCHEMA, "key", aggregations);
+
+    List<Row> partials =
+        new PartialAggregateFn("key", aggregations, partialSchema)
+            .aggregate(ArrowBatch.fromRows(SCHEMA, ROWS));
+
+    assertThat(
+        partialSchema,
+        equalTo(
+            Schema.builder()
+                .addStringField("key")
+                .addInt64Field("count")
+                .addInt64Field("total")
+                .addDoubleField("cheapest")
+                .addInt64Field("largest")
+                .build()));
+    // Null values are ignored, so "b" keeps the identities of the aggregations of "amount".
+    assertThat(
+        partials,
+        equalTo(
+            ImmutableList.of(
+                Row.withSchema(partialSchema).addValues("a", 2L, 40L, 0.5, 30L).build(),
+                Row.withSchema(partialSchema).addValues("b", 0L, 0L, 2.0, Long.MIN_VALUE).build(),
+                Row.withSchema(partialSchema).addValues("c", 1L, 40L, 3.0, 40L).build())));
+  }
+
+  @Test
+  public void aggregationsRequireNumericFields() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            ArrowBatchTransforms.partialSchema(
+                SCHEMA, "amount", ImmutableList.of(Aggregation.sum("key", "total"))));
+    // Counts may be taken of any field.
+    assertThat(
+        ArrowBatchTransforms.partialSchema(
+                SCHEMA, "amount", ImmutableList.of(Aggregation.count("key", "count")))
+            .getField("count")
+            .getType(),
+        equalTo(FieldType.INT64));
+  }
+}
@@ -50,4 +50,74 @@ public interface BeamSqlPipelineOptions extends PipelineOptions {
   Boolean getVerifyRowValues();
 
   void setVerifyRowValues(Boolean verifyRowValues);
+
+  @Description(
+      "Evaluates simple projections and filters over batches of rows held in column vectors, "
+          + "instead of one row at a time. Only applies to globally windowed inputs with the "
+          + "default trigger; other Calc steps always run row at a time.")
+  @Default.Boolean(false)
+  Boolean getVectorizedCalc();
+
+  void setVectorizedCalc(Boolean vectorizedCalc);
+
+  @Description("Maximum number of rows per batch when vectorizedCalc is enabled.")
+  @Default.Integer(1024)
+  Integer getVectorizedCalcBatchSize();
+
+  void setVectorizedCalcBatchSize(Integer vectorizedCalcBatchSize);
+
+  @Description(
+      "Decodes the fields of rows produced by joins, aggregations and other intermediate steps "
+          + "only when they are read, so that projections and filters over wide rows do not "
+          + "materialize every field. Each decoded row keeps a copy of its encoded bytes.")
+  @Default.Boolean(false)
+  Boolean getLazyRowDecoding();
+
+  void setLazyRowDecoding(Boolean lazyRowDecoding);
+
+  @Description(
+      "Computes GROUP BY aggregations over bounded, globally windowed inputs with a fused hash "
+          + "aggregation using primitive accumulators, when all aggregations are SUM, COUNT, MIN, "
+          + "MAX or AVG over numeric fields.")
+  @Default.Boolean(false)
+  Boolean getHashAggregation();
+
+  void setHashAggregation(Boolean hashAggregation);
+
+  @Description(
+      "Maximum number of groups each bundle keeps in memory when hashAggregation is enabled, "
+          + "before spilling sorted runs to local disk.")
+  @Default.Integer(100000)
+  Integer getHashAggregationMaxGroupsInMemory();
+
+  void setHashAggregationMaxGroupsInMemory(Integer maxGroupsInMemory);
+
+  @Description(
+      "Joins two bounded inputs by broadcasting one of them as an in-memory hash table when its "
+          + "estimated size in bytes is at most this threshold, instead of shuffling both inputs. "
+          + "Disabled (0) by default. The size is estimated from the byte size statistics of the "
+          + "source tables, which describe the stored and usually compressed data, so the "
+          + "decoded hash table on each worker can be many times larger; leave enough headroom "
+          + "when opting in.")
+  @Default.Long(0L)
+  Long getBroadcastJoinThresholdBytes();
+
+  void setBroadcastJoinThresholdBytes(Long broadcastJoinThresholdBytes);
+
+  @Description(
+      "Number of intermediate keys used to merge the partial results of ORDER BY ... LIMIT in "
+          + "parallel before the final merge on a single worker; set to 0 to merge all partial "
+          + "results on a single worker.")
+  @Default.Integer(16)
+  Integer getSortTopNFanout();
+
+  void setSortTopNFanout(Integer sortTopNFanout);
+
+  @Description(
+      "Maximum number of rows of a partition of an analytic function sorted in memory; the rows "
+          + "of larger partitions are sorted on local disk.")
+  @Default.Integer(100000)
+  Integer getWindowPartitionMaxRowsInMemory();
+
+  void setWindowPartitionMaxRowsInMemory(Integer windowPartitionMaxRowsInMemory);
 }
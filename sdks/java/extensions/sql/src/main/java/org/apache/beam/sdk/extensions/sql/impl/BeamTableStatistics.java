@@ -28,8 +28,9 @@ import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.RelReferent
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.schema.Statistic;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.util.ImmutableBitSet;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
-/** This class stores row count statistics. */
+/** This class stores row count and, if known, byte size statistics. */
 @Internal
 public class BeamTableStatistics implements Serializable, Statistic {
   public static final BeamTableStatistics BOUNDED_UNKNOWN = new BeamTableStatistics(100d, 0d, true);
@@ -38,13 +39,20 @@ public class BeamTableStatistics implements Serializable, Statistic {
   private final boolean unknown;
   private final Double rowCount;
   private final Double rate;
+  private final @Nullable Double byteSize;
 
-  private BeamTableStatistics(Double rowCount, Double rate, boolean isUnknown) {
+  private BeamTableStatistics(
+      Double rowCount, Double rate, @Nullable Double byteSize, boolean isUnknown) {
     this.rowCount = rowCount;
     this.rate = rate;
+    this.byteSize = byteSize;
     this.unknown = isUnknown;
   }
 
+  private BeamTableStatistics(Double rowCount, Double rate, boolean isUnknown) {
+    this(rowCount, rate, null, isUnknown);
+  }
+
   private BeamTableStatistics(Double rowCount, Double rate) {
     this(rowCount, rate, false);
   }
@@ -53,6 +61,14 @@ public class BeamTableStatistics implements Serializable, Statistic {
     return new BeamTableStatistics(rowCount, 0d);
   }
 
+  /**
+   * Creates the statistics of a bounded table of {@code rowCount} rows whose data is {@code
+   * byteSize} bytes large, as stored by the table.
+   */
+  public static BeamTableStatistics createBoundedTableStatistics(Double rowCount, Double byteSize) {
+    return new BeamTableStatistics(rowCount, 0d, byteSize, false);
+  }
+
   public static BeamTableStatistics createUnboundedTableStatistics(Double rate) {
     return new BeamTableStatistics(0d, rate);
   }
@@ -61,6 +77,11 @@ public class BeamTableStatistics implements Serializable, Statistic {
     return rate;
   }
 
+  /** Returns the size in bytes of a bounded table, or null if it isn't known. */
+  public @Nullable Double getByteSize() {
+    return byteSize;
+  }
+
   public boolean isUnknown() {
     return unknown;
   }
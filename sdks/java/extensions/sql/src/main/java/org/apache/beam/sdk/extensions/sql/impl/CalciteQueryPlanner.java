@@ -31,9 +31,11 @@ import org.apache.beam.sdk.extensions.sql.impl.rel.BeamLogicalConvention;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamRelNode;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSqlRelUtils;
 import org.apache.beam.sdk.extensions.sql.impl.udf.BeamBuiltinFunctionProvider;
+import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.vendor.calcite.v1_40_0.com.google.common.collect.Table;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.config.CalciteConnectionConfig;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.Context;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.Contexts;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.ConventionTraitDef;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.RelOptCost;
@@ -149,7 +151,7 @@ public class CalciteQueryPlanner implements QueryPlanner {
         .parserConfig(parserConfig.build())
         .defaultSchema(defaultSchema)
         .traitDefs(traitDefs)
-        .context(Contexts.of(connection.config()))
+        .context(plannerContext(connection))
         .ruleSets(ruleSets.toArray(new RuleSet[0]))
         .costFactory(BeamCostModel.FACTORY)
         .typeSystem(connection.getTypeFactory().getTypeSystem())
@@ -158,6 +160,17 @@ public class CalciteQueryPlanner implements QueryPlanner {
         .build();
   }
 
+  /**
+   * The planner context gives the rules access to the connection config and, if set, to the
+   * pipeline options.
+   */
+  private static Context plannerContext(JdbcConnection connection) {
+    PipelineOptions options = connection.getPipelineOptions();
+    return options == null
+        ? Contexts.of(connection.config())
+        : Contexts.of(connection.config(), options);
+  }
+
   /** Parse input SQL query, and return a {@link SqlNode} as grammar tree. */
   @Override
   public SqlNode parse(String sqlStatement) throws ParseException {
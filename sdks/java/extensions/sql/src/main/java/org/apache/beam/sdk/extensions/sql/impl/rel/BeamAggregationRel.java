@@ -22,11 +22,13 @@ import static org.apache.beam.sdk.values.PCollection.IsBounded.BOUNDED;
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamRelMetadataQuery;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
+import org.apache.beam.sdk.extensions.sql.impl.transform.HashAggregation;
 import org.apache.beam.sdk.extensions.sql.impl.transform.agg.AggregationCombineFnAdapter;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
 import org.apache.beam.sdk.schemas.Schema;
@@ -59,6 +61,7 @@ import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.RelNode;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.RelWriter;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Aggregate;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.AggregateCall;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.validate.SqlUserDefinedAggFunction;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.util.ImmutableBitSet;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Lists;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -199,10 +202,15 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
     final List<Integer> inputs;
     final CombineFn combineFn;
     final Field outputField;
+    final @Nullable String builtinFunctionName;
 
     FieldAggregation(AggregateCall call, String alias) {
       inputs = call.getArgList();
       outputField = CalciteUtils.toField(alias, call.getType());
+      builtinFunctionName =
+          call.getAggregation() instanceof SqlUserDefinedAggFunction
+              ? null
+              : call.getAggregation().getName();
       combineFn =
           AggregationCombineFnAdapter.createCombineFn(
               call, outputField, call.getAggregation().getName());
@@ -248,13 +256,31 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
         windowedStream = assignTimestampsAndWindow(upstream);
       }
       validateWindowIsSupported(windowedStream);
+      BeamSqlPipelineOptions options =
+          pinput.getPipeline().getOptions().as(BeamSqlPipelineOptions.class);
+      if (groupSetCount > 0
+          && windowFn == null
+          && options.getHashAggregation()
+          && upstream.isBounded() == BOUNDED
+          && upstream.getWindowingStrategy().getWindowFn() instanceof GlobalWindows
+          && upstream.getWindowingStrategy().getTrigger() instanceof DefaultTrigger) {
+        List<HashAggregation.Aggregation> hashAggregations =
+            toHashAggregations(upstream.getSchema());
+        if (hashAggregations != null) {
+          return upstream.apply(
+              HashAggregation.create(
+                  keyFieldsIds,
+                  hashAggregations,
+                  outputSchema,
+                  options.getHashAggregationMaxGroupsInMemory()));
+        }
+      }
       // Check if have fields to be grouped
       if (groupSetCount > 0) {
         org.apache.beam.sdk.schemas.transforms.Group.AggregateCombiner<Row> byFields =
             org.apache.beam.sdk.schemas.transforms.Group.byFieldIds(keyFieldsIds);
         PTransform<PCollection<Row>, PCollection<Row>> combiner = createCombiner(byFields);
-        boolean verifyRowValues =
-            pinput.getPipeline().getOptions().as(BeamSqlPipelineOptions.class).getVerifyRowValues();
+        boolean verifyRowValues = options.getVerifyRowValues();
         return windowedStream
             .apply(combiner)
             .apply(
@@ -270,6 +296,35 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
       return windowedStream.apply(combiner).setRowSchema(outputSchema);
     }
 
+    /**
+     * Returns the {@link HashAggregation.Aggregation}s computing this transform's aggregations, or
+     * null if any of them isn't supported by {@link HashAggregation}.
+     */
+    private @Nullable List<HashAggregation.Aggregation> toHashAggregations(Schema inputSchema) {
+      List<HashAggregation.Aggregation> hashAggregations = new ArrayList<>();
+      for (FieldAggregation fieldAggregation : fieldAggregations) {
+        if (fieldAggregation.builtinFunctionName == null) {
+          return null;
+        }
+        FieldType outputType = fieldAggregation.outputField.getType();
+        FieldType inputType =
+            fieldAggregation.inputs.isEmpty()
+                ? outputType
+                : inputSchema.getField(fieldAggregation.inputs.get(0)).getType();
+        HashAggregation.Aggregation hashAggregation =
+            HashAggregation.aggregation(
+                fieldAggregation.builtinFunctionName,
+                fieldAggregation.inputs,
+                inputType,
+                outputType);
+        if (hashAggregation == null) {
+          return null;
+        }
+        hashAggregations.add(hashAggregation);
+      }
+      return hashAggregations;
+    }
+
     private PTransform<PCollection<Row>, PCollection<Row>> createCombiner(
         org.apache.beam.sdk.schemas.transforms.Group.AggregateCombiner<Row> initialCombiner) {
 
@@ -63,6 +63,8 @@ import org.apache.beam.sdk.schemas.utils.SelectHelpers;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.DefaultTrigger;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.beam.sdk.values.PCollectionTuple;
@@ -196,6 +198,30 @@ public class BeamCalcRel extends AbstractBeamCalcRel {
       final RexProgram program = getProgram().normalize(rexBuilder, simplify);
       final InputGetterImpl inputGetter = new InputGetterImpl(rowParam, upstream.getSchema());
 
+      BeamSqlPipelineOptions options =
+          pinput.getPipeline().getOptions().as(BeamSqlPipelineOptions.class);
+
+      if (options.getVectorizedCalc()
+          && errorsTransformer == null
+          && upstream.getWindowingStrategy().getWindowFn() instanceof GlobalWindows
+          && upstream.getWindowingStrategy().getTrigger() instanceof DefaultTrigger) {
+        VectorizedCalc vectorizedCalc =
+            VectorizedCalc.tryCreate(
+                program,
+                rexBuilder,
+                upstream.getSchema(),
+                outputSchema,
+                options.getVerifyRowValues());
+        if (vectorizedCalc != null) {
+          return upstream
+              .apply(
+                  ParDo.of(
+                      new VectorizedCalc.VectorizedCalcFn(
+                          vectorizedCalc, options.getVectorizedCalcBatchSize())))
+              .setRowSchema(outputSchema);
+        }
+      }
+
       Expression condition =
           RexToLixTranslator.translateCondition(
               program, typeFactory, builder, inputGetter, null, conformance);
@@ -217,9 +243,6 @@ public class BeamCalcRel extends AbstractBeamCalcRel {
               Expressions.return_(null, physType.record(expressions)),
               Expressions.return_(null, Expressions.constant(null))));
 
-      BeamSqlPipelineOptions options =
-          pinput.getPipeline().getOptions().as(BeamSqlPipelineOptions.class);
-
       CalcFn calcFn =
           new CalcFn(
               builder.toBlock().toString(),
@@ -469,7 +492,7 @@ public class BeamCalcRel extends AbstractBeamCalcRel {
     return output;
   }
 
-  private static Row toBeamRow(List<Object> structValue, Schema schema, boolean verifyValues) {
+  static Row toBeamRow(List<Object> structValue, Schema schema, boolean verifyValues) {
     List<Object> objects = new ArrayList<>(schema.getFieldCount());
     assert structValue.size() == schema.getFieldCount();
     for (int i = 0; i < structValue.size(); i++) {
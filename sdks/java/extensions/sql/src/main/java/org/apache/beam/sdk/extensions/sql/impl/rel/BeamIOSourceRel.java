@@ -140,6 +140,10 @@ public class BeamIOSourceRel extends TableScan implements BeamRelNode {
     return beamTable;
   }
 
+  public BeamTableStatistics getTableStatistics() {
+    return calciteTable.getStatistic();
+  }
+
   @Override
   public Map<String, String> getPipelineOptions() {
     return pipelineOptions;
@@ -21,10 +21,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import org.apache.beam.sdk.extensions.sql.BeamSqlSeekableTable;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamRelMetadataQuery;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTable;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.util.Preconditions;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.RelOptCluster;
@@ -32,9 +36,17 @@ import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.RelOptPlan
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.RelTraitSet;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.volcano.RelSubset;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.RelNode;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Aggregate;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Calc;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.CorrelationId;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Filter;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Join;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.JoinRelType;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Project;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Sort;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Values;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.type.RelDataType;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexCall;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexFieldAccess;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexInputRef;
@@ -43,6 +55,7 @@ import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexNode;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.util.Pair;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Optional;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * An abstract {@code BeamRelNode} to implement Join Rels.
@@ -287,4 +300,129 @@ public abstract class BeamJoinRel extends Join implements BeamRelNode {
     // None of the inputs are Seekable
     return false;
   }
+
+  /**
+   * Returns the broadcast join threshold of the {@link BeamSqlPipelineOptions} the planner was
+   * created with, see {@link BeamSqlPipelineOptions#getBroadcastJoinThresholdBytes()}.
+   */
+  public static long getBroadcastJoinThresholdBytes(RelOptPlanner planner) {
+    @Nullable PipelineOptions options = planner.getContext().unwrap(PipelineOptions.class);
+    if (options == null) {
+      options = PipelineOptionsFactory.create();
+    }
+    return options.as(BeamSqlPipelineOptions.class).getBroadcastJoinThresholdBytes();
+  }
+
+  /**
+   * Returns the index of the input of a join of two bounded inputs that should be broadcast to the
+   * other one as an in-memory hash table, or absent if both inputs should be shuffled.
+   *
+   * <p>An input is only broadcast if its estimated size is at most {@code thresholdBytes} and the
+   * join doesn't need to preserve its unmatched rows. For an inner join the smaller input is
+   * broadcast.
+   */
+  public static Optional<Integer> getBroadcastInputIndex(Join join, long thresholdBytes) {
+    if (thresholdBytes <= 0) {
+      return Optional.absent();
+    }
+    double leftSize = estimateByteSizeOfRelNode(join.getLeft());
+    double rightSize = estimateByteSizeOfRelNode(join.getRight());
+    switch (join.getJoinType()) {
+      case INNER:
+        if (rightSize <= leftSize) {
+          return rightSize <= thresholdBytes ? Optional.of(1) : Optional.absent();
+        }
+        return leftSize <= thresholdBytes ? Optional.of(0) : Optional.absent();
+      case LEFT:
+        return rightSize <= thresholdBytes ? Optional.of(1) : Optional.absent();
+      case RIGHT:
+        return leftSize <= thresholdBytes ? Optional.of(0) : Optional.absent();
+      default:
+        return Optional.absent();
+    }
+  }
+
+  /**
+   * This method estimates the size in bytes of the output of a bounded RelNode. It returns {@code
+   * Double.POSITIVE_INFINITY} if the size is unknown.
+   *
+   * <p>Like {@link #getBoundednessOfRelNode}, it visits the inputs of the RelNode till a {@link
+   * BeamIOSourceRel} is encountered, since they may still be in the logical convention. The size of
+   * a source comes from the byte size statistics of its table. Projections, filters, aggregations
+   * and sorts are assumed to output at most the rows of their input, scaled by the estimated width
+   * of their output row. The size of any other node with inputs is unknown.
+   *
+   * @param relNode the RelNode whose size has to be estimated
+   * @return the estimated size in bytes
+   */
+  public static double estimateByteSizeOfRelNode(RelNode relNode) {
+    if (relNode instanceof RelSubset) {
+      // Consider the RelNode with best cost in the RelSubset. If best cost RelNode cannot be
+      // determined, consider the first RelNode in the RelSubset
+      RelNode rel = ((RelSubset) relNode).getBest();
+      if (rel == null) {
+        rel = ((RelSubset) relNode).getRelList().get(0);
+      }
+      return estimateByteSizeOfRelNode(rel);
+    }
+    if (relNode instanceof BeamIOSourceRel) {
+      BeamIOSourceRel sourceRel = (BeamIOSourceRel) relNode;
+      BeamTableStatistics statistics = sourceRel.getTableStatistics();
+      @Nullable Double byteSize = statistics.getByteSize();
+      if (sourceRel.isBounded() != PCollection.IsBounded.BOUNDED
+          || statistics.isUnknown()
+          || byteSize == null) {
+        return Double.POSITIVE_INFINITY;
+      }
+      return byteSize;
+    }
+    if (relNode instanceof Values) {
+      return ((Values) relNode).getTuples().size() * estimateRowWidth(relNode.getRowType());
+    }
+    if (relNode instanceof Project
+        || relNode instanceof Calc
+        || relNode instanceof Filter
+        || relNode instanceof Aggregate
+        || relNode instanceof Sort) {
+      RelNode input = relNode.getInput(0);
+      double inputWidth = estimateRowWidth(input.getRowType());
+      double ratio = inputWidth > 0 ? estimateRowWidth(relNode.getRowType()) / inputWidth : 1;
+      return estimateByteSizeOfRelNode(input) * ratio;
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+
+  private static double estimateRowWidth(RelDataType rowType) {
+    double width = 0;
+    for (RelDataTypeField field : rowType.getFieldList()) {
+      width += estimateValueWidth(field.getType());
+    }
+    return width;
+  }
+
+  private static double estimateValueWidth(RelDataType type) {
+    switch (type.getSqlTypeName()) {
+      case BOOLEAN:
+      case TINYINT:
+        return 1;
+      case SMALLINT:
+        return 2;
+      case INTEGER:
+      case FLOAT:
+      case REAL:
+      case DATE:
+      case TIME:
+        return 4;
+      case BIGINT:
+      case DOUBLE:
+      case TIMESTAMP:
+      case TIMESTAMP_WITH_LOCAL_TIME_ZONE:
+        return 8;
+      case ROW:
+        return estimateRowWidth(type);
+      default:
+        // Strings, byte arrays, decimals and collections.
+        return 16;
+    }
+  }
 }
@@ -23,8 +23,6 @@ import org.apache.beam.sdk.extensions.sql.impl.transform.BeamJoinTransforms;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
 import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
 import org.apache.beam.sdk.schemas.Schema;
-import org.apache.beam.sdk.schemas.transforms.Join.FieldsEqual;
-import org.apache.beam.sdk.schemas.transforms.Select;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.transforms.windowing.Window;
@@ -35,12 +33,14 @@ import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.RelOptCluster;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.plan.RelTraitSet;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.RelNode;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.RelWriter;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.CorrelationId;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Join;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.JoinRelType;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexNode;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.util.Pair;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A {@code BeamJoinRel} which does sideinput Join
@@ -49,6 +49,7 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Precondit
  *
  * <ul>
  *   <li>BoundedTable JOIN UnboundedTable
+ *   <li>BoundedTable JOIN BoundedTable, where one of the tables is small enough to be broadcast
  * </ul>
  *
  * <p>{@code sideInput} is utilized to implement the join, so there are some constraints:
@@ -67,7 +68,13 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Precondit
  * </ul>
  */
 public class BeamSideInputJoinRel extends BeamJoinRel {
+  private final @Nullable Integer broadcastInputIndex;
 
+  /**
+   * Creates a side input join. If both inputs are bounded, {@code broadcastInputIndex} is the
+   * index of the input chosen to be broadcast, see {@link BeamJoinRel#getBroadcastInputIndex};
+   * otherwise it is null and the bounded input is broadcast.
+   */
   public BeamSideInputJoinRel(
       RelOptCluster cluster,
       RelTraitSet traitSet,
@@ -75,8 +82,10 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
       RelNode right,
       RexNode condition,
       Set<CorrelationId> variablesSet,
-      JoinRelType joinType) {
+      JoinRelType joinType,
+      @Nullable Integer broadcastInputIndex) {
     super(cluster, traitSet, left, right, condition, variablesSet, joinType);
+    this.broadcastInputIndex = broadcastInputIndex;
   }
 
   @Override
@@ -88,7 +97,28 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
       JoinRelType joinType,
       boolean semiJoinDone) {
     return new BeamSideInputJoinRel(
-        getCluster(), traitSet, left, right, conditionExpr, variablesSet, joinType);
+        getCluster(),
+        traitSet,
+        left,
+        right,
+        conditionExpr,
+        variablesSet,
+        joinType,
+        broadcastInputIndex);
+  }
+
+  /**
+   * Returns the index of the input chosen to be broadcast when both inputs are bounded, or null if
+   * one input is unbounded.
+   */
+  public @Nullable Integer getBroadcastInput() {
+    return broadcastInputIndex;
+  }
+
+  @Override
+  public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw)
+        .itemIf("broadcastInput", broadcastInputIndex, broadcastInputIndex != null);
   }
 
   @Override
@@ -98,6 +128,7 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
     // When doing a sideInput join, the windowFn does not need to match.
     // Only support INNER JOIN & LEFT OUTER JOIN where left side of the join must be
     // the unbounded & RIGHT OUTER JOIN where right side of the join must be the unbounded
+    // If both sides are Bounded, the side that is broadcast is chosen by its estimated size.
     if (joinType == JoinRelType.FULL) {
       throw new UnsupportedOperationException(
           "FULL OUTER JOIN is not supported when join "
@@ -107,6 +138,18 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
     BeamRelNode leftRelNode = BeamSqlRelUtils.getBeamRelInput(left);
     BeamRelNode rightRelNode = BeamSqlRelUtils.getBeamRelInput(right);
 
+    if (leftRelNode.isBounded() == IsBounded.BOUNDED
+        && rightRelNode.isBounded() == IsBounded.BOUNDED) {
+      // The side is the one chosen when planning. Estimating the sizes again could pick another
+      // side, since the best node of an input may have changed since.
+      if (broadcastInputIndex == null) {
+        throw new UnsupportedOperationException(
+            String.format(
+                "%s JOIN of two bounded tables needs an input chosen to be broadcast.",
+                joinType.name()));
+      }
+      return new SideInputJoin(broadcastInputIndex == 0);
+    }
     if ((joinType == JoinRelType.LEFT && leftRelNode.isBounded() == PCollection.IsBounded.BOUNDED)
         || (joinType == JoinRelType.RIGHT
             && rightRelNode.isBounded() == PCollection.IsBounded.BOUNDED)) {
@@ -118,10 +161,15 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
       throw new UnsupportedOperationException(
           "Side input join can only be used if one table is bounded.");
     }
-    return new SideInputJoin();
+    return new SideInputJoin(leftRelNode.isBounded() == IsBounded.BOUNDED);
   }
 
   private class SideInputJoin extends PTransform<PCollectionList<Row>, PCollection<Row>> {
+    private final boolean broadcastLeft;
+
+    private SideInputJoin(boolean broadcastLeft) {
+      this.broadcastLeft = broadcastLeft;
+    }
 
     @Override
     public PCollection<Row> expand(PCollectionList<Row> pinput) {
@@ -148,7 +196,7 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
       FieldAccessDescriptor rightKeyFields =
           BeamJoinTransforms.getJoinColumns(false, pairs, leftRowColumnCount, rightSchema);
 
-      return sideInputJoin(leftRows, rightRows, leftKeyFields, rightKeyFields);
+      return sideInputJoin(leftRows, rightRows, leftKeyFields, rightKeyFields, broadcastLeft);
     }
   }
 
@@ -157,47 +205,48 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
       PCollection<Row> rightRows,
       FieldAccessDescriptor leftKeyFields,
       FieldAccessDescriptor rightKeyFields) {
-    // we always make the Unbounded table on the left to do the sideInput join
+    return sideInputJoin(
+        leftRows,
+        rightRows,
+        leftKeyFields,
+        rightKeyFields,
+        leftRows.isBounded() == PCollection.IsBounded.BOUNDED);
+  }
+
+  /**
+   * Joins the rows by building a hash table of the broadcast side on every worker and probing it
+   * with the rows of the other side.
+   */
+  public PCollection<Row> sideInputJoin(
+      PCollection<Row> leftRows,
+      PCollection<Row> rightRows,
+      FieldAccessDescriptor leftKeyFields,
+      FieldAccessDescriptor rightKeyFields,
+      boolean broadcastLeft) {
+    // we always probe with the non broadcast side
     // (will convert the result accordingly before return)
-    boolean swapped = (leftRows.isBounded() == PCollection.IsBounded.BOUNDED);
     JoinRelType realJoinType = joinType;
-    if (swapped && joinType != JoinRelType.INNER) {
+    if (broadcastLeft && joinType != JoinRelType.INNER) {
       Preconditions.checkArgument(realJoinType != JoinRelType.LEFT);
       realJoinType = JoinRelType.LEFT;
     }
-
-    PCollection<Row> realLeftRows = swapped ? rightRows : leftRows;
-    PCollection<Row> realRightRows = swapped ? leftRows : rightRows;
-    FieldAccessDescriptor realLeftKeyFields = swapped ? rightKeyFields : leftKeyFields;
-    FieldAccessDescriptor realRightKeyFields = swapped ? leftKeyFields : rightKeyFields;
-
-    PCollection<Row> joined;
-    switch (realJoinType) {
-      case INNER:
-        joined =
-            realLeftRows.apply(
-                org.apache.beam.sdk.schemas.transforms.Join.<Row, Row>innerBroadcastJoin(
-                        realRightRows)
-                    .on(FieldsEqual.left(realLeftKeyFields).right(realRightKeyFields)));
-        break;
-      case LEFT:
-        joined =
-            realLeftRows.apply(
-                org.apache.beam.sdk.schemas.transforms.Join.<Row, Row>leftOuterBroadcastJoin(
-                        realRightRows)
-                    .on(FieldsEqual.left(realLeftKeyFields).right(realRightKeyFields)));
-        break;
-      default:
-        throw new RuntimeException("Unexpected join type " + realJoinType);
+    if (realJoinType != JoinRelType.INNER && realJoinType != JoinRelType.LEFT) {
+      throw new RuntimeException("Unexpected join type " + realJoinType);
     }
-    Schema schema = CalciteUtils.toSchema(getRowType());
 
-    String lhsSelect = org.apache.beam.sdk.schemas.transforms.Join.LHS_TAG + ".*";
-    String rhsSelect = org.apache.beam.sdk.schemas.transforms.Join.RHS_TAG + ".*";
-    PCollection<Row> selected =
-        !swapped
-            ? joined.apply(Select.<Row>fieldNames(lhsSelect, rhsSelect).withOutputSchema(schema))
-            : joined.apply(Select.<Row>fieldNames(rhsSelect, lhsSelect).withOutputSchema(schema));
-    return selected;
+    PCollection<Row> probeRows = broadcastLeft ? rightRows : leftRows;
+    PCollection<Row> buildRows = broadcastLeft ? leftRows : rightRows;
+    FieldAccessDescriptor probeKeyFields = broadcastLeft ? rightKeyFields : leftKeyFields;
+    FieldAccessDescriptor buildKeyFields = broadcastLeft ? leftKeyFields : rightKeyFields;
+
+    Schema schema = CalciteUtils.toSchema(getRowType());
+    return probeRows.apply(
+        new BeamJoinTransforms.BroadcastHashJoin(
+            buildRows,
+            probeKeyFields,
+            buildKeyFields,
+            realJoinType == JoinRelType.LEFT,
+            broadcastLeft,
+            schema));
   }
 }
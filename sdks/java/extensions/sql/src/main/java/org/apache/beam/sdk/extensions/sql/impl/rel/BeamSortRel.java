@@ -30,14 +30,17 @@ import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.ListCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamRelMetadataQuery;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
+import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.state.StateSpec;
 import org.apache.beam.sdk.state.StateSpecs;
 import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.Flatten;
 import org.apache.beam.sdk.transforms.PTransform;
@@ -83,6 +86,10 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * SELECT * FROM t ORDER BY id DESC;
  * }</pre>
  *
+ * <p>Each bundle keeps a bounded heap of its top rows, and the heaps are merged in parallel on
+ * {@link BeamSqlPipelineOptions#getSortTopNFanout()} keys before the final merge. A LIMIT without
+ * ORDER BY forwards at most OFFSET + LIMIT rows of each bundle to the final limit.
+ *
  * <h3>Constraints</h3>
  *
  * <ul>
@@ -212,12 +219,18 @@ public class BeamSortRel extends Sort implements BeamRelNode {
         ReversedBeamSqlRowComparator comparator =
             new ReversedBeamSqlRowComparator(fieldIndices, orientation, nullsFirst);
 
-        // first find the top (offset + count)
+        // first find the top (offset + count). Each bundle keeps a bounded heap of its top rows,
+        // and the heaps are merged on sortTopNFanout intermediate keys before the final merge.
+        Combine.Globally<Row, List<Row>> top =
+            Top.of(startIndex + count, comparator).withoutDefaults();
+        int fanout =
+            pinput.getPipeline().getOptions().as(BeamSqlPipelineOptions.class).getSortTopNFanout();
+        if (fanout > 1) {
+          top = top.withFanout(fanout);
+        }
         PCollection<List<Row>> rawStream =
             upstream
-                .apply(
-                    "extractTopOffsetAndFetch",
-                    Top.of(startIndex + count, comparator).withoutDefaults())
+                .apply("extractTopOffsetAndFetch", top)
                 .setCoder(ListCoder.of(upstream.getCoder()));
 
         // strip the `leading offset`
@@ -247,13 +260,45 @@ public class BeamSortRel extends Sort implements BeamRelNode {
     @Override
     public PCollection<T> expand(PCollection<T> input) {
       Coder<T> coder = input.getCoder();
+      // Each bundle forwards at most (offset + count) rows, so that the single key limiting the
+      // rows only receives a bounded number of rows per bundle instead of the whole input.
       PCollection<KV<String, T>> keyedRow =
-          input.apply(WithKeys.of("DummyKey")).setCoder(KvCoder.of(StringUtf8Coder.of(), coder));
+          input
+              .apply(
+                  "LimitPerBundle",
+                  ParDo.of(
+                      new BundleLimitFn<T>(
+                          (int) Math.min(Integer.MAX_VALUE, (long) getCount() + startIndex))))
+              .setCoder(coder)
+              .apply(WithKeys.of("DummyKey"))
+              .setCoder(KvCoder.of(StringUtf8Coder.of(), coder));
 
       return keyedRow.apply(ParDo.of(new LimitFn<T>(getCount(), startIndex)));
     }
   }
 
+  private static class BundleLimitFn<T> extends DoFn<T, T> {
+    private final int limit;
+    private transient int outputCount;
+
+    public BundleLimitFn(int limit) {
+      this.limit = limit;
+    }
+
+    @StartBundle
+    public void startBundle() {
+      outputCount = 0;
+    }
+
+    @ProcessElement
+    public void processElement(@Element T element, OutputReceiver<T> out) {
+      if (outputCount < limit) {
+        outputCount++;
+        out.output(element);
+      }
+    }
+  }
+
   private static class LimitFn<T> extends DoFn<KV<String, T>, T> {
     private final Integer limitCount;
     private final Integer startIndex;
@@ -318,6 +363,9 @@ public class BeamSortRel extends Sort implements BeamRelNode {
     private List<Boolean> orientation;
     private List<Boolean> nullsFirst;
 
+    /** The comparators of the sort fields, derived from the schema of the last compared row. */
+    private transient @Nullable FieldComparators fieldComparators;
+
     public BeamSqlRowComparator(
         List<Integer> fieldsIndices, List<Boolean> orientation, List<Boolean> nullsFirst) {
       this.fieldsIndices = fieldsIndices;
@@ -327,16 +375,17 @@ public class BeamSortRel extends Sort implements BeamRelNode {
 
     @Override
     public int compare(Row row1, Row row2) {
+      List<Comparator<Object>> comparators = getFieldComparators(row1.getSchema()).comparators;
       for (int i = 0; i < fieldsIndices.size(); i++) {
         int fieldIndex = fieldsIndices.get(i);
         int fieldRet = 0;
 
-        FieldType fieldType = row1.getSchema().getField(fieldIndex).getType();
-        SqlTypeName sqlTypeName = CalciteUtils.toSqlTypeName(fieldType);
         // whether NULL should be ordered first or last(compared to non-null values) depends on
         // what user specified in SQL(NULLS FIRST/NULLS LAST)
-        boolean isValue1Null = (row1.getValue(fieldIndex) == null);
-        boolean isValue2Null = (row2.getValue(fieldIndex) == null);
+        Object value1 = row1.getBaseValue(fieldIndex);
+        Object value2 = row2.getBaseValue(fieldIndex);
+        boolean isValue1Null = (value1 == null);
+        boolean isValue2Null = (value2 == null);
         if (isValue1Null && isValue2Null) {
           continue;
         } else if (isValue1Null && !isValue2Null) {
@@ -344,24 +393,7 @@ public class BeamSortRel extends Sort implements BeamRelNode {
         } else if (!isValue1Null && isValue2Null) {
           fieldRet = 1 * (nullsFirst.get(i) ? -1 : 1);
         } else {
-          switch (sqlTypeName) {
-            case TINYINT:
-            case SMALLINT:
-            case INTEGER:
-            case BIGINT:
-            case FLOAT:
-            case DOUBLE:
-            case VARCHAR:
-            case DATE:
-            case TIMESTAMP:
-              Comparable v1 = row1.getBaseValue(fieldIndex, Comparable.class);
-              Comparable v2 = row2.getBaseValue(fieldIndex, Comparable.class);
-              fieldRet = v1.compareTo(v2);
-              break;
-            default:
-              throw new UnsupportedOperationException(
-                  "Data type: " + sqlTypeName + " not supported yet!");
-          }
+          fieldRet = comparators.get(i).compare(value1, value2);
         }
 
         fieldRet *= (orientation.get(i) ? 1 : -1);
@@ -372,6 +404,55 @@ public class BeamSortRel extends Sort implements BeamRelNode {
       }
       return 0;
     }
+
+    private FieldComparators getFieldComparators(Schema schema) {
+      // Rows of a PCollection share their schema instance, so it is only resolved once.
+      FieldComparators current = fieldComparators;
+      if (current == null || current.schema != schema) {
+        List<Comparator<Object>> comparators = new ArrayList<>(fieldsIndices.size());
+        for (int fieldIndex : fieldsIndices) {
+          comparators.add(fieldComparator(schema.getField(fieldIndex).getType()));
+        }
+        current = new FieldComparators(schema, comparators);
+        fieldComparators = current;
+      }
+      return current;
+    }
+
+    /** Returns a comparator of the non-null base values of a field of the given type. */
+    private static Comparator<Object> fieldComparator(FieldType fieldType) {
+      SqlTypeName sqlTypeName = CalciteUtils.toSqlTypeName(fieldType);
+      switch (sqlTypeName) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+          return (v1, v2) -> Long.compare(((Number) v1).longValue(), ((Number) v2).longValue());
+        case FLOAT:
+        case DOUBLE:
+          return (v1, v2) ->
+              Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
+        case VARCHAR:
+        case DATE:
+        case TIMESTAMP:
+          return (v1, v2) -> ((Comparable) v1).compareTo(v2);
+        default:
+          return (v1, v2) -> {
+            throw new UnsupportedOperationException(
+                "Data type: " + sqlTypeName + " not supported yet!");
+          };
+      }
+    }
+
+    private static class FieldComparators {
+      private final Schema schema;
+      private final List<Comparator<Object>> comparators;
+
+      private FieldComparators(Schema schema, List<Comparator<Object>> comparators) {
+        this.schema = schema;
+        this.comparators = comparators;
+      }
+    }
   }
 
   private static class ReversedBeamSqlRowComparator implements Comparator<Row>, Serializable {
@@ -22,6 +22,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamRelMetadataQuery;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.schemas.Schema;
@@ -105,6 +107,13 @@ public class BeamSqlRelUtils {
     PTransform<PCollectionList<Row>, PCollection<Row>> transform =
         node.buildPTransform(errorTransformer);
     output = Pipeline.applyTransform(name, input, transform);
+    // Sources may return a PCollection which already has consumers, and sinks return their input,
+    // so only the fresh outputs of intermediate steps get lazily decoding coders.
+    if (pipeline.getOptions().as(BeamSqlPipelineOptions.class).getLazyRowDecoding()
+        && !input.getAll().isEmpty()
+        && !input.getAll().contains(output)) {
+      output.setCoder(RowCoder.of(output.getSchema()).withLazyDecoding());
+    }
 
     cache.put(node.getId(), output);
     return output;
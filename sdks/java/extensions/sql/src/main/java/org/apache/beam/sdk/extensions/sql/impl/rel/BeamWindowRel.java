@@ -17,19 +17,21 @@
  */
 package org.apache.beam.sdk.extensions.sql.impl.rel;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.util.Collections;
 import java.util.List;
 import java.util.NavigableMap;
 import java.util.TreeMap;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.IterableCoder;
-import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamRelMetadataQuery;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.impl.transform.BeamBuiltinAnalyticFunctions;
+import org.apache.beam.sdk.extensions.sql.impl.transform.PartitionSorter;
+import org.apache.beam.sdk.extensions.sql.impl.transform.WindowFrameEvaluator;
 import org.apache.beam.sdk.extensions.sql.impl.transform.agg.AggregationCombineFnAdapter;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
 import org.apache.beam.sdk.schemas.Schema;
@@ -53,6 +55,7 @@ import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.type.RelDat
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexInputRef;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexLiteral;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexNode;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.validate.SqlUserDefinedAggFunction;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Lists;
 
 /**
@@ -66,6 +69,10 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Lists;
  * SELECT agg(c1) over (PARTITION BY c2 ORDER BY c3 RANGE BETWEEN 1 PRECEDING AND 1 FOLLOWING) FROM t
  * }</pre>
  *
+ * <p>Partitions are sorted by a {@link PartitionSorter}, which spills large partitions to local
+ * disk, and aggregate functions are evaluated incrementally over the frames by a {@link
+ * WindowFrameEvaluator} when possible.
+ *
  * <h3>Constraints</h3>
  *
  * <ul>
@@ -145,6 +152,10 @@ public class BeamWindowRel extends Window implements BeamRelNode {
                         Combine.CombineFn combineFn =
                             AggregationCombineFnAdapter.createCombineFnAnalyticsFunctions(
                                 anAggCall, field, anAggCall.getAggregation().getName());
+                        boolean mergeable =
+                            !(anAggCall.getAggregation() instanceof SqlUserDefinedAggFunction)
+                                && BeamBuiltinAnalyticFunctions.supportsMergeAccumulators(
+                                    anAggCall.getAggregation().getName());
                         FieldAggregation fieldAggregation =
                             new FieldAggregation(
                                 partitionKeysDef,
@@ -156,6 +167,7 @@ public class BeamWindowRel extends Window implements BeamRelNode {
                                 anAnalyticGroup.isRows,
                                 argList,
                                 combineFn,
+                                mergeable,
                                 field);
                         analyticFields.add(fieldAggregation);
                       });
@@ -180,6 +192,7 @@ public class BeamWindowRel extends Window implements BeamRelNode {
     private boolean rows = true;
     private List<Integer> inputFields;
     private Combine.CombineFn combineFn;
+    private boolean mergeable;
     private Schema.Field outputField;
 
     public FieldAggregation(
@@ -192,6 +205,7 @@ public class BeamWindowRel extends Window implements BeamRelNode {
         boolean rows,
         List<Integer> inputFields,
         Combine.CombineFn combineFn,
+        boolean mergeable,
         Schema.Field outputField) {
       this.partitionKeys = partitionKeys;
       this.orderKeys = orderKeys;
@@ -202,6 +216,7 @@ public class BeamWindowRel extends Window implements BeamRelNode {
       this.rows = rows;
       this.inputFields = inputFields;
       this.combineFn = combineFn;
+      this.mergeable = mergeable;
       this.outputField = outputField;
     }
   }
@@ -240,6 +255,12 @@ public class BeamWindowRel extends Window implements BeamRelNode {
     public PCollection<Row> expand(PCollectionList<Row> input) {
       PCollection<Row> inputData = input.get(0);
       Schema inputSchema = inputData.getSchema();
+      int maxRowsInMemory =
+          input
+              .getPipeline()
+              .getOptions()
+              .as(BeamSqlPipelineOptions.class)
+              .getWindowPartitionMaxRowsInMemory();
       int ids = 0;
       for (FieldAggregation af : aggFields) {
         ids++;
@@ -263,30 +284,93 @@ public class BeamWindowRel extends Window implements BeamRelNode {
                   .apply(prefix + "selectOnlyValues", ParDo.of(new SelectOnlyValues()))
                   .setCoder(IterableCoder.of(rowCoder));
         }
-        // Migrate to a SortedValues transform.
-        PCollection<List<Row>> sortedPartition =
-            partitioned
-                .apply(prefix + "orderBy", ParDo.of(sortPartition(af)))
-                .setCoder(ListCoder.of(rowCoder));
+        PartitionSorter sorter =
+            new PartitionSorter(
+                inputSchema, af.orderKeys, af.orderOrientations, af.orderNulls, maxRowsInMemory);
+        boolean incremental = isIncremental(inputSchema, af);
+        boolean nullableRangeKey =
+            !af.rows
+                && !af.orderKeys.isEmpty()
+                && inputSchema.getField(af.orderKeys.get(0)).getType().getNullable();
 
         inputSchema =
             Schema.builder().addFields(inputSchema.getFields()).addFields(af.outputField).build();
         inputData =
-            sortedPartition
-                .apply(prefix + "aggCall", ParDo.of(aggField(inputSchema, af)))
+            partitioned
+                .apply(
+                    prefix + "aggCall",
+                    ParDo.of(aggField(inputSchema, af, sorter, incremental, nullableRangeKey)))
                 .setRowSchema(inputSchema);
       }
       return inputData.setRowSchema(this.outputSchema);
     }
   }
 
-  private static DoFn<List<Row>, Row> aggField(
-      final Schema expectedSchema, final FieldAggregation fieldAgg) {
-    return new DoFn<List<Row>, Row>() {
+  /**
+   * Returns whether the function is evaluated incrementally by a {@link WindowFrameEvaluator}.
+   * Position aware functions and functions over {@code RANGE} frames whose first order key is not
+   * ascending and numeric are evaluated by aggregating the whole frame of every row.
+   */
+  private static boolean isIncremental(Schema inputSchema, FieldAggregation fieldAgg) {
+    if (fieldAgg.combineFn instanceof BeamBuiltinAnalyticFunctions.PositionAwareCombineFn) {
+      return false;
+    }
+    boolean ordered = !fieldAgg.orderKeys.isEmpty();
+    if (!fieldAgg.rows && ordered) {
+      Schema.FieldType orderType = inputSchema.getField(fieldAgg.orderKeys.get(0)).getType();
+      if (!fieldAgg.orderOrientations.get(0) || !orderType.getTypeName().isNumericType()) {
+        return false;
+      }
+    }
+    return fieldAgg.mergeable
+        || !WindowFrameEvaluator.isSliding(fieldAgg.rows, fieldAgg.lowerLimit, ordered);
+  }
+
+  private static DoFn<Iterable<Row>, Row> aggField(
+      final Schema expectedSchema,
+      final FieldAggregation fieldAgg,
+      final PartitionSorter sorter,
+      final boolean incremental,
+      final boolean nullableRangeKey) {
+    return new DoFn<Iterable<Row>, Row>() {
       @ProcessElement
       public void processElement(
-          @Element List<Row> inputPartition, OutputReceiver<Row> out, ProcessContext c) {
-        List<Row> sortedRowsAsList = inputPartition;
+          @Element Iterable<Row> inputPartition, OutputReceiver<Row> out, ProcessContext c)
+          throws IOException {
+        Iterable<Row> sortedRows = sorter.sort(inputPartition);
+        if (incremental && nullableRangeKey) {
+          // Null order values are not contiguous range frames, see getRange.
+          List<Row> sortedRowsAsList = Lists.newArrayList(sortedRows);
+          int orderKey = fieldAgg.orderKeys.get(0);
+          if (sortedRowsAsList.stream().anyMatch(row -> row.getValue(orderKey) == null)) {
+            aggregateFrames(sortedRowsAsList, out);
+            return;
+          }
+          sortedRows = sortedRowsAsList;
+        }
+        if (incremental) {
+          new WindowFrameEvaluator(
+                  fieldAgg.combineFn,
+                  fieldAgg.inputFields.isEmpty() ? -1 : fieldAgg.inputFields.get(0),
+                  fieldAgg.rows,
+                  fieldAgg.lowerLimit,
+                  fieldAgg.upperLimit,
+                  fieldAgg.orderKeys.isEmpty() ? -1 : fieldAgg.orderKeys.get(0))
+              .evaluate(sortedRows, (row, result) -> out.output(withResult(row, result)));
+        } else {
+          aggregateFrames(Lists.newArrayList(sortedRows), out);
+        }
+      }
+
+      private Row withResult(Row processingRow, Object result) {
+        List<Object> fieldValues = Lists.newArrayListWithCapacity(processingRow.getFieldCount());
+        fieldValues.addAll(processingRow.getValues());
+        fieldValues.add(result);
+        return Row.withSchema(expectedSchema).addValues(fieldValues).build();
+      }
+
+      /** Aggregates the whole frame of every row. */
+      private void aggregateFrames(List<Row> sortedRowsAsList, OutputReceiver<Row> out) {
         NavigableMap<BigDecimal, List<Row>> indexRange = null;
         if (!fieldAgg.rows) {
           indexRange = indexRows(sortedRowsAsList);
@@ -321,12 +405,7 @@ public class BeamWindowRel extends Window implements BeamRelNode {
             count++;
           }
           Object result = fieldAgg.combineFn.extractOutput(accumulator);
-          Row processingRow = sortedRowsAsList.get(idx);
-          List<Object> fieldValues = Lists.newArrayListWithCapacity(processingRow.getFieldCount());
-          fieldValues.addAll(processingRow.getValues());
-          fieldValues.add(result);
-          Row build = Row.withSchema(expectedSchema).addValues(fieldValues).build();
-          out.output(build);
+          out.output(withResult(sortedRowsAsList.get(idx), result));
         }
       }
 
@@ -411,21 +490,6 @@ public class BeamWindowRel extends Window implements BeamRelNode {
     }
   }
 
-  private static DoFn<Iterable<Row>, List<Row>> sortPartition(final FieldAggregation fieldAgg) {
-    return new DoFn<Iterable<Row>, List<Row>>() {
-      @ProcessElement
-      public void processElement(
-          @Element Iterable<Row> inputPartition, OutputReceiver<List<Row>> out, ProcessContext c) {
-        List<Row> partitionRows = Lists.newArrayList(inputPartition);
-        BeamSortRel.BeamSqlRowComparator beamSqlRowComparator =
-            new BeamSortRel.BeamSqlRowComparator(
-                fieldAgg.orderKeys, fieldAgg.orderOrientations, fieldAgg.orderNulls);
-        Collections.sort(partitionRows, beamSqlRowComparator);
-        out.output(partitionRows);
-      }
-    };
-  }
-
   @Override
   public RelNode copy(RelTraitSet traitSet, List<RelNode> inputs) {
     return this.copy(traitSet, sole(inputs), this.constants, this.rowType, this.groups);
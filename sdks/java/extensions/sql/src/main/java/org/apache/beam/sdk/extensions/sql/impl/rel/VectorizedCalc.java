@@ -0,0 +1,1034 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.rel;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+import org.apache.beam.sdk.extensions.sql.impl.ScalarFunctionImpl;
+import org.apache.beam.sdk.extensions.sql.impl.udf.BuiltinHashFunctions;
+import org.apache.beam.sdk.extensions.sql.impl.udf.BuiltinStringFunctions;
+import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.avatica.util.ByteString;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.type.RelDataType;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexBuilder;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexCall;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexInputRef;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexLiteral;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexLocalRef;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexNode;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexProgram;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexUtil;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.schema.Function;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.SqlKind;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.validate.SqlUserDefinedFunction;
+import org.apache.commons.codec.digest.MessageDigestAlgorithms;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Instant;
+
+/**
+ * Batch-at-a-time evaluation of the {@link RexProgram} of a {@link BeamCalcRel}.
+ *
+ * <p>Input rows are transposed into column vectors holding unboxed values. The condition is
+ * evaluated once per batch and reduces a selection vector to the matching rows; projections are
+ * then only evaluated for the selected rows. This removes the per-row interpretive overhead of the
+ * generated code for programs made of input references, literals, comparisons, boolean logic,
+ * {@code +}, {@code -} and {@code *}, numeric casts, and the built-in string and hash functions
+ * that have a batch variant. {@link #tryCreate} returns null for any other program, which is then
+ * evaluated one row at a time.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+class VectorizedCalc implements Serializable {
+
+  /** Physical representation of a column vector. */
+  enum Kind {
+    LONG,
+    DOUBLE,
+    BOOLEAN,
+    STRING,
+    BYTES
+  }
+
+  /** A column of a batch. Only positions that are part of the current selection are valid. */
+  static final class ColumnVector {
+    final Kind kind;
+    final boolean[] isNull;
+    long[] longs;
+    double[] doubles;
+    boolean[] booleans;
+    Object[] objects;
+
+    ColumnVector(Kind kind, int size) {
+      this.kind = kind;
+      this.isNull = new boolean[size];
+      switch (kind) {
+        case LONG:
+          longs = new long[size];
+          break;
+        case DOUBLE:
+          doubles = new double[size];
+          break;
+        case BOOLEAN:
+          booleans = new boolean[size];
+          break;
+        default:
+          objects = new Object[size];
+      }
+    }
+
+    @Nullable
+    Object get(int row) {
+      if (isNull[row]) {
+        return null;
+      }
+      switch (kind) {
+        case LONG:
+          return longs[row];
+        case DOUBLE:
+          return doubles[row];
+        case BOOLEAN:
+          return booleans[row];
+        default:
+          return objects[row];
+      }
+    }
+
+    double getDouble(int row) {
+      return kind == Kind.LONG ? longs[row] : doubles[row];
+    }
+  }
+
+  /** A vectorized expression. */
+  interface Expr extends Serializable {
+    Kind kind();
+
+    /**
+     * Evaluates this expression for the rows at the first {@code selected} positions of {@code
+     * selection}. The returned vector has the same size as the inputs.
+     */
+    ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected);
+  }
+
+  private final String[] inputFields;
+  private final Kind[] inputKinds;
+  private final @Nullable Expr condition;
+  private final Expr[] projects;
+  private final Schema outputSchema;
+  private final boolean verifyRowValues;
+
+  private VectorizedCalc(
+      String[] inputFields,
+      Kind[] inputKinds,
+      @Nullable Expr condition,
+      Expr[] projects,
+      Schema outputSchema,
+      boolean verifyRowValues) {
+    this.inputFields = inputFields;
+    this.inputKinds = inputKinds;
+    this.condition = condition;
+    this.projects = projects;
+    this.outputSchema = outputSchema;
+    this.verifyRowValues = verifyRowValues;
+  }
+
+  /**
+   * Returns a {@link VectorizedCalc} evaluating {@code program}, or null if the program uses an
+   * expression or type that can't be vectorized.
+   */
+  static @Nullable VectorizedCalc tryCreate(
+      RexProgram program,
+      RexBuilder rexBuilder,
+      Schema inputSchema,
+      Schema outputSchema,
+      boolean verifyRowValues) {
+    Translator translator = new Translator(program, rexBuilder, inputSchema);
+    try {
+      Expr condition =
+          program.getCondition() == null ? null : translator.translate(program.getCondition());
+      if (condition != null && condition.kind() != Kind.BOOLEAN) {
+        return null;
+      }
+      List<RexLocalRef> projectList = program.getProjectList();
+      Expr[] projects = new Expr[projectList.size()];
+      for (int i = 0; i < projects.length; ++i) {
+        projects[i] = translator.translate(projectList.get(i));
+      }
+      return new VectorizedCalc(
+          translator.inputFields.toArray(new String[0]),
+          translator.inputKinds.toArray(new Kind[0]),
+          condition,
+          projects,
+          outputSchema,
+          verifyRowValues);
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the input fields read by the program. Rows passed to {@link #evaluate} only need to
+   * contain these fields.
+   */
+  FieldAccessDescriptor getFieldAccess() {
+    return FieldAccessDescriptor.withFieldNames(inputFields);
+  }
+
+  /**
+   * Evaluates the program over {@code rows}, passing each output row to {@code output} together
+   * with the index of the input row it was computed from.
+   */
+  void evaluate(List<Row> rows, ObjIntConsumer<Row> output) {
+    int size = rows.size();
+    if (size == 0) {
+      return;
+    }
+    Schema inputSchema = rows.get(0).getSchema();
+    ColumnVector[] inputs = new ColumnVector[inputFields.length];
+    for (int i = 0; i < inputs.length; ++i) {
+      inputs[i] = toColumnVector(rows, inputSchema.indexOf(inputFields[i]), inputKinds[i]);
+    }
+    int[] selection = new int[size];
+    for (int i = 0; i < size; ++i) {
+      selection[i] = i;
+    }
+    int selected = size;
+    if (condition != null) {
+      ColumnVector matches = condition.evaluate(inputs, size, selection, selected);
+      int remaining = 0;
+      for (int i = 0; i < selected; ++i) {
+        int row = selection[i];
+        if (!matches.isNull[row] && matches.booleans[row]) {
+          selection[remaining++] = row;
+        }
+      }
+      selected = remaining;
+    }
+    if (selected == 0) {
+      return;
+    }
+    ColumnVector[] results = new ColumnVector[projects.length];
+    for (int i = 0; i < projects.length; ++i) {
+      results[i] = projects[i].evaluate(inputs, size, selection, selected);
+    }
+    List<Object> values = new ArrayList<>(projects.length);
+    for (int i = 0; i < selected; ++i) {
+      int row = selection[i];
+      values.clear();
+      for (ColumnVector result : results) {
+        values.add(result.get(row));
+      }
+      output.accept(BeamCalcRel.toBeamRow(values, outputSchema, verifyRowValues), row);
+    }
+  }
+
+  private static ColumnVector toColumnVector(List<Row> rows, int field, Kind kind) {
+    ColumnVector vector = new ColumnVector(kind, rows.size());
+    for (int i = 0; i < rows.size(); ++i) {
+      Object value = rows.get(i).getValue(field);
+      if (value == null) {
+        vector.isNull[i] = true;
+        continue;
+      }
+      switch (kind) {
+        case LONG:
+          vector.longs[i] = ((Number) value).longValue();
+          break;
+        case DOUBLE:
+          vector.doubles[i] = ((Number) value).doubleValue();
+          break;
+        case BOOLEAN:
+          vector.booleans[i] = (Boolean) value;
+          break;
+        default:
+          vector.objects[i] = value;
+      }
+    }
+    return vector;
+  }
+
+  private static @Nullable Kind kindOf(RelDataType type) {
+    switch (type.getSqlTypeName()) {
+      case TINYINT:
+      case SMALLINT:
+      case INTEGER:
+      case BIGINT:
+        return Kind.LONG;
+      case FLOAT:
+      case DOUBLE:
+        return Kind.DOUBLE;
+      case BOOLEAN:
+        return Kind.BOOLEAN;
+      case CHAR:
+      case VARCHAR:
+        return Kind.STRING;
+      case BINARY:
+      case VARBINARY:
+        return Kind.BYTES;
+      default:
+        return null;
+    }
+  }
+
+  private static @Nullable Kind kindOf(FieldType fieldType) {
+    switch (fieldType.getTypeName()) {
+      case BYTE:
+      case INT16:
+      case INT32:
+      case INT64:
+        return Kind.LONG;
+      case FLOAT:
+      case DOUBLE:
+        return Kind.DOUBLE;
+      case BOOLEAN:
+        return Kind.BOOLEAN;
+      case STRING:
+        return Kind.STRING;
+      case BYTES:
+        return Kind.BYTES;
+      default:
+        return null;
+    }
+  }
+
+  /** Wraps {@code value} the way Java arithmetic on the SQL type's Java representation would. */
+  private static long narrow(long value, SqlTypeName type) {
+    switch (type) {
+      case TINYINT:
+        return (byte) value;
+      case SMALLINT:
+        return (short) value;
+      case INTEGER:
+        return (int) value;
+      default:
+        return value;
+    }
+  }
+
+  /**
+   * Casts {@code value} straight to the Java type of {@code type}, like the generated code of
+   * {@link BeamCalcRel} does, so out of range values convert exactly as they do there instead of
+   * wrapping through {@code long}.
+   */
+  private static long narrow(double value, SqlTypeName type) {
+    switch (type) {
+      case TINYINT:
+        return (byte) value;
+      case SMALLINT:
+        return (short) value;
+      case INTEGER:
+        return (int) value;
+      default:
+        return (long) value;
+    }
+  }
+
+  /** Translates the expressions of a {@link RexProgram} into {@link Expr}s. */
+  private static class Translator {
+    private final RexProgram program;
+    private final RexBuilder rexBuilder;
+    private final Schema inputSchema;
+    private final List<String> inputFields = new ArrayList<>();
+    private final List<Kind> inputKinds = new ArrayList<>();
+    private final Map<Integer, Expr> inputRefs = new HashMap<>();
+
+    Translator(RexProgram program, RexBuilder rexBuilder, Schema inputSchema) {
+      this.program = program;
+      this.rexBuilder = rexBuilder;
+      this.inputSchema = inputSchema;
+    }
+
+    Expr translate(RexNode node) {
+      if (node instanceof RexLocalRef) {
+        return translate(program.getExprList().get(((RexLocalRef) node).getIndex()));
+      } else if (node instanceof RexInputRef) {
+        return inputRefs.computeIfAbsent(((RexInputRef) node).getIndex(), this::inputRef);
+      } else if (node instanceof RexLiteral) {
+        return literal((RexLiteral) node);
+      } else if (node instanceof RexCall) {
+        return call((RexCall) node);
+      }
+      throw unsupported(node);
+    }
+
+    private Expr inputRef(int field) {
+      Kind kind = kindOf(inputSchema.getField(field).getType());
+      if (kind == null) {
+        throw new UnsupportedOperationException("Unsupported input field " + field);
+      }
+      inputFields.add(inputSchema.getField(field).getName());
+      inputKinds.add(kind);
+      return new InputRef(inputFields.size() - 1, kind);
+    }
+
+    private Expr literal(RexLiteral literal) {
+      Kind kind = kindOf(literal.getType());
+      if (kind == null) {
+        throw unsupported(literal);
+      }
+      Object value;
+      if (literal.isNull()) {
+        value = null;
+      } else if (kind == Kind.LONG) {
+        value = literal.getValueAs(Long.class);
+      } else if (kind == Kind.DOUBLE) {
+        value = literal.getValueAs(Double.class);
+      } else if (kind == Kind.BOOLEAN) {
+        value = literal.getValueAs(Boolean.class);
+      } else if (kind == Kind.STRING) {
+        value = literal.getValueAs(String.class);
+      } else {
+        value = literal.getValueAs(ByteString.class).getBytes();
+      }
+      return new Literal(kind, value);
+    }
+
+    private Expr call(RexCall call) {
+      Kind kind = kindOf(call.getType());
+      if (kind == null) {
+        throw unsupported(call);
+      }
+      switch (call.getKind()) {
+        case SEARCH:
+          return translate(RexUtil.expandSearch(rexBuilder, program, call));
+        case EQUALS:
+        case NOT_EQUALS:
+        case LESS_THAN:
+        case LESS_THAN_OR_EQUAL:
+        case GREATER_THAN:
+        case GREATER_THAN_OR_EQUAL:
+          {
+            Expr left = translate(call.getOperands().get(0));
+            Expr right = translate(call.getOperands().get(1));
+            boolean numeric = isNumeric(left.kind()) && isNumeric(right.kind());
+            if (!numeric && left.kind() != right.kind() || left.kind() == Kind.BYTES) {
+              throw unsupported(call);
+            }
+            return new Comparison(call.getKind(), left, right);
+          }
+        case AND:
+        case OR:
+          {
+            Expr[] operands = translateAll(call.getOperands(), Kind.BOOLEAN, call);
+            return new Logical(call.getKind() == SqlKind.AND, operands);
+          }
+        case NOT:
+          return new Not(translateAll(call.getOperands(), Kind.BOOLEAN, call)[0]);
+        case IS_NULL:
+        case IS_NOT_NULL:
+          return new NullCheck(
+              call.getKind() == SqlKind.IS_NULL, translate(call.getOperands().get(0)));
+        case PLUS:
+        case MINUS:
+        case TIMES:
+          {
+            Expr left = translate(call.getOperands().get(0));
+            Expr right = translate(call.getOperands().get(1));
+            if (!isNumeric(kind) || !isNumeric(left.kind()) || !isNumeric(right.kind())) {
+              throw unsupported(call);
+            }
+            return new Arithmetic(
+                call.getKind(), kind, call.getType().getSqlTypeName(), left, right);
+          }
+        case CAST:
+          {
+            // Only numeric casts, casts to character or binary types may pad or truncate.
+            Expr operand = translate(call.getOperands().get(0));
+            if (!isNumeric(kind) || !isNumeric(operand.kind())) {
+              throw unsupported(call);
+            }
+            return new Cast(kind, call.getType().getSqlTypeName(), operand);
+          }
+        case OTHER_FUNCTION:
+          return function(call, kind);
+        default:
+          throw unsupported(call);
+      }
+    }
+
+    private Expr function(RexCall call, Kind kind) {
+      if (!(call.getOperator() instanceof SqlUserDefinedFunction)) {
+        throw unsupported(call);
+      }
+      Function function = ((SqlUserDefinedFunction) call.getOperator()).function;
+      if (!(function instanceof ScalarFunctionImpl)) {
+        throw unsupported(call);
+      }
+      Method method = ((ScalarFunctionImpl) function).method;
+      Class<?> declaringClass = method.getDeclaringClass();
+      if (declaringClass != BuiltinStringFunctions.class
+          && declaringClass != BuiltinHashFunctions.class) {
+        throw unsupported(call);
+      }
+      Expr[] operands = new Expr[call.getOperands().size()];
+      for (int i = 0; i < operands.length; ++i) {
+        operands[i] = translate(call.getOperands().get(i));
+        if (operands[i].kind() != Kind.STRING && operands[i].kind() != Kind.BYTES) {
+          throw unsupported(call);
+        }
+      }
+      BatchFunction batchFunction;
+      Kind expectedKind;
+      switch (method.getName()) {
+        case "lengthString":
+        case "lengthBytes":
+          batchFunction = BatchFunction.LENGTH;
+          expectedKind = Kind.LONG;
+          break;
+        case "reverseString":
+        case "reverseBytes":
+          batchFunction = BatchFunction.REVERSE;
+          expectedKind = operands[0].kind();
+          break;
+        case "startsWith":
+          batchFunction = BatchFunction.STARTS_WITH;
+          expectedKind = Kind.BOOLEAN;
+          break;
+        case "endsWith":
+          batchFunction = BatchFunction.ENDS_WITH;
+          expectedKind = Kind.BOOLEAN;
+          break;
+        case "md5String":
+        case "md5Bytes":
+          batchFunction = BatchFunction.MD5;
+          expectedKind = Kind.BYTES;
+          break;
+        case "sha1String":
+        case "sha1Bytes":
+          batchFunction = BatchFunction.SHA1;
+          expectedKind = Kind.BYTES;
+          break;
+        case "sha256String":
+        case "sha256Bytes":
+          batchFunction = BatchFunction.SHA256;
+          expectedKind = Kind.BYTES;
+          break;
+        case "sha512String":
+        case "sha512Bytes":
+          batchFunction = BatchFunction.SHA512;
+          expectedKind = Kind.BYTES;
+          break;
+        default:
+          throw unsupported(call);
+      }
+      if (kind != expectedKind) {
+        throw unsupported(call);
+      }
+      return new FunctionCall(batchFunction, kind, operands);
+    }
+
+    private Expr[] translateAll(List<RexNode> nodes, Kind expectedKind, RexNode parent) {
+      Expr[] exprs = new Expr[nodes.size()];
+      for (int i = 0; i < exprs.length; ++i) {
+        exprs[i] = translate(nodes.get(i));
+        if (exprs[i].kind() != expectedKind) {
+          throw unsupported(parent);
+        }
+      }
+      return exprs;
+    }
+
+    private static boolean isNumeric(Kind kind) {
+      return kind == Kind.LONG || kind == Kind.DOUBLE;
+    }
+
+    private static UnsupportedOperationException unsupported(RexNode node) {
+      return new UnsupportedOperationException("Unsupported expression " + node);
+    }
+  }
+
+  private static class InputRef implements Expr {
+    private final int index;
+    private final Kind kind;
+
+    InputRef(int index, Kind kind) {
+      this.index = index;
+      this.kind = kind;
+    }
+
+    @Override
+    public Kind kind() {
+      return kind;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected) {
+      return inputs[index];
+    }
+  }
+
+  private static class Literal implements Expr {
+    private final Kind kind;
+    private final @Nullable Object value;
+
+    Literal(Kind kind, @Nullable Object value) {
+      this.kind = kind;
+      this.value = value;
+    }
+
+    @Override
+    public Kind kind() {
+      return kind;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected) {
+      ColumnVector vector = new ColumnVector(kind, size);
+      for (int i = 0; i < selected; ++i) {
+        int row = selection[i];
+        if (value == null) {
+          vector.isNull[row] = true;
+        } else if (kind == Kind.LONG) {
+          vector.longs[row] = (Long) value;
+        } else if (kind == Kind.DOUBLE) {
+          vector.doubles[row] = (Double) value;
+        } else if (kind == Kind.BOOLEAN) {
+          vector.booleans[row] = (Boolean) value;
+        } else {
+          vector.objects[row] = value;
+        }
+      }
+      return vector;
+    }
+  }
+
+  private static class Comparison implements Expr {
+    private final SqlKind op;
+    private final Expr left;
+    private final Expr right;
+
+    Comparison(SqlKind op, Expr left, Expr right) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public Kind kind() {
+      return Kind.BOOLEAN;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected) {
+      ColumnVector l = left.evaluate(inputs, size, selection, selected);
+      ColumnVector r = right.evaluate(inputs, size, selection, selected);
+      ColumnVector out = new ColumnVector(Kind.BOOLEAN, size);
+      for (int i = 0; i < selected; ++i) {
+        int row = selection[i];
+        if (l.isNull[row] || r.isNull[row]) {
+          out.isNull[row] = true;
+        } else if (l.kind == Kind.LONG && r.kind == Kind.LONG) {
+          out.booleans[row] = compare(Long.compare(l.longs[row], r.longs[row]));
+        } else if (l.kind == Kind.LONG || l.kind == Kind.DOUBLE) {
+          out.booleans[row] = compare(l.getDouble(row), r.getDouble(row));
+        } else if (l.kind == Kind.BOOLEAN) {
+          out.booleans[row] = compare(Boolean.compare(l.booleans[row], r.booleans[row]));
+        } else {
+          out.booleans[row] =
+              compare(((String) l.objects[row]).compareTo((String) r.objects[row]));
+        }
+      }
+      return out;
+    }
+
+    private boolean compare(int cmp) {
+      switch (op) {
+        case EQUALS:
+          return cmp == 0;
+        case NOT_EQUALS:
+          return cmp != 0;
+        case LESS_THAN:
+          return cmp < 0;
+        case LESS_THAN_OR_EQUAL:
+          return cmp <= 0;
+        case GREATER_THAN:
+          return cmp > 0;
+        default:
+          return cmp >= 0;
+      }
+    }
+
+    // Uses Java's primitive comparisons so that NaN compares like in the generated code.
+    private boolean compare(double a, double b) {
+      switch (op) {
+        case EQUALS:
+          return a == b;
+        case NOT_EQUALS:
+          return a != b;
+        case LESS_THAN:
+          return a < b;
+        case LESS_THAN_OR_EQUAL:
+          return a <= b;
+        case GREATER_THAN:
+          return a > b;
+        default:
+          return a >= b;
+      }
+    }
+  }
+
+  /** Three-valued AND or OR. */
+  private static class Logical implements Expr {
+    private final boolean and;
+    private final Expr[] operands;
+
+    Logical(boolean and, Expr[] operands) {
+      this.and = and;
+      this.operands = operands;
+    }
+
+    @Override
+    public Kind kind() {
+      return Kind.BOOLEAN;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected) {
+      ColumnVector out = new ColumnVector(Kind.BOOLEAN, size);
+      // A value equal to !and decides the result, otherwise any null makes the result null.
+      boolean[] decided = new boolean[size];
+      for (Expr operand : operands) {
+        ColumnVector value = operand.evaluate(inputs, size, selection, selected);
+        for (int i = 0; i < selected; ++i) {
+          int row = selection[i];
+          if (value.isNull[row]) {
+            out.isNull[row] = true;
+          } else if (value.booleans[row] != and) {
+            decided[row] = true;
+          }
+        }
+      }
+      for (int i = 0; i < selected; ++i) {
+        int row = selection[i];
+        if (decided[row]) {
+          out.isNull[row] = false;
+          out.booleans[row] = !and;
+        } else if (!out.isNull[row]) {
+          out.booleans[row] = and;
+        }
+      }
+      return out;
+    }
+  }
+
+  private static class Not implements Expr {
+    private final Expr operand;
+
+    Not(Expr operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    public Kind kind() {
+      return Kind.BOOLEAN;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected) {
+      ColumnVector value = operand.evaluate(inputs, size, selection, selected);
+      ColumnVector out = new ColumnVector(Kind.BOOLEAN, size);
+      for (int i = 0; i < selected; ++i) {
+        int row = selection[i];
+        out.isNull[row] = value.isNull[row];
+        out.booleans[row] = !value.booleans[row];
+      }
+      return out;
+    }
+  }
+
+  private static class NullCheck implements Expr {
+    private final boolean isNull;
+    private final Expr operand;
+
+    NullCheck(boolean isNull, Expr operand) {
+      this.isNull = isNull;
+      this.operand = operand;
+    }
+
+    @Override
+    public Kind kind() {
+      return Kind.BOOLEAN;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected) {
+      ColumnVector value = operand.evaluate(inputs, size, selection, selected);
+      ColumnVector out = new ColumnVector(Kind.BOOLEAN, size);
+      for (int i = 0; i < selected; ++i) {
+        int row = selection[i];
+        out.booleans[row] = value.isNull[row] == isNull;
+      }
+      return out;
+    }
+  }
+
+  private static class Arithmetic implements Expr {
+    private final SqlKind op;
+    private final Kind kind;
+    private final SqlTypeName type;
+    private final Expr left;
+    private final Expr right;
+
+    Arithmetic(SqlKind op, Kind kind, SqlTypeName type, Expr left, Expr right) {
+      this.op = op;
+      this.kind = kind;
+      this.type = type;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public Kind kind() {
+      return kind;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected) {
+      ColumnVector l = left.evaluate(inputs, size, selection, selected);
+      ColumnVector r = right.evaluate(inputs, size, selection, selected);
+      ColumnVector out = new ColumnVector(kind, size);
+      for (int i = 0; i < selected; ++i) {
+        int row = selection[i];
+        if (l.isNull[row] || r.isNull[row]) {
+          out.isNull[row] = true;
+        } else if (kind == Kind.LONG) {
+          long a = l.longs[row];
+          long b = r.longs[row];
+          long result = op == SqlKind.PLUS ? a + b : op == SqlKind.MINUS ? a - b : a * b;
+          out.longs[row] = narrow(result, type);
+        } else {
+          double a = l.getDouble(row);
+          double b = r.getDouble(row);
+          out.doubles[row] = op == SqlKind.PLUS ? a + b : op == SqlKind.MINUS ? a - b : a * b;
+        }
+      }
+      return out;
+    }
+  }
+
+  private static class Cast implements Expr {
+    private final Kind kind;
+    private final SqlTypeName type;
+    private final Expr operand;
+
+    Cast(Kind kind, SqlTypeName type, Expr operand) {
+      this.kind = kind;
+      this.type = type;
+      this.operand = operand;
+    }
+
+    @Override
+    public Kind kind() {
+      return kind;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected) {
+      ColumnVector value = operand.evaluate(inputs, size, selection, selected);
+      ColumnVector out = new ColumnVector(kind, size);
+      for (int i = 0; i < selected; ++i) {
+        int row = selection[i];
+        if (value.isNull[row]) {
+          out.isNull[row] = true;
+        } else if (kind == Kind.DOUBLE) {
+          out.doubles[row] = value.getDouble(row);
+        } else if (value.kind == Kind.LONG) {
+          out.longs[row] = narrow(value.longs[row], type);
+        } else {
+          out.longs[row] = narrow(value.doubles[row], type);
+        }
+      }
+      return out;
+    }
+  }
+
+  /** Built-in functions with a batch variant. */
+  private enum BatchFunction {
+    LENGTH,
+    REVERSE,
+    STARTS_WITH,
+    ENDS_WITH,
+    MD5,
+    SHA1,
+    SHA256,
+    SHA512
+  }
+
+  private static class FunctionCall implements Expr {
+    private final BatchFunction function;
+    private final Kind kind;
+    private final Expr[] operands;
+
+    FunctionCall(BatchFunction function, Kind kind, Expr[] operands) {
+      this.function = function;
+      this.kind = kind;
+      this.operands = operands;
+    }
+
+    @Override
+    public Kind kind() {
+      return kind;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnVector[] inputs, int size, int[] selection, int selected) {
+      ColumnVector[] args = new ColumnVector[operands.length];
+      ColumnVector out = new ColumnVector(kind, size);
+      for (int i = 0; i < operands.length; ++i) {
+        args[i] = operands[i].evaluate(inputs, size, selection, selected);
+        for (int j = 0; j < selected; ++j) {
+          int row = selection[j];
+          out.isNull[row] |= args[i].isNull[row];
+        }
+      }
+      switch (function) {
+        case LENGTH:
+          BuiltinStringFunctions.lengthBatch(
+              args[0].objects, out.isNull, selection, selected, out.longs);
+          break;
+        case REVERSE:
+          BuiltinStringFunctions.reverseBatch(
+              args[0].objects, out.isNull, selection, selected, out.objects);
+          break;
+        case STARTS_WITH:
+          BuiltinStringFunctions.startsWithBatch(
+              args[0].objects, args[1].objects, out.isNull, selection, selected, out.booleans);
+          break;
+        case ENDS_WITH:
+          BuiltinStringFunctions.endsWithBatch(
+              args[0].objects, args[1].objects, out.isNull, selection, selected, out.booleans);
+          break;
+        case MD5:
+          digest(MessageDigestAlgorithms.MD5, args[0], out, selection, selected);
+          break;
+        case SHA1:
+          digest(MessageDigestAlgorithms.SHA_1, args[0], out, selection, selected);
+          break;
+        case SHA256:
+          digest(MessageDigestAlgorithms.SHA_256, args[0], out, selection, selected);
+          break;
+        case SHA512:
+          digest(MessageDigestAlgorithms.SHA_512, args[0], out, selection, selected);
+          break;
+      }
+      return out;
+    }
+
+    private static void digest(
+        String algorithm, ColumnVector input, ColumnVector out, int[] selection, int selected) {
+      BuiltinHashFunctions.digestBatch(
+          algorithm, input.objects, out.isNull, selection, selected, out.objects);
+    }
+  }
+
+  /**
+   * Executes a {@link VectorizedCalc} over batches of up to {@code batchSize} rows.
+   *
+   * <p>Rows are buffered within a bundle together with their timestamp, window and pane, and every
+   * output is emitted into the window and pane of the row it was computed from. A full batch is
+   * evaluated while processing the element that completes it, so at most {@code batchSize} rows
+   * are ever buffered. Outputs keep the timestamp of their input row unless it is earlier than the
+   * element being processed, in which case they are emitted at the timestamp of that element so
+   * the default timestamp skew holds; this only moves outputs later within the global window, the
+   * only window this is used for. Outputs of the last batch are emitted from {@link FinishBundle}
+   * with their own timestamps, which cannot carry a pane and therefore reports {@link
+   * PaneInfo#NO_FIRING}; this is only used below the default trigger.
+   */
+  static class VectorizedCalcFn extends DoFn<Row, Row> {
+    private final VectorizedCalc calc;
+    private final int batchSize;
+
+    @FieldAccess("row")
+    private final FieldAccessDescriptor fieldAccess;
+
+    private transient List<Row> rows = new ArrayList<>();
+    private transient List<Instant> timestamps = new ArrayList<>();
+    private transient List<BoundedWindow> windows = new ArrayList<>();
+    private transient List<PaneInfo> panes = new ArrayList<>();
+
+    VectorizedCalcFn(VectorizedCalc calc, int batchSize) {
+      this.calc = calc;
+      this.batchSize = batchSize;
+      this.fieldAccess = calc.getFieldAccess();
+    }
+
+    @StartBundle
+    public void startBundle() {
+      rows = new ArrayList<>(batchSize);
+      timestamps = new ArrayList<>(batchSize);
+      windows = new ArrayList<>(batchSize);
+      panes = new ArrayList<>(batchSize);
+    }
+
+    @ProcessElement
+    public void processElement(
+        @FieldAccess("row") Row row,
+        @Timestamp Instant timestamp,
+        BoundedWindow window,
+        PaneInfo pane,
+        OutputReceiver<Row> out) {
+      rows.add(row);
+      timestamps.add(timestamp);
+      windows.add(window);
+      panes.add(pane);
+      if (rows.size() >= batchSize) {
+        calc.evaluate(
+            rows,
+            (output, index) ->
+                out.outputWindowedValue(
+                    output,
+                    latest(timestamps.get(index), timestamp),
+                    Collections.singleton(windows.get(index)),
+                    panes.get(index)));
+        clear();
+      }
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext context) {
+      calc.evaluate(
+          rows,
+          (output, index) -> context.output(output, timestamps.get(index), windows.get(index)));
+      clear();
+    }
+
+    private void clear() {
+      rows.clear();
+      timestamps.clear();
+      windows.clear();
+      panes.clear();
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+      return a.isBefore(b) ? b : a;
+    }
+  }
+}
@@ -33,7 +33,8 @@ import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.logical.Log
  *
  * <p>This rule is matched when both the inputs to {@code LogicalJoin} node have the same
  * Boundedness i.e. either when both the inputs are {@code PCollection.IsBounded.BOUNDED} or when
- * both the inputs are {@code PCollection.IsBounded.UNBOUNDED}
+ * both the inputs are {@code PCollection.IsBounded.UNBOUNDED}. Joins of bounded inputs where one
+ * of them is small enough to be broadcast are left to {@code BeamSideInputJoinRule}.
  *
  * <p>As {@code BeamSideInputLookupJoinRel} also matches this condition when both the inputs are
  * {@code PCollection.IsBounded.BOUNDED}, to avoid conflicts, this rule is not matched when any of
@@ -57,6 +58,13 @@ public class BeamCoGBKJoinRule extends RelOptRule {
     }
     PCollection.IsBounded boundednessOfLeftRel = BeamJoinRel.getBoundednessOfRelNode(call.rel(1));
     PCollection.IsBounded boundednessOfRightRel = BeamJoinRel.getBoundednessOfRelNode(call.rel(2));
+    if (boundednessOfLeftRel == PCollection.IsBounded.BOUNDED
+        && boundednessOfRightRel == PCollection.IsBounded.BOUNDED) {
+      // Small bounded inputs are broadcast by BeamSideInputJoinRule instead.
+      return !BeamJoinRel.getBroadcastInputIndex(
+              call.rel(0), BeamJoinRel.getBroadcastJoinThresholdBytes(call.getPlanner()))
+          .isPresent();
+    }
     return (boundednessOfLeftRel == boundednessOfRightRel);
   }
 
@@ -27,12 +27,16 @@ import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.RelNode;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.Join;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.core.RelFactories;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Optional;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Rule to convert {@code LogicalJoin} node to {@code BeamSideInputJoinRel} node.
  *
  * <p>This rule is matched when one of the input to {@code LogicalJoin} node is {@code
- * PCollection.IsBounded.BOUNDED} and the other node is {@code PCollection.IsBounded.UNBOUNDED}
+ * PCollection.IsBounded.BOUNDED} and the other node is {@code PCollection.IsBounded.UNBOUNDED}, or
+ * when both inputs are bounded and one of them is small enough to be broadcast, see {@link
+ * BeamJoinRel#getBroadcastInputIndex}.
  *
  * <p>As {@code BeamSideInputLookupJoinRel} also matches this condition, to avoid conflicts, this
  * rule is not matched when any of the inputs to {@code LogicalJoin} node are Seekable.
@@ -55,6 +59,12 @@ public class BeamSideInputJoinRule extends RelOptRule {
     }
     PCollection.IsBounded boundednessOfLeftRel = BeamJoinRel.getBoundednessOfRelNode(call.rel(1));
     PCollection.IsBounded boundednessOfRightRel = BeamJoinRel.getBoundednessOfRelNode(call.rel(2));
+    if (boundednessOfLeftRel == PCollection.IsBounded.BOUNDED
+        && boundednessOfRightRel == PCollection.IsBounded.BOUNDED) {
+      return BeamJoinRel.getBroadcastInputIndex(
+              call.rel(0), BeamJoinRel.getBroadcastJoinThresholdBytes(call.getPlanner()))
+          .isPresent();
+    }
     return (boundednessOfLeftRel == PCollection.IsBounded.BOUNDED
         ? boundednessOfRightRel == PCollection.IsBounded.UNBOUNDED
         : boundednessOfRightRel == PCollection.IsBounded.BOUNDED);
@@ -63,6 +73,18 @@ public class BeamSideInputJoinRule extends RelOptRule {
   @Override
   public void onMatch(RelOptRuleCall call) {
     Join join = (Join) call.rel(0);
+    // Record the side to broadcast now, the size estimates of the inputs may change later on.
+    @Nullable Integer broadcastInputIndex = null;
+    if (BeamJoinRel.getBoundednessOfRelNode(call.rel(1)) == PCollection.IsBounded.BOUNDED
+        && BeamJoinRel.getBoundednessOfRelNode(call.rel(2)) == PCollection.IsBounded.BOUNDED) {
+      Optional<Integer> index =
+          BeamJoinRel.getBroadcastInputIndex(
+              join, BeamJoinRel.getBroadcastJoinThresholdBytes(call.getPlanner()));
+      if (!index.isPresent()) {
+        return;
+      }
+      broadcastInputIndex = index.get();
+    }
 
     BeamSideInputJoinRel rel =
         new BeamSideInputJoinRel(
@@ -76,7 +98,8 @@ public class BeamSideInputJoinRule extends RelOptRule {
                 join.getRight().getTraitSet().replace(BeamLogicalConvention.INSTANCE)),
             join.getCondition(),
             join.getVariablesSet(),
-            join.getJoinType());
+            join.getJoinType(),
+            broadcastInputIndex);
     call.transformTo(rel);
   }
 }
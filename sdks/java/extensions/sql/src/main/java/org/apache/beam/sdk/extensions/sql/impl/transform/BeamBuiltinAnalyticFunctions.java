@@ -57,6 +57,14 @@ public class BeamBuiltinAnalyticFunctions {
         String.format("Analytics Function [%s] is not supported", functionName));
   }
 
+  /**
+   * Returns whether the built-in function supports merging accumulators, which is needed to
+   * evaluate it incrementally over frames that do not start at the first row of the partition.
+   */
+  public static boolean supportsMergeAccumulators(String functionName) {
+    return BeamBuiltinAggregations.BUILTIN_AGGREGATOR_FACTORIES.containsKey(functionName);
+  }
+
   // Navigation functions
   public static <T> Combine.CombineFn<T, ?, T> navigationFirstValue() {
     return new FirstValueCombineFn();
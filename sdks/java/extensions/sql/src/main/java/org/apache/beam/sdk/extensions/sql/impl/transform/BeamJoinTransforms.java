@@ -20,7 +20,12 @@ package org.apache.beam.sdk.extensions.sql.impl.transform;
 import static java.util.stream.Collectors.toList;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import org.apache.beam.sdk.extensions.sql.BeamSqlSeekableTable;
 import org.apache.beam.sdk.extensions.sql.impl.utils.SerializableRexFieldAccess;
@@ -29,15 +34,23 @@ import org.apache.beam.sdk.extensions.sql.impl.utils.SerializableRexNode;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
 import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.utils.RowSelector;
+import org.apache.beam.sdk.schemas.utils.SelectHelpers;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexCall;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexInputRef;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexNode;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.util.Pair;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.CacheBuilder;
 
 /** Collections of {@code PTransform} and {@code DoFn} used to perform JOIN operation. */
 @SuppressWarnings({
@@ -198,4 +211,178 @@ public class BeamJoinTransforms {
           .setRowSchema(joinSubsetType);
     }
   }
+
+  /**
+   * Transform to execute an equi-join by broadcasting the build side as a side input to every
+   * worker.
+   *
+   * <p>The build side is turned into a hash table on its join key once per worker and side input
+   * window, and the table is shared by all the bundles and threads of the worker. Rows of the probe
+   * side, the input of this transform, are then joined by a hash lookup. SQL semantics apply to
+   * null keys, which never match.
+   */
+  public static class BroadcastHashJoin extends PTransform<PCollection<Row>, PCollection<Row>> {
+    private final transient PCollection<Row> buildRows;
+    private final FieldAccessDescriptor probeKeyFields;
+    private final FieldAccessDescriptor buildKeyFields;
+    private final boolean outer;
+    private final boolean buildOnLeft;
+    private final Schema outputSchema;
+
+    /**
+     * @param outer whether probe rows without a match are output, padded with nulls
+     * @param buildOnLeft whether the fields of the build side come first in the output rows
+     */
+    public BroadcastHashJoin(
+        PCollection<Row> buildRows,
+        FieldAccessDescriptor probeKeyFields,
+        FieldAccessDescriptor buildKeyFields,
+        boolean outer,
+        boolean buildOnLeft,
+        Schema outputSchema) {
+      this.buildRows = buildRows;
+      this.probeKeyFields = probeKeyFields;
+      this.buildKeyFields = buildKeyFields;
+      this.outer = outer;
+      this.buildOnLeft = buildOnLeft;
+      this.outputSchema = outputSchema;
+    }
+
+    @Override
+    public PCollection<Row> expand(PCollection<Row> probeRows) {
+      PCollectionView<Iterable<Row>> buildView =
+          buildRows.apply("broadcast_build_side", View.asIterable());
+      return probeRows
+          .apply(
+              "broadcast_hash_join",
+              ParDo.of(
+                      new BroadcastHashJoinFn(
+                          buildView,
+                          probeRows.getSchema(),
+                          buildRows.getSchema(),
+                          probeKeyFields,
+                          buildKeyFields,
+                          outer,
+                          buildOnLeft,
+                          outputSchema))
+                  .withSideInputs(buildView))
+          .setRowSchema(outputSchema);
+    }
+  }
+
+  /** The {@code DoFn} of a {@link BroadcastHashJoin}. */
+  private static class BroadcastHashJoinFn extends DoFn<Row, Row> {
+    /**
+     * Hash tables of the build sides, keyed by the id of the {@code DoFn} and the side input
+     * window. Soft values let the garbage collector drop tables under memory pressure, they are
+     * then rebuilt from the side input.
+     */
+    private static final Cache<KV<String, BoundedWindow>, Map<Row, List<Row>>> HASH_TABLES =
+        CacheBuilder.newBuilder().maximumSize(64).softValues().build();
+
+    private final String id = UUID.randomUUID().toString();
+    private final PCollectionView<Iterable<Row>> buildView;
+    private final Schema probeSchema;
+    private final Schema buildSchema;
+    private final FieldAccessDescriptor probeKeyFields;
+    private final FieldAccessDescriptor buildKeyFields;
+    private final boolean outer;
+    private final boolean buildOnLeft;
+    private final Schema outputSchema;
+
+    private transient RowSelector probeKeySelector;
+    private transient RowSelector buildKeySelector;
+    private transient Schema keySchema;
+    private transient BoundedWindow lastWindow;
+    private transient Map<Row, List<Row>> lastHashTable;
+
+    BroadcastHashJoinFn(
+        PCollectionView<Iterable<Row>> buildView,
+        Schema probeSchema,
+        Schema buildSchema,
+        FieldAccessDescriptor probeKeyFields,
+        FieldAccessDescriptor buildKeyFields,
+        boolean outer,
+        boolean buildOnLeft,
+        Schema outputSchema) {
+      this.buildView = buildView;
+      this.probeSchema = probeSchema;
+      this.buildSchema = buildSchema;
+      this.probeKeyFields = probeKeyFields;
+      this.buildKeyFields = buildKeyFields;
+      this.outer = outer;
+      this.buildOnLeft = buildOnLeft;
+      this.outputSchema = outputSchema;
+    }
+
+    @Setup
+    public void setup() {
+      probeKeySelector = SelectHelpers.getRowSelectorOptimized(probeSchema, probeKeyFields);
+      buildKeySelector = SelectHelpers.getRowSelectorOptimized(buildSchema, buildKeyFields);
+      // Keys of both sides use the same schema, so that they can be compared.
+      keySchema = SelectHelpers.getOutputSchema(probeSchema, probeKeyFields);
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext context, BoundedWindow window) {
+      Map<Row, List<Row>> hashTable = getHashTable(context, window);
+      Row probeRow = context.element();
+      Row key = toKey(probeKeySelector.select(probeRow));
+      List<Row> matches = key == null ? null : hashTable.get(key);
+      if (matches != null) {
+        for (Row buildRow : matches) {
+          context.output(combine(probeRow, buildRow.getBaseValues()));
+        }
+      } else if (outer) {
+        context.output(
+            combine(probeRow, Collections.nCopies(buildSchema.getFieldCount(), (Object) null)));
+      }
+    }
+
+    private Map<Row, List<Row>> getHashTable(ProcessContext context, BoundedWindow window) {
+      BoundedWindow sideInputWindow = buildView.getWindowMappingFn().getSideInputWindow(window);
+      if (sideInputWindow.equals(lastWindow)) {
+        return lastHashTable;
+      }
+      try {
+        lastHashTable =
+            HASH_TABLES.get(
+                KV.of(id, sideInputWindow), () -> buildHashTable(context.sideInput(buildView)));
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Failed to build the hash table of a broadcast join", e);
+      }
+      lastWindow = sideInputWindow;
+      return lastHashTable;
+    }
+
+    private Map<Row, List<Row>> buildHashTable(Iterable<Row> buildRows) {
+      Map<Row, List<Row>> hashTable = new HashMap<>();
+      for (Row buildRow : buildRows) {
+        Row key = toKey(buildKeySelector.select(buildRow));
+        if (key != null) {
+          hashTable.computeIfAbsent(key, k -> new ArrayList<>(1)).add(buildRow);
+        }
+      }
+      return hashTable;
+    }
+
+    /** Returns the join key of the selected fields, or null if a field is null. */
+    private Row toKey(Row selected) {
+      List<Object> values = selected.getBaseValues();
+      for (Object value : values) {
+        if (value == null) {
+          return null;
+        }
+      }
+      return Row.withSchema(keySchema).attachValues(values);
+    }
+
+    private Row combine(Row probeRow, List<Object> buildValues) {
+      List<Object> probeValues = probeRow.getBaseValues();
+      return Row.withSchema(outputSchema)
+          .addValues(buildOnLeft ? buildValues : probeValues)
+          .addValues(buildOnLeft ? probeValues : buildValues)
+          .build();
+    }
+  }
 }
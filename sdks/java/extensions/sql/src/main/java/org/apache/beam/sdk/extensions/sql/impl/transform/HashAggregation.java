@@ -0,0 +1,644 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.transform;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.apache.beam.sdk.coders.CannotProvideCoderException;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.primitives.UnsignedBytes;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Fused hash aggregation of the built-in {@code SUM}, {@code $SUM0}, {@code COUNT}, {@code MIN},
+ * {@code MAX} and {@code AVG} aggregations for a bounded, globally windowed input.
+ *
+ * <p>All aggregations of a query share a single accumulator per group, made of a {@code long[]}
+ * and a {@code double[]}, instead of one accumulator object per aggregation. Each bundle
+ * pre-aggregates its rows in an in-memory hash table holding at most {@code maxGroupsInMemory}
+ * groups. When the table is full it is sorted by encoded key and spilled to a local run file; at
+ * the end of the bundle the runs are merged so that every group is emitted once per bundle. The
+ * partial aggregates are then merged per key with {@link Combine#perKey}.
+ *
+ * <p>Results are identical to the ones of the corresponding {@link BeamBuiltinAggregations}.
+ * {@link #aggregation} returns null for aggregations whose results could differ, for example
+ * floating point sums of {@code FLOAT} fields, which are accumulated in {@code float}.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+public class HashAggregation {
+  private static final MathContext AVG_MATH_CONTEXT = new MathContext(10, RoundingMode.HALF_UP);
+
+  private HashAggregation() {}
+
+  /** The supported aggregate functions. */
+  enum Function {
+    SUM,
+    SUM0,
+    COUNT,
+    MIN,
+    MAX,
+    AVG
+  }
+
+  /** A single aggregation of a {@link HashAggregation}. */
+  public static class Aggregation implements Serializable {
+    private final Function function;
+    private final int inputField;
+    private final boolean floatingPoint;
+    private final boolean checkedAdd;
+    private final FieldType outputType;
+
+    private Aggregation(
+        Function function,
+        int inputField,
+        boolean floatingPoint,
+        boolean checkedAdd,
+        FieldType outputType) {
+      this.function = function;
+      this.inputField = inputField;
+      this.floatingPoint = floatingPoint;
+      this.checkedAdd = checkedAdd;
+      this.outputType = outputType;
+    }
+  }
+
+  /**
+   * Returns an {@link Aggregation} computing {@code functionName} over {@code inputFields}, or null
+   * if it isn't supported by hash aggregation.
+   *
+   * @param inputType the type of the single input field, ignored if {@code inputFields} is empty
+   */
+  public static @Nullable Aggregation aggregation(
+      String functionName, List<Integer> inputFields, FieldType inputType, FieldType outputType) {
+    if (inputFields.size() > 1) {
+      return null;
+    }
+    if (inputFields.isEmpty()) {
+      return "COUNT".equals(functionName)
+          ? new Aggregation(Function.COUNT, -1, false, false, outputType)
+          : null;
+    }
+    int inputField = inputFields.get(0);
+    if ("COUNT".equals(functionName)) {
+      return new Aggregation(Function.COUNT, inputField, false, false, outputType);
+    }
+    if (inputType.getTypeName() != outputType.getTypeName()) {
+      return null;
+    }
+    Function function;
+    switch (functionName) {
+      case "SUM":
+        function = Function.SUM;
+        break;
+      case "$SUM0":
+        function = Function.SUM0;
+        break;
+      case "MIN":
+        function = Function.MIN;
+        break;
+      case "MAX":
+        function = Function.MAX;
+        break;
+      case "AVG":
+        function = Function.AVG;
+        break;
+      default:
+        return null;
+    }
+    switch (inputType.getTypeName()) {
+      case BYTE:
+      case INT16:
+      case INT32:
+        return new Aggregation(function, inputField, false, false, outputType);
+      case INT64:
+        // AVG of INT64 is computed exactly on BigDecimal and can't overflow.
+        return function == Function.AVG
+            ? null
+            : new Aggregation(function, inputField, false, true, outputType);
+      case DOUBLE:
+        // AVG of DOUBLE is computed on BigDecimal.
+        return function == Function.AVG
+            ? null
+            : new Aggregation(function, inputField, true, false, outputType);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns a {@link PTransform} grouping rows by {@code keyFields} and computing {@code
+   * aggregations} for each group. Output rows have the key fields followed by the aggregates.
+   */
+  public static PTransform<PCollection<Row>, PCollection<Row>> create(
+      List<Integer> keyFields,
+      List<Aggregation> aggregations,
+      Schema outputSchema,
+      int maxGroupsInMemory) {
+    Layout layout = new Layout(aggregations);
+    return new PTransform<PCollection<Row>, PCollection<Row>>() {
+      @Override
+      public PCollection<Row> expand(PCollection<Row> input) {
+        Schema.Builder keySchema = Schema.builder();
+        for (int keyField : keyFields) {
+          keySchema.addField(input.getSchema().getField(keyField));
+        }
+        RowCoder keyCoder = RowCoder.of(keySchema.build());
+        KvCoder<Row, Accumulator> partialCoder = KvCoder.of(keyCoder, AccumulatorCoder.INSTANCE);
+        return input
+            .apply(
+                "PartialAggregate",
+                ParDo.of(new PartialAggregateFn(keyFields, layout, keyCoder, maxGroupsInMemory)))
+            .setCoder(partialCoder)
+            .apply("FinalAggregate", Combine.perKey(new MergeFn(layout)))
+            .setCoder(partialCoder)
+            .apply("ExtractOutput", ParDo.of(new ExtractOutputFn(layout, outputSchema)))
+            .setRowSchema(outputSchema);
+      }
+    };
+  }
+
+  /**
+   * Assigns accumulator slots to a list of aggregations. Every aggregation has a count slot holding
+   * the number of non-null inputs, and all but {@code COUNT} have a value slot.
+   */
+  static class Layout implements Serializable {
+    final Aggregation[] aggregations;
+    final int[] countSlots;
+    final int[] valueSlots;
+    final int numLongs;
+    final int numDoubles;
+
+    Layout(List<Aggregation> aggregations) {
+      this.aggregations = aggregations.toArray(new Aggregation[0]);
+      this.countSlots = new int[this.aggregations.length];
+      this.valueSlots = new int[this.aggregations.length];
+      int longs = 0;
+      int doubles = 0;
+      for (int i = 0; i < this.aggregations.length; ++i) {
+        Aggregation aggregation = this.aggregations[i];
+        countSlots[i] = longs++;
+        if (aggregation.function != Function.COUNT) {
+          valueSlots[i] = aggregation.floatingPoint ? doubles++ : longs++;
+        }
+      }
+      this.numLongs = longs;
+      this.numDoubles = doubles;
+    }
+
+    Accumulator newAccumulator() {
+      return new Accumulator(new long[numLongs], new double[numDoubles]);
+    }
+
+    void add(Accumulator accumulator, Row row) {
+      long[] longs = accumulator.longs;
+      double[] doubles = accumulator.doubles;
+      for (int i = 0; i < aggregations.length; ++i) {
+        Aggregation aggregation = aggregations[i];
+        if (aggregation.inputField < 0) {
+          longs[countSlots[i]]++;
+          continue;
+        }
+        Object value = row.getValue(aggregation.inputField);
+        if (value == null) {
+          continue;
+        }
+        boolean first = longs[countSlots[i]]++ == 0;
+        if (aggregation.function == Function.COUNT) {
+          continue;
+        }
+        int slot = valueSlots[i];
+        if (aggregation.floatingPoint) {
+          double d = ((Number) value).doubleValue();
+          doubles[slot] = first ? d : combine(aggregation.function, doubles[slot], d);
+        } else {
+          long l = ((Number) value).longValue();
+          longs[slot] = first ? l : combine(aggregation, longs[slot], l);
+        }
+      }
+    }
+
+    void merge(Accumulator accumulator, Accumulator other) {
+      long[] longs = accumulator.longs;
+      double[] doubles = accumulator.doubles;
+      for (int i = 0; i < aggregations.length; ++i) {
+        Aggregation aggregation = aggregations[i];
+        long count = longs[countSlots[i]];
+        long otherCount = other.longs[countSlots[i]];
+        longs[countSlots[i]] = count + otherCount;
+        if (aggregation.function == Function.COUNT || otherCount == 0) {
+          continue;
+        }
+        int slot = valueSlots[i];
+        if (aggregation.floatingPoint) {
+          doubles[slot] =
+              count == 0
+                  ? other.doubles[slot]
+                  : combine(aggregation.function, doubles[slot], other.doubles[slot]);
+        } else {
+          longs[slot] =
+              count == 0 ? other.longs[slot] : combine(aggregation, longs[slot], other.longs[slot]);
+        }
+      }
+    }
+
+    private static long combine(Aggregation aggregation, long a, long b) {
+      switch (aggregation.function) {
+        case MIN:
+          return Math.min(a, b);
+        case MAX:
+          return Math.max(a, b);
+        default:
+          return aggregation.checkedAdd ? Math.addExact(a, b) : a + b;
+      }
+    }
+
+    private static double combine(Function function, double a, double b) {
+      switch (function) {
+        case MIN:
+          return Math.min(a, b);
+        case MAX:
+          return Math.max(a, b);
+        default:
+          return a + b;
+      }
+    }
+
+    List<Object> extractOutput(Accumulator accumulator) {
+      List<Object> values = new ArrayList<>(aggregations.length);
+      for (int i = 0; i < aggregations.length; ++i) {
+        Aggregation aggregation = aggregations[i];
+        long count = accumulator.longs[countSlots[i]];
+        if (aggregation.function == Function.COUNT) {
+          values.add(count);
+        } else if (count == 0 && aggregation.function != Function.SUM0) {
+          values.add(null);
+        } else if (aggregation.floatingPoint) {
+          values.add(accumulator.doubles[valueSlots[i]]);
+        } else if (aggregation.function == Function.AVG) {
+          BigDecimal sum = BigDecimal.valueOf(accumulator.longs[valueSlots[i]]);
+          values.add(
+              toOutputType(
+                  sum.divide(BigDecimal.valueOf(count), AVG_MATH_CONTEXT).longValue(),
+                  aggregation.outputType));
+        } else {
+          values.add(toOutputType(accumulator.longs[valueSlots[i]], aggregation.outputType));
+        }
+      }
+      return values;
+    }
+
+    private static Object toOutputType(long value, FieldType outputType) {
+      switch (outputType.getTypeName()) {
+        case BYTE:
+          return (byte) value;
+        case INT16:
+          return (short) value;
+        case INT32:
+          return (int) value;
+        default:
+          return value;
+      }
+    }
+  }
+
+  /** The shared accumulator of all aggregations of a group. */
+  static class Accumulator {
+    final long[] longs;
+    final double[] doubles;
+
+    Accumulator(long[] longs, double[] doubles) {
+      this.longs = longs;
+      this.doubles = doubles;
+    }
+  }
+
+  /** A {@link Coder} for {@link Accumulator}. */
+  static class AccumulatorCoder extends CustomCoder<Accumulator> {
+    static final AccumulatorCoder INSTANCE = new AccumulatorCoder();
+
+    @Override
+    public void encode(Accumulator value, OutputStream outStream) throws IOException {
+      DataOutputStream out = new DataOutputStream(outStream);
+      write(value, out);
+    }
+
+    @Override
+    public Accumulator decode(InputStream inStream) throws IOException {
+      return read(new DataInputStream(inStream));
+    }
+
+    @Override
+    public void verifyDeterministic() {}
+
+    static void write(Accumulator value, DataOutputStream out) throws IOException {
+      out.writeInt(value.longs.length);
+      for (long l : value.longs) {
+        out.writeLong(l);
+      }
+      out.writeInt(value.doubles.length);
+      for (double d : value.doubles) {
+        out.writeDouble(d);
+      }
+    }
+
+    static Accumulator read(DataInputStream in) throws IOException {
+      long[] longs = new long[in.readInt()];
+      for (int i = 0; i < longs.length; ++i) {
+        longs[i] = in.readLong();
+      }
+      double[] doubles = new double[in.readInt()];
+      for (int i = 0; i < doubles.length; ++i) {
+        doubles[i] = in.readDouble();
+      }
+      return new Accumulator(longs, doubles);
+    }
+  }
+
+  /**
+   * Pre-aggregates the rows of a bundle, spilling sorted runs to local disk when more than {@code
+   * maxGroupsInMemory} groups are buffered.
+   */
+  static class PartialAggregateFn extends DoFn<Row, KV<Row, Accumulator>> {
+    private static final Comparator<byte[]> KEY_ORDER = UnsignedBytes.lexicographicalComparator();
+
+    private final List<Integer> keyFields;
+    private final Layout layout;
+    private final RowCoder keyCoder;
+    private final int maxGroupsInMemory;
+    private transient Map<Row, Accumulator> groups = new HashMap<>();
+    private transient List<Path> runs = new ArrayList<>();
+
+    PartialAggregateFn(
+        List<Integer> keyFields, Layout layout, RowCoder keyCoder, int maxGroupsInMemory) {
+      this.keyFields = keyFields;
+      this.layout = layout;
+      this.keyCoder = keyCoder;
+      this.maxGroupsInMemory = maxGroupsInMemory;
+    }
+
+    @StartBundle
+    public void startBundle() {
+      groups = new HashMap<>();
+      runs = new ArrayList<>();
+    }
+
+    @ProcessElement
+    public void processElement(@Element Row row) throws IOException {
+      List<Object> keyValues = new ArrayList<>(keyFields.size());
+      for (int keyField : keyFields) {
+        keyValues.add(row.getValue(keyField));
+      }
+      Row key = Row.withSchema(keyCoder.getSchema()).attachValues(keyValues);
+      Accumulator accumulator = groups.get(key);
+      if (accumulator == null) {
+        if (groups.size() >= maxGroupsInMemory) {
+          spill();
+        }
+        accumulator = layout.newAccumulator();
+        groups.put(key, accumulator);
+      }
+      layout.add(accumulator, row);
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext context) throws IOException {
+      if (runs.isEmpty()) {
+        for (Map.Entry<Row, Accumulator> group : groups.entrySet()) {
+          output(context, group.getKey(), group.getValue());
+        }
+      } else {
+        spill();
+        mergeRuns(context);
+      }
+      groups.clear();
+    }
+
+    @Teardown
+    public void teardown() throws IOException {
+      if (runs != null) {
+        deleteRuns();
+      }
+    }
+
+    private void output(FinishBundleContext context, Row key, Accumulator accumulator) {
+      context.output(
+          KV.of(key, accumulator), GlobalWindow.INSTANCE.maxTimestamp(), GlobalWindow.INSTANCE);
+    }
+
+    /** Writes the in-memory groups, sorted by encoded key, to a new run file. */
+    private void spill() throws IOException {
+      List<KV<byte[], Accumulator>> sorted = new ArrayList<>(groups.size());
+      for (Map.Entry<Row, Accumulator> group : groups.entrySet()) {
+        sorted.add(KV.of(CoderUtils.encodeToByteArray(keyCoder, group.getKey()), group.getValue()));
+      }
+      sorted.sort((a, b) -> KEY_ORDER.compare(a.getKey(), b.getKey()));
+      Path run = Files.createTempFile("beam-sql-hash-aggregation", ".run");
+      runs.add(run);
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+        for (KV<byte[], Accumulator> entry : sorted) {
+          out.writeInt(entry.getKey().length);
+          out.write(entry.getKey());
+          AccumulatorCoder.write(entry.getValue(), out);
+        }
+      }
+      groups.clear();
+    }
+
+    /** Merges the sorted runs, combining and emitting each group once. */
+    private void mergeRuns(FinishBundleContext context) throws IOException {
+      PriorityQueue<RunReader> heads =
+          new PriorityQueue<>(runs.size(), (a, b) -> KEY_ORDER.compare(a.key, b.key));
+      try {
+        for (Path run : runs) {
+          RunReader reader = new RunReader(run);
+          if (reader.advance()) {
+            heads.add(reader);
+          } else {
+            reader.close();
+          }
+        }
+        while (!heads.isEmpty()) {
+          RunReader reader = heads.poll();
+          byte[] key = reader.key;
+          Accumulator accumulator = reader.accumulator;
+          advanceOrClose(reader, heads);
+          while (!heads.isEmpty() && KEY_ORDER.compare(heads.peek().key, key) == 0) {
+            RunReader next = heads.poll();
+            layout.merge(accumulator, next.accumulator);
+            advanceOrClose(next, heads);
+          }
+          output(context, CoderUtils.decodeFromByteArray(keyCoder, key), accumulator);
+        }
+      } finally {
+        for (RunReader reader : heads) {
+          reader.close();
+        }
+        deleteRuns();
+      }
+    }
+
+    private static void advanceOrClose(RunReader reader, PriorityQueue<RunReader> heads)
+        throws IOException {
+      if (reader.advance()) {
+        heads.add(reader);
+      } else {
+        reader.close();
+      }
+    }
+
+    private void deleteRuns() throws IOException {
+      for (Path run : runs) {
+        Files.deleteIfExists(run);
+      }
+      runs.clear();
+    }
+  }
+
+  /** Reads the entries of a run file in order. */
+  private static class RunReader implements AutoCloseable {
+    private final DataInputStream in;
+    byte[] key;
+    Accumulator accumulator;
+
+    RunReader(Path run) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+    }
+
+    boolean advance() throws IOException {
+      int keyLength;
+      try {
+        keyLength = in.readInt();
+      } catch (EOFException e) {
+        return false;
+      }
+      key = new byte[keyLength];
+      in.readFully(key);
+      accumulator = AccumulatorCoder.read(in);
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /** Merges the partial {@link Accumulator}s of a key. */
+  static class MergeFn extends CombineFn<Accumulator, Accumulator, Accumulator> {
+    private final Layout layout;
+
+    MergeFn(Layout layout) {
+      this.layout = layout;
+    }
+
+    @Override
+    public Accumulator createAccumulator() {
+      return layout.newAccumulator();
+    }
+
+    @Override
+    public Accumulator addInput(Accumulator accumulator, Accumulator input) {
+      layout.merge(accumulator, input);
+      return accumulator;
+    }
+
+    @Override
+    public Accumulator mergeAccumulators(Iterable<Accumulator> accumulators) {
+      Accumulator merged = layout.newAccumulator();
+      for (Accumulator accumulator : accumulators) {
+        layout.merge(merged, accumulator);
+      }
+      return merged;
+    }
+
+    @Override
+    public Accumulator extractOutput(Accumulator accumulator) {
+      return accumulator;
+    }
+
+    @Override
+    public Coder<Accumulator> getAccumulatorCoder(
+        CoderRegistry registry, Coder<Accumulator> inputCoder)
+        throws CannotProvideCoderException {
+      return AccumulatorCoder.INSTANCE;
+    }
+
+    @Override
+    public Coder<Accumulator> getDefaultOutputCoder(
+        CoderRegistry registry, Coder<Accumulator> inputCoder)
+        throws CannotProvideCoderException {
+      return AccumulatorCoder.INSTANCE;
+    }
+  }
+
+  /** Builds output rows from the key and the final {@link Accumulator} of each group. */
+  static class ExtractOutputFn extends DoFn<KV<Row, Accumulator>, Row> {
+    private final Layout layout;
+    private final Schema outputSchema;
+
+    ExtractOutputFn(Layout layout, Schema outputSchema) {
+      this.layout = layout;
+      this.outputSchema = outputSchema;
+    }
+
+    @ProcessElement
+    public void processElement(@Element KV<Row, Accumulator> group, OutputReceiver<Row> out) {
+      List<Object> values = new ArrayList<>(outputSchema.getFieldCount());
+      values.addAll(group.getKey().getValues());
+      values.addAll(layout.extractOutput(group.getValue()));
+      out.output(Row.withSchema(outputSchema).attachValues(values));
+    }
+  }
+}
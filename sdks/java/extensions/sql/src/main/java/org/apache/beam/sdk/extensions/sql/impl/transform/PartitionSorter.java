@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.transform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.extensions.sorter.BufferedExternalSorter;
+import org.apache.beam.sdk.extensions.sorter.ExternalSorter;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSortRel.BeamSqlRowComparator;
+import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
+import org.joda.time.ReadableInstant;
+
+/**
+ * Sorts the rows of a partition of an analytic function in the order of {@link
+ * BeamSqlRowComparator}.
+ *
+ * <p>Partitions of at most {@code maxRowsInMemory} rows are sorted in memory. The rows of larger
+ * partitions are encoded and sorted with a {@link BufferedExternalSorter}, which spills to local
+ * disk, using an order preserving binary encoding of the order keys as the sort key. Partitions
+ * whose order keys have no such encoding are always sorted in memory.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+public class PartitionSorter implements Serializable {
+  private static final byte NULL_LOW = 0x00;
+  private static final byte NOT_NULL = 0x01;
+  private static final byte NULL_HIGH = 0x02;
+
+  private final Schema schema;
+  private final List<Integer> orderKeys;
+  private final List<Boolean> orderOrientations;
+  private final List<Boolean> orderNulls;
+  private final int maxRowsInMemory;
+  private final boolean spillable;
+
+  public PartitionSorter(
+      Schema schema,
+      List<Integer> orderKeys,
+      List<Boolean> orderOrientations,
+      List<Boolean> orderNulls,
+      int maxRowsInMemory) {
+    this.schema = schema;
+    this.orderKeys = orderKeys;
+    this.orderOrientations = orderOrientations;
+    this.orderNulls = orderNulls;
+    this.maxRowsInMemory = maxRowsInMemory;
+    boolean spillable = true;
+    for (int orderKey : orderKeys) {
+      spillable &= isEncodable(CalciteUtils.toSqlTypeName(schema.getField(orderKey).getType()));
+    }
+    this.spillable = spillable;
+  }
+
+  /** Returns the rows of the partition in sort order. */
+  public Iterable<Row> sort(Iterable<Row> partition) throws IOException {
+    if (orderKeys.isEmpty()) {
+      return partition;
+    }
+    BeamSqlRowComparator comparator =
+        new BeamSqlRowComparator(orderKeys, orderOrientations, orderNulls);
+    List<Row> rows = new ArrayList<>();
+    Iterator<Row> iterator = partition.iterator();
+    while (iterator.hasNext() && (!spillable || rows.size() < maxRowsInMemory)) {
+      rows.add(iterator.next());
+    }
+    if (!iterator.hasNext()) {
+      rows.sort(comparator);
+      return rows;
+    }
+
+    RowCoder coder = RowCoder.of(schema);
+    BufferedExternalSorter sorter =
+        BufferedExternalSorter.create(
+            BufferedExternalSorter.options()
+                .withTempLocation(System.getProperty("java.io.tmpdir"))
+                .withExternalSorterType(ExternalSorter.Options.SorterType.NATIVE));
+    for (Row row : Iterables.concat(rows, () -> iterator)) {
+      sorter.add(KV.of(encodeOrderKeys(row), CoderUtils.encodeToByteArray(coder, row)));
+    }
+    Iterable<KV<byte[], byte[]>> sorted = sorter.sort();
+    return () ->
+        new Iterator<Row>() {
+          private final Iterator<KV<byte[], byte[]>> records = sorted.iterator();
+
+          @Override
+          public boolean hasNext() {
+            return records.hasNext();
+          }
+
+          @Override
+          public Row next() {
+            try {
+              return CoderUtils.decodeFromByteArray(coder, records.next().getValue());
+            } catch (CoderException e) {
+              throw new RuntimeException(e);
+            }
+          }
+        };
+  }
+
+  private static boolean isEncodable(SqlTypeName sqlTypeName) {
+    switch (sqlTypeName) {
+      case TINYINT:
+      case SMALLINT:
+      case INTEGER:
+      case BIGINT:
+      case FLOAT:
+      case DOUBLE:
+      case VARCHAR:
+      case DATE:
+      case TIMESTAMP:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Encodes the order keys of a row such that the unsigned lexicographic order of the encodings is
+   * the order of {@link BeamSqlRowComparator}. Like the comparator, a descending key inverts the
+   * order of the null and non null values as well.
+   */
+  private byte[] encodeOrderKeys(Row row) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int i = 0; i < orderKeys.size(); i++) {
+      int start = out.size();
+      int fieldIndex = orderKeys.get(i);
+      Object value = row.getBaseValue(fieldIndex);
+      if (value == null) {
+        out.write(orderNulls.get(i) ? NULL_LOW : NULL_HIGH);
+      } else {
+        out.write(NOT_NULL);
+        encodeValue(
+            CalciteUtils.toSqlTypeName(schema.getField(fieldIndex).getType()), value, out);
+      }
+      if (!orderOrientations.get(i)) {
+        // The encodings are prefix free, so inverting them inverts their order.
+        byte[] bytes = out.toByteArray();
+        out.reset();
+        out.write(bytes, 0, start);
+        for (int j = start; j < bytes.length; j++) {
+          out.write(~bytes[j]);
+        }
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static void encodeValue(
+      SqlTypeName sqlTypeName, Object value, ByteArrayOutputStream out) {
+    switch (sqlTypeName) {
+      case FLOAT:
+      case DOUBLE:
+        {
+          // Orders like Double#compare: negative values have all bits flipped, positive values
+          // only their sign bit.
+          long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+          writeLong(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE, out);
+          break;
+        }
+      case VARCHAR:
+        {
+          // Orders like String#compareTo, by UTF-16 code unit, with a terminator ordering a
+          // string before its extensions.
+          String string = (String) value;
+          for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            out.write(1);
+            out.write(c >>> 8);
+            out.write(c);
+          }
+          out.write(0);
+          break;
+        }
+      default:
+        long longValue =
+            value instanceof ReadableInstant
+                ? ((ReadableInstant) value).getMillis()
+                : ((Number) value).longValue();
+        writeLong(longValue ^ Long.MIN_VALUE, out);
+    }
+  }
+
+  private static void writeLong(long value, ByteArrayOutputStream out) {
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      out.write((int) (value >>> shift));
+    }
+  }
+}
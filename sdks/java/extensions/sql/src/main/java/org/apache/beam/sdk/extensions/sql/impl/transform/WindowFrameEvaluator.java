@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.transform;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.values.Row;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Evaluates an aggregate analytic function over the {@code ROWS} or {@code RANGE} frames of a
+ * sorted partition in a single pass, instead of aggregating the whole frame of every row.
+ *
+ * <p>Frames starting at {@code UNBOUNDED PRECEDING} are evaluated with a running accumulator. Other
+ * frames are evaluated with a queue of accumulators made of two stacks, which requires the {@link
+ * CombineFn} to support {@link CombineFn#mergeAccumulators}: every input is added once and merged
+ * a constant amortized number of times. Merged accumulators are never modified, since they are
+ * always merged into a new accumulator.
+ *
+ * <p>Only the rows between the start of the current frame and the end of the furthest frame read
+ * so far are kept in memory, so a partition read from disk is only held in memory as a whole when
+ * its frames end at {@code UNBOUNDED FOLLOWING}.
+ *
+ * <p>Frames are given by their bounds relative to the current row, as in {@code BeamWindowRel}: a
+ * positive lower limit is a number of preceding rows or values, a positive upper limit a number of
+ * following rows or values, and a null limit is unbounded. {@code RANGE} frames compare the values
+ * of the first order key, which must be numeric, not null and ascending.
+ */
+@SuppressWarnings({
+  "rawtypes", // TODO(https://github.com/apache/beam/issues/20447)
+  "unchecked",
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+public class WindowFrameEvaluator {
+  private final CombineFn combineFn;
+  private final int inputField;
+  private final boolean rows;
+  private final @Nullable BigDecimal lowerLimit;
+  private final @Nullable BigDecimal upperLimit;
+  private final int orderKey;
+
+  /**
+   * @param inputField the index of the aggregated field, or -1 if the function has no argument.
+   * @param orderKey the index of the first order key, or -1 if the partition is not ordered.
+   */
+  public WindowFrameEvaluator(
+      CombineFn combineFn,
+      int inputField,
+      boolean rows,
+      @Nullable BigDecimal lowerLimit,
+      @Nullable BigDecimal upperLimit,
+      int orderKey) {
+    this.combineFn = combineFn;
+    this.inputField = inputField;
+    this.rows = rows;
+    this.lowerLimit = lowerLimit;
+    this.upperLimit = upperLimit;
+    this.orderKey = orderKey;
+  }
+
+  /**
+   * Returns whether the frames do not all start at the first row of the partition, in which case
+   * the {@link CombineFn} must support {@link CombineFn#mergeAccumulators}.
+   */
+  public static boolean isSliding(boolean rows, @Nullable BigDecimal lowerLimit, boolean ordered) {
+    return lowerLimit != null && (rows || ordered);
+  }
+
+  /** Outputs every row of the sorted partition with the result of the function over its frame. */
+  public void evaluate(Iterable<Row> sortedPartition, BiConsumer<Row, Object> output) {
+    RowBuffer buffer = new RowBuffer(sortedPartition.iterator());
+    FrameAggregate aggregate =
+        isSliding(rows, lowerLimit, orderKey >= 0)
+            ? new SlidingAggregate()
+            : new RunningAggregate();
+    long frameStart = 0;
+    long frameEnd = 0;
+    for (long i = 0; buffer.contains(i); i++) {
+      if (rows) {
+        frameStart = lowerLimit == null ? 0 : Math.max(0, i - lowerLimit.longValue());
+        frameEnd = upperLimit == null ? Long.MAX_VALUE : i + upperLimit.longValue() + 1;
+      } else if (orderKey < 0) {
+        frameEnd = Long.MAX_VALUE;
+      } else {
+        BigDecimal value = buffer.orderValue(i);
+        if (lowerLimit != null) {
+          BigDecimal lowest = value.subtract(lowerLimit);
+          while (buffer.contains(frameStart)
+              && buffer.orderValue(frameStart).compareTo(lowest) < 0) {
+            frameStart++;
+          }
+        }
+        if (upperLimit == null) {
+          frameEnd = Long.MAX_VALUE;
+        } else {
+          BigDecimal highest = value.add(upperLimit);
+          frameEnd = Math.max(frameEnd, frameStart);
+          while (buffer.contains(frameEnd)
+              && buffer.orderValue(frameEnd).compareTo(highest) <= 0) {
+            frameEnd++;
+          }
+        }
+      }
+      frameEnd = buffer.clip(Math.max(frameStart, frameEnd));
+      aggregate.moveTo(buffer, frameStart, frameEnd);
+      output.accept(buffer.get(i), aggregate.extractOutput());
+      long firstNeededRow = Math.min(i + 1, aggregate.firstNeededRow());
+      if (!rows && lowerLimit != null) {
+        // The start of the next range frame is searched from the start of this one.
+        firstNeededRow = Math.min(firstNeededRow, frameStart);
+      }
+      buffer.discardBefore(firstNeededRow);
+    }
+  }
+
+  private Object input(Row row) {
+    return row.getBaseValue(inputField);
+  }
+
+  private interface FrameAggregate {
+    /** Moves the frame to the given bounds, which never decrease. */
+    void moveTo(RowBuffer buffer, long start, long end);
+
+    Object extractOutput();
+
+    /** Returns the index of the first row still needed to move the frame. */
+    long firstNeededRow();
+  }
+
+  /** Aggregate of frames which all start at the first row of the partition. */
+  private class RunningAggregate implements FrameAggregate {
+    private Object accumulator = combineFn.createAccumulator();
+    private long end = 0;
+
+    @Override
+    public void moveTo(RowBuffer buffer, long start, long newEnd) {
+      for (; end < newEnd; end++) {
+        accumulator = combineFn.addInput(accumulator, input(buffer.get(end)));
+      }
+    }
+
+    @Override
+    public Object extractOutput() {
+      return combineFn.extractOutput(accumulator);
+    }
+
+    @Override
+    public long firstNeededRow() {
+      return end;
+    }
+  }
+
+  /**
+   * Aggregate of a sliding frame, as a queue made of two stacks. New inputs are added to the back
+   * accumulator. When the first input is removed while the front stack is empty, the inputs of the
+   * back are moved to the front stack, whose every entry aggregates its input and all the
+   * following inputs of the front.
+   */
+  private class SlidingAggregate implements FrameAggregate {
+    private final List<Object> backInputs = new ArrayList<>();
+    private Object backAccumulator = combineFn.createAccumulator();
+    private final ArrayDeque<Object> front = new ArrayDeque<>();
+    private long start = 0;
+    private long end = 0;
+
+    @Override
+    public void moveTo(RowBuffer buffer, long newStart, long newEnd) {
+      for (; start < newStart && start < end; start++) {
+        removeFirst();
+      }
+      if (start < newStart) {
+        // The new frame starts after the end of the previous one, which is now empty.
+        start = newStart;
+        end = newStart;
+      }
+      for (; end < newEnd; end++) {
+        Object input = input(buffer.get(end));
+        backInputs.add(input);
+        backAccumulator = combineFn.addInput(backAccumulator, input);
+      }
+    }
+
+    private void removeFirst() {
+      if (front.isEmpty()) {
+        Object suffix = null;
+        for (int i = backInputs.size() - 1; i >= 0; i--) {
+          Object single = combineFn.addInput(combineFn.createAccumulator(), backInputs.get(i));
+          suffix = suffix == null ? single : merge(single, suffix);
+          front.push(suffix);
+        }
+        backInputs.clear();
+        backAccumulator = combineFn.createAccumulator();
+      }
+      front.pop();
+    }
+
+    private Object merge(Object first, Object second) {
+      return combineFn.mergeAccumulators(
+          Arrays.asList(combineFn.createAccumulator(), first, second));
+    }
+
+    @Override
+    public Object extractOutput() {
+      Object frontAccumulator = front.peek();
+      return combineFn.extractOutput(
+          frontAccumulator == null ? backAccumulator : merge(frontAccumulator, backAccumulator));
+    }
+
+    @Override
+    public long firstNeededRow() {
+      return end;
+    }
+  }
+
+  /** The rows of a sorted partition which are still needed, read on demand. */
+  private class RowBuffer {
+    private final Iterator<Row> input;
+    private final List<Row> rows = new ArrayList<>();
+    private final List<BigDecimal> orderValues = new ArrayList<>();
+    /** The index in the partition of the first buffered row. */
+    private long offset = 0;
+
+    RowBuffer(Iterator<Row> input) {
+      this.input = input;
+    }
+
+    /** Reads the partition up to the given row, and returns whether it exists. */
+    boolean contains(long index) {
+      while (offset + rows.size() <= index && input.hasNext()) {
+        Row row = input.next();
+        rows.add(row);
+        if (!WindowFrameEvaluator.this.rows && orderKey >= 0) {
+          orderValues.add(new BigDecimal(((Number) row.getBaseValue(orderKey)).toString()));
+        }
+      }
+      return offset + rows.size() > index;
+    }
+
+    /** Returns the given frame end, or the number of rows of the partition if it is lower. */
+    long clip(long end) {
+      contains(end - 1);
+      return Math.min(end, offset + rows.size());
+    }
+
+    Row get(long index) {
+      return rows.get((int) (index - offset));
+    }
+
+    BigDecimal orderValue(long index) {
+      return orderValues.get((int) (index - offset));
+    }
+
+    void discardBefore(long index) {
+      int count = (int) (index - offset);
+      // Compacts the buffer once at least half of it can be discarded.
+      if (count > 0 && count >= rows.size() / 2) {
+        rows.subList(0, count).clear();
+        if (!orderValues.isEmpty()) {
+          orderValues.subList(0, count).clear();
+        }
+        offset = index;
+      }
+    }
+  }
+}
@@ -17,9 +17,13 @@
  */
 package org.apache.beam.sdk.extensions.sql.impl.udf;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import com.google.auto.service.AutoService;
+import java.security.MessageDigest;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.linq4j.function.Strict;
+import org.apache.commons.codec.digest.DigestUtils;
 
 /** Hash Functions. */
 @AutoService(BeamBuiltinFunctionProvider.class)
@@ -136,4 +140,29 @@ public class BuiltinHashFunctions extends BeamBuiltinFunctionProvider {
   public byte[] sha512Bytes(byte[] bytes) {
     return org.apache.commons.codec.digest.DigestUtils.sha512(bytes);
   }
+
+  /**
+   * Batch variant of the functions above, used by vectorized {@code Calc} execution.
+   *
+   * <p>Computes the {@code algorithm} digest of the {@code String} or {@code byte[]} at each of the
+   * first {@code selected} positions of {@code selection} for which {@code isNull} is false,
+   * reusing a single {@link MessageDigest} for the whole batch.
+   */
+  public static void digestBatch(
+      String algorithm,
+      Object[] input,
+      boolean[] isNull,
+      int[] selection,
+      int selected,
+      Object[] output) {
+    MessageDigest digest = DigestUtils.getDigest(algorithm);
+    for (int i = 0; i < selected; ++i) {
+      int row = selection[i];
+      if (!isNull[row]) {
+        Object value = input[row];
+        byte[] bytes = value instanceof String ? ((String) value).getBytes(UTF_8) : (byte[]) value;
+        output[row] = digest.digest(bytes);
+      }
+    }
+  }
 }
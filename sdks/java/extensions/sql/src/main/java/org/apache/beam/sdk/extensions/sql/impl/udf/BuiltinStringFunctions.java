@@ -264,4 +264,68 @@ public class BuiltinStringFunctions extends BeamBuiltinFunctionProvider {
       }
     }
   }
+
+  // Batch variants of the functions above, used by vectorized Calc execution. Each applies its
+  // function to the first `selected` positions of `selection` for which `isNull` is false, and
+  // leaves the other positions of the output untouched.
+
+  public static void lengthBatch(
+      Object[] input, boolean[] isNull, int[] selection, int selected, long[] output) {
+    for (int i = 0; i < selected; ++i) {
+      int row = selection[i];
+      if (!isNull[row]) {
+        Object value = input[row];
+        output[row] = value instanceof String ? ((String) value).length() : ((byte[]) value).length;
+      }
+    }
+  }
+
+  public static void reverseBatch(
+      Object[] input, boolean[] isNull, int[] selection, int selected, Object[] output) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < selected; ++i) {
+      int row = selection[i];
+      if (!isNull[row]) {
+        Object value = input[row];
+        if (value instanceof String) {
+          builder.setLength(0);
+          output[row] = builder.append((String) value).reverse().toString();
+        } else {
+          byte[] reversed = Arrays.copyOf((byte[]) value, ((byte[]) value).length);
+          ArrayUtils.reverse(reversed);
+          output[row] = reversed;
+        }
+      }
+    }
+  }
+
+  public static void startsWithBatch(
+      Object[] left,
+      Object[] right,
+      boolean[] isNull,
+      int[] selection,
+      int selected,
+      boolean[] output) {
+    for (int i = 0; i < selected; ++i) {
+      int row = selection[i];
+      if (!isNull[row]) {
+        output[row] = ((String) left[row]).startsWith((String) right[row]);
+      }
+    }
+  }
+
+  public static void endsWithBatch(
+      Object[] left,
+      Object[] right,
+      boolean[] isNull,
+      int[] selection,
+      int selected,
+      boolean[] output) {
+    for (int i = 0; i < selected; ++i) {
+      int row = selection[i];
+      if (!isNull[row]) {
+        output[row] = ((String) left[row]).endsWith((String) right[row]);
+      }
+    }
+  }
 }
@@ -21,6 +21,7 @@ import static org.apache.beam.sdk.io.iceberg.FilterUtils.SUPPORTED_OPS;
 import static org.apache.beam.sdk.util.Preconditions.checkStateNotNull;
 import static org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.SqlKind.AND;
 import static org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.SqlKind.OR;
+import static org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.SqlKind.SEARCH;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -30,6 +31,7 @@ import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexInputRef
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexLiteral;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexNode;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.util.Sarg;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.commons.lang3.tuple.Pair;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.MoreObjects;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
@@ -106,6 +108,8 @@ public class IcebergFilter implements BeamSqlTableFilter {
   /**
    * Check whether a {@code RexNode} is supported. As of right now Iceberg supports: 1. Complex
    * predicates (both conjunction and disjunction). 2. Comparison between a column and a literal.
+   * 3. {@code SEARCH} of a column in a set of points or its complement, which are unparsed to
+   * {@code IN} and {@code NOT IN}.
    *
    * @param node A node to check for predicate push-down support.
    * @return A pair containing a boolean whether an expression is supported and the number of input
@@ -117,7 +121,10 @@ public class IcebergFilter implements BeamSqlTableFilter {
 
     if (node instanceof RexCall) {
       RexCall compositeNode = (RexCall) node;
-      if (!SUPPORTED_OPS.contains(node.getKind())) {
+      if (node.getKind() == SEARCH) {
+        isSupported = isSupportedSearch(compositeNode);
+        numberOfInputRefs = 1;
+      } else if (!SUPPORTED_OPS.contains(node.getKind())) {
         isSupported = false;
       } else {
         for (RexNode operand : compositeNode.getOperands()) {
@@ -141,4 +148,14 @@ public class IcebergFilter implements BeamSqlTableFilter {
 
     return Pair.of(isSupported, numberOfInputRefs);
   }
+
+  private static boolean isSupportedSearch(RexCall search) {
+    RexNode ref = search.getOperands().get(0);
+    RexNode literal = search.getOperands().get(1);
+    if (!(ref instanceof RexInputRef) || !(literal instanceof RexLiteral)) {
+      return false;
+    }
+    Sarg<?> sarg = ((RexLiteral) literal).getValueAs(Sarg.class);
+    return sarg != null && (sarg.isPoints() || sarg.isComplementedPoints());
+  }
 }
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.IntFunction;
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTableFilter;
 import org.apache.beam.sdk.extensions.sql.meta.DefaultTableFilter;
 import org.apache.beam.sdk.extensions.sql.meta.ProjectSupport;
@@ -33,6 +34,7 @@ import org.apache.beam.sdk.extensions.sql.meta.Table;
 import org.apache.beam.sdk.extensions.sql.meta.provider.bigquery.BeamSqlUnparseContext;
 import org.apache.beam.sdk.io.iceberg.IcebergCatalogConfig;
 import org.apache.beam.sdk.managed.Managed;
+import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.values.PBegin;
 import org.apache.beam.sdk.values.PCollection;
@@ -48,6 +50,8 @@ import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.parser.SqlP
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
+import org.apache.iceberg.Snapshot;
+import org.apache.iceberg.catalog.TableIdentifier;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,10 +65,15 @@ class IcebergTable extends SchemaBaseBeamTable {
   @VisibleForTesting
   static final String TRIGGERING_FREQUENCY_FIELD = "triggering_frequency_seconds";
 
+  // Snapshot summary properties, as defined by org.apache.iceberg.SnapshotSummary.
+  private static final String TOTAL_RECORDS_PROPERTY = "total-records";
+  private static final String TOTAL_FILES_SIZE_PROPERTY = "total-files-size";
+
   @VisibleForTesting final String tableIdentifier;
   @VisibleForTesting final IcebergCatalogConfig catalogConfig;
   @VisibleForTesting @Nullable Integer triggeringFrequency;
   @VisibleForTesting final @Nullable List<String> partitionFields;
+  private @Nullable BeamTableStatistics statistics;
 
   IcebergTable(Table table, IcebergCatalogConfig catalogConfig) {
     super(table.getSchema());
@@ -139,6 +148,41 @@ class IcebergTable extends SchemaBaseBeamTable {
     return PCollection.IsBounded.BOUNDED;
   }
 
+  @Override
+  public BeamTableStatistics getTableStatistics(PipelineOptions options) {
+    BeamTableStatistics statistics = this.statistics;
+    if (statistics == null) {
+      statistics = getSnapshotStatistics();
+      this.statistics = statistics;
+    }
+    return statistics;
+  }
+
+  /**
+   * Reads the row count and data size of the table from the summary of its current snapshot, which
+   * Iceberg maintains on every commit.
+   */
+  private BeamTableStatistics getSnapshotStatistics() {
+    try {
+      org.apache.iceberg.Table table =
+          catalogConfig.catalog().loadTable(TableIdentifier.parse(tableIdentifier));
+      @Nullable Snapshot snapshot = table.currentSnapshot();
+      if (snapshot == null) {
+        return BeamTableStatistics.createBoundedTableStatistics(0d, 0d);
+      }
+      Map<String, String> summary = snapshot.summary();
+      @Nullable String records = summary.get(TOTAL_RECORDS_PROPERTY);
+      @Nullable String bytes = summary.get(TOTAL_FILES_SIZE_PROPERTY);
+      if (records != null && bytes != null) {
+        return BeamTableStatistics.createBoundedTableStatistics(
+            Double.parseDouble(records), Double.parseDouble(bytes));
+      }
+    } catch (RuntimeException e) {
+      LOG.warn("Could not get the statistics of the Iceberg table " + tableIdentifier, e);
+    }
+    return BeamTableStatistics.BOUNDED_UNKNOWN;
+  }
+
   private Map<String, Object> getBaseConfig() {
     ImmutableMap.Builder<String, Object> managedConfigBuilder = ImmutableMap.builder();
     managedConfigBuilder.put("table", tableIdentifier);
@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.meta.provider.parquet;
+
+import static org.apache.beam.sdk.util.Preconditions.checkStateNotNull;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTableFilter;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.vendor.calcite.v1_40_0.com.google.common.collect.BoundType;
+import org.apache.beam.vendor.calcite.v1_40_0.com.google.common.collect.Range;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexCall;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexInputRef;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexLiteral;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexNode;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexUnknownAs;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.sql.SqlKind;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.util.NlsString;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.util.Sarg;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.MoreObjects;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableSet;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.io.api.Binary;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link BeamSqlTableFilter} translating the supported predicates to a Parquet {@link
+ * FilterPredicate}. Parquet uses it to skip row groups based on their column statistics and
+ * dictionaries, and to filter the remaining records.
+ *
+ * <p>Supported predicates compare a top level {@code INT32}, {@code INT64}, {@code FLOAT}, {@code
+ * DOUBLE}, {@code BOOLEAN} or {@code STRING} column to a literal, check whether such a column is
+ * null, or combine supported predicates with {@code AND} and {@code OR}. A {@code BOOLEAN} column
+ * may also be used as a predicate by itself. {@code BOOLEAN} and {@code STRING} columns only
+ * support equality, since Parquet orders strings by their UTF-8 bytes rather than like SQL.
+ */
+@SuppressWarnings({
+  "nullness", // TODO(https://github.com/apache/beam/issues/20497)
+  "rawtypes", // TODO(https://github.com/apache/beam/issues/20447)
+  "unchecked"
+})
+public class ParquetFilter implements BeamSqlTableFilter {
+  private static final Set<SqlKind> COMPARISONS =
+      ImmutableSet.of(
+          SqlKind.EQUALS,
+          SqlKind.NOT_EQUALS,
+          SqlKind.LESS_THAN,
+          SqlKind.LESS_THAN_OR_EQUAL,
+          SqlKind.GREATER_THAN,
+          SqlKind.GREATER_THAN_OR_EQUAL);
+  private static final Set<Schema.TypeName> ORDERED_TYPES =
+      ImmutableSet.of(
+          Schema.TypeName.INT32,
+          Schema.TypeName.INT64,
+          Schema.TypeName.FLOAT,
+          Schema.TypeName.DOUBLE);
+  private static final Set<Schema.TypeName> EQUALITY_TYPES =
+      ImmutableSet.of(Schema.TypeName.BOOLEAN, Schema.TypeName.STRING);
+
+  private final List<RexNode> supported;
+  private final List<RexNode> unsupported;
+  private final Schema schema;
+
+  public ParquetFilter(List<RexNode> predicateCNF, Schema schema) {
+    this.schema = schema;
+    ImmutableList.Builder<RexNode> supportedBuilder = ImmutableList.builder();
+    ImmutableList.Builder<RexNode> unsupportedBuilder = ImmutableList.builder();
+    for (RexNode node : predicateCNF) {
+      if (isSupported(node)) {
+        supportedBuilder.add(node);
+      } else {
+        unsupportedBuilder.add(node);
+      }
+    }
+    this.supported = supportedBuilder.build();
+    this.unsupported = unsupportedBuilder.build();
+  }
+
+  @Override
+  public List<RexNode> getNotSupported() {
+    return unsupported;
+  }
+
+  @Override
+  public int numSupported() {
+    return BeamSqlTableFilter.expressionsInFilter(supported);
+  }
+
+  public List<RexNode> getSupported() {
+    return supported;
+  }
+
+  /** Returns the names of the columns referenced by the supported predicates. */
+  public Set<String> getReferencedFieldNames() {
+    Set<String> fieldNames = new LinkedHashSet<>();
+    for (RexNode node : supported) {
+      addReferencedFieldNames(node, fieldNames);
+    }
+    return fieldNames;
+  }
+
+  /** Returns the conjunction of the supported predicates, or null if there is none. */
+  public @Nullable FilterPredicate toPredicate() {
+    FilterPredicate predicate = null;
+    for (RexNode node : supported) {
+      FilterPredicate nodePredicate = toPredicate(node);
+      predicate = predicate == null ? nodePredicate : FilterApi.and(predicate, nodePredicate);
+    }
+    return predicate;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(ParquetFilter.class)
+        .add("supported", supported.stream().map(RexNode::toString).collect(Collectors.joining()))
+        .add(
+            "unsupported",
+            unsupported.stream().map(RexNode::toString).collect(Collectors.joining()))
+        .toString();
+  }
+
+  private void addReferencedFieldNames(RexNode node, Set<String> fieldNames) {
+    if (node instanceof RexInputRef) {
+      fieldNames.add(schema.getField(((RexInputRef) node).getIndex()).getName());
+    } else if (node instanceof RexCall) {
+      for (RexNode operand : ((RexCall) node).getOperands()) {
+        addReferencedFieldNames(operand, fieldNames);
+      }
+    }
+  }
+
+  private boolean isSupported(RexNode node) {
+    if (node instanceof RexInputRef) {
+      return columnType(node) == Schema.TypeName.BOOLEAN;
+    } else if (!(node instanceof RexCall)) {
+      return false;
+    }
+    RexCall call = (RexCall) node;
+    switch (call.getKind()) {
+      case AND:
+      case OR:
+        return call.getOperands().stream().allMatch(this::isSupported);
+      case IS_NULL:
+      case IS_NOT_NULL:
+        return columnType(call.getOperands().get(0)) != null;
+      case SEARCH:
+        {
+          Schema.TypeName type = columnType(call.getOperands().get(0));
+          Sarg sarg = sarg(call.getOperands().get(1));
+          if (type == null || sarg == null || sarg.isAll() || sarg.rangeSet.isEmpty()) {
+            return false;
+          }
+          return ORDERED_TYPES.contains(type)
+              || sarg.isPoints()
+              || sarg.isComplementedPoints();
+        }
+      default:
+        if (!COMPARISONS.contains(call.getKind())) {
+          return false;
+        }
+        RexNode left = call.getOperands().get(0);
+        RexNode right = call.getOperands().get(1);
+        Schema.TypeName type = columnType(left);
+        if (type == null) {
+          type = columnType(right);
+          right = left;
+        }
+        if (type == null
+            || !(right instanceof RexLiteral)
+            || ((RexLiteral) right).getValue() == null) {
+          return false;
+        }
+        return ORDERED_TYPES.contains(type)
+            || call.getKind() == SqlKind.EQUALS
+            || call.getKind() == SqlKind.NOT_EQUALS;
+    }
+  }
+
+  /** Returns the type of the column referenced by the node, or null if it isn't supported. */
+  private Schema.@Nullable TypeName columnType(RexNode node) {
+    if (!(node instanceof RexInputRef)) {
+      return null;
+    }
+    Schema.TypeName type =
+        schema.getField(((RexInputRef) node).getIndex()).getType().getTypeName();
+    return ORDERED_TYPES.contains(type) || EQUALITY_TYPES.contains(type) ? type : null;
+  }
+
+  private static @Nullable Sarg sarg(RexNode node) {
+    return node instanceof RexLiteral ? ((RexLiteral) node).getValueAs(Sarg.class) : null;
+  }
+
+  private FilterPredicate toPredicate(RexNode node) {
+    if (node instanceof RexInputRef) {
+      return compare(SqlKind.EQUALS, (RexInputRef) node, true);
+    }
+    RexCall call = (RexCall) node;
+    List<RexNode> operands = call.getOperands();
+    switch (call.getKind()) {
+      case AND:
+      case OR:
+        {
+          FilterPredicate predicate = toPredicate(operands.get(0));
+          for (int i = 1; i < operands.size(); i++) {
+            FilterPredicate operand = toPredicate(operands.get(i));
+            predicate =
+                call.getKind() == SqlKind.AND
+                    ? FilterApi.and(predicate, operand)
+                    : FilterApi.or(predicate, operand);
+          }
+          return predicate;
+        }
+      case IS_NULL:
+      case IS_NOT_NULL:
+        return compare(call.getKind(), (RexInputRef) operands.get(0), null);
+      case SEARCH:
+        return search((RexInputRef) operands.get(0), sarg(operands.get(1)));
+      default:
+        if (operands.get(0) instanceof RexInputRef) {
+          return compare(
+              call.getKind(),
+              (RexInputRef) operands.get(0),
+              ((RexLiteral) operands.get(1)).getValue());
+        }
+        return compare(
+            call.getKind().reverse(),
+            (RexInputRef) operands.get(1),
+            ((RexLiteral) operands.get(0)).getValue());
+    }
+  }
+
+  /** Translates {@code SEARCH(column, sarg)}, i.e. a set of ranges, to a predicate. */
+  private FilterPredicate search(RexInputRef column, Sarg sarg) {
+    FilterPredicate predicate = null;
+    if (sarg.isComplementedPoints()) {
+      // NOT IN: Parquet's not equal keeps nulls, unlike SQL.
+      if (sarg.nullAs != RexUnknownAs.TRUE) {
+        predicate = compare(SqlKind.IS_NOT_NULL, column, null);
+      }
+      for (Range range : (Set<Range>) sarg.rangeSet.complement().asRanges()) {
+        FilterPredicate notEqual = compare(SqlKind.NOT_EQUALS, column, range.lowerEndpoint());
+        predicate = predicate == null ? notEqual : FilterApi.and(predicate, notEqual);
+      }
+    } else {
+      for (Range range : (Set<Range>) sarg.rangeSet.asRanges()) {
+        FilterPredicate rangePredicate = range(column, range);
+        predicate = predicate == null ? rangePredicate : FilterApi.or(predicate, rangePredicate);
+      }
+    }
+    if (sarg.nullAs == RexUnknownAs.TRUE) {
+      FilterPredicate isNull = compare(SqlKind.IS_NULL, column, null);
+      predicate = predicate == null ? isNull : FilterApi.or(predicate, isNull);
+    }
+    return checkStateNotNull(predicate);
+  }
+
+  private FilterPredicate range(RexInputRef column, Range range) {
+    if (range.hasLowerBound()
+        && range.hasUpperBound()
+        && range.lowerEndpoint().compareTo(range.upperEndpoint()) == 0) {
+      return compare(SqlKind.EQUALS, column, range.lowerEndpoint());
+    }
+    FilterPredicate predicate = compare(SqlKind.IS_NOT_NULL, column, null);
+    if (range.hasLowerBound()) {
+      SqlKind kind =
+          range.lowerBoundType() == BoundType.CLOSED
+              ? SqlKind.GREATER_THAN_OR_EQUAL
+              : SqlKind.GREATER_THAN;
+      predicate = FilterApi.and(predicate, compare(kind, column, range.lowerEndpoint()));
+    }
+    if (range.hasUpperBound()) {
+      SqlKind kind =
+          range.upperBoundType() == BoundType.CLOSED
+              ? SqlKind.LESS_THAN_OR_EQUAL
+              : SqlKind.LESS_THAN;
+      predicate = FilterApi.and(predicate, compare(kind, column, range.upperEndpoint()));
+    }
+    return predicate;
+  }
+
+  /**
+   * Compares a column to a literal value, given in the internal representation of Calcite literals
+   * and ranges, or checks whether it is null if {@code value} is null.
+   */
+  private FilterPredicate compare(SqlKind kind, RexInputRef inputRef, @Nullable Comparable value) {
+    Schema.Field field = schema.getField(inputRef.getIndex());
+    String name = field.getName();
+    switch (field.getType().getTypeName()) {
+      case INT32:
+        return compare(
+            kind, FilterApi.intColumn(name), value == null ? null : ((Number) value).intValue());
+      case INT64:
+        return compare(
+            kind, FilterApi.longColumn(name), value == null ? null : ((Number) value).longValue());
+      case FLOAT:
+        return compare(
+            kind,
+            FilterApi.floatColumn(name),
+            value == null ? null : ((Number) value).floatValue());
+      case DOUBLE:
+        return compare(
+            kind,
+            FilterApi.doubleColumn(name),
+            value == null ? null : ((Number) value).doubleValue());
+      case STRING:
+        return compare(
+            kind,
+            FilterApi.binaryColumn(name),
+            value == null ? null : Binary.fromString(((NlsString) value).getValue()));
+      case BOOLEAN:
+        return equality(kind, FilterApi.booleanColumn(name), (Boolean) value);
+      default:
+        throw new IllegalArgumentException("Unsupported column type " + field.getType());
+    }
+  }
+
+  private static <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsLtGt>
+      FilterPredicate compare(SqlKind kind, C column, @Nullable T value) {
+    switch (kind) {
+      case LESS_THAN:
+        return FilterApi.lt(column, value);
+      case LESS_THAN_OR_EQUAL:
+        return FilterApi.ltEq(column, value);
+      case GREATER_THAN:
+        return FilterApi.gt(column, value);
+      case GREATER_THAN_OR_EQUAL:
+        return FilterApi.gtEq(column, value);
+      default:
+        return equality(kind, column, value);
+    }
+  }
+
+  private static <
+          T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsEqNotEq>
+      FilterPredicate equality(SqlKind kind, C column, @Nullable T value) {
+    switch (kind) {
+      case EQUALS:
+        return FilterApi.eq(column, value);
+      case NOT_EQUALS:
+        // Parquet's not equal keeps nulls, unlike SQL.
+        return FilterApi.and(FilterApi.notEq(column, value), FilterApi.notEq(column, null));
+      case IS_NULL:
+        return FilterApi.eq(column, null);
+      case IS_NOT_NULL:
+        return FilterApi.notEq(column, null);
+      default:
+        throw new IllegalArgumentException("Unsupported comparison " + kind);
+    }
+  }
+}
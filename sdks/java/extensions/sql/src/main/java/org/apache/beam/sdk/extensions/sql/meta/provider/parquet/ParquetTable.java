@@ -17,28 +17,40 @@
  */
 package org.apache.beam.sdk.extensions.sql.meta.provider.parquet;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.beam.sdk.annotations.Internal;
 import org.apache.beam.sdk.extensions.avro.schemas.utils.AvroUtils;
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTableFilter;
 import org.apache.beam.sdk.extensions.sql.meta.ProjectSupport;
 import org.apache.beam.sdk.extensions.sql.meta.SchemaBaseBeamTable;
 import org.apache.beam.sdk.extensions.sql.meta.Table;
 import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.io.fs.MatchResult;
 import org.apache.beam.sdk.io.parquet.ParquetIO;
 import org.apache.beam.sdk.io.parquet.ParquetIO.Read;
+import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.schemas.transforms.Convert;
+import org.apache.beam.sdk.schemas.transforms.Select;
 import org.apache.beam.sdk.values.PBegin;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollection.IsBounded;
 import org.apache.beam.sdk.values.POutput;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rex.RexNode;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.hadoop.ParquetInputFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,14 +58,52 @@ import org.slf4j.LoggerFactory;
 @SuppressWarnings({"nullness"})
 class ParquetTable extends SchemaBaseBeamTable implements Serializable {
   private static final Logger LOG = LoggerFactory.getLogger(ParquetTable.class);
+  /** The maximum number of file footers read to estimate the row count of a table. */
+  private static final int MAX_FOOTERS_TO_READ = 100;
 
   private final Table table;
+  private BeamTableStatistics statistics = null;
 
   ParquetTable(Table table) {
     super(table.getSchema());
     this.table = table;
   }
 
+  @Override
+  public BeamTableStatistics getTableStatistics(PipelineOptions options) {
+    if (statistics == null) {
+      statistics = getParquetEstimate(resolveFilePattern(table.getLocation()));
+    }
+    return statistics;
+  }
+
+  /**
+   * Estimates the row count and byte size of the matched files. The row count is read from the
+   * footers of at most {@link #MAX_FOOTERS_TO_READ} files and extrapolated to the other files
+   * according to their size.
+   */
+  private static BeamTableStatistics getParquetEstimate(String filePattern) {
+    try {
+      List<MatchResult.Metadata> files = FileSystems.match(filePattern).metadata();
+      double totalBytes = 0;
+      double sampledBytes = 0;
+      double sampledRows = 0;
+      for (int i = 0; i < files.size(); i++) {
+        MatchResult.Metadata file = files.get(i);
+        totalBytes += file.sizeBytes();
+        if (i < MAX_FOOTERS_TO_READ) {
+          sampledBytes += file.sizeBytes();
+          sampledRows += ParquetIO.getRecordCount(file.resourceId());
+        }
+      }
+      double rows = sampledBytes == 0 ? sampledRows : sampledRows * totalBytes / sampledBytes;
+      return BeamTableStatistics.createBoundedTableStatistics(rows, totalBytes);
+    } catch (IOException e) {
+      LOG.warn("Could not get the statistics of the parquet table " + filePattern, e);
+    }
+    return BeamTableStatistics.BOUNDED_UNKNOWN;
+  }
+
   @Override
   public PCollection<Row> buildIOReader(PBegin begin) {
     final Schema schema = AvroUtils.toAvroSchema(table.getSchema());
@@ -68,12 +118,38 @@ class ParquetTable extends SchemaBaseBeamTable implements Serializable {
     final Schema schema = AvroUtils.toAvroSchema(table.getSchema());
     String filePattern = resolveFilePattern(table.getLocation());
     Read read = ParquetIO.read(schema).withBeamSchemas(true).from(filePattern);
-    if (!fieldNames.isEmpty()) {
-      Schema projectionSchema = projectSchema(schema, fieldNames);
+    List<String> readFieldNames = fieldNames;
+    if (filters instanceof ParquetFilter) {
+      ParquetFilter parquetFilter = (ParquetFilter) filters;
+      FilterPredicate predicate = parquetFilter.toPredicate();
+      if (predicate != null) {
+        LOG.info("Pushing down filter: {}", predicate);
+        Configuration configuration = new Configuration(false);
+        ParquetInputFormat.setFilterPredicate(configuration, predicate);
+        read = read.withConfiguration(configuration);
+        // The columns only referenced by the pushed down filter still have to be read.
+        if (!fieldNames.isEmpty()) {
+          Set<String> filterFieldNames = new LinkedHashSet<>(fieldNames);
+          filterFieldNames.addAll(parquetFilter.getReferencedFieldNames());
+          readFieldNames = new ArrayList<>(filterFieldNames);
+        }
+      }
+    }
+    if (!readFieldNames.isEmpty()) {
+      Schema projectionSchema = projectSchema(schema, readFieldNames);
       LOG.info("Projecting fields schema: {}", projectionSchema);
       read = read.withProjection(projectionSchema, projectionSchema);
     }
-    return begin.apply("ParquetIORead", read).apply("ToRows", Convert.toRows());
+    PCollection<Row> rows = begin.apply("ParquetIORead", read).apply("ToRows", Convert.toRows());
+    if (readFieldNames.size() != fieldNames.size()) {
+      rows = rows.apply("DropFilterFields", Select.fieldNames(fieldNames.toArray(new String[0])));
+    }
+    return rows;
+  }
+
+  @Override
+  public BeamSqlTableFilter constructFilter(List<RexNode> filter) {
+    return new ParquetFilter(filter, getSchema());
   }
 
   /** Returns a copy of the {@link Schema} with only the fieldNames fields. */
@@ -22,8 +22,10 @@ import org.apache.beam.sdk.annotations.Internal;
 import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTable;
 import org.apache.beam.sdk.extensions.sql.meta.SchemaBaseBeamTable;
+import org.apache.beam.sdk.io.FileSystems;
 import org.apache.beam.sdk.io.TextIO;
 import org.apache.beam.sdk.io.TextRowCountEstimator;
+import org.apache.beam.sdk.io.fs.MatchResult;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.transforms.PTransform;
@@ -91,7 +93,11 @@ public class TextTable extends SchemaBaseBeamTable {
             .build();
     try {
       Double rows = textRowCountEstimator.estimateRowCount(options);
-      return BeamTableStatistics.createBoundedTableStatistics(rows);
+      double bytes = 0;
+      for (MatchResult.Metadata metadata : FileSystems.match(filePattern).metadata()) {
+        bytes += metadata.sizeBytes();
+      }
+      return BeamTableStatistics.createBoundedTableStatistics(rows, bytes);
     } catch (IOException | TextRowCountEstimator.NoEstimationException e) {
       LOG.warn("Could not get the row count for the text table " + filePattern, e);
     }
@@ -18,6 +18,7 @@
 package org.apache.beam.sdk.extensions.sql;
 
 import java.util.List;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.transforms.Create;
@@ -588,4 +589,48 @@ public class BeamAnalyticFunctionsTest extends BeamSqlDslBase {
 
     pipeline.run();
   }
+
+  @Test
+  public void testOverRowsMovingSumSpilledPartition() throws Exception {
+    pipeline.enableAbandonedNodeEnforcement(false);
+    pipeline.getOptions().as(BeamSqlPipelineOptions.class).setWindowPartitionMaxRowsInMemory(2);
+    PCollection<Row> inputRows = inputData2();
+    String sql =
+        "SELECT x, SUM(x) over (ORDER BY x ROWS BETWEEN 2 PRECEDING AND CURRENT ROW) as agg "
+            + "FROM PCOLLECTION";
+    PCollection<Row> result = inputRows.apply("sql", SqlTransform.query(sql));
+
+    Schema overResultSchema = Schema.builder().addInt32Field("x").addInt32Field("agg").build();
+
+    List<Row> overResult =
+        TestUtils.RowsBuilder.of(overResultSchema)
+            .addRows(1, 1, 2, 3, 2, 5, 5, 9, 8, 15, 10, 23, 10, 28)
+            .getRows();
+
+    PAssert.that(result).containsInAnyOrder(overResult);
+
+    pipeline.run();
+  }
+
+  @Test
+  public void testOverRangeCumulativeSum() throws Exception {
+    pipeline.enableAbandonedNodeEnforcement(false);
+    PCollection<Row> inputRows = inputData2();
+    String sql =
+        "SELECT x, SUM(x) over "
+            + "(ORDER BY x RANGE BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW) as agg "
+            + "FROM PCOLLECTION";
+    PCollection<Row> result = inputRows.apply("sql", SqlTransform.query(sql));
+
+    Schema overResultSchema = Schema.builder().addInt32Field("x").addInt32Field("agg").build();
+
+    List<Row> overResult =
+        TestUtils.RowsBuilder.of(overResultSchema)
+            .addRows(1, 1, 2, 5, 2, 5, 5, 10, 8, 18, 10, 38, 10, 38)
+            .getRows();
+
+    PAssert.that(result).containsInAnyOrder(overResult);
+
+    pipeline.run();
+  }
 }
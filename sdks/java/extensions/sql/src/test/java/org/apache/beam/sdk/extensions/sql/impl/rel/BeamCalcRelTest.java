@@ -19,6 +19,8 @@ package org.apache.beam.sdk.extensions.sql.impl.rel;
 
 import java.math.BigDecimal;
 import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.extensions.sql.TestUtils;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamRelMetadataQuery;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
@@ -27,6 +29,7 @@ import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestUnboundedTable;
 import org.apache.beam.sdk.runners.TransformHierarchy;
 import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
 import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.DoFnSchemaInformation;
 import org.apache.beam.sdk.transforms.ParDo;
@@ -77,6 +80,18 @@ public class BeamCalcRelTest extends BaseRelTest {
                 4,
                 new BigDecimal(4.0)));
 
+    registerTable(
+        "CUSTOMERS_BOUNDED",
+        TestBoundedTable.of(
+                Schema.FieldType.INT64, "customer_id",
+                Schema.FieldType.STRING, "name")
+            .addRows(1L, "alice", 2L, "bob", 3L, "carol"));
+
+    registerTable(
+        "READINGS_BOUNDED",
+        TestBoundedTable.of(Schema.FieldType.DOUBLE, "reading")
+            .addRows(1.5d, 3e9d, -3e9d));
+
     registerTable(
         "ORDER_DETAILS_UNBOUNDED",
         TestUnboundedTable.of(
@@ -250,4 +265,92 @@ public class BeamCalcRelTest extends BaseRelTest {
 
     pipeline.run().waitUntilFinish();
   }
+
+  @Test
+  public void testVectorizedCalc() {
+    BeamSqlPipelineOptions options = pipeline.getOptions().as(BeamSqlPipelineOptions.class);
+    options.setVectorizedCalc(true);
+    options.setVectorizedCalcBatchSize(2);
+    String sql =
+        "SELECT order_id * 2 AS doubled, site_id + 1 AS next_site "
+            + "FROM ORDER_DETAILS_BOUNDED WHERE site_id > 1 AND order_id <> 2";
+
+    PCollection<Row> rows = compilePipeline(sql, pipeline);
+
+    final NodeGetter nodeGetter = new NodeGetter(rows);
+    pipeline.traverseTopologically(nodeGetter);
+    ParDo.SingleOutput<Row, Row> pardo =
+        (ParDo.SingleOutput<Row, Row>) nodeGetter.producer.getTransform();
+    Assert.assertTrue(pardo.getFn() instanceof VectorizedCalc.VectorizedCalcFn);
+
+    PAssert.that(rows)
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.INT64, "doubled",
+                    Schema.FieldType.INT32, "next_site")
+                .addRows(8L, 5, 8L, 5)
+                .getRows());
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void testVectorizedCalcBuiltinFunctions() {
+    pipeline.getOptions().as(BeamSqlPipelineOptions.class).setVectorizedCalc(true);
+    String sql =
+        "SELECT REVERSE(name) AS reversed, LENGTH(name) AS len "
+            + "FROM CUSTOMERS_BOUNDED WHERE customer_id <> 2";
+
+    PCollection<Row> rows = compilePipeline(sql, pipeline);
+
+    final NodeGetter nodeGetter = new NodeGetter(rows);
+    pipeline.traverseTopologically(nodeGetter);
+    ParDo.SingleOutput<Row, Row> pardo =
+        (ParDo.SingleOutput<Row, Row>) nodeGetter.producer.getTransform();
+    Assert.assertTrue(pardo.getFn() instanceof VectorizedCalc.VectorizedCalcFn);
+
+    PAssert.that(rows)
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.STRING, "reversed",
+                    Schema.FieldType.INT64, "len")
+                .addRows("ecila", 5L, "lorac", 5L)
+                .getRows());
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void testVectorizedCalcCastsOutOfRangeDoubles() {
+    pipeline.getOptions().as(BeamSqlPipelineOptions.class).setVectorizedCalc(true);
+    String sql = "SELECT CAST(reading AS INTEGER) AS truncated FROM READINGS_BOUNDED";
+
+    PCollection<Row> rows = compilePipeline(sql, pipeline);
+
+    final NodeGetter nodeGetter = new NodeGetter(rows);
+    pipeline.traverseTopologically(nodeGetter);
+    ParDo.SingleOutput<Row, Row> pardo =
+        (ParDo.SingleOutput<Row, Row>) nodeGetter.producer.getTransform();
+    Assert.assertTrue(pardo.getFn() instanceof VectorizedCalc.VectorizedCalcFn);
+
+    // Out of range values saturate, like the generated code of the row at a time path
+    PAssert.that(rows)
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(Schema.FieldType.INT32, "truncated")
+                .addRows(1, Integer.MAX_VALUE, Integer.MIN_VALUE)
+                .getRows());
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void testVectorizedCalcFallsBackForUnsupportedTypes() {
+    pipeline.getOptions().as(BeamSqlPipelineOptions.class).setVectorizedCalc(true);
+    String sql = "SELECT price FROM ORDER_DETAILS_BOUNDED WHERE order_id = 1";
+
+    PCollection<Row> rows = compilePipeline(sql, pipeline);
+
+    final NodeGetter nodeGetter = new NodeGetter(rows);
+    pipeline.traverseTopologically(nodeGetter);
+    Assert.assertTrue(nodeGetter.producer.getTransform() instanceof ParDo.MultiOutput);
+
+    pipeline.run().waitUntilFinish();
+  }
 }
@@ -18,11 +18,17 @@
 package org.apache.beam.sdk.extensions.sql.impl.rel;
 
 import org.apache.beam.sdk.extensions.sql.TestUtils;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlEnv;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamRelMetadataQuery;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.impl.transform.BeamSqlOutputToConsoleFn;
+import org.apache.beam.sdk.extensions.sql.meta.provider.ReadOnlyTableProvider;
 import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestBoundedTable;
 import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestUnboundedTable;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
@@ -30,6 +36,7 @@ import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.calcite.v1_40_0.org.apache.calcite.rel.RelNode;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.junit.Assert;
@@ -44,6 +51,8 @@ public class BeamSideInputJoinRelTest extends BaseRelTest {
   public static final DateTime SECOND_DATE = new DateTime(1 + 3600 * 1000);
   public static final DateTime THIRD_DATE = new DateTime(1 + 3600 * 1000 + 3600 * 1000 + 1);
   private static final Duration WINDOW_SIZE = Duration.standardHours(1);
+  // Plans with broadcast joins enabled, which they are not by default.
+  private static BeamSqlEnv broadcastEnv;
 
   @BeforeClass
   public static void prepare() {
@@ -57,6 +66,29 @@ public class BeamSideInputJoinRelTest extends BaseRelTest {
             .addRows(
                 1, "james",
                 2, "bond"));
+
+    // A bounded table whose byte size is known, so that it can be broadcast.
+    registerTable(
+        "ORDER_SITES",
+        new TestBoundedTable(
+                Schema.builder().addInt32Field("order_id").addStringField("site").build()) {
+              @Override
+              public BeamTableStatistics getTableStatistics(PipelineOptions options) {
+                return BeamTableStatistics.createBoundedTableStatistics(2d, 64d);
+              }
+            }.addRows(1, "beam", 3, "flink"));
+
+    BeamSqlPipelineOptions options = PipelineOptionsFactory.as(BeamSqlPipelineOptions.class);
+    options.setBroadcastJoinThresholdBytes(1024L);
+    broadcastEnv =
+        BeamSqlEnv.builder(
+                new ReadOnlyTableProvider(
+                    "test",
+                    ImmutableMap.of(
+                        "ORDER_DETAILS1", getTable("ORDER_DETAILS1"),
+                        "ORDER_SITES", getTable("ORDER_SITES"))))
+            .setPipelineOptions(options)
+            .build();
   }
 
   public static void registerUnboundedTable() {
@@ -282,4 +314,105 @@ public class BeamSideInputJoinRelTest extends BaseRelTest {
     compilePipeline(sql, pipeline);
     pipeline.run();
   }
+
+  @Test
+  public void testInnerJoin_boundedTablesBroadcastSmallTable() throws Exception {
+    String sql =
+        "SELECT o1.order_id, o1.buyer, o2.site FROM "
+            + " ORDER_DETAILS1 o1 "
+            + " JOIN "
+            + " ORDER_SITES o2 "
+            + " on "
+            + " o1.order_id=o2.order_id";
+
+    Assert.assertTrue(findJoin(broadcastEnv.parseQuery(sql)) instanceof BeamSideInputJoinRel);
+    PCollection<Row> rows = BeamSqlRelUtils.toPCollection(pipeline, broadcastEnv.parseQuery(sql));
+    PAssert.that(rows.apply(ParDo.of(new TestUtils.BeamSqlRow2StringDoFn())))
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.INT32, "order_id",
+                    Schema.FieldType.STRING, "buyer",
+                    Schema.FieldType.STRING, "site")
+                .addRows(1, "james", "beam")
+                .getStringRows());
+    pipeline.run();
+  }
+
+  @Test
+  public void testBoundedTablesBroadcastSideIsKeptByCopy() {
+    String sql =
+        "SELECT o1.order_id, o1.buyer, o2.site FROM "
+            + " ORDER_DETAILS1 o1 "
+            + " JOIN "
+            + " ORDER_SITES o2 "
+            + " on "
+            + " o1.order_id=o2.order_id";
+
+    // The size of ORDER_DETAILS1 is unknown, so the planner chose to broadcast ORDER_SITES.
+    BeamSideInputJoinRel join = (BeamSideInputJoinRel) findJoin(broadcastEnv.parseQuery(sql));
+    Assert.assertEquals(Integer.valueOf(1), join.getBroadcastInput());
+    BeamSideInputJoinRel copy =
+        (BeamSideInputJoinRel) join.copy(join.getTraitSet(), join.getInputs());
+    Assert.assertEquals(Integer.valueOf(1), copy.getBroadcastInput());
+  }
+
+  @Test
+  public void testLeftOuterJoin_boundedTablesBroadcastSmallTable() throws Exception {
+    String sql =
+        "SELECT o1.order_id, o1.buyer, o2.site FROM "
+            + " ORDER_DETAILS1 o1 "
+            + " LEFT OUTER JOIN "
+            + " ORDER_SITES o2 "
+            + " on "
+            + " o1.order_id=o2.order_id";
+
+    Assert.assertTrue(findJoin(broadcastEnv.parseQuery(sql)) instanceof BeamSideInputJoinRel);
+    PCollection<Row> rows = BeamSqlRelUtils.toPCollection(pipeline, broadcastEnv.parseQuery(sql));
+    PAssert.that(rows.apply(ParDo.of(new TestUtils.BeamSqlRow2StringDoFn())))
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.builder()
+                        .addField("order_id", Schema.FieldType.INT32)
+                        .addField("buyer", Schema.FieldType.STRING)
+                        .addNullableField("site", Schema.FieldType.STRING)
+                        .build())
+                .addRows(1, "james", "beam", 2, "bond", null)
+                .getStringRows());
+    pipeline.run();
+  }
+
+  @Test
+  public void testRightOuterJoin_boundedTablesShuffleUnknownSizeTable() {
+    // The unmatched rows of the small table must be preserved, so only the table of unknown size
+    // could be broadcast.
+    String sql =
+        "SELECT o1.order_id, o1.buyer, o2.site FROM "
+            + " ORDER_DETAILS1 o1 "
+            + " RIGHT OUTER JOIN "
+            + " ORDER_SITES o2 "
+            + " on "
+            + " o1.order_id=o2.order_id";
+
+    Assert.assertTrue(findJoin(broadcastEnv.parseQuery(sql)) instanceof BeamCoGBKJoinRel);
+  }
+
+  @Test
+  public void testInnerJoin_boundedTablesShuffleByDefault() {
+    String sql =
+        "SELECT o1.order_id, o1.buyer, o2.site FROM "
+            + " ORDER_DETAILS1 o1 "
+            + " JOIN "
+            + " ORDER_SITES o2 "
+            + " on "
+            + " o1.order_id=o2.order_id";
+
+    Assert.assertTrue(findJoin(env.parseQuery(sql)) instanceof BeamCoGBKJoinRel);
+  }
+
+  private static RelNode findJoin(RelNode root) {
+    while (!(root instanceof BeamJoinRel)) {
+      root = root.getInput(0);
+    }
+    return root;
+  }
 }
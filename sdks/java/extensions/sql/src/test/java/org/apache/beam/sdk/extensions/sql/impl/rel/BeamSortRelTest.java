@@ -18,6 +18,7 @@
 package org.apache.beam.sdk.extensions.sql.impl.rel;
 
 import org.apache.beam.sdk.extensions.sql.TestUtils;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamRelMetadataQuery;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestBoundedTable;
@@ -255,6 +256,40 @@ public class BeamSortRelTest extends BaseRelTest {
     pipeline.run().waitUntilFinish();
   }
 
+  @Test
+  public void testOrderBy_withoutFanout() {
+    pipeline.getOptions().as(BeamSqlPipelineOptions.class).setSortTopNFanout(0);
+    String sql =
+        "INSERT INTO SUB_ORDER_RAM(order_id, site_id, price)  SELECT "
+            + " order_id, site_id, price "
+            + "FROM ORDER_DETAILS "
+            + "ORDER BY price desc limit 3";
+
+    PCollection<Row> rows = compilePipeline(sql, pipeline);
+    PAssert.that(rows)
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.INT64, "order_id",
+                    Schema.FieldType.INT32, "site_id",
+                    Schema.FieldType.DOUBLE, "price")
+                .addRows(10L, 100, 10.0, 8L, 999, 9.0, 8L, 8888, 8.0)
+                .getRows());
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void testLimit_withoutOrderBy() {
+    Schema schema = Schema.builder().addField("count_star", Schema.FieldType.INT64).build();
+
+    String sql =
+        "INSERT INTO COUNT_TABLE(count_star) "
+            + "SELECT COUNT(*) FROM (SELECT * FROM ORDER_DETAILS LIMIT 4 OFFSET 3)";
+
+    PCollection<Row> rows = compilePipeline(sql, pipeline);
+    PAssert.that(rows).containsInAnyOrder(TestUtils.RowsBuilder.of(schema).addRows(4L).getRows());
+    pipeline.run().waitUntilFinish();
+  }
+
   @Test
   public void testOrderBy_bigFetch() {
     String sql =
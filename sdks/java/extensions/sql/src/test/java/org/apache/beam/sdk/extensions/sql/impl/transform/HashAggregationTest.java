@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.transform;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Unit tests for {@link HashAggregation}. */
+public class HashAggregationTest {
+  @Rule public final transient TestPipeline pipeline = TestPipeline.create();
+
+  private static final Schema INPUT_SCHEMA =
+      Schema.builder()
+          .addStringField("k")
+          .addNullableField("i", FieldType.INT32)
+          .addNullableField("d", FieldType.DOUBLE)
+          .addInt64Field("l")
+          .build();
+
+  private static final Schema OUTPUT_SCHEMA =
+      Schema.builder()
+          .addStringField("k")
+          .addInt64Field("cnt")
+          .addInt64Field("cnt_i")
+          .addNullableField("sum_i", FieldType.INT32)
+          .addInt32Field("sum0_i")
+          .addNullableField("min_d", FieldType.DOUBLE)
+          .addNullableField("max_l", FieldType.INT64)
+          .addNullableField("avg_i", FieldType.INT32)
+          .build();
+
+  private static Row input(String k, Integer i, Double d, long l) {
+    return Row.withSchema(INPUT_SCHEMA).addValues(k, i, d, l).build();
+  }
+
+  private static Row output(
+      String k,
+      long cnt,
+      long cntI,
+      Integer sumI,
+      int sum0I,
+      Double minD,
+      Long maxL,
+      Integer avgI) {
+    return Row.withSchema(OUTPUT_SCHEMA)
+        .addValues(k, cnt, cntI, sumI, sum0I, minD, maxL, avgI)
+        .build();
+  }
+
+  private static List<HashAggregation.Aggregation> aggregations() {
+    return Arrays.asList(
+        HashAggregation.aggregation(
+            "COUNT", Collections.emptyList(), FieldType.INT64, FieldType.INT64),
+        HashAggregation.aggregation(
+            "COUNT", Collections.singletonList(1), FieldType.INT32, FieldType.INT64),
+        HashAggregation.aggregation(
+            "SUM", Collections.singletonList(1), FieldType.INT32, FieldType.INT32),
+        HashAggregation.aggregation(
+            "$SUM0", Collections.singletonList(1), FieldType.INT32, FieldType.INT32),
+        HashAggregation.aggregation(
+            "MIN", Collections.singletonList(2), FieldType.DOUBLE, FieldType.DOUBLE),
+        HashAggregation.aggregation(
+            "MAX", Collections.singletonList(3), FieldType.INT64, FieldType.INT64),
+        HashAggregation.aggregation(
+            "AVG", Collections.singletonList(1), FieldType.INT32, FieldType.INT32));
+  }
+
+  @Test
+  public void testSupportedAggregations() {
+    assertNotNull(
+        HashAggregation.aggregation(
+            "SUM", Collections.singletonList(0), FieldType.INT64, FieldType.INT64));
+    assertNull(
+        HashAggregation.aggregation(
+            "SUM", Collections.singletonList(0), FieldType.DECIMAL, FieldType.DECIMAL));
+    assertNull(
+        HashAggregation.aggregation(
+            "SUM", Collections.singletonList(0), FieldType.FLOAT, FieldType.FLOAT));
+    assertNull(
+        HashAggregation.aggregation(
+            "AVG", Collections.singletonList(0), FieldType.DOUBLE, FieldType.DOUBLE));
+    assertNull(
+        HashAggregation.aggregation(
+            "VAR_POP", Collections.singletonList(0), FieldType.INT64, FieldType.INT64));
+  }
+
+  @Test
+  public void testAggregate() {
+    runAggregation(1000);
+  }
+
+  @Test
+  public void testAggregateWithSpilling() {
+    runAggregation(1);
+  }
+
+  private void runAggregation(int maxGroupsInMemory) {
+    PCollection<Row> rows =
+        pipeline
+            .apply(
+                Create.of(
+                        input("a", 1, 1.5, 10),
+                        input("a", null, 2.5, 20),
+                        input("b", 3, null, 30),
+                        input("a", 5, -1.0, 40),
+                        input("b", null, null, 50),
+                        input("c", null, null, 60))
+                    .withRowSchema(INPUT_SCHEMA))
+            .apply(
+                HashAggregation.create(
+                    Collections.singletonList(0),
+                    aggregations(),
+                    OUTPUT_SCHEMA,
+                    maxGroupsInMemory));
+
+    PAssert.that(rows)
+        .containsInAnyOrder(
+            output("a", 3, 2, 6, 6, -1.0, 40L, 3),
+            output("b", 2, 1, 3, 3, null, 50L, 3),
+            output("c", 1, 0, null, 0, null, 60L, null));
+    pipeline.run();
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSortRel.BeamSqlRowComparator;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Lists;
+import org.joda.time.Instant;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PartitionSorter}. */
+@RunWith(JUnit4.class)
+public class PartitionSorterTest {
+  private static final Schema SCHEMA =
+      Schema.builder()
+          .addNullableField("i", FieldType.INT32)
+          .addNullableField("d", FieldType.DOUBLE)
+          .addNullableField("s", FieldType.STRING)
+          .addNullableField("t", FieldType.DATETIME)
+          .build();
+
+  private static final String[] STRINGS = {"", "a", "ab", "b", "\u00e9", "\uffff", "a\u0000"};
+  private static final double[] DOUBLES = {
+    Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, 2.25, Double.POSITIVE_INFINITY, Double.NaN
+  };
+
+  private static List<Row> rows(int size) {
+    Random random = new Random(size);
+    List<Row> rows = new ArrayList<>();
+    for (int j = 0; j < size; j++) {
+      rows.add(
+          Row.withSchema(SCHEMA)
+              .addValues(
+                  random.nextInt(5) == 0 ? null : random.nextInt(7) - 3,
+                  random.nextInt(5) == 0 ? null : DOUBLES[random.nextInt(DOUBLES.length)],
+                  random.nextInt(5) == 0 ? null : STRINGS[random.nextInt(STRINGS.length)],
+                  random.nextInt(5) == 0 ? null : new Instant(random.nextInt(4) - 2L))
+              .build());
+    }
+    return rows;
+  }
+
+  private static void assertSortedLikeComparator(
+      List<Integer> keys, List<Boolean> orientations, List<Boolean> nulls) throws Exception {
+    List<Row> rows = rows(500);
+    BeamSqlRowComparator comparator = new BeamSqlRowComparator(keys, orientations, nulls);
+    List<Row> spilled =
+        Lists.newArrayList(new PartitionSorter(SCHEMA, keys, orientations, nulls, 10).sort(rows));
+    assertEquals(rows.size(), spilled.size());
+    for (int i = 1; i < spilled.size(); i++) {
+      assertTrue(
+          "Rows " + spilled.get(i - 1) + " and " + spilled.get(i) + " are not sorted",
+          comparator.compare(spilled.get(i - 1), spilled.get(i)) <= 0);
+    }
+  }
+
+  @Test
+  public void testSpilledPartitionAscending() throws Exception {
+    assertSortedLikeComparator(
+        Arrays.asList(0, 1, 2, 3),
+        Arrays.asList(true, true, true, true),
+        Arrays.asList(true, false, true, false));
+  }
+
+  @Test
+  public void testSpilledPartitionDescending() throws Exception {
+    assertSortedLikeComparator(
+        Arrays.asList(2, 1, 3, 0),
+        Arrays.asList(false, true, false, false),
+        Arrays.asList(false, true, true, false));
+  }
+
+  @Test
+  public void testInMemoryPartition() throws Exception {
+    List<Row> rows = rows(5);
+    List<Integer> keys = Arrays.asList(0, 2);
+    List<Boolean> orientations = Arrays.asList(false, true);
+    List<Boolean> nulls = Arrays.asList(true, true);
+    List<Row> expected = new ArrayList<>(rows);
+    expected.sort(new BeamSqlRowComparator(keys, orientations, nulls));
+    assertEquals(
+        expected,
+        Lists.newArrayList(new PartitionSorter(SCHEMA, keys, orientations, nulls, 10).sort(rows)));
+  }
+}
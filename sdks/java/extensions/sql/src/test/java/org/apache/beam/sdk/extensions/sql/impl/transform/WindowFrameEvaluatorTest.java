@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.transform;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.values.Row;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link WindowFrameEvaluator}. */
+@RunWith(JUnit4.class)
+public class WindowFrameEvaluatorTest {
+  private static final Schema SCHEMA =
+      Schema.builder().addInt64Field("order_key").addInt64Field("value").build();
+
+  /** Bounds of the evaluated frames, as {lower, upper} with null meaning unbounded. */
+  private static final BigDecimal[][] FRAMES = {
+    {null, BigDecimal.ZERO},
+    {null, null},
+    {null, BigDecimal.valueOf(-1)},
+    {BigDecimal.valueOf(2), BigDecimal.ZERO},
+    {BigDecimal.valueOf(3), BigDecimal.valueOf(2)},
+    {BigDecimal.ZERO, null},
+    {BigDecimal.valueOf(-1), BigDecimal.valueOf(3)},
+    {BigDecimal.valueOf(4), BigDecimal.valueOf(-2)},
+  };
+
+  private static List<Row> sortedPartition(int size, long seed) {
+    Random random = new Random(seed);
+    List<Row> rows = new ArrayList<>();
+    long orderKey = 0;
+    for (int i = 0; i < size; i++) {
+      orderKey += random.nextInt(3);
+      rows.add(Row.withSchema(SCHEMA).addValues(orderKey, (long) random.nextInt(100)).build());
+    }
+    return rows;
+  }
+
+  /** Sums the values of the frame of every row by scanning the partition. */
+  private static List<Long> expectedSums(
+      List<Row> rows, boolean isRows, BigDecimal lower, BigDecimal upper) {
+    List<Long> sums = new ArrayList<>();
+    for (int i = 0; i < rows.size(); i++) {
+      long sum = 0;
+      for (int j = 0; j < rows.size(); j++) {
+        long position = isRows ? j : rows.get(j).getInt64("order_key");
+        long current = isRows ? i : rows.get(i).getInt64("order_key");
+        if ((lower == null || position >= current - lower.longValue())
+            && (upper == null || position <= current + upper.longValue())) {
+          sum += rows.get(j).getInt64("value");
+        }
+      }
+      sums.add(sum);
+    }
+    return sums;
+  }
+
+  private static List<Long> evaluatedSums(
+      List<Row> rows, boolean isRows, BigDecimal lower, BigDecimal upper) {
+    List<Long> sums = new ArrayList<>();
+    new WindowFrameEvaluator(Sum.ofLongs(), 1, isRows, lower, upper, 0)
+        .evaluate(rows, (row, result) -> sums.add((Long) result));
+    return sums;
+  }
+
+  @Test
+  public void testRowsFrames() {
+    for (int size : new int[] {0, 1, 2, 7, 100}) {
+      List<Row> rows = sortedPartition(size, size);
+      for (BigDecimal[] frame : FRAMES) {
+        assertEquals(
+            expectedSums(rows, true, frame[0], frame[1]),
+            evaluatedSums(rows, true, frame[0], frame[1]));
+      }
+    }
+  }
+
+  @Test
+  public void testRangeFrames() {
+    for (int size : new int[] {0, 1, 2, 7, 100}) {
+      List<Row> rows = sortedPartition(size, size);
+      for (BigDecimal[] frame : FRAMES) {
+        assertEquals(
+            expectedSums(rows, false, frame[0], frame[1]),
+            evaluatedSums(rows, false, frame[0], frame[1]));
+      }
+    }
+  }
+}
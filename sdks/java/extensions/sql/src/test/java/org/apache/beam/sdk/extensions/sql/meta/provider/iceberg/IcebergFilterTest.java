@@ -79,6 +79,8 @@ public class IcebergFilterTest {
         ImmutableList.of(
             Pair.of("select * from TEST where unused1=100", true),
             Pair.of("select * from TEST where unused1 in (100, 200)", true),
+            Pair.of("select * from TEST where unused1 not in (100, 200, 300)", true),
+            Pair.of("select * from TEST where name in ('one', 'two', 'three', 'four')", true),
             Pair.of("select * from TEST where unused1+10=110", true),
             Pair.of("select * from TEST where b", true),
             Pair.of(
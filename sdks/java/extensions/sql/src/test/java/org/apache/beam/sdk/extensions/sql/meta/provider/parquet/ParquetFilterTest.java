@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.meta.provider.parquet;
+
+import static org.apache.beam.sdk.extensions.sql.meta.provider.test.TestTableProvider.PUSH_DOWN_OPTION;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.apache.beam.sdk.extensions.sql.TableUtils;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlEnv;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamCalcRel;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamRelNode;
+import org.apache.beam.sdk.extensions.sql.meta.Table;
+import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestTableProvider;
+import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestTableProvider.PushDownOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.vendor.calcite.v1_40_0.org.apache.commons.lang3.tuple.Pair;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Test class for {@link ParquetFilter}. */
+@RunWith(JUnit4.class)
+public class ParquetFilterTest {
+  private static final Schema BASIC_SCHEMA =
+      Schema.builder()
+          .addInt32Field("id")
+          .addInt64Field("amount")
+          .addDoubleField("price")
+          .addStringField("name")
+          .addBooleanField("b")
+          .addInt16Field("unused")
+          .build();
+
+  private BeamSqlEnv sqlEnv;
+
+  @Before
+  public void buildUp() {
+    TestTableProvider tableProvider = new TestTableProvider();
+    tableProvider.createTable(
+        Table.builder()
+            .name("TEST")
+            .schema(BASIC_SCHEMA)
+            .properties(
+                TableUtils.parseProperties(
+                    "{ " + PUSH_DOWN_OPTION + ": \"" + PushDownOptions.NONE + "\" }"))
+            .type("test")
+            .build());
+    sqlEnv =
+        BeamSqlEnv.builder(tableProvider)
+            .setPipelineOptions(PipelineOptionsFactory.create())
+            .build();
+  }
+
+  @Test
+  public void testIsSupported() {
+    ImmutableList<Pair<String, Boolean>> sqlQueries =
+        ImmutableList.of(
+            Pair.of("select * from TEST where id=1", true),
+            Pair.of("select * from TEST where 10<amount", true),
+            Pair.of("select * from TEST where price>=1.5 and price<10", true),
+            Pair.of("select * from TEST where id in (1, 2, 3, 4)", true),
+            Pair.of("select * from TEST where id not in (1, 2, 3, 4)", true),
+            Pair.of("select * from TEST where name='one' or name<>'two'", true),
+            Pair.of("select * from TEST where name in ('one', 'two', 'three', 'four')", true),
+            Pair.of("select * from TEST where b", true),
+            Pair.of("select * from TEST where b=false", true),
+            Pair.of("select * from TEST where id is null or amount is not null", true),
+            // Parquet orders strings by their bytes, unlike SQL.
+            Pair.of("select * from TEST where name>'one'", false),
+            Pair.of("select * from TEST where unused=1", false),
+            Pair.of("select * from TEST where id+1=2", false),
+            Pair.of("select * from TEST where id=amount", false),
+            Pair.of("select * from TEST where not b", false));
+
+    for (Pair<String, Boolean> query : sqlQueries) {
+      String sql = query.getLeft();
+      Boolean isSupported = query.getRight();
+      ParquetFilter filter = parseFilter(sql);
+
+      assertThat(
+          "Query: '" + sql + "' is expected to be " + (isSupported ? "supported." : "unsupported."),
+          filter.getNotSupported().isEmpty() == isSupported);
+    }
+  }
+
+  @Test
+  public void testPartiallySupported() {
+    ParquetFilter filter = parseFilter("select * from TEST where id>1 and name>'one' and b=true");
+
+    assertEquals(2, filter.getSupported().size());
+    assertEquals(1, filter.getNotSupported().size());
+    assertThat(filter.getReferencedFieldNames(), containsInAnyOrder("id", "b"));
+    assertNotNull(filter.toPredicate());
+  }
+
+  @Test
+  public void testToPredicate() {
+    assertEquals(
+        "and(gt(id, 1), eq(name, Binary{\"one\"}))",
+        String.valueOf(parseFilter("select * from TEST where id>1 and name='one'").toPredicate()));
+    assertEquals(
+        "lt(amount, 10)",
+        String.valueOf(parseFilter("select * from TEST where 10>amount").toPredicate()));
+  }
+
+  private ParquetFilter parseFilter(String sql) {
+    BeamRelNode beamRelNode = sqlEnv.parseQuery(sql);
+    assertThat(beamRelNode, instanceOf(BeamCalcRel.class));
+    return new ParquetFilter(
+        ((BeamCalcRel) beamRelNode).getProgram().split().right, BASIC_SCHEMA);
+  }
+}
@@ -95,6 +95,34 @@ public class ParquetTableProviderTest {
     readPipeline.run().waitUntilFinish();
   }
 
+  @Test
+  public void testFilterOnUnprojectedField() {
+    File destinationDir = new File(tempFolder.getRoot(), "person-info");
+    String locationPath = destinationDir.getAbsolutePath() + File.separator;
+
+    env.executeDdl(
+        String.format(
+            "CREATE EXTERNAL TABLE PersonInfo %s TYPE parquet LOCATION '%s'",
+            FIELD_NAMES, locationPath));
+
+    BeamSqlRelUtils.toPCollection(
+        writePipeline,
+        env.parseQuery(
+            "INSERT INTO PersonInfo VALUES ('Alan', 22, 'England'), ('John', 42, 'USA')"));
+    writePipeline.run().waitUntilFinish();
+
+    Schema projectedSchema = Schema.builder().addStringField("name").build();
+    PCollection<Row> filteredAndProjected =
+        BeamSqlRelUtils.toPCollection(
+            readPipeline,
+            env.parseQuery("SELECT name FROM PersonInfo WHERE country = 'USA' OR age < 20"));
+
+    PAssert.that(filteredAndProjected)
+        .containsInAnyOrder(Row.withSchema(projectedSchema).addValues("John").build());
+
+    readPipeline.run().waitUntilFinish();
+  }
+
   @Test
   public void testLocationPathConventions() {
     File destinationDir = new File(tempFolder.getRoot(), "path-test-data");
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.jmh;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.beam.fn.harness.Cache;
+import org.apache.beam.fn.harness.Cache.Decoder;
+import org.apache.beam.fn.harness.Cache.Encodable;
+import org.apache.beam.fn.harness.Caches;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
+import org.apache.beam.sdk.options.SdkHarnessOptions.CacheBackend;
+import org.apache.beam.sdk.util.Weighted;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Compares the heap and off-heap {@link Cache} backends. */
+public class CachesBenchmark {
+  private static final int KEY_SPACE = 100_000;
+
+  /** A value which can be stored by either backend. */
+  static class Value implements Weighted, Encodable {
+    private final byte[] bytes;
+
+    Value(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public long getWeight() {
+      return bytes.length;
+    }
+
+    @Override
+    public Decoder<Value> encode(OutputStream out) throws IOException {
+      out.write(bytes);
+      return encoded -> {
+        byte[] decoded = new byte[encoded.remaining()];
+        encoded.get(decoded);
+        return new Value(decoded);
+      };
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    @Param({"HEAP", "OFF_HEAP"})
+    public String cacheBackend;
+
+    @Param({"1024", "65536"})
+    public int valueBytes;
+
+    /** The fraction of lookups which are for a small set of hot keys. */
+    @Param({"0.5", "0.9"})
+    public double hotKeyFraction;
+
+    Cache<Integer, Value> cache;
+    byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      SdkHarnessOptions options = PipelineOptionsFactory.as(SdkHarnessOptions.class);
+      options.setCacheBackend(CacheBackend.valueOf(cacheBackend));
+      options.setMaxCacheMemoryUsageMb(256);
+      options.setMaxOffHeapCacheMemoryUsageMb(256);
+      cache = Caches.fromOptions(options);
+      payload = new byte[valueBytes];
+      new Random(-2134890234).nextBytes(payload);
+    }
+
+    int nextKey() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      if (random.nextDouble() < hotKeyFraction) {
+        return random.nextInt(KEY_SPACE / 100);
+      }
+      return random.nextInt(KEY_SPACE);
+    }
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void computeIfAbsent(CacheState state, Blackhole blackhole) {
+    blackhole.consume(
+        state.cache.computeIfAbsent(state.nextKey(), unused -> new Value(state.payload)));
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void put(CacheState state) {
+    state.cache.put(state.nextKey(), new Value(state.payload));
+  }
+}
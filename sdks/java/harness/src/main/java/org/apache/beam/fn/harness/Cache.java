@@ -17,6 +17,9 @@
  */
 package org.apache.beam.fn.harness;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -53,6 +56,41 @@ public interface Cache<K, V> {
     V shrink();
   }
 
+  /**
+   * An interface that marks an object that can be stored in an encoded form, for example outside of
+   * the Java heap, by cache implementations that support it.
+   *
+   * <p>Cache implementations which store values encoded return a newly decoded object on each
+   * lookup so implementers must not rely on the identity of cached objects and must not mutate
+   * objects after they have been inserted into the cache.
+   */
+  @ThreadSafe
+  interface Encodable {
+    /**
+     * Encodes this object to {@code out} returning the {@link Decoder} which is able to decode it
+     * again.
+     *
+     * <p>If {@code null} is returned then the object should be stored as is, for example because it
+     * is only partially loaded and expected to be replaced soon. Anything written to {@code out} is
+     * discarded in this case.
+     */
+    @Nullable
+    Decoder<?> encode(OutputStream out) throws IOException;
+  }
+
+  /** Decodes an object previously encoded by an {@link Encodable}. */
+  @ThreadSafe
+  @FunctionalInterface
+  interface Decoder<V> {
+    /**
+     * Decodes an object from {@code encoded}.
+     *
+     * <p>The buffer is read-only and remains valid for as long as the decoded object references it
+     * allowing for lazily decoding its contents.
+     */
+    V decode(ByteBuffer encoded) throws IOException;
+  }
+
   /** Looks up the specified key returning {@code null} if the value is not within the cache. */
   @Nullable
   V peek(K key);
@@ -36,6 +36,7 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.CacheSta
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.RemovalListener;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.RemovalNotification;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Weigher;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.github.jamm.MemoryMeter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -161,8 +162,16 @@ public final class Caches {
    * parameters within {@link SdkHarnessOptions}.
    */
   public static <K, V> Cache<K, V> fromOptions(PipelineOptions options) {
-    return forMaximumBytes(
-        ((long) options.as(SdkHarnessOptions.class).getMaxCacheMemoryUsageMb()) << 20);
+    SdkHarnessOptions sdkHarnessOptions = options.as(SdkHarnessOptions.class);
+    long maximumBytes = ((long) sdkHarnessOptions.getMaxCacheMemoryUsageMb()) << 20;
+    switch (sdkHarnessOptions.getCacheBackend()) {
+      case OFF_HEAP:
+        return forMaximumBytesWithOffHeap(
+            maximumBytes, ((long) sdkHarnessOptions.getMaxOffHeapCacheMemoryUsageMb()) << 20);
+      case HEAP:
+      default:
+        return forMaximumBytes(maximumBytes);
+    }
   }
 
   /**
@@ -175,10 +184,8 @@ public final class Caches {
       Cache<?, ?> cache, Object keyPrefix, Object... additionalKeyPrefix) {
     if (cache instanceof SubCache) {
       return new SubCache<>(
-          ((SubCache<?, ?>) cache).cache,
-          ((SubCache<?, ?>) cache).keyPrefix.subKey(keyPrefix, additionalKeyPrefix),
-          ((SubCache<?, ?>) cache).maxWeightInBytes,
-          ((SubCache<?, ?>) cache).weightInBytes);
+          ((SubCache<?, ?>) cache).backend,
+          ((SubCache<?, ?>) cache).keyPrefix.subKey(keyPrefix, additionalKeyPrefix));
     }
     throw new IllegalArgumentException(
         String.format(
@@ -188,10 +195,27 @@ public final class Caches {
 
   @VisibleForTesting
   static <K, V> Cache<K, V> forMaximumBytes(long maximumBytes) {
+    return new SubCache<>(heapBackend(maximumBytes), CompositeKeyPrefix.ROOT);
+  }
+
+  /**
+   * Returns a cache which stores {@link Cache.Encodable} values encoded in up to {@code
+   * maximumOffHeapBytes} of off-heap memory and all other values on the Java heap within {@code
+   * maximumBytes}.
+   */
+  @VisibleForTesting
+  static <K, V> Cache<K, V> forMaximumBytesWithOffHeap(
+      long maximumBytes, long maximumOffHeapBytes) {
+    return new SubCache<>(
+        new OffHeapCacheBackend(heapBackend(maximumBytes), maximumOffHeapBytes),
+        CompositeKeyPrefix.ROOT);
+  }
+
+  private static HeapBackend heapBackend(long maximumBytes) {
     // We specifically use Guava cache since it allows for recursive computeIfAbsent calls
     // preventing deadlock from occurring when a loading function mutates the underlying cache
     LongAdder weightInBytes = new LongAdder();
-    return new SubCache<>(
+    return new HeapBackend(
         new ShrinkOnEviction(
                 CacheBuilder.newBuilder()
                     .maximumWeight(maximumBytes >> WEIGHT_RATIO)
@@ -232,7 +256,6 @@ public final class Caches {
                     .recordStats(),
                 weightInBytes)
             .getCache(),
-        CompositeKeyPrefix.ROOT,
         maximumBytes,
         weightInBytes);
   }
@@ -254,66 +277,75 @@ public final class Caches {
     return rval;
   }
 
-  /**
-   * A view of a cache that operates on keys with a specified key prefix.
-   *
-   * <p>All lookups, insertions, and removals into the parent {@link Cache} will be prefixed by the
-   * specified prefixes.
-   */
-  private static class SubCache<K, V> implements Cache<K, V> {
+  /** The storage which is shared by all the {@link SubCache sub-caches} of a cache. */
+  interface Backend {
+    /** Returns the value associated with {@code key} or {@code null} if there is none. */
+    @Nullable
+    Object getIfPresent(CompositeKey key);
+
+    /**
+     * Returns the value associated with {@code key}, loading and storing it using the {@code
+     * loadingFunction} if absent.
+     */
+    Object get(CompositeKey key, Function<CompositeKey, Object> loadingFunction);
+
+    /** Associates {@code value} with {@code key} replacing any existing value. */
+    void put(CompositeKey key, Object value);
+
+    /** Removes any value associated with {@code key}. */
+    void invalidate(CompositeKey key);
+
+    /** Returns a string containing caching statistics. */
+    String describeStats();
+  }
+
+  /** A {@link Backend} which stores values on the Java heap in a weight bounded Guava cache. */
+  static class HeapBackend implements Backend {
     private final org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache<
             CompositeKey, WeightedValue<Object>>
         cache;
-    private final CompositeKeyPrefix keyPrefix;
     private final long maxWeightInBytes;
     private final LongAdder weightInBytes;
 
-    SubCache(
+    HeapBackend(
         org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache<
                 CompositeKey, WeightedValue<Object>>
             cache,
-        CompositeKeyPrefix keyPrefix,
         long maxWeightInBytes,
         LongAdder weightInBytes) {
       this.cache = cache;
-      this.keyPrefix = keyPrefix;
       this.maxWeightInBytes = maxWeightInBytes;
       this.weightInBytes = weightInBytes;
     }
 
     @Override
-    public V peek(K key) {
-      WeightedValue<Object> value = cache.getIfPresent(keyPrefix.valueKey(key));
+    public @Nullable Object getIfPresent(CompositeKey key) {
+      WeightedValue<Object> value = cache.getIfPresent(key);
       if (value == null) {
         return null;
       }
-      return (V) value.getValue();
+      return value.getValue();
     }
 
     @Override
-    public V computeIfAbsent(K key, Function<K, V> loadingFunction) {
+    public Object get(CompositeKey key, Function<CompositeKey, Object> loadingFunction) {
       try {
-        CompositeKey compositeKey = keyPrefix.valueKey(key);
-        return (V)
-            cache
-                .get(
-                    compositeKey,
-                    () -> addWeightedValue(compositeKey, loadingFunction.apply(key), weightInBytes))
-                .getValue();
+        return cache
+            .get(key, () -> addWeightedValue(key, loadingFunction.apply(key), weightInBytes))
+            .getValue();
       } catch (ExecutionException e) {
         throw new RuntimeException(e);
       }
     }
 
     @Override
-    public void put(K key, V value) {
-      CompositeKey compositeKey = keyPrefix.valueKey(key);
-      cache.put(compositeKey, addWeightedValue(compositeKey, value, weightInBytes));
+    public void put(CompositeKey key, Object value) {
+      cache.put(key, addWeightedValue(key, value, weightInBytes));
     }
 
     @Override
-    public void remove(K key) {
-      cache.invalidate(keyPrefix.valueKey(key));
+    public void invalidate(CompositeKey key) {
+      cache.invalidate(key);
     }
 
     @Override
@@ -331,6 +363,47 @@ public final class Caches {
     }
   }
 
+  /**
+   * A view of a cache that operates on keys with a specified key prefix.
+   *
+   * <p>All lookups, insertions, and removals into the parent {@link Cache} will be prefixed by the
+   * specified prefixes.
+   */
+  private static class SubCache<K, V> implements Cache<K, V> {
+    private final Backend backend;
+    private final CompositeKeyPrefix keyPrefix;
+
+    SubCache(Backend backend, CompositeKeyPrefix keyPrefix) {
+      this.backend = backend;
+      this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public V peek(K key) {
+      return (V) backend.getIfPresent(keyPrefix.valueKey(key));
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<K, V> loadingFunction) {
+      return (V) backend.get(keyPrefix.valueKey(key), unused -> loadingFunction.apply(key));
+    }
+
+    @Override
+    public void put(K key, V value) {
+      backend.put(keyPrefix.valueKey(key), value);
+    }
+
+    @Override
+    public void remove(K key) {
+      backend.invalidate(keyPrefix.valueKey(key));
+    }
+
+    @Override
+    public String describeStats() {
+      return backend.describeStats();
+    }
+  }
+
   /** A key prefix used to generate keys that are stored within a sub-cache. */
   static class CompositeKeyPrefix {
     public static final CompositeKeyPrefix ROOT = new CompositeKeyPrefix(new Object[0], 0);
@@ -422,6 +495,11 @@ public final class Caches {
       return Arrays.hashCode(namespace);
     }
 
+    /** Returns a hash code which unlike {@link #hashCode} also accounts for the key. */
+    int fullHashCode() {
+      return 31 * Arrays.hashCode(namespace) + Objects.hashCode(key);
+    }
+
     @Override
     public long getWeight() {
       return weight + 24 + REFERENCE_SIZE * namespace.length;
@@ -438,11 +516,7 @@ public final class Caches {
     private final Set<K> weakHashSet;
 
     public ClearableCache(Cache<K, V> cache) {
-      super(
-          ((SubCache<K, V>) cache).cache,
-          ((SubCache<CompositeKey, V>) cache).keyPrefix,
-          ((SubCache<CompositeKey, V>) cache).maxWeightInBytes,
-          ((SubCache<CompositeKey, V>) cache).weightInBytes);
+      super(((SubCache<K, V>) cache).backend, ((SubCache<K, V>) cache).keyPrefix);
       // We specifically use a weak hash map so that once the key is no longer referenced we don't
       // have to keep track of it anymore and the weak hash map will garbage collect it for us.
       this.weakHashSet = Collections.newSetFromMap(new WeakHashMap<>());
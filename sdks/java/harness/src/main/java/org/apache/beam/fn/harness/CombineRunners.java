@@ -22,24 +22,39 @@ import static org.apache.beam.sdk.util.Preconditions.checkStateNotNull;
 
 import com.google.auto.service.AutoService;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Supplier;
+import org.apache.beam.fn.harness.control.BundleProgressReporter;
 import org.apache.beam.model.pipeline.v1.RunnerApi;
 import org.apache.beam.model.pipeline.v1.RunnerApi.CombinePayload;
 import org.apache.beam.model.pipeline.v1.RunnerApi.PTransform;
+import org.apache.beam.runners.core.metrics.DistributionData;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Labels;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.TypeUrns;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Urns;
+import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
+import org.apache.beam.runners.core.metrics.ShortIdMap;
+import org.apache.beam.runners.core.metrics.SimpleMonitoringInfoBuilder;
+import org.apache.beam.runners.core.metrics.StringSetData;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
 import org.apache.beam.sdk.function.ThrowingFunction;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.transforms.Combine.CombineFn;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.util.HotKeySketch;
 import org.apache.beam.sdk.util.SerializableUtils;
 import org.apache.beam.sdk.util.construction.PTransformTranslation;
 import org.apache.beam.sdk.util.construction.RehydratedComponents;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.sdk.values.WindowedValues.WindowedValueCoder;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
@@ -69,6 +84,21 @@ public class CombineRunners {
   }
 
   private static class PrecombineRunner<KeyT, InputT, AccumT> {
+    /**
+     * Experiment that enables tracking the frequency of the keys of each bundle, which costs a
+     * count-min sketch update per element.
+     */
+    private static final String HOT_KEY_DETECTION_EXPERIMENT = "enable_hot_key_detection";
+    /**
+     * Experiment that enables reporting the hot keys themselves, which may be sensitive. Implies
+     * hot key detection.
+     */
+    private static final String HOT_KEY_LOGGING_EXPERIMENT = "enable_hot_key_logging";
+    /** The share of a bundle's elements above which a key is reported as hot. */
+    private static final double HOT_KEY_MIN_FRACTION = 0.1;
+
+    private static final int MAX_REPORTED_KEY_LENGTH = 100;
+
     private final PipelineOptions options;
     private final String ptransformId;
     private final Supplier<Cache<?, ?>> bundleCache;
@@ -77,6 +107,7 @@ public class CombineRunners {
     private final Coder<KeyT> keyCoder;
     private @Nullable PrecombineGroupingTable<KeyT, InputT, AccumT> groupingTable;
     private boolean isGloballyWindowed;
+    private final @Nullable HotKeySketch hotKeySketch;
 
     PrecombineRunner(
         PipelineOptions options,
@@ -103,6 +134,11 @@ public class CombineRunners {
       this.output = output;
       this.keyCoder = keyCoder;
       this.isGloballyWindowed = isGloballyWindowed;
+      this.hotKeySketch =
+          ExperimentalOptions.hasExperiment(options, HOT_KEY_DETECTION_EXPERIMENT)
+                  || ExperimentalOptions.hasExperiment(options, HOT_KEY_LOGGING_EXPERIMENT)
+              ? HotKeySketch.create()
+              : null;
     }
 
     private PrecombineGroupingTable<KeyT, InputT, AccumT> getGroupingTable() {
@@ -112,6 +148,9 @@ public class CombineRunners {
     }
 
     void startBundle() {
+      if (hotKeySketch != null) {
+        hotKeySketch.reset();
+      }
       groupingTable =
           PrecombineGroupingTable.combiningAndSampling(
               options,
@@ -120,6 +159,7 @@ public class CombineRunners {
               keyCoder,
               0.001 /*sizeEstimatorSampleRate*/,
               isGloballyWindowed);
+      groupingTable.setHotKeySketch(hotKeySketch);
     }
 
     void processElement(WindowedValue<KV<KeyT, InputT>> elem) throws Exception {
@@ -130,6 +170,78 @@ public class CombineRunners {
       getGroupingTable().flush(output::accept);
       groupingTable = null;
     }
+
+    /**
+     * Returns a reporter of the frequency of the most frequent key of each bundle and, if hot key
+     * logging is enabled, of the hot keys themselves, or null if hot key detection is disabled.
+     */
+    @Nullable
+    BundleProgressReporter createHotKeyReporter(ShortIdMap shortIds) {
+      HotKeySketch hotKeySketch = this.hotKeySketch;
+      if (hotKeySketch == null) {
+        return null;
+      }
+      String frequencyShortId =
+          shortIds.getOrCreateShortId(
+              checkStateNotNull(
+                  new SimpleMonitoringInfoBuilder()
+                      .setUrn(Urns.HOT_KEY_FREQUENCY)
+                      .setType(TypeUrns.DISTRIBUTION_INT64_TYPE)
+                      .setLabel(Labels.PTRANSFORM, ptransformId)
+                      .build()));
+      @Nullable String keysShortId =
+          ExperimentalOptions.hasExperiment(options, HOT_KEY_LOGGING_EXPERIMENT)
+              ? shortIds.getOrCreateShortId(
+                  checkStateNotNull(
+                      new SimpleMonitoringInfoBuilder()
+                          .setUrn(Urns.HOT_KEYS)
+                          .setType(TypeUrns.SET_STRING_TYPE)
+                          .setLabel(Labels.PTRANSFORM, ptransformId)
+                          .build()))
+              : null;
+      return new BundleProgressReporter() {
+        @Override
+        public void updateIntermediateMonitoringData(Map<String, ByteString> monitoringData) {
+          // The sketch may only be read by the bundle processing thread.
+        }
+
+        @Override
+        public void updateFinalMonitoringData(Map<String, ByteString> monitoringData) {
+          long total = hotKeySketch.getTotalCount();
+          List<HotKeySketch.HotKey> hotKeys = hotKeySketch.getHotKeys(0);
+          if (total == 0 || hotKeys.isEmpty()) {
+            return;
+          }
+          long basisPoints = Math.min(10_000L, hotKeys.get(0).getCount() * 10_000L / total);
+          monitoringData.put(
+              frequencyShortId,
+              MonitoringInfoEncodings.encodeInt64Distribution(
+                  DistributionData.singleton(basisPoints)));
+          if (keysShortId == null) {
+            return;
+          }
+          Set<String> keys = new HashSet<>();
+          for (HotKeySketch.HotKey hotKey : hotKeys) {
+            if (hotKey.getCount() >= HOT_KEY_MIN_FRACTION * total) {
+              String key = hotKey.getKey().toString();
+              keys.add(
+                  key.length() <= MAX_REPORTED_KEY_LENGTH
+                      ? key
+                      : key.substring(0, MAX_REPORTED_KEY_LENGTH) + "...");
+            }
+          }
+          if (!keys.isEmpty()) {
+            monitoringData.put(
+                keysShortId, MonitoringInfoEncodings.encodeStringSet(StringSetData.create(keys)));
+          }
+        }
+
+        @Override
+        public void reset() {
+          // The sketch is reset when the next bundle starts.
+        }
+      };
+    }
   }
 
   /** A factory for {@link PrecombineRunner}s. */
@@ -204,6 +316,10 @@ public class CombineRunners {
           (FnDataReceiver)
               (FnDataReceiver<WindowedValue<KV<KeyT, InputT>>>) runner::processElement);
       context.addFinishBundleFunction(runner::finishBundle);
+      BundleProgressReporter hotKeyReporter = runner.createHotKeyReporter(context.getShortIdMap());
+      if (hotKeyReporter != null) {
+        context.addBundleProgressReporter(hotKeyReporter);
+      }
     }
   }
 
@@ -52,6 +52,7 @@ import org.apache.beam.model.pipeline.v1.RunnerApi.ParDoPayload;
 import org.apache.beam.model.pipeline.v1.RunnerApi.TimerFamilySpec;
 import org.apache.beam.runners.core.DoFnRunner;
 import org.apache.beam.runners.core.LateDataUtils;
+import org.apache.beam.runners.core.ProcessBatchBuffer;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
 import org.apache.beam.runners.core.metrics.ShortIdMap;
 import org.apache.beam.runners.core.metrics.SimpleMonitoringInfoBuilder;
@@ -224,6 +225,7 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
   private final DoFnInvoker<InputT, OutputT> doFnInvoker;
   private final StartBundleArgumentProvider startBundleArgumentProvider;
   private final ProcessBundleContextBase processContext;
+  private final @Nullable ProcessBatchBuffer<InputT> batchBuffer;
   private final OnTimerContext<?> onTimerContext;
   private final OnWindowExpirationContext<?> onWindowExpirationContext;
   private final FinishBundleArgumentProvider finishBundleArgumentProvider;
@@ -458,9 +460,19 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
       throw new RuntimeException(e);
     }
     final FnDataReceiver<WindowedValue> mainInputConsumer;
+    this.batchBuffer =
+        PTransformTranslation.PAR_DO_TRANSFORM_URN.equals(pTransform.getSpec().getUrn())
+            ? ProcessBatchBuffer.forSignature(doFnSignature, pipelineOptions)
+            : null;
     switch (pTransform.getSpec().getUrn()) {
       case PTransformTranslation.PAR_DO_TRANSFORM_URN:
-        if (doFnSignature.processElement().observesWindow() || !sideInputMapping.isEmpty()) {
+        if (batchBuffer != null) {
+          // The batch method cannot observe windows, so elements are batched without exploding
+          // them and outputs use the windows, timestamp and pane shared by the batch.
+          mainInputConsumer = this::processElementForBatchingParDo;
+          this.processContext = new NonWindowObservingProcessBundleContext();
+        } else if (doFnSignature.processElement().observesWindow()
+            || !sideInputMapping.isEmpty()) {
           mainInputConsumer = this::processElementForWindowObservingParDo;
           this.processContext = new WindowObservingProcessBundleContext();
         } else {
@@ -628,6 +640,25 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
     }
   }
 
+  private void processElementForBatchingParDo(WindowedValue<InputT> elem) {
+    if (!batchBuffer.accepts(elem)) {
+      processBatch();
+    }
+    batchBuffer.add(elem);
+    if (batchBuffer.isFull()) {
+      processBatch();
+    }
+  }
+
+  private void processBatch() {
+    currentElement = (WindowedValue<InputT>) (WindowedValue<?>) batchBuffer.takeBatch();
+    try {
+      doFnInvoker.invokeProcessBatch(processContext);
+    } finally {
+      currentElement = null;
+    }
+  }
+
   private void processElementForWindowObservingParDo(WindowedValue<InputT> elem) {
     currentElement = elem;
     try {
@@ -635,6 +666,9 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
           (Iterator<BoundedWindow>) elem.getWindows().iterator();
       while (windowIterator.hasNext()) {
         currentWindow = windowIterator.next();
+        if (doFnSignature.usesState()) {
+          stateAccessor.startKeyAndWindow();
+        }
         doFnInvoker.invokeProcessElement(processContext);
       }
     } finally {
@@ -1203,6 +1237,9 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
           (Iterator<BoundedWindow>) timer.getWindows().iterator();
       while (windowIterator.hasNext()) {
         currentWindow = windowIterator.next();
+        if (doFnSignature.usesState()) {
+          stateAccessor.startKeyAndWindow();
+        }
         Modifications bundleModifications = timerBundleTracker.getBundleModifications();
         Table<String, String, Timer<K>> modifiedTimerIds =
             bundleModifications.getModifiedTimerIds();
@@ -1299,6 +1336,10 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
       timerBundleTracker.outputTimers(outboundTimerReceivers::get);
     }
 
+    if (batchBuffer != null && !batchBuffer.isEmpty()) {
+      processBatch();
+    }
+
     doFnInvoker.invokeFinishBundle(finishBundleArgumentProvider);
 
     this.stateAccessor.finalizeState();
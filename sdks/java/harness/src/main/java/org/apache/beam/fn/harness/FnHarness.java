@@ -278,6 +278,21 @@ public class FnHarness {
     ShortIdMap metricsShortIds = new ShortIdMap();
     ExecutorService executorService =
         options.as(ExecutorOptions.class).getScheduledExecutorService();
+    // When enabled, instructions and the state and data callbacks that bundles block on run on
+    // virtual threads so that blocked bundles do not each hold onto a platform thread.
+    @Nullable ExecutorService virtualThreadExecutorService = null;
+    if (options.as(SdkHarnessOptions.class).getEnableVirtualThreadBundleProcessing()) {
+      virtualThreadExecutorService =
+          VirtualThreads.newVirtualThreadPerTaskExecutor("beam-fn-virtual-");
+      if (virtualThreadExecutorService == null) {
+        LOG.warn(
+            "Virtual thread bundle processing was requested but virtual threads are not supported "
+                + "by this JVM ({}), falling back to platform threads.",
+            System.getProperty("java.version"));
+      } else {
+        LOG.info("Processing bundles on virtual threads.");
+      }
+    }
     CompletableFuture<Void> samplerTerminationFuture = new CompletableFuture<>();
     ExecutionStateSampler executionStateSampler =
         new ExecutionStateSampler(
@@ -286,7 +301,8 @@ public class FnHarness {
             message -> {
               String errMsg = "FATAL ERROR: Timeout occurred! Exiting JVM. Details:" + message;
               samplerTerminationFuture.completeExceptionally(new RuntimeException(errMsg));
-            });
+            },
+            metricsShortIds);
 
     final @Nullable DataSampler dataSampler = DataSampler.create(options);
 
@@ -309,11 +325,17 @@ public class FnHarness {
       BeamFnControlGrpc.BeamFnControlBlockingStub blockingControlStub =
           BeamFnControlGrpc.newBlockingStub(channel);
 
+      ManagedChannelFactory dataAndStateChannelFactory =
+          virtualThreadExecutorService == null
+              ? channelFactory
+              : channelFactory.withExecutor(virtualThreadExecutorService);
       BeamFnDataGrpcClient beamFnDataMultiplexer =
-          new BeamFnDataGrpcClient(options, channelFactory::forDescriptor, outboundObserverFactory);
+          new BeamFnDataGrpcClient(
+              options, dataAndStateChannelFactory::forDescriptor, outboundObserverFactory);
 
       BeamFnStateGrpcClientCache beamFnStateGrpcClientCache =
-          new BeamFnStateGrpcClientCache(idGenerator, channelFactory, outboundObserverFactory);
+          new BeamFnStateGrpcClientCache(
+              idGenerator, dataAndStateChannelFactory, outboundObserverFactory);
 
       FinalizeBundleHandler finalizeBundleHandler = new FinalizeBundleHandler(executorService);
 
@@ -361,7 +383,8 @@ public class FnHarness {
                 channelFactory::forDescriptor,
                 processBundleHandler.getBundleProcessorCache(),
                 options,
-                processWideCache);
+                processWideCache,
+                executionStateSampler.getProfiler());
       }
 
       // TODO(https://github.com/apache/beam/issues/20270): Remove once runners no longer send this
@@ -417,7 +440,7 @@ public class FnHarness {
           new BeamFnControlClient(
               controlStub.withExecutor(MoreExecutors.directExecutor()),
               outboundObserverFactory,
-              executorService,
+              virtualThreadExecutorService == null ? executorService : virtualThreadExecutorService,
               handlers);
       if (options.as(SdkHarnessOptions.class).getEnableLogViaFnApi()) {
         CompletableFuture.anyOf(
@@ -437,6 +460,9 @@ public class FnHarness {
       LOG.info("Shutting SDK harness down.");
       executionStateSampler.stop();
       executorService.shutdown();
+      if (virtualThreadExecutorService != null) {
+        virtualThreadExecutorService.shutdown();
+      }
     }
   }
 }
@@ -20,6 +20,7 @@ package org.apache.beam.fn.harness;
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables.getOnlyElement;
 
 import java.io.IOException;
+import org.apache.beam.fn.harness.data.FusibleMapFnDataReceiver;
 import org.apache.beam.model.pipeline.v1.RunnerApi.PTransform;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
 import org.apache.beam.sdk.function.ThrowingFunction;
@@ -88,26 +89,22 @@ public abstract class MapFnRunners {
           context.getPCollectionConsumer(
               getOnlyElement(context.getPTransform().getOutputsMap().values()));
 
-      Mapper<InputT, OutputT> mapper =
+      FnDataReceiver<WindowedValue<InputT>> mapper =
           mapperFactory.create(context.getPTransformId(), context.getPTransform(), consumer);
 
       String pCollectionId =
           Iterables.getOnlyElement(context.getPTransform().getInputsMap().values());
-      context.addPCollectionConsumer(pCollectionId, mapper::map);
+      context.addPCollectionConsumer(pCollectionId, mapper);
     }
   }
 
   @FunctionalInterface
   private interface MapperFactory<InputT, OutputT> {
-    Mapper<InputT, OutputT> create(
+    FnDataReceiver<WindowedValue<InputT>> create(
         String ptransformId, PTransform ptransform, FnDataReceiver<WindowedValue<OutputT>> outputs)
         throws IOException;
   }
 
-  private interface Mapper<InputT, OutputT> {
-    void map(WindowedValue<InputT> input) throws Exception;
-  }
-
   private static class ExplodedWindowedValueMapperFactory<InputT, OutputT>
       implements MapperFactory<InputT, OutputT> {
     private final WindowedValueMapFnFactory<InputT, OutputT> fnFactory;
@@ -118,7 +115,7 @@ public abstract class MapFnRunners {
     }
 
     @Override
-    public Mapper<InputT, OutputT> create(
+    public FnDataReceiver<WindowedValue<InputT>> create(
         String ptransformId, PTransform ptransform, FnDataReceiver<WindowedValue<OutputT>> outputs)
         throws IOException {
       ThrowingFunction<WindowedValue<InputT>, WindowedValue<OutputT>> fn =
@@ -140,11 +137,42 @@ public abstract class MapFnRunners {
     }
 
     @Override
-    public Mapper<InputT, OutputT> create(
+    public FnDataReceiver<WindowedValue<InputT>> create(
         String ptransformId, PTransform ptransform, FnDataReceiver<WindowedValue<OutputT>> outputs)
         throws IOException {
-      ThrowingFunction<InputT, OutputT> fn = fnFactory.forPTransform(ptransformId, ptransform);
-      return input -> outputs.accept(input.withValue(fn.apply(input.getValue())));
+      return new ValueMapper<>(fnFactory.forPTransform(ptransformId, ptransform), outputs);
+    }
+  }
+
+  /**
+   * Maps the value of each element, which allows the {@link
+   * org.apache.beam.fn.harness.data.PCollectionConsumerRegistry} to fuse it with the consumers of
+   * its output.
+   */
+  private static class ValueMapper<InputT, OutputT>
+      implements FusibleMapFnDataReceiver<InputT, OutputT> {
+    private final ThrowingFunction<InputT, OutputT> fn;
+    private final FnDataReceiver<WindowedValue<OutputT>> outputs;
+
+    private ValueMapper(
+        ThrowingFunction<InputT, OutputT> fn, FnDataReceiver<WindowedValue<OutputT>> outputs) {
+      this.fn = fn;
+      this.outputs = outputs;
+    }
+
+    @Override
+    public void accept(WindowedValue<InputT> input) throws Exception {
+      outputs.accept(input.withValue(fn.apply(input.getValue())));
+    }
+
+    @Override
+    public ThrowingFunction<InputT, OutputT> getMapFn() {
+      return fn;
+    }
+
+    @Override
+    public FnDataReceiver<WindowedValue<OutputT>> getOutputConsumer() {
+      return outputs;
     }
   }
 }
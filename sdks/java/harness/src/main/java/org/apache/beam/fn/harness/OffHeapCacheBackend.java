@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import javax.annotation.concurrent.GuardedBy;
+import org.apache.beam.fn.harness.Cache.Decoder;
+import org.apache.beam.fn.harness.Cache.Encodable;
+import org.apache.beam.fn.harness.Caches.Backend;
+import org.apache.beam.fn.harness.Caches.CompositeKey;
+import org.apache.beam.sdk.util.ByteStringOutputStream;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link Backend} which stores {@link Encodable} values encoded in off-heap memory and delegates
+ * all other values to an on-heap {@link Backend}.
+ *
+ * <p>Encoded values are accounted for by their encoded size in bytes and are decoded on each read.
+ * The memory of evicted values is only released once their buffers are garbage collected, and
+ * decoded values may keep slices of a buffer alive, so the off-heap memory in use can temporarily
+ * exceed the configured maximum.
+ *
+ * <p>Eviction follows the TinyLFU policy: entries are kept in least recently used order and a new
+ * entry is only admitted if it is estimated to be accessed more frequently than the entries it
+ * would evict. Access frequencies are tracked by a {@link FrequencySketch} that periodically ages
+ * its counts so that the cache adapts to changes in the access pattern.
+ */
+class OffHeapCacheBackend implements Backend {
+  private final Backend heapBackend;
+  private final long maximumBytes;
+
+  @GuardedBy("this")
+  private final LinkedHashMap<CompositeKey, Entry> entries;
+
+  @GuardedBy("this")
+  private final FrequencySketch sketch;
+
+  @GuardedBy("this")
+  private long usedBytes;
+
+  @GuardedBy("this")
+  private long hitCount;
+
+  @GuardedBy("this")
+  private long missCount;
+
+  @GuardedBy("this")
+  private long evictionCount;
+
+  @GuardedBy("this")
+  private long rejectionCount;
+
+  /** An encoded value stored in off-heap memory. */
+  private static class Entry {
+    private final ByteBuffer encoded;
+    private final Decoder<?> decoder;
+
+    private Entry(ByteBuffer encoded, Decoder<?> decoder) {
+      this.encoded = encoded;
+      this.decoder = decoder;
+    }
+
+    private Object decode() {
+      try {
+        return decoder.decode(encoded.asReadOnlyBuffer());
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to decode cached value.", e);
+      }
+    }
+  }
+
+  OffHeapCacheBackend(Backend heapBackend, long maximumBytes) {
+    this.heapBackend = heapBackend;
+    this.maximumBytes = maximumBytes;
+    // Access order makes the first entry the least recently used one.
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Size the sketch assuming entries of 16 KiB on average.
+    this.sketch = new FrequencySketch(maximumBytes >> 14);
+  }
+
+  @Override
+  public @Nullable Object getIfPresent(CompositeKey key) {
+    Entry entry;
+    synchronized (this) {
+      sketch.increment(key.fullHashCode());
+      entry = entries.get(key);
+      if (entry != null) {
+        hitCount += 1;
+      }
+    }
+    if (entry != null) {
+      return entry.decode();
+    }
+    Object value = heapBackend.getIfPresent(key);
+    synchronized (this) {
+      if (value != null) {
+        hitCount += 1;
+      } else {
+        missCount += 1;
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object get(CompositeKey key, Function<CompositeKey, Object> loadingFunction) {
+    Object value = getIfPresent(key);
+    if (value != null) {
+      return value;
+    }
+    // Loading through the heap backend ensures that concurrent lookups of the same key share a
+    // single load. Values that can be encoded are moved off-heap afterwards.
+    value = heapBackend.get(key, loadingFunction);
+    if (value instanceof Encodable && store(key, (Encodable) value)) {
+      heapBackend.invalidate(key);
+    }
+    return value;
+  }
+
+  @Override
+  public void put(CompositeKey key, Object value) {
+    if (value instanceof Encodable) {
+      synchronized (this) {
+        sketch.increment(key.fullHashCode());
+      }
+      if (store(key, (Encodable) value)) {
+        heapBackend.invalidate(key);
+        return;
+      }
+    }
+    synchronized (this) {
+      removeEntry(key);
+    }
+    heapBackend.put(key, value);
+  }
+
+  @Override
+  public void invalidate(CompositeKey key) {
+    synchronized (this) {
+      removeEntry(key);
+    }
+    heapBackend.invalidate(key);
+  }
+
+  @Override
+  public String describeStats() {
+    synchronized (this) {
+      long requestCount = hitCount + missCount;
+      return String.format(
+          "off-heap: used/max %d/%d MB, entries %d, hit %.2f%%, lookups %d, evictions %d, "
+              + "rejections %d; heap: %s",
+          usedBytes >> 20,
+          maximumBytes >> 20,
+          entries.size(),
+          requestCount == 0 ? 100. : hitCount * 100. / requestCount,
+          requestCount,
+          evictionCount,
+          rejectionCount,
+          heapBackend.describeStats());
+    }
+  }
+
+  /**
+   * Stores the encoded form of {@code value} off-heap returning whether it was stored. Any
+   * previously stored value for {@code key} is removed either way.
+   */
+  private boolean store(CompositeKey key, Encodable value) {
+    // Encode outside of the lock since encoding large values is expensive.
+    ByteStringOutputStream out = new ByteStringOutputStream();
+    Decoder<?> decoder;
+    try {
+      decoder = value.encode(out);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to encode value to cache.", e);
+    }
+    ByteString encoded = out.toByteString();
+    synchronized (this) {
+      removeEntry(key);
+      if (decoder == null) {
+        return false;
+      }
+      if (!admit(key, encoded.size())) {
+        rejectionCount += 1;
+        // The value is not worth caching but it must not be stored on-heap either.
+        return true;
+      }
+      ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.size());
+      encoded.copyTo(buffer);
+      buffer.flip();
+      entries.put(key, new Entry(buffer, decoder));
+      usedBytes += encoded.size();
+      return true;
+    }
+  }
+
+  /**
+   * Evicts entries to make room for a new entry of {@code size} bytes returning false if the new
+   * entry is estimated to be accessed less frequently than the entries it would evict. Nothing is
+   * evicted if the new entry is not admitted.
+   */
+  @GuardedBy("this")
+  private boolean admit(CompositeKey key, long size) {
+    if (size > maximumBytes) {
+      return false;
+    }
+    int candidateFrequency = sketch.frequency(key.fullHashCode());
+    // Select the least recently used entries which free enough space before evicting any of them.
+    int numVictims = 0;
+    long freedBytes = 0;
+    for (Map.Entry<CompositeKey, Entry> victim : entries.entrySet()) {
+      if (usedBytes - freedBytes + size <= maximumBytes) {
+        break;
+      }
+      if (candidateFrequency <= sketch.frequency(victim.getKey().fullHashCode())) {
+        return false;
+      }
+      freedBytes += victim.getValue().encoded.capacity();
+      numVictims += 1;
+    }
+    Iterator<Entry> victims = entries.values().iterator();
+    for (int i = 0; i < numVictims; ++i) {
+      victims.next();
+      victims.remove();
+    }
+    usedBytes -= freedBytes;
+    evictionCount += numVictims;
+    return true;
+  }
+
+  @GuardedBy("this")
+  private void removeEntry(CompositeKey key) {
+    Entry entry = entries.remove(key);
+    if (entry != null) {
+      usedBytes -= entry.encoded.capacity();
+    }
+  }
+
+  /**
+   * A count-min sketch estimating how often keys were accessed using 4 rows of counters that are
+   * saturated at 15.
+   *
+   * <p>All counters are halved once the number of increments reaches 10 times the width of the
+   * sketch so that the frequencies of keys that are no longer accessed decay over time.
+   */
+  @VisibleForTesting
+  static class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xb3a5fa35, 0x61c88647, 0x2545f491};
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(long expectedEntries) {
+      int width =
+          Integer.highestOneBit((int) Math.max(1 << 10, Math.min(1 << 24, expectedEntries)) - 1)
+              << 1;
+      this.counters = new byte[DEPTH][width];
+      this.mask = width - 1;
+      this.sampleSize = 10 * width;
+    }
+
+    void increment(int hash) {
+      boolean added = false;
+      for (int i = 0; i < DEPTH; ++i) {
+        int index = indexOf(hash, i);
+        if (counters[i][index] < MAX_COUNT) {
+          counters[i][index] += 1;
+          added = true;
+        }
+      }
+      if (added && ++size >= sampleSize) {
+        reset();
+      }
+    }
+
+    int frequency(int hash) {
+      int frequency = MAX_COUNT;
+      for (int i = 0; i < DEPTH; ++i) {
+        frequency = Math.min(frequency, counters[i][indexOf(hash, i)]);
+      }
+      return frequency;
+    }
+
+    private int indexOf(int hash, int row) {
+      int h = (hash ^ (hash >>> 16)) * SEEDS[row];
+      return (h ^ (h >>> 15)) & mask;
+    }
+
+    private void reset() {
+      for (byte[] row : counters) {
+        for (int i = 0; i < row.length; ++i) {
+          row[i] = (byte) (row[i] >>> 1);
+        }
+      }
+      size /= 2;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import org.apache.beam.fn.harness.Cache.Shrinkable;
+import org.apache.beam.fn.harness.PrimitiveCombiningTable.PrimitiveCombineFn;
 import org.apache.beam.runners.core.GlobalCombineFnRunner;
 import org.apache.beam.runners.core.GlobalCombineFnRunners;
 import org.apache.beam.runners.core.NullSideInputReader;
@@ -36,6 +37,7 @@ import org.apache.beam.sdk.transforms.Combine.CombineFn;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.HotKeySketch;
 import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.WindowedValue;
@@ -59,6 +61,10 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
   /**
    * Returns a grouping table that combines inputs into an accumulator. The grouping table uses the
    * cache to defer flushing output until the cache evicts the table.
+   *
+   * <p>Globally windowed combines whose accumulator is a single number, such as {@code Sum}, {@code
+   * Min}, {@code Max} and {@code Count}, use a {@link PrimitiveCombiningTable} if the key coder is
+   * consistent with equals.
    */
   public static <K, InputT, AccumT> PrecombineGroupingTable<K, InputT, AccumT> combining(
       PipelineOptions options,
@@ -72,13 +78,16 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
         keyCoder,
         GlobalCombineFnRunners.create(combineFn),
         Caches::weigh,
-        isGloballyWindowed);
+        isGloballyWindowed,
+        PrimitiveCombiningTable.primitiveCombineFn(combineFn, keyCoder, isGloballyWindowed));
   }
 
   /**
    * Returns a grouping table that combines inputs into an accumulator with sampling {@link
    * SizeEstimator SizeEstimators}. The grouping table uses the cache to defer flushing output until
    * the cache evicts the table.
+   *
+   * <p>Uses a {@link PrimitiveCombiningTable} in the same cases as {@link #combining}.
    */
   public static <K, InputT, AccumT> PrecombineGroupingTable<K, InputT, AccumT> combiningAndSampling(
       PipelineOptions options,
@@ -93,7 +102,8 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
         keyCoder,
         GlobalCombineFnRunners.create(combineFn),
         new SamplingSizeEstimator(Caches::weigh, sizeEstimatorSampleRate, 1.0),
-        isGloballyWindowed);
+        isGloballyWindowed,
+        PrimitiveCombiningTable.primitiveCombineFn(combineFn, keyCoder, isGloballyWindowed));
   }
 
   @Nullable
@@ -126,10 +136,13 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
   private final SizeEstimator sizer;
   private final Cache<Key, PrecombineGroupingTable<K, InputT, AccumT>> cache;
   private final LinkedHashMap<GroupingTableKey, GroupingTableEntry> lruMap;
+  // Used instead of the lruMap when the accumulators can be stored as primitives.
+  private final @Nullable PrimitiveCombiningTable<K, InputT, AccumT> primitiveTable;
   private final AtomicLong maxWeight;
   private long weight;
   private final boolean isGloballyWindowed;
   private long lastWeightForFlush;
+  private @Nullable HotKeySketch hotKeySketch;
 
   // Prevent hashmap growing too large. Improves performance for too many Unique Keys cases.
   // Keep it less than (2^14)*loadFactor=(2^14)*0.75=12288
@@ -155,6 +168,17 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
       GlobalCombineFnRunner<InputT, AccumT, ?> combineFn,
       SizeEstimator sizer,
       boolean isGloballyWindowed) {
+    this(options, cache, keyCoder, combineFn, sizer, isGloballyWindowed, null);
+  }
+
+  PrecombineGroupingTable(
+      PipelineOptions options,
+      Cache<?, ?> cache,
+      Coder<K> keyCoder,
+      GlobalCombineFnRunner<InputT, AccumT, ?> combineFn,
+      SizeEstimator sizer,
+      boolean isGloballyWindowed,
+      @Nullable PrimitiveCombineFn<InputT, AccumT> primitiveCombineFn) {
     this.options = options;
     this.cache = (Cache<Key, PrecombineGroupingTable<K, InputT, AccumT>>) cache;
     this.keyCoder = keyCoder;
@@ -162,11 +186,23 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
     this.sizer = sizer;
     this.isGloballyWindowed = isGloballyWindowed;
     this.lruMap = new LinkedHashMap<>(16, 0.75f, true);
+    this.primitiveTable =
+        primitiveCombineFn == null
+            ? null
+            : new PrimitiveCombiningTable<>(primitiveCombineFn, sizer);
     this.maxWeight = new AtomicLong();
     this.weight = 0L;
     this.cache.put(Key.INSTANCE, this);
   }
 
+  /**
+   * Records the key of every element put into this table in the given sketch, reusing the
+   * structural key that grouping computes anyway.
+   */
+  public void setHotKeySketch(@Nullable HotKeySketch hotKeySketch) {
+    this.hotKeySketch = hotKeySketch;
+  }
+
   private interface GroupingTableKey extends Weighted {
     Object getStructuralKey();
 
@@ -385,6 +421,22 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
   public void put(
       WindowedValue<KV<K, InputT>> value, FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
       throws Exception {
+    if (primitiveTable != null) {
+      if (hotKeySketch != null && value.getValue().getKey() != null) {
+        // Primitive tables are only used for keys whose coder is consistent with equals.
+        hotKeySketch.add(value.getValue().getKey());
+      }
+      weight += primitiveTable.put(value.getValue().getKey(), value.getValue().getValue());
+      if (primitiveTable.size() >= DEFAULT_MAX_GROUPING_TABLE_SIZE) {
+        flush(receiver);
+        lastWeightForFlush = weight;
+      } else if (Caches.shouldUpdateOnSizeChange(lastWeightForFlush, weight)) {
+        flushIfNeeded(receiver);
+        lastWeightForFlush = weight;
+      }
+      return;
+    }
+
     // Ignore timestamp for grouping purposes.
     // The Pre-combine output will inherit the timestamp of one of its inputs.
     GroupingTableKey groupingKey =
@@ -392,6 +444,9 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
             ? new GloballyWindowedTableGroupingKey(value.getValue().getKey(), keyCoder, sizer)
             : new WindowedGroupingTableKey(
                 value.getValue().getKey(), value.getWindows(), keyCoder, sizer);
+    if (hotKeySketch != null && value.getValue().getKey() != null) {
+      hotKeySketch.add(groupingKey.getStructuralKey(), value.getValue().getKey());
+    }
 
     lruMap.compute(
         groupingKey,
@@ -436,7 +491,12 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
     // Only compact and output from the bundle processing thread that is inserting elements into the
     // grouping table. This ensures that we honor the guarantee that transforms for a single bundle
     // execute using the same thread.
-    if (weight > currentMax) {
+    if (weight > currentMax && primitiveTable != null) {
+      // Primitive accumulators can't be compacted and aren't kept in LRU order so all of them are
+      // output as a single batch.
+      primitiveTable.flush(receiver);
+      weight = 0;
+    } else if (weight > currentMax) {
       // Try to compact as many the values as possible and only flush values if compaction wasn't
       // enough.
       for (GroupingTableEntry valueToCompact : lruMap.values()) {
@@ -481,6 +541,9 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
   /** Flushes all entries in this table to output. */
   public void flush(FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver) throws Exception {
     cache.remove(Key.INSTANCE);
+    if (primitiveTable != null) {
+      primitiveTable.flush(receiver);
+    }
     for (GroupingTableEntry valueToFlush : lruMap.values()) {
       output(valueToFlush, receiver);
     }
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.beam.fn.harness.PrecombineGroupingTable.SizeEstimator;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.transforms.Combine.BinaryCombineDoubleFn;
+import org.apache.beam.sdk.transforms.Combine.BinaryCombineIntegerFn;
+import org.apache.beam.sdk.transforms.Combine.BinaryCombineLongFn;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An open addressing hash table from keys to accumulators stored as primitive {@code long}s.
+ *
+ * <p>Used by {@link PrecombineGroupingTable} for globally windowed combines whose accumulator is a
+ * single number such as the {@link BinaryCombineLongFn}, {@link BinaryCombineIntegerFn} and {@link
+ * BinaryCombineDoubleFn} returned by {@code Sum}, {@code Min} and {@code Max}, and {@link
+ * Count#combineFn()}. User keys are stored as is which requires a key {@link Coder} that is {@link
+ * Coder#consistentWithEquals() consistent with equals}. Accumulators are only materialized in the
+ * representation of the {@link CombineFn} when the table is flushed.
+ */
+@NotThreadSafe
+class PrimitiveCombiningTable<K, InputT, AccumT> {
+  private static final Class<?> COUNT_FN_CLASS = Count.combineFn().getClass();
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** Stands in for the {@code null} key since {@code null} marks empty slots. */
+  private static final Object NULL_KEY = new Object();
+
+  /** The weight of a slot holding a key reference and an accumulator. */
+  private static final long SLOT_WEIGHT = Caches.REFERENCE_SIZE + 8;
+
+  /** Combines inputs into an accumulator that is stored as a {@code long}. */
+  abstract static class PrimitiveCombineFn<InputT, AccumT> {
+    abstract long identity();
+
+    abstract long addInput(long accumulator, InputT input);
+
+    abstract AccumT toAccumulator(long accumulator);
+  }
+
+  /**
+   * Returns the {@link PrimitiveCombineFn} equivalent to {@code combineFn} or {@code null} if the
+   * combine can't use a {@link PrimitiveCombiningTable}.
+   */
+  @SuppressWarnings("unchecked")
+  static <InputT, AccumT> @Nullable PrimitiveCombineFn<InputT, AccumT> primitiveCombineFn(
+      CombineFn<InputT, AccumT, ?> combineFn, Coder<?> keyCoder, boolean isGloballyWindowed) {
+    if (!isGloballyWindowed || !keyCoder.consistentWithEquals()) {
+      return null;
+    }
+    // Subclasses may customize how accumulators are created or updated in which case the
+    // accumulator no longer is the result of applying the binary operation.
+    if (combineFn instanceof BinaryCombineLongFn
+        && !overridesAccumulation(combineFn, BinaryCombineLongFn.class, long[].class, Long.class)) {
+      return (PrimitiveCombineFn<InputT, AccumT>)
+          new LongCombineFn((BinaryCombineLongFn) combineFn);
+    }
+    if (combineFn instanceof BinaryCombineIntegerFn
+        && !overridesAccumulation(
+            combineFn, BinaryCombineIntegerFn.class, int[].class, Integer.class)) {
+      return (PrimitiveCombineFn<InputT, AccumT>)
+          new IntegerCombineFn((BinaryCombineIntegerFn) combineFn);
+    }
+    if (combineFn instanceof BinaryCombineDoubleFn
+        && !overridesAccumulation(
+            combineFn, BinaryCombineDoubleFn.class, double[].class, Double.class)) {
+      return (PrimitiveCombineFn<InputT, AccumT>)
+          new DoubleCombineFn((BinaryCombineDoubleFn) combineFn);
+    }
+    if (combineFn.getClass().equals(COUNT_FN_CLASS)) {
+      return (PrimitiveCombineFn<InputT, AccumT>) new CountCombineFn<InputT>();
+    }
+    return null;
+  }
+
+  private static boolean overridesAccumulation(
+      CombineFn<?, ?, ?> combineFn,
+      Class<?> baseClass,
+      Class<?> accumulatorClass,
+      Class<?> inputClass) {
+    try {
+      Class<?> combineFnClass = combineFn.getClass();
+      return !combineFnClass.getMethod("createAccumulator").getDeclaringClass().equals(baseClass)
+          || !combineFnClass
+              .getMethod("addInput", accumulatorClass, inputClass)
+              .getDeclaringClass()
+              .equals(baseClass);
+    } catch (NoSuchMethodException e) {
+      return true;
+    }
+  }
+
+  private static class LongCombineFn extends PrimitiveCombineFn<Long, long[]> {
+    private final BinaryCombineLongFn combineFn;
+
+    private LongCombineFn(BinaryCombineLongFn combineFn) {
+      this.combineFn = combineFn;
+    }
+
+    @Override
+    long identity() {
+      return combineFn.identity();
+    }
+
+    @Override
+    long addInput(long accumulator, Long input) {
+      return combineFn.apply(accumulator, input);
+    }
+
+    @Override
+    long[] toAccumulator(long accumulator) {
+      return new long[] {accumulator};
+    }
+  }
+
+  private static class IntegerCombineFn extends PrimitiveCombineFn<Integer, int[]> {
+    private final BinaryCombineIntegerFn combineFn;
+
+    private IntegerCombineFn(BinaryCombineIntegerFn combineFn) {
+      this.combineFn = combineFn;
+    }
+
+    @Override
+    long identity() {
+      return combineFn.identity();
+    }
+
+    @Override
+    long addInput(long accumulator, Integer input) {
+      return combineFn.apply((int) accumulator, input);
+    }
+
+    @Override
+    int[] toAccumulator(long accumulator) {
+      return new int[] {(int) accumulator};
+    }
+  }
+
+  /** Stores the accumulator using its raw {@code long} bits. */
+  private static class DoubleCombineFn extends PrimitiveCombineFn<Double, double[]> {
+    private final BinaryCombineDoubleFn combineFn;
+
+    private DoubleCombineFn(BinaryCombineDoubleFn combineFn) {
+      this.combineFn = combineFn;
+    }
+
+    @Override
+    long identity() {
+      return Double.doubleToRawLongBits(combineFn.identity());
+    }
+
+    @Override
+    long addInput(long accumulator, Double input) {
+      return Double.doubleToRawLongBits(
+          combineFn.apply(Double.longBitsToDouble(accumulator), input));
+    }
+
+    @Override
+    double[] toAccumulator(long accumulator) {
+      return new double[] {Double.longBitsToDouble(accumulator)};
+    }
+  }
+
+  private static class CountCombineFn<InputT> extends PrimitiveCombineFn<InputT, long[]> {
+    @Override
+    long identity() {
+      return 0;
+    }
+
+    @Override
+    long addInput(long accumulator, InputT input) {
+      return accumulator + 1;
+    }
+
+    @Override
+    long[] toAccumulator(long accumulator) {
+      return new long[] {accumulator};
+    }
+  }
+
+  private final PrimitiveCombineFn<InputT, AccumT> combineFn;
+  private final SizeEstimator sizer;
+  private @Nullable Object[] keys;
+  private long[] accumulators;
+  private int size;
+
+  PrimitiveCombiningTable(PrimitiveCombineFn<InputT, AccumT> combineFn, SizeEstimator sizer) {
+    this.combineFn = combineFn;
+    this.sizer = sizer;
+    this.keys = new Object[INITIAL_CAPACITY];
+    this.accumulators = new long[INITIAL_CAPACITY];
+  }
+
+  /** Adds the input to the accumulator for the key returning the increase in weight. */
+  long put(K key, InputT input) {
+    Object tableKey = key == null ? NULL_KEY : key;
+    int mask = keys.length - 1;
+    int index = spread(tableKey.hashCode()) & mask;
+    for (Object current = keys[index]; current != null; current = keys[index]) {
+      if (current == tableKey || current.equals(tableKey)) {
+        accumulators[index] = combineFn.addInput(accumulators[index], input);
+        return 0;
+      }
+      index = (index + 1) & mask;
+    }
+    keys[index] = tableKey;
+    accumulators[index] = combineFn.addInput(combineFn.identity(), input);
+    size += 1;
+    if (size * 4L >= keys.length * 3L) {
+      resize();
+    }
+    // Only new keys are weighed since the weight of the accumulators never changes.
+    return SLOT_WEIGHT + sizer.estimateSize(key);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Outputs all the accumulators as a single batch and clears the table. */
+  @SuppressWarnings({
+    "nullness", // The user key may be null.
+    "unchecked"
+  })
+  void flush(FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver) throws Exception {
+    for (int i = 0; i < keys.length; ++i) {
+      Object key = keys[i];
+      if (key != null) {
+        keys[i] = null;
+        receiver.accept(
+            WindowedValues.valueInGlobalWindow(
+                KV.of(key == NULL_KEY ? null : (K) key, combineFn.toAccumulator(accumulators[i]))));
+      }
+    }
+    size = 0;
+  }
+
+  private void resize() {
+    Object[] oldKeys = keys;
+    long[] oldAccumulators = accumulators;
+    keys = new Object[oldKeys.length * 2];
+    accumulators = new long[oldKeys.length * 2];
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; ++i) {
+      Object key = oldKeys[i];
+      if (key != null) {
+        int index = spread(key.hashCode()) & mask;
+        while (keys[index] != null) {
+          index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        accumulators[index] = oldAccumulators[i];
+      }
+    }
+  }
+
+  /** Spreads the higher bits of the hash code since the table size is a power of two. */
+  private static int spread(int hashCode) {
+    int h = hashCode * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to virtual threads for the SDK harness.
+ *
+ * <p>The harness is compiled against Java versions that predate virtual threads so the JDK 21 APIs
+ * are looked up reflectively. Callers must handle the case where virtual threads are not available
+ * on the running JVM.
+ */
+public final class VirtualThreads {
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+
+  private static final @Nullable Method IS_VIRTUAL = findIsVirtual();
+
+  private VirtualThreads() {}
+
+  /** Returns true if the running JVM supports virtual threads. */
+  public static boolean isSupported() {
+    return IS_VIRTUAL != null;
+  }
+
+  /** Returns true if {@code thread} is a virtual thread. */
+  public static boolean isVirtual(Thread thread) {
+    Method isVirtual = IS_VIRTUAL;
+    if (isVirtual == null) {
+      return false;
+    }
+    try {
+      return (boolean) isVirtual.invoke(thread);
+    } catch (ReflectiveOperationException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns a human readable description of {@code thread}.
+   *
+   * <p>Virtual threads are unnamed by default, in which case the {@link Thread#toString()} form,
+   * which includes the thread id and the carrier thread, is used.
+   */
+  public static String describe(Thread thread) {
+    String name = thread.getName();
+    return name.isEmpty() ? thread.toString() : name;
+  }
+
+  /**
+   * Returns an {@link ExecutorService} that starts a new virtual thread, named {@code namePrefix}
+   * followed by a sequence number, for each task or {@code null} if virtual threads are not
+   * supported by the running JVM.
+   */
+  public static @Nullable ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+    if (!isSupported()) {
+      return null;
+    }
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder =
+          builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+      ThreadFactory threadFactory =
+          (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      return (ExecutorService)
+          Executors.class
+              .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+              .invoke(null, threadFactory);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.warn("Unable to create a virtual thread executor.", e);
+      return null;
+    }
+  }
+
+  private static @Nullable Method findIsVirtual() {
+    try {
+      return Thread.class.getMethod("isVirtual");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
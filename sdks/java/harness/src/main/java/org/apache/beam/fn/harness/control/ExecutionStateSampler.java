@@ -33,10 +33,12 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import javax.annotation.concurrent.GuardedBy;
+import org.apache.beam.fn.harness.VirtualThreads;
 import org.apache.beam.fn.harness.logging.BeamFnLoggingMDC;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
 import org.apache.beam.runners.core.metrics.MetricsContainerStepMap;
 import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
+import org.apache.beam.runners.core.metrics.ShortIdMap;
 import org.apache.beam.sdk.metrics.BoundedTrie;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Distribution;
@@ -91,12 +93,26 @@ public class ExecutionStateSampler {
 
   private final Future<Void> stateSamplingThread;
   private final @Nullable Consumer<String> onTimeoutExceededCallback;
+  private final @Nullable StackSamplingProfiler profiler;
 
-  @SuppressWarnings("methodref.receiver.bound" /* Synchronization ensures proper initialization */)
   public ExecutionStateSampler(
       PipelineOptions options,
       MillisProvider clock,
       @Nullable Consumer<String> onTimeoutExceededCallback) {
+    this(options, clock, onTimeoutExceededCallback, null);
+  }
+
+  /**
+   * Creates a sampler that also profiles the bundle processing threads if stack sampling is
+   * enabled, see {@link StackSamplingProfiler}. The profiles are reported as monitoring infos
+   * using {@code shortIds}.
+   */
+  @SuppressWarnings("methodref.receiver.bound" /* Synchronization ensures proper initialization */)
+  public ExecutionStateSampler(
+      PipelineOptions options,
+      MillisProvider clock,
+      @Nullable Consumer<String> onTimeoutExceededCallback,
+      @Nullable ShortIdMap shortIds) {
     String samplingPeriodMills =
         ExperimentalOptions.getExperimentValue(
             options, ExperimentalOptions.STATE_SAMPLING_PERIOD_MILLIS);
@@ -116,6 +132,7 @@ public class ExecutionStateSampler {
       this.userSpecifiedLullTimeMsForRestart = TimeUnit.MINUTES.toMillis(timeoutOption);
     }
     this.onTimeoutExceededCallback = onTimeoutExceededCallback;
+    this.profiler = StackSamplingProfiler.fromOptions(options, shortIds);
 
     // We specifically synchronize to ensure that this object can complete
     // being published before the state sampler thread starts.
@@ -169,6 +186,11 @@ public class ExecutionStateSampler {
     }
   }
 
+  /** Returns the stack sampling profiler or {@code null} if stack sampling is disabled. */
+  public @Nullable StackSamplingProfiler getProfiler() {
+    return profiler;
+  }
+
   @VisibleForTesting
   public boolean getUserSpecifiedTimeoutForRestart() {
     return this.userSpecifiedTimeoutForRestart;
@@ -322,6 +344,10 @@ public class ExecutionStateSampler {
     private boolean inErrorState = false;
     // Read and written by the ExecutionStateSampler thread
     private long transitionsAtLastSample;
+    // Read and written by the ExecutionStateSampler thread
+    private long lastStackSampleMillis;
+    // The stack samples of the current bundle, null if stack sampling is disabled.
+    private final StackSamplingProfiler.@Nullable BundleSamples bundleSamples;
 
     // Ignore the @UnderInitialization for ExecutionStateTracker since it will be initialized by the
     // time this method returns and no references are leaked to other threads during construction.
@@ -336,6 +362,7 @@ public class ExecutionStateSampler {
       this.currentStateLazy = new AtomicReference<>();
       this.processBundleId = new AtomicReference<>();
       this.metricsContainer = new MetricsContainerForTracker(this);
+      this.bundleSamples = profiler == null ? null : profiler.newBundleSamples();
     }
 
     /**
@@ -384,6 +411,7 @@ public class ExecutionStateSampler {
       ExecutionStateImpl currentExecutionState = currentStateLazy.get();
       if (currentExecutionState != null) {
         currentExecutionState.takeSample(millisSinceLastSample);
+        maybeSampleStack(currentTimeMillis, currentExecutionState);
       }
 
       long transitionsAtThisSample = numTransitionsLazy.get();
@@ -409,22 +437,24 @@ public class ExecutionStateSampler {
             timeoutMessage =
                 String.format(
                     "Operation ongoing in bundle %s for at least %s without outputting "
-                        + "or completing:%n  at %s. The SDK worker will restart.",
+                        + "or completing in thread %s:%n  at %s. The SDK worker will restart.",
                     processBundleId.get(),
                     DURATION_FORMATTER.print(
                         Duration.millis(userSpecifiedLullTimeMsForRestart).toPeriod()),
+                    VirtualThreads.describe(thread),
                     Joiner.on("\n  at ").join(thread.getStackTrace()));
           } else {
             timeoutMessage =
                 String.format(
                     "Operation ongoing in bundle %s for PTransform{id=%s, name=%s, state=%s} "
-                        + "for at least %s without outputting or completing:%n  at %s. The SDK worker will restart.",
+                        + "for at least %s without outputting or completing in thread %s:%n  at %s. The SDK worker will restart.",
                     processBundleId.get(),
                     currentExecutionState.ptransformId,
                     currentExecutionState.ptransformUniqueName,
                     currentExecutionState.stateName,
                     DURATION_FORMATTER.print(
                         Duration.millis(userSpecifiedLullTimeMsForRestart).toPeriod()),
+                    VirtualThreads.describe(thread),
                     Joiner.on("\n  at ").join(thread.getStackTrace()));
           }
           return Optional.of(timeoutMessage);
@@ -449,20 +479,23 @@ public class ExecutionStateSampler {
               LOG.warn(
                   String.format(
                       "Operation ongoing in bundle %s for at least %s without outputting "
-                          + "or completing:%n  at %s",
+                          + "or completing in thread %s:%n  at %s",
                       processBundleId.get(),
                       DURATION_FORMATTER.print(Duration.millis(lullTimeMs).toPeriod()),
+                      VirtualThreads.describe(thread),
                       Joiner.on("\n  at ").join(thread.getStackTrace())));
             } else {
               LOG.warn(
                   String.format(
                       "Operation ongoing in bundle %s for PTransform{id=%s, name=%s, state=%s} "
-                          + "for at least %s without outputting or completing:%n  at %s",
+                          + "for at least %s without outputting or completing in thread %s:"
+                          + "%n  at %s",
                       processBundleId.get(),
                       currentExecutionState.ptransformId,
                       currentExecutionState.ptransformUniqueName,
                       currentExecutionState.stateName,
                       DURATION_FORMATTER.print(Duration.millis(lullTimeMs).toPeriod()),
+                      VirtualThreads.describe(thread),
                       Joiner.on("\n  at ").join(thread.getStackTrace())));
             }
           }
@@ -471,6 +504,24 @@ public class ExecutionStateSampler {
       return Optional.empty();
     }
 
+    private void maybeSampleStack(
+        long currentTimeMillis, ExecutionStateImpl currentExecutionState) {
+      StackSamplingProfiler profiler = ExecutionStateSampler.this.profiler;
+      Thread thread = trackedThread.get();
+      if (profiler == null
+          || bundleSamples == null
+          || thread == null
+          || currentTimeMillis - lastStackSampleMillis < profiler.getPeriodMillis()) {
+        return;
+      }
+      lastStackSampleMillis = currentTimeMillis;
+      profiler.sample(
+          thread,
+          currentExecutionState.ptransformId,
+          currentExecutionState.ptransformUniqueName,
+          bundleSamples);
+    }
+
     /** Returns status information related to this tracker or null if not tracking a bundle. */
     public @Nullable ExecutionStateTrackerStatus getStatus() {
       Thread thread = trackedThread.get();
@@ -611,6 +662,9 @@ public class ExecutionStateSampler {
       long nowMillis = clock.getMillis();
       this.startTimeMillis.lazySet(nowMillis);
       this.lastTransitionTimeMillis.lazySet(nowMillis);
+      // The current thread may be a virtual thread. Thread#getStackTrace works for virtual threads
+      // whether they are mounted or parked so lull detection and status reporting are unaffected,
+      // but such threads are unnamed by default and are described via VirtualThreads#describe.
       this.trackedThread.lazySet(Thread.currentThread());
       synchronized (activeStateTrackers) {
         activeStateTrackers.add(this);
@@ -622,6 +676,9 @@ public class ExecutionStateSampler {
       for (ExecutionStateImpl executionState : executionStates) {
         executionState.updateMonitoringData(monitoringData);
       }
+      if (bundleSamples != null) {
+        bundleSamples.updateMonitoringData(monitoringData);
+      }
     }
 
     @Override
@@ -629,6 +686,9 @@ public class ExecutionStateSampler {
       for (ExecutionStateImpl executionState : executionStates) {
         executionState.updateMonitoringData(monitoringData);
       }
+      if (bundleSamples != null) {
+        bundleSamples.updateMonitoringData(monitoringData);
+      }
     }
 
     /**
@@ -643,6 +703,10 @@ public class ExecutionStateSampler {
           executionState.reset();
         }
         this.transitionsAtLastSample = 0;
+        this.lastStackSampleMillis = 0;
+      }
+      if (bundleSamples != null) {
+        bundleSamples.reset();
       }
       this.processBundleId.lazySet(null);
       this.trackedThread.lazySet(null);
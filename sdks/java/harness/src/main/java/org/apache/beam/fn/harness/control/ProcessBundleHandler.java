@@ -17,6 +17,8 @@
  */
 package org.apache.beam.fn.harness.control;
 
+import static org.apache.beam.sdk.util.Preconditions.checkStateNotNull;
+
 import com.google.auto.value.AutoValue;
 import java.io.IOException;
 import java.time.Duration;
@@ -68,10 +70,16 @@ import org.apache.beam.model.pipeline.v1.Endpoints.ApiServiceDescriptor;
 import org.apache.beam.model.pipeline.v1.RunnerApi;
 import org.apache.beam.model.pipeline.v1.RunnerApi.PTransform;
 import org.apache.beam.model.pipeline.v1.RunnerApi.StandardRunnerProtocols;
+import org.apache.beam.runners.core.metrics.DistributionData;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Labels;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.TypeUrns;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Urns;
+import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
 import org.apache.beam.runners.core.metrics.ShortIdMap;
+import org.apache.beam.runners.core.metrics.SimpleMonitoringInfoBuilder;
 import org.apache.beam.sdk.fn.data.BeamFnDataInboundObserver;
 import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator;
+import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator.DataBatchStatistics;
 import org.apache.beam.sdk.fn.data.DataEndpoint;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
 import org.apache.beam.sdk.fn.data.TimerEndpoint;
@@ -385,7 +393,13 @@ public class ProcessBundleHandler {
                                       BeamUrns.getUrn(
                                           StandardRunnerProtocols.Enum
                                               .CONTROL_RESPONSE_ELEMENTS_EMBEDDING))));
-                  return aggregator.registerOutputDataLocation(pTransformId, coder);
+                  FnDataReceiver<T> receiver =
+                      aggregator.registerOutputDataLocation(pTransformId, coder);
+                  if (aggregator.isAdaptive()) {
+                    addBundleProgressReporter.accept(
+                        outboundBatchSizeReporter(shortIds, pTransformId, aggregator));
+                  }
+                  return receiver;
                 }
 
                 @Override
@@ -603,6 +617,53 @@ public class ProcessBundleHandler {
     }
   }
 
+  /**
+   * Returns a reporter for the sizes of the data blocks sent for {@code pTransformId}, which shows
+   * how the adaptive buffer limits of the {@link BeamFnDataOutboundAggregator} settled.
+   */
+  private static BundleProgressReporter outboundBatchSizeReporter(
+      ShortIdMap shortIds, String pTransformId, BeamFnDataOutboundAggregator aggregator) {
+    String shortId =
+        shortIds.getOrCreateShortId(
+            checkStateNotNull(
+                new SimpleMonitoringInfoBuilder()
+                    .setUrn(Urns.DATA_CHANNEL_OUTBOUND_BATCH_SIZE)
+                    .setType(TypeUrns.DISTRIBUTION_INT64_TYPE)
+                    .setLabel(Labels.PTRANSFORM, pTransformId)
+                    .build()));
+    return new BundleProgressReporter() {
+      @Override
+      public void updateIntermediateMonitoringData(Map<String, ByteString> monitoringData) {
+        report(monitoringData);
+      }
+
+      @Override
+      public void updateFinalMonitoringData(Map<String, ByteString> monitoringData) {
+        report(monitoringData);
+      }
+
+      @Override
+      public void reset() {
+        aggregator.resetDataBatchStatistics(pTransformId);
+      }
+
+      private void report(Map<String, ByteString> monitoringData) {
+        DataBatchStatistics statistics = aggregator.getDataBatchStatistics(pTransformId);
+        if (statistics.getCount() == 0) {
+          return;
+        }
+        monitoringData.put(
+            shortId,
+            MonitoringInfoEncodings.encodeInt64Distribution(
+                DistributionData.create(
+                    statistics.getSum(),
+                    statistics.getCount(),
+                    statistics.getMin(),
+                    statistics.getMax())));
+      }
+    };
+  }
+
   private void embedOutboundElementsIfApplicable(
       ProcessBundleResponse.Builder response, BundleProcessor bundleProcessor) {
     if (bundleProcessor.getOutboundAggregators().isEmpty()) {
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.control;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.GuardedBy;
+import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
+import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
+import org.apache.beam.runners.core.metrics.ShortIdMap;
+import org.apache.beam.runners.core.metrics.SimpleMonitoringInfoBuilder;
+import org.apache.beam.runners.core.metrics.StringSetData;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A sampling profiler that attributes stack samples of bundle processing threads to the transform
+ * that they are executing.
+ *
+ * <p>Stacks are captured by the {@link ExecutionStateSampler} thread, which already knows the
+ * transform every bundle processing thread is in, so the bundle processing threads do no extra work
+ * apart from reaching the safepoint needed to capture their stack. Only threads that are {@link
+ * Thread.State#RUNNABLE runnable} are sampled so that the samples approximate where CPU is spent.
+ *
+ * <p>Samples are aggregated for the lifetime of the process in the folded stack format consumed by
+ * flame graph tools, see {@link #getFoldedStacks}. The number of samples and the most frequent
+ * innermost frames of each transform are also reported per bundle as monitoring infos.
+ *
+ * <p>Stack sampling is enabled with the {@code stack_sampling_period_millis} experiment. The
+ * effective period is at least the state sampling period.
+ */
+public class StackSamplingProfiler {
+  // Bounds the memory used by the profile of a long running process.
+  private static final int MAX_FRAMES = 128;
+  private static final int MAX_STACKS_PER_TRANSFORM = 1000;
+  private static final String TRUNCATED_FRAMES = "[truncated]";
+  private static final String OTHER_STACKS = "[other]";
+  private static final int MAX_REPORTED_FRAMES = 5;
+
+  private final long periodMillis;
+  private final @Nullable ShortIdMap shortIds;
+
+  // Keyed by transform unique name, then by folded stack.
+  @GuardedBy("this")
+  private final Map<String, Map<String, Long>> foldedStacks;
+
+  private final Map<String, String> samplesShortIds;
+  private final Map<String, String> hotFramesShortIds;
+
+  /**
+   * Returns a profiler if stack sampling is enabled by the {@code stack_sampling_period_millis}
+   * experiment and {@code null} otherwise. Monitoring infos are only reported if {@code shortIds}
+   * is not {@code null}.
+   */
+  public static @Nullable StackSamplingProfiler fromOptions(
+      PipelineOptions options, @Nullable ShortIdMap shortIds) {
+    String periodMillis =
+        ExperimentalOptions.getExperimentValue(
+            options, ExperimentalOptions.STACK_SAMPLING_PERIOD_MILLIS);
+    if (periodMillis == null) {
+      return null;
+    }
+    long period = Long.parseLong(periodMillis);
+    if (period <= 0) {
+      throw new IllegalArgumentException(
+          String.format(
+              "%s must be positive, but was %s",
+              ExperimentalOptions.STACK_SAMPLING_PERIOD_MILLIS, periodMillis));
+    }
+    return new StackSamplingProfiler(period, shortIds);
+  }
+
+  StackSamplingProfiler(long periodMillis, @Nullable ShortIdMap shortIds) {
+    this.periodMillis = periodMillis;
+    this.shortIds = shortIds;
+    this.foldedStacks = new HashMap<>();
+    this.samplesShortIds = new ConcurrentHashMap<>();
+    this.hotFramesShortIds = new ConcurrentHashMap<>();
+  }
+
+  /** Returns the minimum time between two samples of the same thread. */
+  public long getPeriodMillis() {
+    return periodMillis;
+  }
+
+  /** Returns the samples of a bundle that have not been reported yet. */
+  BundleSamples newBundleSamples() {
+    return new BundleSamples();
+  }
+
+  /**
+   * Samples the stack of {@code thread} if it is running and attributes it to the given transform.
+   *
+   * <p>The thread may have moved on to another transform by the time its stack is captured, which
+   * only skews the profile of transforms that run for less than a sampling period at a time.
+   */
+  void sample(
+      Thread thread,
+      String ptransformId,
+      String ptransformUniqueName,
+      BundleSamples bundleSamples) {
+    if (thread.getState() != Thread.State.RUNNABLE) {
+      return;
+    }
+    StackTraceElement[] stack = thread.getStackTrace();
+    if (stack.length == 0) {
+      return;
+    }
+    bundleSamples.add(ptransformId, stack[0].toString());
+    addSample(ptransformUniqueName, stack);
+  }
+
+  synchronized void addSample(String ptransformUniqueName, StackTraceElement[] stack) {
+    // Folded stacks list the outermost frame first.
+    StringJoiner folded = new StringJoiner(";");
+    int frames = Math.min(stack.length, MAX_FRAMES);
+    if (frames < stack.length) {
+      folded.add(TRUNCATED_FRAMES);
+    }
+    for (int i = frames - 1; i >= 0; i--) {
+      folded.add(stack[i].getClassName() + "." + stack[i].getMethodName());
+    }
+    Map<String, Long> stacks =
+        foldedStacks.computeIfAbsent(ptransformUniqueName, unused -> new HashMap<>());
+    String key = folded.toString();
+    if (!stacks.containsKey(key) && stacks.size() >= MAX_STACKS_PER_TRANSFORM) {
+      key = OTHER_STACKS;
+    }
+    stacks.merge(key, 1L, Long::sum);
+  }
+
+  /**
+   * Returns the stack samples taken since the process started in the folded stack format. Each
+   * line consists of the transform name and the sampled frames, outermost first, separated by
+   * {@code ;} followed by a space and the number of samples.
+   */
+  public synchronized String getFoldedStacks() {
+    StringJoiner lines = new StringJoiner("\n");
+    for (Map.Entry<String, Map<String, Long>> transform : new TreeMap<>(foldedStacks).entrySet()) {
+      String root = transform.getKey().replace(';', '_').replace(' ', '_');
+      for (Map.Entry<String, Long> stack : transform.getValue().entrySet()) {
+        lines.add(root + ";" + stack.getKey() + " " + stack.getValue());
+      }
+    }
+    return lines.toString();
+  }
+
+  private @Nullable String getShortId(
+      Map<String, String> cache, String urn, String type, String ptransformId) {
+    ShortIdMap shortIds = this.shortIds;
+    if (shortIds == null) {
+      return null;
+    }
+    return cache.computeIfAbsent(
+        ptransformId,
+        unused -> {
+          MonitoringInfo info =
+              new SimpleMonitoringInfoBuilder()
+                  .setUrn(urn)
+                  .setType(type)
+                  .setLabel(MonitoringInfoConstants.Labels.PTRANSFORM, ptransformId)
+                  .build();
+          if (info == null) {
+            throw new IllegalStateException(
+                String.format(
+                    "Unable to construct %s metric for PTransform {id=%s}", urn, ptransformId));
+          }
+          return shortIds.getOrCreateShortId(info);
+        });
+  }
+
+  /**
+   * The samples taken by a single {@link ExecutionStateSampler.ExecutionStateTracker} during the
+   * current bundle.
+   *
+   * <p>Samples are added by the {@link ExecutionStateSampler} thread and reported by the bundle
+   * processing thread.
+   */
+  class BundleSamples {
+    // Keyed by transform id, then by the innermost frame.
+    @GuardedBy("this")
+    private final Map<String, Map<String, Long>> innermostFrames = new HashMap<>();
+
+    private synchronized void add(String ptransformId, String innermostFrame) {
+      innermostFrames
+          .computeIfAbsent(ptransformId, unused -> new HashMap<>())
+          .merge(innermostFrame, 1L, Long::sum);
+    }
+
+    synchronized void updateMonitoringData(Map<String, ByteString> monitoringData) {
+      for (Map.Entry<String, Map<String, Long>> transform : innermostFrames.entrySet()) {
+        String ptransformId = transform.getKey();
+        Map<String, Long> frames = transform.getValue();
+        String samplesShortId =
+            getShortId(
+                samplesShortIds,
+                MonitoringInfoConstants.Urns.PROFILE_SAMPLES,
+                MonitoringInfoConstants.TypeUrns.SUM_INT64_TYPE,
+                ptransformId);
+        String hotFramesShortId =
+            getShortId(
+                hotFramesShortIds,
+                MonitoringInfoConstants.Urns.PROFILE_HOT_FRAMES,
+                MonitoringInfoConstants.TypeUrns.SET_STRING_TYPE,
+                ptransformId);
+        if (samplesShortId == null || hotFramesShortId == null) {
+          return;
+        }
+        long samples = 0;
+        for (long count : frames.values()) {
+          samples += count;
+        }
+        monitoringData.put(samplesShortId, MonitoringInfoEncodings.encodeInt64Counter(samples));
+
+        List<Map.Entry<String, Long>> sortedFrames = new ArrayList<>(frames.entrySet());
+        sortedFrames.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Set<String> hotFrames = new HashSet<>();
+        for (Map.Entry<String, Long> frame :
+            sortedFrames.subList(0, Math.min(MAX_REPORTED_FRAMES, sortedFrames.size()))) {
+          hotFrames.add(frame.getKey());
+        }
+        monitoringData.put(
+            hotFramesShortId,
+            MonitoringInfoEncodings.encodeStringSet(StringSetData.create(hotFrames)));
+      }
+    }
+
+    synchronized void reset() {
+      innermostFrames.clear();
+    }
+  }
+}
@@ -29,9 +29,12 @@ import org.apache.beam.model.pipeline.v1.Endpoints.ApiServiceDescriptor;
 import org.apache.beam.sdk.fn.data.BeamFnDataGrpcMultiplexer;
 import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator;
 import org.apache.beam.sdk.fn.data.CloseableFnDataReceiver;
+import org.apache.beam.sdk.fn.data.SharedMemoryTransport;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.ManagedChannel;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +47,12 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
 
   private static final Logger LOG = LoggerFactory.getLogger(BeamFnDataGrpcClient.class);
 
+  /**
+   * Disables exchanging elements through shared memory with data services which offer it in their
+   * {@link ApiServiceDescriptor}.
+   */
+  public static final String DISABLE_SHARED_MEMORY_EXPERIMENT = "disable_shared_memory_data_plane";
+
   private final ConcurrentMap<Endpoints.ApiServiceDescriptor, BeamFnDataGrpcMultiplexer>
       multiplexerCache;
   private final Function<Endpoints.ApiServiceDescriptor, ManagedChannel> channelFactory;
@@ -110,6 +119,16 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
             new BeamFnDataGrpcMultiplexer(
                 descriptor,
                 outboundObserverFactory,
-                BeamFnDataGrpc.newStub(channelFactory.apply(apiServiceDescriptor))::data));
+                BeamFnDataGrpc.newStub(channelFactory.apply(apiServiceDescriptor))::data,
+                createSharedMemoryTransport(descriptor)));
+  }
+
+  private @Nullable SharedMemoryTransport createSharedMemoryTransport(
+      Endpoints.ApiServiceDescriptor apiServiceDescriptor) {
+    if (!apiServiceDescriptor.hasSharedMemory()
+        || ExperimentalOptions.hasExperiment(options, DISABLE_SHARED_MEMORY_EXPERIMENT)) {
+      return null;
+    }
+    return SharedMemoryTransport.forClient(apiServiceDescriptor.getSharedMemory());
   }
 }
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.data;
+
+import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.function.ThrowingFunction;
+import org.apache.beam.sdk.values.WindowedValue;
+
+/**
+ * A {@link FnDataReceiver} which maps the value of each element with {@link #getMapFn} and outputs
+ * the result, with the same windows, timestamp and pane, to {@link #getOutputConsumer}.
+ *
+ * <p>The {@link PCollectionConsumerRegistry} fuses linear chains of such receivers into a single
+ * loop which applies each function in turn instead of passing every element through the metric
+ * tracking consumer of each intermediate PCollection.
+ */
+public interface FusibleMapFnDataReceiver<InputT, OutputT>
+    extends FnDataReceiver<WindowedValue<InputT>> {
+
+  /** Returns the function applied to the value of each element. */
+  ThrowingFunction<InputT, OutputT> getMapFn();
+
+  /** Returns the consumer of the output PCollection. */
+  FnDataReceiver<WindowedValue<OutputT>> getOutputConsumer();
+}
@@ -20,6 +20,7 @@ package org.apache.beam.fn.harness.data;
 import com.google.auto.value.AutoValue;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +49,7 @@ import org.apache.beam.runners.core.metrics.ShortIdMap;
 import org.apache.beam.runners.core.metrics.SimpleMonitoringInfoBuilder;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.function.ThrowingFunction;
 import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
 import org.apache.beam.sdk.util.construction.RehydratedComponents;
@@ -62,6 +64,10 @@ import org.slf4j.LoggerFactory;
  * FnDataReceiver for each pCollectionId. Registering with this class allows inserting an element
  * count counter for every pCollection. A combined MultiplexingConsumer (Wrapped with an
  * ElementCountFnDataReceiver) is returned by calling getMultiplexingConsumer.
+ *
+ * <p>Linear chains of {@link FusibleMapFnDataReceiver}s are fused into a single receiver which
+ * applies each map function in a loop while tracking the same metrics for every PCollection of the
+ * chain.
  */
 @SuppressWarnings({
   "rawtypes", // TODO(https://github.com/apache/beam/issues/20447)
@@ -234,6 +240,11 @@ public class PCollectionConsumerRegistry {
               return new SplittingMetricTrackingFnDataReceiver(
                   pcId, coder, consumerAndMetadata, sampler);
             }
+            if (consumerAndMetadata.getConsumer() instanceof FusibleMapFnDataReceiver) {
+              return fuse(
+                  new MetricTrackingFnDataReceiver(pcId, coder, consumerAndMetadata, sampler),
+                  (FusibleMapFnDataReceiver) consumerAndMetadata.getConsumer());
+            }
             return new MetricTrackingFnDataReceiver(pcId, coder, consumerAndMetadata, sampler);
           } else {
             /* TODO(SDF), Consider supporting splitting each consumer individually. This would never
@@ -246,6 +257,29 @@ public class PCollectionConsumerRegistry {
         });
   }
 
+  /**
+   * Prepends the map function of {@code consumer} to the chain of its output consumer if that was
+   * fused already.
+   */
+  private FnDataReceiver fuse(
+      MetricTrackingFnDataReceiver head, FusibleMapFnDataReceiver consumer) {
+    List<MetricTrackingFnDataReceiver> stages = new ArrayList<>();
+    List<ThrowingFunction> mapFns = new ArrayList<>();
+    stages.add(head);
+    mapFns.add(consumer.getMapFn());
+    FnDataReceiver output = consumer.getOutputConsumer();
+    if (output instanceof FusedMapFnDataReceiver) {
+      FusedMapFnDataReceiver downstream = (FusedMapFnDataReceiver) output;
+      stages.addAll(Arrays.asList(downstream.stages));
+      mapFns.addAll(Arrays.asList(downstream.mapFns));
+      output = downstream.output;
+    }
+    return new FusedMapFnDataReceiver(
+        stages.toArray(new MetricTrackingFnDataReceiver[0]),
+        mapFns.toArray(new ThrowingFunction[0]),
+        output);
+  }
+
   private static <T> void logAndRethrow(
       Exception e,
       ExecutionState executionState,
@@ -254,6 +288,18 @@ public class PCollectionConsumerRegistry {
       @Nullable OutputSampler<T> outputSampler,
       @Nullable ElementSample<T> elementSample)
       throws Exception {
+    logException(
+        e, executionState, executionStateTracker, ptransformId, outputSampler, elementSample);
+    throw e;
+  }
+
+  private static <T> void logException(
+      Exception e,
+      ExecutionState executionState,
+      ExecutionStateTracker executionStateTracker,
+      String ptransformId,
+      @Nullable OutputSampler<T> outputSampler,
+      @Nullable ElementSample<T> elementSample) {
     ExecutionStateSampler.ExecutionStateTrackerStatus status = executionStateTracker.getStatus();
     String processBundleId = status == null ? null : status.getProcessBundleId();
     if (outputSampler != null) {
@@ -263,7 +309,6 @@ public class PCollectionConsumerRegistry {
     if (executionState.error()) {
       LOG.error("Failed to process element for bundle \"{}\"", processBundleId, e);
     }
-    throw e;
   }
 
   /**
@@ -282,6 +327,8 @@ public class PCollectionConsumerRegistry {
     private final @Nullable OutputSampler<T> outputSampler;
     private final String ptransformId;
     private final ExecutionStateTracker executionStateTracker;
+    // The sample of the element last passed to applyFused.
+    private @Nullable ElementSample<T> fusedElementSample;
 
     public MetricTrackingFnDataReceiver(
         String pCollectionId,
@@ -355,6 +402,80 @@ public class PCollectionConsumerRegistry {
       }
       this.sampledByteSizeDistribution.finishLazyUpdate();
     }
+
+    /**
+     * Tracks the same metrics as {@link #accept} but applies {@code mapFn} to the value of the
+     * element within the execution state of the consumer instead of passing the element to it.
+     */
+    WindowedValue<?> applyFused(WindowedValue<T> input, ThrowingFunction<T, ?> mapFn)
+        throws Exception {
+      this.elementCountCounter.inc(input.getWindows().size());
+      this.sampledByteSizeDistribution.tryUpdate(input.getValue(), this.coder);
+
+      if (outputSampler != null) {
+        fusedElementSample = outputSampler.sample(input);
+      }
+
+      WindowedValue<?> output;
+      executionState.activate();
+      try {
+        output = input.withValue(mapFn.apply(input.getValue()));
+      } finally {
+        executionState.deactivate();
+      }
+      this.sampledByteSizeDistribution.finishLazyUpdate();
+      return output;
+    }
+
+    /** Reports an exception raised by {@link #applyFused} or by any later stage of the chain. */
+    void onFusedException(Exception e) {
+      logException(
+          e,
+          executionState,
+          executionStateTracker,
+          ptransformId,
+          outputSampler,
+          fusedElementSample);
+    }
+  }
+
+  /**
+   * A receiver for a linear chain of {@link FusibleMapFnDataReceiver}s which applies their map
+   * functions in a single loop and passes the result to the consumer of the last PCollection.
+   *
+   * <p>This avoids passing each element through the metric tracking receiver and the mapping
+   * receiver of every transform in the chain.
+   */
+  private static class FusedMapFnDataReceiver implements FnDataReceiver<WindowedValue<?>> {
+    private final MetricTrackingFnDataReceiver[] stages;
+    private final ThrowingFunction[] mapFns;
+    private final FnDataReceiver output;
+
+    private FusedMapFnDataReceiver(
+        MetricTrackingFnDataReceiver[] stages, ThrowingFunction[] mapFns, FnDataReceiver output) {
+      this.stages = stages;
+      this.mapFns = mapFns;
+      this.output = output;
+    }
+
+    @Override
+    public void accept(WindowedValue<?> input) throws Exception {
+      WindowedValue<?> current = input;
+      int i = 0;
+      try {
+        for (; i < stages.length; ++i) {
+          current = stages[i].applyFused(current, mapFns[i]);
+        }
+        output.accept(current);
+      } catch (Exception e) {
+        // Report the exception for each stage that was processing the element as the receivers
+        // would have when invoked through each other.
+        for (int j = Math.min(i, stages.length - 1); j >= 0; --j) {
+          stages[j].onFusedException(e);
+        }
+        throw e;
+      }
+    }
   }
 
   /**
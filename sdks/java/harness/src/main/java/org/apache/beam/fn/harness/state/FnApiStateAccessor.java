@@ -43,6 +43,7 @@ import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.VoidCoder;
 import org.apache.beam.sdk.function.ThrowingRunnable;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.state.BagState;
 import org.apache.beam.sdk.state.CombiningState;
@@ -90,6 +91,8 @@ import org.joda.time.Instant;
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
 })
 public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
+  /** Disables prefetching user state based on the reads observed for previous keys. */
+  public static final String DISABLE_STATE_PREFETCH_EXPERIMENT = "disable_state_prefetch_planning";
 
   public interface MutatingStateContext<K, W> {
     K getCurrentKey();
@@ -252,10 +255,13 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
   private final Collection<ThrowingRunnable> stateFinalizers;
   private final Coder<K> keyCoder;
   private final Coder<BoundedWindow> windowCoder;
+  private final @Nullable StatePrefetchPlanner statePrefetchPlanner;
 
   private @Nullable Supplier<BoundedWindow> currentWindowSupplier;
   private @Nullable Supplier<ByteString> encodedCurrentKeySupplier;
   private @Nullable Supplier<ByteString> encodedCurrentWindowSupplier;
+  private @Nullable ByteString lastStartedKey;
+  private @Nullable ByteString lastStartedWindow;
 
   public FnApiStateAccessor(
       PipelineOptions pipelineOptions,
@@ -282,6 +288,36 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
     this.keyCoder = keyCoder;
     this.windowCoder = windowCoder;
     this.stateFinalizers = new ArrayList<>();
+    this.statePrefetchPlanner =
+        ExperimentalOptions.hasExperiment(pipelineOptions, DISABLE_STATE_PREFETCH_EXPERIMENT)
+            ? null
+            : new StatePrefetchPlanner();
+  }
+
+  /**
+   * Notifies this accessor that processing for the current key and window is about to start.
+   *
+   * <p>Asynchronously prefetches the user state that was read when processing previous keys, see
+   * {@link StatePrefetchPlanner}. Repeated calls for the same key and window are ignored.
+   */
+  public void startKeyAndWindow() {
+    if (statePrefetchPlanner == null) {
+      return;
+    }
+    ByteString encodedKey = encodedCurrentKeySupplier.get();
+    ByteString encodedWindow = encodedCurrentWindowSupplier.get();
+    if (encodedKey.equals(lastStartedKey) && encodedWindow.equals(lastStartedWindow)) {
+      return;
+    }
+    lastStartedKey = encodedKey;
+    lastStartedWindow = encodedWindow;
+    statePrefetchPlanner.startKey();
+  }
+
+  private void recordRead(String stateId, Supplier<ReadableState<?>> state) {
+    if (statePrefetchPlanner != null) {
+      statePrefetchPlanner.recordRead(stateId, () -> state.get().readLater());
+    }
   }
 
   public void setKeyAndWindowContext(MutatingStateContext<K, BoundedWindow> keyAndWindowContext) {
@@ -466,6 +502,7 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
 
                   @Override
                   public T read() {
+                    recordRead(id, () -> bindValue(id, spec, coder));
                     Iterator<T> value = impl.get().iterator();
                     if (value.hasNext()) {
                       return value.next();
@@ -505,6 +542,7 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
                     return new ReadableState<Boolean>() {
                       @Override
                       public @Nullable Boolean read() {
+                        recordRead(id, () -> bindBag(id, spec, elemCoder));
                         return !impl.get().iterator().hasNext();
                       }
 
@@ -517,6 +555,7 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
 
                   @Override
                   public Iterable<T> read() {
+                    recordRead(id, () -> bindBag(id, spec, elemCoder));
                     return impl.get();
                   }
 
@@ -857,6 +896,7 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
 
                   @Override
                   public AccumT getAccum() {
+                    recordRead(id, () -> bindCombining(id, spec, accumCoder, combineFn));
                     Iterator<AccumT> iterator = impl.get().iterator();
                     if (iterator.hasNext()) {
                       return iterator.next();
@@ -866,6 +906,7 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
 
                   @Override
                   public void addAccum(AccumT accum) {
+                    recordRead(id, () -> bindCombining(id, spec, accumCoder, combineFn));
                     Iterator<AccumT> iterator = impl.get().iterator();
 
                     // Only merge if there was a prior value
@@ -891,6 +932,7 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
 
                   @Override
                   public ResultT read() {
+                    recordRead(id, () -> bindCombining(id, spec, accumCoder, combineFn));
                     Iterator<AccumT> iterator = impl.get().iterator();
                     if (iterator.hasNext()) {
                       return combineFn.extractOutput(iterator.next());
@@ -1254,5 +1296,7 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
     }
     stateFinalizers.clear();
     stateKeyObjectCache.clear();
+    lastStartedKey = null;
+    lastStartedWindow = null;
   }
 }
@@ -22,6 +22,8 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import com.google.auto.value.AutoValue;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -33,6 +35,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 import org.apache.beam.fn.harness.Cache;
+import org.apache.beam.fn.harness.Cache.Decoder;
+import org.apache.beam.fn.harness.Cache.Encodable;
 import org.apache.beam.fn.harness.Cache.Shrinkable;
 import org.apache.beam.fn.harness.Caches;
 import org.apache.beam.fn.harness.state.StateFetchingIterators.CachingStateIterable.Blocks;
@@ -44,6 +48,8 @@ import org.apache.beam.sdk.fn.data.WeightedList;
 import org.apache.beam.sdk.fn.stream.DataStreams.DataStreamDecoder;
 import org.apache.beam.sdk.fn.stream.PrefetchableIterables;
 import org.apache.beam.sdk.fn.stream.PrefetchableIterator;
+import org.apache.beam.sdk.util.ByteStringOutputStream;
+import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
@@ -202,13 +208,95 @@ public class StateFetchingIterators {
   /** A mutable iterable that supports prefetch and is backed by a cache. */
   static class CachingStateIterable<T> extends PrefetchableIterables.Default<T> {
 
-    /** Represents a set of elements. */
-    abstract static class Blocks<T> implements Weighted {
+    /**
+     * Represents a set of elements.
+     *
+     * <p>If a value coder is known, complete sets of elements can be stored encoded by caches that
+     * support {@link Encodable} values. The values of each block are then lazily decoded when they
+     * are first accessed.
+     */
+    abstract static class Blocks<T> implements Weighted, Encodable {
+      protected final @Nullable Coder<T> valueCoder;
+
+      Blocks(@Nullable Coder<T> valueCoder) {
+        this.valueCoder = valueCoder;
+      }
 
       public abstract List<Block<T>> getBlocks();
+
+      /**
+       * Encodes the blocks to {@code out}.
+       *
+       * <p>The headers of all blocks are written first followed by the encoded values of each block
+       * so that the values can be decoded independently.
+       */
+      static <T> void encodeBlocks(List<Block<T>> blocks, Coder<T> valueCoder, OutputStream out)
+          throws IOException {
+        List<ByteString> encodedValues = new ArrayList<>(blocks.size());
+        VarInt.encode(blocks.size(), out);
+        for (Block<T> block : blocks) {
+          ByteStringOutputStream valuesOut = new ByteStringOutputStream();
+          for (T value : block.getValues()) {
+            valueCoder.encode(value, valuesOut);
+          }
+          ByteString encoded = valuesOut.toByteString();
+          encodedValues.add(encoded);
+
+          VarInt.encode(block.getWeight(), out);
+          ByteString nextToken = block.getNextToken();
+          if (nextToken == null) {
+            VarInt.encode(0, out);
+          } else {
+            VarInt.encode(nextToken.size() + 1, out);
+            nextToken.writeTo(out);
+          }
+          VarInt.encode(block.getValues().size(), out);
+          VarInt.encode(encoded.size(), out);
+        }
+        for (ByteString encoded : encodedValues) {
+          encoded.writeTo(out);
+        }
+      }
+
+      /** Decodes blocks previously encoded with {@link #encodeBlocks}. */
+      static <T> List<Block<T>> decodeBlocks(ByteBuffer encoded, Coder<T> valueCoder)
+          throws IOException {
+        int numBlocks = VarInt.decodeInt(encoded);
+        long[] weights = new long[numBlocks];
+        ByteString[] nextTokens = new ByteString[numBlocks];
+        int[] numValues = new int[numBlocks];
+        int[] encodedSizes = new int[numBlocks];
+        for (int i = 0; i < numBlocks; ++i) {
+          weights[i] = VarInt.decodeLong(encoded);
+          int nextTokenSize = VarInt.decodeInt(encoded);
+          if (nextTokenSize > 0) {
+            nextTokens[i] = ByteString.copyFrom(encoded, nextTokenSize - 1);
+          }
+          numValues[i] = VarInt.decodeInt(encoded);
+          encodedSizes[i] = VarInt.decodeInt(encoded);
+        }
+        List<Block<T>> blocks = new ArrayList<>(numBlocks);
+        for (int i = 0; i < numBlocks; ++i) {
+          ByteBuffer encodedValues = encoded.slice();
+          encodedValues.limit(encodedSizes[i]);
+          encoded.position(encoded.position() + encodedSizes[i]);
+          blocks.add(
+              new EncodedBlock<>(
+                  encodedValues, numValues[i], valueCoder, nextTokens[i], weights[i]));
+        }
+        return blocks;
+      }
     }
 
     static class EmptyBlocks<T> extends Blocks<T> {
+      EmptyBlocks() {
+        this(null);
+      }
+
+      EmptyBlocks(@Nullable Coder<T> valueCoder) {
+        super(valueCoder);
+      }
+
       @Override
       public List<Block<T>> getBlocks() {
         return Collections.singletonList(Block.emptyBlock());
@@ -218,6 +306,12 @@ public class StateFetchingIterators {
       public long getWeight() {
         return 8;
       }
+
+      @Override
+      public @Nullable Decoder<EmptyBlocks<T>> encode(OutputStream out) {
+        Coder<T> coder = valueCoder;
+        return encoded -> new EmptyBlocks<>(coder);
+      }
     }
 
     static class MutatedBlocks<T> extends Blocks<T> {
@@ -225,6 +319,11 @@ public class StateFetchingIterators {
       private final Block<T> wholeBlock;
 
       MutatedBlocks(Block<T> wholeBlock) {
+        this(wholeBlock, null);
+      }
+
+      MutatedBlocks(Block<T> wholeBlock, @Nullable Coder<T> valueCoder) {
+        super(valueCoder);
         this.wholeBlock = wholeBlock;
       }
 
@@ -237,6 +336,16 @@ public class StateFetchingIterators {
       public long getWeight() {
         return wholeBlock.getWeight() + 8;
       }
+
+      @Override
+      public @Nullable Decoder<MutatedBlocks<T>> encode(OutputStream out) throws IOException {
+        Coder<T> coder = valueCoder;
+        if (coder == null) {
+          return null;
+        }
+        encodeBlocks(getBlocks(), coder, out);
+        return encoded -> new MutatedBlocks<>(decodeBlocks(encoded, coder).get(0), coder);
+      }
     }
 
     /**
@@ -261,6 +370,11 @@ public class StateFetchingIterators {
       }
 
       BlocksPrefix(List<Block<T>> blocks) {
+        this(blocks, null);
+      }
+
+      BlocksPrefix(List<Block<T>> blocks, @Nullable Coder<T> valueCoder) {
+        super(valueCoder);
         this.blocks = blocks;
       }
 
@@ -271,7 +385,21 @@ public class StateFetchingIterators {
         if (subList.isEmpty()) {
           return null;
         }
-        return new BlocksPrefix<>(subList);
+        return new BlocksPrefix<>(subList, valueCoder);
+      }
+
+      /**
+       * Only prefixes which contain all the elements are encoded since readers extend incomplete
+       * prefixes with each block that they load.
+       */
+      @Override
+      public @Nullable Decoder<BlocksPrefix<T>> encode(OutputStream out) throws IOException {
+        Coder<T> coder = valueCoder;
+        if (coder == null || blocks.get(blocks.size() - 1).getNextToken() != null) {
+          return null;
+        }
+        encodeBlocks(blocks, coder, out);
+        return encoded -> new BlocksPrefix<>(decodeBlocks(encoded, coder), coder);
       }
 
       @Override
@@ -324,6 +452,57 @@ public class StateFetchingIterators {
       public abstract long getWeight();
     }
 
+    /** A {@link Block} whose values are decoded from their encoded form when first accessed. */
+    static class EncodedBlock<T> extends Block<T> {
+      private final ByteBuffer encodedValues;
+      private final int numValues;
+      private final Coder<T> valueCoder;
+      private final @Nullable ByteString nextToken;
+      private final long weight;
+      private @Nullable List<T> values;
+
+      EncodedBlock(
+          ByteBuffer encodedValues,
+          int numValues,
+          Coder<T> valueCoder,
+          @Nullable ByteString nextToken,
+          long weight) {
+        this.encodedValues = encodedValues;
+        this.numValues = numValues;
+        this.valueCoder = valueCoder;
+        this.nextToken = nextToken;
+        this.weight = weight;
+      }
+
+      @Override
+      List<T> getValues() {
+        if (values == null) {
+          ByteBuffer buffer = encodedValues.duplicate();
+          List<T> decoded = new ArrayList<>(numValues);
+          try {
+            for (int i = 0; i < numValues; ++i) {
+              decoded.add(valueCoder.decode(buffer));
+            }
+          } catch (IOException e) {
+            throw new IllegalStateException("Failed to decode cached state.", e);
+          }
+          values = decoded;
+        }
+        return values;
+      }
+
+      @Override
+      @Nullable
+      ByteString getNextToken() {
+        return nextToken;
+      }
+
+      @Override
+      public long getWeight() {
+        return weight;
+      }
+    }
+
     private final Cache<IterableCacheKey, Blocks<T>> cache;
     private final BeamFnStateClient beamFnStateClient;
     private final StateRequest stateRequestForFirstChunk;
@@ -393,7 +572,9 @@ public class StateFetchingIterators {
         }
       }
 
-      cache.put(IterableCacheKey.INSTANCE, new MutatedBlocks<>(Block.mutatedBlock(allValues)));
+      cache.put(
+          IterableCacheKey.INSTANCE,
+          new MutatedBlocks<>(Block.mutatedBlock(allValues), valueCoder));
     }
 
     /**
@@ -406,9 +587,11 @@ public class StateFetchingIterators {
      */
     public void clearAndAppend(List<T> values) {
       if (values.isEmpty()) {
-        cache.put(IterableCacheKey.INSTANCE, new EmptyBlocks<>());
+        cache.put(IterableCacheKey.INSTANCE, new EmptyBlocks<>(valueCoder));
       } else {
-        cache.put(IterableCacheKey.INSTANCE, new MutatedBlocks<>(Block.mutatedBlock(values)));
+        cache.put(
+            IterableCacheKey.INSTANCE,
+            new MutatedBlocks<>(Block.mutatedBlock(values), valueCoder));
       }
     }
 
@@ -423,9 +606,11 @@ public class StateFetchingIterators {
      */
     public void clearAndAppend(WeightedList<T> values) {
       if (values.isEmpty()) {
-        cache.put(IterableCacheKey.INSTANCE, new EmptyBlocks<>());
+        cache.put(IterableCacheKey.INSTANCE, new EmptyBlocks<>(valueCoder));
       } else {
-        cache.put(IterableCacheKey.INSTANCE, new MutatedBlocks<>(Block.mutatedBlock(values)));
+        cache.put(
+            IterableCacheKey.INSTANCE,
+            new MutatedBlocks<>(Block.mutatedBlock(values), valueCoder));
       }
     }
 
@@ -498,7 +683,9 @@ public class StateFetchingIterators {
       }
       allValues.addAll(newValues, newWeight);
 
-      cache.put(IterableCacheKey.INSTANCE, new MutatedBlocks<>(Block.mutatedBlock(allValues)));
+      cache.put(
+          IterableCacheKey.INSTANCE,
+          new MutatedBlocks<>(Block.mutatedBlock(allValues), valueCoder));
     }
 
     class CachingStateIterator implements PrefetchableIterator<T> {
@@ -590,7 +777,7 @@ public class StateFetchingIterators {
             if (isFirstBlock) {
               cache.put(
                   IterableCacheKey.INSTANCE,
-                  new BlocksPrefix<>(Collections.singletonList(currentBlock)));
+                  new BlocksPrefix<>(Collections.singletonList(currentBlock), valueCoder));
             }
           } else if (isFirstBlock) {
             currentBlock = existing.getBlocks().get(0);
@@ -627,7 +814,7 @@ public class StateFetchingIterators {
                 List<Block<T>> newBlocks = new ArrayList<>(currentBlockIndex + 1);
                 newBlocks.addAll(existing.getBlocks());
                 newBlocks.add(currentBlock);
-                cache.put(IterableCacheKey.INSTANCE, new BlocksPrefix<>(newBlocks));
+                cache.put(IterableCacheKey.INSTANCE, new BlocksPrefix<>(newBlocks, valueCoder));
               }
             }
           }
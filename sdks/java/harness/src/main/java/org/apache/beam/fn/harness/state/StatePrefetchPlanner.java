@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Learns which user state cells a stateful {@code DoFn} reads for each key and window and starts
+ * those reads asynchronously as soon as processing of a new key and window begins.
+ *
+ * <p>Without planning, each state cell read blocks on its own round trip to the runner. By issuing
+ * all the reads that are likely to happen at once, the requests are pipelined over the state
+ * stream and the {@code DoFn} waits for roughly a single round trip per key.
+ *
+ * <p>Observations are kept across bundles. A state cell is only prefetched if it was read for at
+ * least {@code 1 / MIN_READ_RATIO} of the observed keys to avoid fetching state that a {@code DoFn}
+ * only reads conditionally, for example when flushing a buffer.
+ */
+class StatePrefetchPlanner {
+  private static final int MIN_READ_RATIO = 2;
+  // Halve the observations periodically so that the planner adapts to changes in access patterns.
+  private static final long DECAY_INTERVAL = 1 << 16;
+
+  /** The reads recorded for a single state cell. */
+  private static class PlannedRead {
+    private final Runnable prefetch;
+    private long keysRead;
+    private long lastKeyRead = -1;
+
+    private PlannedRead(Runnable prefetch) {
+      this.prefetch = prefetch;
+    }
+  }
+
+  private final Map<String, PlannedRead> plannedReads = new HashMap<>();
+  private final List<PlannedRead> plannedReadsList = new ArrayList<>();
+  private long keysObserved;
+
+  /**
+   * Records that the state cell {@code stateId} was read for the current key and window. {@code
+   * prefetch} must start an asynchronous read of the cell for whatever the current key and window
+   * are when it is invoked.
+   */
+  void recordRead(String stateId, Runnable prefetch) {
+    PlannedRead plannedRead = plannedReads.get(stateId);
+    if (plannedRead == null) {
+      plannedRead = new PlannedRead(prefetch);
+      plannedReads.put(stateId, plannedRead);
+      plannedReadsList.add(plannedRead);
+    }
+    if (plannedRead.lastKeyRead != keysObserved) {
+      plannedRead.lastKeyRead = keysObserved;
+      plannedRead.keysRead += 1;
+    }
+  }
+
+  /**
+   * Notifies the planner that processing of a new key and window started and prefetches the state
+   * cells that are likely to be read.
+   */
+  void startKey() {
+    if (keysObserved >= DECAY_INTERVAL) {
+      keysObserved /= 2;
+      for (PlannedRead plannedRead : plannedReadsList) {
+        plannedRead.keysRead /= 2;
+        plannedRead.lastKeyRead = -1;
+      }
+    }
+    for (PlannedRead plannedRead : plannedReadsList) {
+      if (plannedRead.keysRead * MIN_READ_RATIO >= keysObserved) {
+        plannedRead.prefetch.run();
+      }
+    }
+    keysObserved += 1;
+  }
+
+  /** Returns the number of state cells that have been observed to be read. */
+  int getObservedStateCount() {
+    return plannedReadsList.size();
+  }
+}
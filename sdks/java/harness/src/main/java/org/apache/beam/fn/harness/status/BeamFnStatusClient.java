@@ -30,14 +30,17 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.apache.beam.fn.harness.Cache;
+import org.apache.beam.fn.harness.VirtualThreads;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionStateTrackerStatus;
 import org.apache.beam.fn.harness.control.ProcessBundleHandler.BundleProcessor;
 import org.apache.beam.fn.harness.control.ProcessBundleHandler.BundleProcessorCache;
+import org.apache.beam.fn.harness.control.StackSamplingProfiler;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.WorkerStatusRequest;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.WorkerStatusResponse;
 import org.apache.beam.model.fnexecution.v1.BeamFnWorkerStatusGrpc;
 import org.apache.beam.model.pipeline.v1.Endpoints.ApiServiceDescriptor;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.ManagedChannel;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.StreamObserver;
@@ -58,18 +61,30 @@ public class BeamFnStatusClient implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(BeamFnStatusClient.class);
   private final MemoryMonitor memoryMonitor;
   private final Cache<?, ?> cache;
+  private final @Nullable StackSamplingProfiler profiler;
 
-  @SuppressFBWarnings("SC_START_IN_CTOR") // for memory monitor thread
   public BeamFnStatusClient(
       ApiServiceDescriptor apiServiceDescriptor,
       Function<ApiServiceDescriptor, ManagedChannel> channelFactory,
       BundleProcessorCache processBundleCache,
       PipelineOptions options,
       Cache<?, ?> cache) {
+    this(apiServiceDescriptor, channelFactory, processBundleCache, options, cache, null);
+  }
+
+  @SuppressFBWarnings("SC_START_IN_CTOR") // for memory monitor thread
+  public BeamFnStatusClient(
+      ApiServiceDescriptor apiServiceDescriptor,
+      Function<ApiServiceDescriptor, ManagedChannel> channelFactory,
+      BundleProcessorCache processBundleCache,
+      PipelineOptions options,
+      Cache<?, ?> cache,
+      @Nullable StackSamplingProfiler profiler) {
     this.channel = channelFactory.apply(apiServiceDescriptor);
     this.processBundleCache = processBundleCache;
     this.memoryMonitor = MemoryMonitor.fromOptions(options);
     this.cache = cache;
+    this.profiler = profiler;
     this.inboundObserverCompletion = new CompletableFuture<>();
     Thread thread = new Thread(memoryMonitor);
     thread.setDaemon(true);
@@ -136,15 +151,20 @@ public class BeamFnStatusClient implements AutoCloseable {
     trace.add("========== THREAD DUMP ==========");
     // filter duplicates.
     Map<Stack, List<String>> stacks = new HashMap<>();
-    Thread.getAllStackTraces()
-        .forEach(
-            (thread, elements) -> {
-              if (thread != Thread.currentThread()) {
-                Stack stack = new Stack(elements, thread.getState());
-                stacks.putIfAbsent(stack, new ArrayList<>());
-                stacks.get(stack).add(thread.toString());
-              }
-            });
+    Map<Thread, StackTraceElement[]> allThreads = new HashMap<>(Thread.getAllStackTraces());
+    // Virtual threads are not reported by Thread#getAllStackTraces so include the threads
+    // processing bundles explicitly.
+    for (Thread trackedThread : getTrackedThreads()) {
+      allThreads.computeIfAbsent(trackedThread, Thread::getStackTrace);
+    }
+    allThreads.forEach(
+        (thread, elements) -> {
+          if (thread != Thread.currentThread()) {
+            Stack stack = new Stack(elements, thread.getState());
+            stacks.putIfAbsent(stack, new ArrayList<>());
+            stacks.get(stack).add(thread.toString());
+          }
+        });
 
     // Stacks with more threads are printed first.
     stacks.entrySet().stream()
@@ -163,6 +183,18 @@ public class BeamFnStatusClient implements AutoCloseable {
     return trace.toString();
   }
 
+  private List<Thread> getTrackedThreads() {
+    List<Thread> trackedThreads = new ArrayList<>();
+    for (BundleProcessor bundleProcessor :
+        processBundleCache.getActiveBundleProcessors().values()) {
+      ExecutionStateTrackerStatus status = bundleProcessor.getStateTracker().getStatus();
+      if (status != null) {
+        trackedThreads.add(status.getTrackedThread());
+      }
+    }
+    return trackedThreads;
+  }
+
   String getMemoryUsage() {
     StringJoiner memory = new StringJoiner("\n");
     memory.add("========== MEMORY USAGE ==========");
@@ -178,6 +210,26 @@ public class BeamFnStatusClient implements AutoCloseable {
     return cacheStats.toString();
   }
 
+  /**
+   * Returns the stack samples of the bundle processing threads per transform in the folded stack
+   * format, which can be rendered as a flame graph.
+   */
+  @VisibleForTesting
+  String getStackSamples() {
+    StringJoiner samples = new StringJoiner("\n");
+    samples.add("========== STACK SAMPLES ==========");
+    if (profiler == null) {
+      samples.add(
+          String.format(
+              "Stack sampling is disabled, enable it with --experiments=%s=<millis>.",
+              ExperimentalOptions.STACK_SAMPLING_PERIOD_MILLIS));
+    } else {
+      String foldedStacks = profiler.getFoldedStacks();
+      samples.add(foldedStacks.isEmpty() ? "No stack samples." : foldedStacks);
+    }
+    return samples.toString();
+  }
+
   /** Class representing the execution state of a bundle. */
   static class BundleState {
     final String instruction;
@@ -235,7 +287,7 @@ public class BeamFnStatusClient implements AutoCloseable {
                   bundleStates.add(
                       new BundleState(
                           instructionAndBundleProcessor.getKey(),
-                          executionStateTrackerStatus.getTrackedThread().getName(),
+                          VirtualThreads.describe(executionStateTrackerStatus.getTrackedThread()),
                           Duration.millis(
                               nowMillis - executionStateTrackerStatus.getStartTime().getMillis()),
                           Duration.millis(
@@ -292,6 +344,8 @@ public class BeamFnStatusClient implements AutoCloseable {
       status.add(getActiveProcessBundleState());
       status.add("\n");
       status.add(getThreadDump());
+      status.add("\n");
+      status.add(getStackSamples());
       outboundObserver.onNext(
           WorkerStatusResponse.newBuilder()
               .setId(workerStatusRequest.getId())
@@ -23,18 +23,23 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import org.apache.beam.fn.harness.control.BundleProgressReporter;
 import org.apache.beam.model.pipeline.v1.RunnerApi;
+import org.apache.beam.runners.core.metrics.DistributionData;
+import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.Combine.CombineFn;
 import org.apache.beam.sdk.transforms.Create;
@@ -44,6 +49,7 @@ import org.apache.beam.sdk.util.construction.SdkComponents;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.junit.Before;
 import org.junit.Test;
@@ -136,6 +142,8 @@ public class CombineRunnersTest {
 
     // Create runner.
     new CombineRunners.PrecombineFactory().addRunnerForPTransform(context);
+    // Hot key detection is opt-in.
+    assertThat(context.getBundleProgressReporters(), empty());
 
     Iterables.getOnlyElement(context.getStartBundleFunctions()).run();
 
@@ -171,6 +179,46 @@ public class CombineRunnersTest {
         containsInAnyOrder(valueInGlobalWindow(KV.of("B", 2)), valueInGlobalWindow(KV.of("C", 3))));
   }
 
+  @Test
+  public void testPrecombineReportsHotKeyFrequencyWhenEnabled() throws Exception {
+    PTransformRunnerFactoryTestContext context =
+        PTransformRunnerFactoryTestContext.builder(TEST_COMBINE_ID, pTransform)
+            .pipelineOptions(
+                PipelineOptionsFactory.fromArgs("--experiments=enable_hot_key_detection").create())
+            .components(
+                RunnerApi.Components.newBuilder()
+                    .putAllPcollections(pProto.getComponents().getPcollectionsMap())
+                    .putAllCoders(pProto.getComponents().getCodersMap())
+                    .putAllWindowingStrategies(pProto.getComponents().getWindowingStrategiesMap())
+                    .build())
+            .build();
+    context.addPCollectionConsumer(
+        Iterables.getOnlyElement(pTransform.getOutputsMap().values()),
+        (FnDataReceiver) (FnDataReceiver<WindowedValue<KV<String, Integer>>>) value -> {});
+
+    new CombineRunners.PrecombineFactory().addRunnerForPTransform(context);
+    BundleProgressReporter reporter =
+        Iterables.getOnlyElement(context.getBundleProgressReporters());
+
+    Iterables.getOnlyElement(context.getStartBundleFunctions()).run();
+    FnDataReceiver<WindowedValue<?>> input = context.getPCollectionConsumer(inputPCollectionId);
+    input.accept(valueInGlobalWindow(KV.of("A", "1")));
+    input.accept(valueInGlobalWindow(KV.of("A", "2")));
+    input.accept(valueInGlobalWindow(KV.of("A", "6")));
+    input.accept(valueInGlobalWindow(KV.of("B", "2")));
+    input.accept(valueInGlobalWindow(KV.of("C", "3")));
+    Iterables.getOnlyElement(context.getFinishBundleFunctions()).run();
+
+    // Without the hot key logging experiment only the frequency of the hottest key is reported,
+    // in basis points of the bundle's elements.
+    Map<String, ByteString> monitoringData = new HashMap<>();
+    reporter.updateFinalMonitoringData(monitoringData);
+    assertEquals(
+        DistributionData.singleton(6000),
+        MonitoringInfoEncodings.decodeInt64Distribution(
+            Iterables.getOnlyElement(monitoringData.values())));
+  }
+
   /**
    * Create a Merge Accumulators function that is given keyed lists of accumulators and validates
    * that the accumulators of each list were merged.
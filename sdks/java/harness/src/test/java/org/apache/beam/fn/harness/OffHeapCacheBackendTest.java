@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import org.apache.beam.fn.harness.Cache.Decoder;
+import org.apache.beam.fn.harness.Cache.Encodable;
+import org.apache.beam.fn.harness.OffHeapCacheBackend.FrequencySketch;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Strings;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link OffHeapCacheBackend}. */
+@RunWith(JUnit4.class)
+public class OffHeapCacheBackendTest {
+  private static final long MB = 1 << 20;
+
+  /** A string which is encoded as UTF-8 unless it is empty. */
+  private static class EncodableString implements Encodable {
+    private final String value;
+
+    private EncodableString(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public @Nullable Decoder<EncodableString> encode(OutputStream out) throws IOException {
+      if (value.isEmpty()) {
+        return null;
+      }
+      out.write(value.getBytes(StandardCharsets.UTF_8));
+      return encoded -> {
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        return new EncodableString(new String(bytes, StandardCharsets.UTF_8));
+      };
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      return other instanceof EncodableString
+          && Objects.equals(value, ((EncodableString) other).value);
+    }
+
+    @Override
+    public int hashCode() {
+      return value.hashCode();
+    }
+  }
+
+  @Test
+  public void testEncodableValuesAreDecodedOnRead() throws Exception {
+    Cache<String, Object> cache = Caches.forMaximumBytesWithOffHeap(MB, MB);
+    EncodableString value = new EncodableString("value");
+    cache.put("key", value);
+
+    Object cached = cache.peek("key");
+    assertEquals(value, cached);
+    assertNotSame(value, cached);
+    assertEquals(value, cache.computeIfAbsent("key", unused -> new EncodableString("other")));
+
+    cache.put("key", new EncodableString("updated"));
+    assertEquals(new EncodableString("updated"), cache.peek("key"));
+
+    cache.remove("key");
+    assertNull(cache.peek("key"));
+  }
+
+  @Test
+  public void testLoadedEncodableValuesAreMovedOffHeap() throws Exception {
+    Cache<String, Object> cache = Caches.forMaximumBytesWithOffHeap(MB, MB);
+    EncodableString value = new EncodableString("value");
+    assertSame(value, cache.computeIfAbsent("key", unused -> value));
+
+    Object cached = cache.peek("key");
+    assertEquals(value, cached);
+    assertNotSame(value, cached);
+    assertThat(cache.describeStats(), containsString("entries 1"));
+  }
+
+  @Test
+  public void testOtherValuesAreStoredOnHeap() throws Exception {
+    Cache<String, Object> cache = Caches.forMaximumBytesWithOffHeap(MB, MB);
+    Object value = new Object();
+    cache.put("key", value);
+    assertSame(value, cache.peek("key"));
+
+    // Values which decline to be encoded are stored on-heap as well.
+    EncodableString empty = new EncodableString("");
+    cache.put("empty", empty);
+    assertSame(empty, cache.peek("empty"));
+
+    // Replacing an off-heap value with an on-heap value removes the off-heap value.
+    cache.put("replaced", new EncodableString("value"));
+    cache.put("replaced", value);
+    assertSame(value, cache.peek("replaced"));
+    assertThat(cache.describeStats(), containsString("entries 0"));
+  }
+
+  @Test
+  public void testFrequentlyReadValuesAreRetained() throws Exception {
+    Cache<String, Object> cache = Caches.forMaximumBytesWithOffHeap(MB, 100);
+    EncodableString hot = new EncodableString(Strings.repeat("h", 60));
+    cache.put("hot", hot);
+    for (int i = 0; i < 5; ++i) {
+      assertEquals(hot, cache.peek("hot"));
+    }
+
+    // Storing the cold value requires evicting the more frequently read hot value.
+    cache.put("cold", new EncodableString(Strings.repeat("c", 60)));
+    assertNull(cache.peek("cold"));
+    assertEquals(hot, cache.peek("hot"));
+
+    // Once the cold value is read more frequently than the hot value it replaces it.
+    for (int i = 0; i < 10; ++i) {
+      cache.peek("cold");
+    }
+    EncodableString cold = new EncodableString(Strings.repeat("c", 60));
+    cache.put("cold", cold);
+    assertEquals(cold, cache.peek("cold"));
+    assertNull(cache.peek("hot"));
+    assertThat(cache.describeStats(), containsString("evictions 1, rejections 1"));
+  }
+
+  @Test
+  public void testRejectedValuesDoNotEvictEntries() throws Exception {
+    Cache<String, Object> cache = Caches.forMaximumBytesWithOffHeap(MB, 100);
+    EncodableString cold = new EncodableString(Strings.repeat("c", 40));
+    EncodableString hot = new EncodableString(Strings.repeat("h", 40));
+    cache.put("cold", cold);
+    cache.put("hot", hot);
+    for (int i = 0; i < 5; ++i) {
+      assertEquals(hot, cache.peek("hot"));
+    }
+    cache.peek("candidate");
+    cache.peek("candidate");
+
+    // The candidate is read more frequently than the cold value but storing it would require
+    // evicting the hot value as well, so it is rejected and both values are retained.
+    cache.put("candidate", new EncodableString(Strings.repeat("n", 70)));
+    assertNull(cache.peek("candidate"));
+    assertEquals(cold, cache.peek("cold"));
+    assertEquals(hot, cache.peek("hot"));
+    assertThat(cache.describeStats(), containsString("evictions 0, rejections 1"));
+  }
+
+  @Test
+  public void testOnHeapHitsAreCountedAsHits() throws Exception {
+    Cache<String, Object> cache = Caches.forMaximumBytesWithOffHeap(MB, MB);
+    Object value = new Object();
+    cache.put("key", value);
+    assertSame(value, cache.peek("key"));
+    assertNull(cache.peek("missing"));
+    assertThat(cache.describeStats(), containsString("hit 50.00%, lookups 2"));
+  }
+
+  @Test
+  public void testValuesLargerThanTheCacheAreNotStored() throws Exception {
+    Cache<String, Object> cache = Caches.forMaximumBytesWithOffHeap(MB, 10);
+    cache.put("key", new EncodableString(Strings.repeat("v", 11)));
+    assertNull(cache.peek("key"));
+  }
+
+  @Test
+  public void testFrequencySketch() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    assertEquals(0, sketch.frequency(42));
+    for (int i = 0; i < 3; ++i) {
+      sketch.increment(42);
+    }
+    assertEquals(3, sketch.frequency(42));
+
+    // Counts saturate.
+    for (int i = 0; i < 20; ++i) {
+      sketch.increment(42);
+    }
+    assertEquals(15, sketch.frequency(42));
+
+    // Counts are halved once enough increments were observed.
+    for (int i = 0; i < 10 * 1024; ++i) {
+      sketch.increment(1000 + i);
+    }
+    assertEquals(7, sketch.frequency(42));
+  }
+}
@@ -28,9 +28,12 @@ import static org.hamcrest.Matchers.in;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -40,6 +43,8 @@ import org.apache.beam.fn.harness.PrecombineGroupingTable.SamplingSizeEstimator;
 import org.apache.beam.fn.harness.PrecombineGroupingTable.SizeEstimator;
 import org.apache.beam.runners.core.GlobalCombineFnRunner;
 import org.apache.beam.runners.core.GlobalCombineFnRunners;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.NullableCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
@@ -47,10 +52,17 @@ import org.apache.beam.sdk.fn.test.TestExecutors;
 import org.apache.beam.sdk.fn.test.TestExecutors.TestExecutorService;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.transforms.Combine.BinaryCombineLongFn;
 import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.Max;
+import org.apache.beam.sdk.transforms.Min;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ArrayListMultimap;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeDiagnosingMatcher;
 import org.joda.time.Instant;
@@ -331,6 +343,127 @@ public class PrecombineGroupingTableTest {
     }
   }
 
+  @Test
+  public void testPrimitiveCombineFnIsChosenForNumericCombineFns() throws Exception {
+    assertNotNull(
+        PrimitiveCombiningTable.primitiveCombineFn(Sum.ofLongs(), VarLongCoder.of(), true));
+    assertNotNull(
+        PrimitiveCombiningTable.primitiveCombineFn(Sum.ofIntegers(), StringUtf8Coder.of(), true));
+    assertNotNull(
+        PrimitiveCombiningTable.primitiveCombineFn(Max.ofDoubles(), VarLongCoder.of(), true));
+    assertNotNull(
+        PrimitiveCombiningTable.primitiveCombineFn(Count.combineFn(), VarLongCoder.of(), true));
+
+    // Windowed inputs, keys which are not consistent with equals and other combine fns are not.
+    assertNull(PrimitiveCombiningTable.primitiveCombineFn(Sum.ofLongs(), VarLongCoder.of(), false));
+    assertNull(
+        PrimitiveCombiningTable.primitiveCombineFn(Sum.ofLongs(), ByteArrayCoder.of(), true));
+    assertNull(PrimitiveCombiningTable.primitiveCombineFn(COMBINE_FN, VarLongCoder.of(), true));
+    assertNull(
+        PrimitiveCombiningTable.primitiveCombineFn(
+            new BinaryCombineLongFn() {
+              @Override
+              public long apply(long left, long right) {
+                return left + right;
+              }
+
+              @Override
+              public long identity() {
+                return 0;
+              }
+
+              @Override
+              public long[] addInput(long[] accumulator, Long input) {
+                accumulator[0] += 2 * input;
+                return accumulator;
+              }
+            },
+            VarLongCoder.of(),
+            true));
+  }
+
+  @Test
+  public void testPrimitiveCombining() throws Exception {
+    List<KV<String, Long>> inputs = new ArrayList<>();
+    Map<String, Long> expectedSums = new HashMap<>();
+    Map<String, Long> expectedCounts = new HashMap<>();
+    Random random = new Random(1);
+    for (int i = 0; i < 10_000; ++i) {
+      String key = random.nextInt(20) == 0 ? null : Integer.toString(random.nextInt(1000));
+      long value = random.nextInt(100);
+      inputs.add(KV.of(key, value));
+      expectedSums.merge(key, value, Long::sum);
+      expectedCounts.merge(key, 1L, Long::sum);
+    }
+
+    assertEquals(expectedSums, combinePrimitive(Sum.ofLongs(), inputs, Long.MAX_VALUE));
+    assertEquals(expectedCounts, combinePrimitive(Count.combineFn(), inputs, Long.MAX_VALUE));
+    // A small cache flushes the table many times which produces multiple partial sums per key.
+    assertEquals(expectedSums, combinePrimitive(Sum.ofLongs(), inputs, 10_000L));
+  }
+
+  @Test
+  public void testPrimitiveCombiningIntegersAndDoubles() throws Exception {
+    PrecombineGroupingTable<Long, Integer, int[]> ints =
+        PrecombineGroupingTable.combining(
+            PipelineOptionsFactory.create(),
+            Caches.eternal(),
+            Min.ofIntegers(),
+            VarLongCoder.of(),
+            true);
+    PrecombineGroupingTable<Long, Double, double[]> doubles =
+        PrecombineGroupingTable.combining(
+            PipelineOptionsFactory.create(),
+            Caches.eternal(),
+            Max.ofDoubles(),
+            VarLongCoder.of(),
+            true);
+    Map<Long, Integer> minimums = new HashMap<>();
+    Map<Long, Double> maximums = new HashMap<>();
+    for (long key = 0; key < 100; ++key) {
+      for (int value = -5; value <= 5; ++value) {
+        ints.put(valueInGlobalWindow(KV.of(key, value * (int) key)), unused -> {});
+        doubles.put(valueInGlobalWindow(KV.of(key, value * 0.5 * key)), unused -> {});
+      }
+    }
+    ints.flush(output -> minimums.put(output.getValue().getKey(), output.getValue().getValue()[0]));
+    doubles.flush(
+        output -> maximums.put(output.getValue().getKey(), output.getValue().getValue()[0]));
+
+    assertEquals(100, minimums.size());
+    assertEquals(100, maximums.size());
+    for (long key = 0; key < 100; ++key) {
+      assertEquals(-5 * (int) key, (int) minimums.get(key));
+      assertEquals(2.5 * key, maximums.get(key), 0.0);
+    }
+  }
+
+  /** Combines the inputs returning the sum of the partial results output for each key. */
+  @SuppressWarnings("unchecked")
+  private static Map<String, Long> combinePrimitive(
+      CombineFn<Long, ?, Long> combineFn, List<KV<String, Long>> inputs, long cacheBytes)
+      throws Exception {
+    PrecombineGroupingTable<String, Long, long[]> table =
+        PrecombineGroupingTable.combiningAndSampling(
+            PipelineOptionsFactory.create(),
+            Caches.forMaximumBytes(cacheBytes),
+            (CombineFn<Long, long[], Long>) combineFn,
+            NullableCoder.of(StringUtf8Coder.of()),
+            0.001,
+            true);
+    Map<String, Long> results = new HashMap<>();
+    FnDataReceiver<WindowedValue<KV<String, long[]>>> receiver =
+        output -> {
+          assertEquals(GlobalWindow.INSTANCE, Iterables.getOnlyElement(output.getWindows()));
+          results.merge(output.getValue().getKey(), output.getValue().getValue()[0], Long::sum);
+        };
+    for (KV<String, Long> input : inputs) {
+      table.put(valueInGlobalWindow(input), receiver);
+    }
+    table.flush(receiver);
+    return results;
+  }
+
   ////////////////////////////////////////////////////////////////////////////
   // Tests for the sampling size estimator.
 
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link VirtualThreads}. */
+@RunWith(JUnit4.class)
+public class VirtualThreadsTest {
+  @Test
+  public void testPlatformThreadIsNotVirtual() {
+    assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+    assertEquals(
+        Thread.currentThread().getName(), VirtualThreads.describe(Thread.currentThread()));
+  }
+
+  @Test
+  public void testNewVirtualThreadPerTaskExecutor() throws Exception {
+    ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor("test-virtual-");
+    if (!VirtualThreads.isSupported()) {
+      assertNull(executor);
+      return;
+    }
+    assertNotNull(executor);
+    try {
+      Future<Thread> thread = executor.submit(Thread::currentThread);
+      assertTrue(VirtualThreads.isVirtual(thread.get()));
+      assertThat(VirtualThreads.describe(thread.get()), startsWith("test-virtual-"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -21,6 +21,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -40,7 +41,9 @@ import java.util.function.Consumer;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionState;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionStateTracker;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionStateTrackerStatus;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
 import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
+import org.apache.beam.runners.core.metrics.ShortIdMap;
 import org.apache.beam.sdk.metrics.BoundedTrie;
 import org.apache.beam.sdk.metrics.BoundedTrieResult;
 import org.apache.beam.sdk.metrics.Counter;
@@ -892,4 +895,40 @@ public class ExecutionStateSamplerTest {
     assertThat(sampler.getUserSpecifiedLullTimeMsForRestart(), equalTo(0L));
     assertThat(sampler.getUserSpecifiedTimeoutForRestart(), equalTo(false));
   }
+
+  @Test
+  public void testStackSamplingAttributesSamplesToActiveState() throws Exception {
+    ShortIdMap shortIds = new ShortIdMap();
+    ExecutionStateSampler sampler =
+        new ExecutionStateSampler(
+            PipelineOptionsFactory.fromArgs(
+                    "--experiments=state_sampling_period_millis=10,stack_sampling_period_millis=10")
+                .create(),
+            System::currentTimeMillis,
+            mockOnTimeoutExceededCallback,
+            shortIds);
+    StackSamplingProfiler profiler = sampler.getProfiler();
+    ExecutionStateTracker tracker = sampler.create();
+    ExecutionState state = tracker.create("shortId", "ptransformId", "ptransformName", "process");
+
+    tracker.start("bundleId");
+    state.activate();
+    // Keep the thread runnable until the sampler took a stack sample.
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+    while (profiler.getFoldedStacks().isEmpty() && System.currentTimeMillis() < deadline) {}
+    state.deactivate();
+
+    assertThat(profiler.getFoldedStacks(), startsWith("ptransformName;"));
+    Map<String, ByteString> monitoringData = new HashMap<>();
+    tracker.updateFinalMonitoringData(monitoringData);
+    boolean hasSamples = false;
+    for (String shortId : monitoringData.keySet()) {
+      hasSamples |=
+          shortIds.get(shortId).getUrn().equals(MonitoringInfoConstants.Urns.PROFILE_SAMPLES);
+    }
+    assertTrue(hasSamples);
+
+    tracker.reset();
+    sampler.stop();
+  }
 }
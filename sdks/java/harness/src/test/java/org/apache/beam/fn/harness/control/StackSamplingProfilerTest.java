@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.control;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
+import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
+import org.apache.beam.runners.core.metrics.ShortIdMap;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link StackSamplingProfiler}. */
+@RunWith(JUnit4.class)
+public class StackSamplingProfilerTest {
+
+  private static StackTraceElement frame(String className, String methodName) {
+    return new StackTraceElement(className, methodName, className + ".java", 1);
+  }
+
+  @Test
+  public void testFromOptions() {
+    assertNull(StackSamplingProfiler.fromOptions(PipelineOptionsFactory.create(), null));
+
+    StackSamplingProfiler profiler =
+        StackSamplingProfiler.fromOptions(
+            PipelineOptionsFactory.fromArgs("--experiments=stack_sampling_period_millis=500")
+                .create(),
+            null);
+    assertNotNull(profiler);
+    assertEquals(500, profiler.getPeriodMillis());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            StackSamplingProfiler.fromOptions(
+                PipelineOptionsFactory.fromArgs("--experiments=stack_sampling_period_millis=0")
+                    .create(),
+                null));
+  }
+
+  @Test
+  public void testFoldedStacks() {
+    StackSamplingProfiler profiler = new StackSamplingProfiler(100, null);
+    StackTraceElement[] stack =
+        new StackTraceElement[] {frame("UserFn", "process"), frame("Runner", "run")};
+    profiler.addSample("My Transform", stack);
+    profiler.addSample("My Transform", stack);
+    profiler.addSample("Other", new StackTraceElement[] {frame("Runner", "run")});
+
+    assertEquals(
+        "My_Transform;Runner.run;UserFn.process 2\nOther;Runner.run 1",
+        profiler.getFoldedStacks());
+  }
+
+  @Test
+  public void testDeepStacksAreTruncated() {
+    StackSamplingProfiler profiler = new StackSamplingProfiler(100, null);
+    StackTraceElement[] stack = new StackTraceElement[1000];
+    for (int i = 0; i < stack.length; i++) {
+      stack[i] = frame("Recursive", "call" + i);
+    }
+    profiler.addSample("transform", stack);
+
+    assertThat(profiler.getFoldedStacks(), startsWith("transform;[truncated];Recursive.call127;"));
+    assertThat(profiler.getFoldedStacks(), containsString(";Recursive.call0 1"));
+  }
+
+  @Test
+  public void testBundleSamplesAreReported() {
+    ShortIdMap shortIds = new ShortIdMap();
+    StackSamplingProfiler profiler = new StackSamplingProfiler(100, shortIds);
+    StackSamplingProfiler.BundleSamples bundleSamples = profiler.newBundleSamples();
+    profiler.sample(Thread.currentThread(), "ptransformId", "ptransformName", bundleSamples);
+    profiler.sample(Thread.currentThread(), "ptransformId", "ptransformName", bundleSamples);
+
+    Map<String, ByteString> monitoringData = new HashMap<>();
+    bundleSamples.updateMonitoringData(monitoringData);
+    assertEquals(2, monitoringData.size());
+    for (Map.Entry<String, ByteString> entry : monitoringData.entrySet()) {
+      MonitoringInfo info = shortIds.get(entry.getKey());
+      assertEquals(
+          "ptransformId", info.getLabelsOrThrow(MonitoringInfoConstants.Labels.PTRANSFORM));
+      if (info.getUrn().equals(MonitoringInfoConstants.Urns.PROFILE_SAMPLES)) {
+        assertEquals(2L, MonitoringInfoEncodings.decodeInt64Counter(entry.getValue()));
+      } else {
+        assertEquals(MonitoringInfoConstants.Urns.PROFILE_HOT_FRAMES, info.getUrn());
+        assertFalse(
+            MonitoringInfoEncodings.decodeStringSet(entry.getValue()).stringSet().isEmpty());
+      }
+    }
+    assertThat(profiler.getFoldedStacks(), startsWith("ptransformName;"));
+
+    bundleSamples.reset();
+    monitoringData.clear();
+    bundleSamples.updateMonitoringData(monitoringData);
+    assertTrue(monitoringData.isEmpty());
+  }
+}
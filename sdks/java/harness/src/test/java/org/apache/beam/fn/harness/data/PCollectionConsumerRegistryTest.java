@@ -66,6 +66,7 @@ import org.apache.beam.sdk.coders.IterableCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
 import org.apache.beam.sdk.fn.test.TestStreams;
+import org.apache.beam.sdk.function.ThrowingFunction;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.metrics.MetricsEnvironment;
@@ -104,6 +105,8 @@ public class PCollectionConsumerRegistryTest {
 
   private static final String P_COLLECTION_A = "pCollectionA";
   private static final String P_COLLECTION_B = "pCollectionB";
+  private static final String P_COLLECTION_C = "pCollectionC";
+  private static final String P_COLLECTION_D = "pCollectionD";
   private static final ProcessBundleDescriptor TEST_DESCRIPTOR;
 
   static {
@@ -119,6 +122,10 @@ public class PCollectionConsumerRegistryTest {
                   P_COLLECTION_A, PCollection.newBuilder().setCoderId(utf8CoderId).build())
               .putPcollections(
                   P_COLLECTION_B, PCollection.newBuilder().setCoderId(iterableUtf8CoderId).build())
+              .putPcollections(
+                  P_COLLECTION_C, PCollection.newBuilder().setCoderId(utf8CoderId).build())
+              .putPcollections(
+                  P_COLLECTION_D, PCollection.newBuilder().setCoderId(utf8CoderId).build())
               .putAllCoders(sdkComponents.toComponents().getCodersMap())
               .build();
     } catch (Exception e) {
@@ -219,6 +226,118 @@ public class PCollectionConsumerRegistryTest {
     wrapperConsumer.accept(valueInGlobalWindow("elem"));
   }
 
+  /** A map consumer which may only be invoked through the fused chain. */
+  private static class TestFusibleMapFn implements FusibleMapFnDataReceiver<String, String> {
+    private final ThrowingFunction<String, String> mapFn;
+    private final FnDataReceiver<WindowedValue<String>> output;
+
+    private TestFusibleMapFn(
+        ThrowingFunction<String, String> mapFn, FnDataReceiver<WindowedValue<?>> output) {
+      this.mapFn = mapFn;
+      this.output = (FnDataReceiver<WindowedValue<String>>) (FnDataReceiver) output;
+    }
+
+    @Override
+    public void accept(WindowedValue<String> input) {
+      throw new UnsupportedOperationException("Expected to be fused.");
+    }
+
+    @Override
+    public ThrowingFunction<String, String> getMapFn() {
+      return mapFn;
+    }
+
+    @Override
+    public FnDataReceiver<WindowedValue<String>> getOutputConsumer() {
+      return output;
+    }
+  }
+
+  @Test
+  public void fusedMapFnChain() throws Exception {
+    ShortIdMap shortIds = new ShortIdMap();
+    BundleProgressReporter.InMemory reporterAndRegistrar = new BundleProgressReporter.InMemory();
+    PCollectionConsumerRegistry consumers =
+        new PCollectionConsumerRegistry(
+            sampler.create(), shortIds, reporterAndRegistrar, TEST_DESCRIPTOR);
+    List<WindowedValue<String>> outputs = new ArrayList<>();
+
+    // The DAG is constructed in reverse topological order.
+    consumers.register(P_COLLECTION_D, "sink", "sinkName", outputs::add);
+    consumers.register(
+        P_COLLECTION_C,
+        "mapC",
+        "mapCName",
+        new TestFusibleMapFn(s -> s + "c", consumers.getMultiplexingConsumer(P_COLLECTION_D)));
+    consumers.register(
+        P_COLLECTION_A,
+        "mapA",
+        "mapAName",
+        new TestFusibleMapFn(s -> s + "a", consumers.getMultiplexingConsumer(P_COLLECTION_C)));
+
+    FnDataReceiver<WindowedValue<String>> wrapperConsumer =
+        (FnDataReceiver<WindowedValue<String>>)
+            (FnDataReceiver) consumers.getMultiplexingConsumer(P_COLLECTION_A);
+    int numElements = 10;
+    for (int i = 0; i < numElements; i++) {
+      wrapperConsumer.accept(valueInGlobalWindow("elem"));
+    }
+
+    assertEquals(numElements, outputs.size());
+    assertEquals(valueInGlobalWindow("elemac"), outputs.get(0));
+
+    // Test that the metrics of each PCollection of the chain are tracked.
+    List<MonitoringInfo> expected = new ArrayList<>();
+    for (String pCollectionId : Arrays.asList(P_COLLECTION_A, P_COLLECTION_C, P_COLLECTION_D)) {
+      SimpleMonitoringInfoBuilder builder = new SimpleMonitoringInfoBuilder();
+      builder.setUrn(MonitoringInfoConstants.Urns.ELEMENT_COUNT);
+      builder.setLabel(MonitoringInfoConstants.Labels.PCOLLECTION, pCollectionId);
+      builder.setInt64SumValue(numElements);
+      expected.add(builder.build());
+    }
+    Map<String, ByteString> actualData = new HashMap<>();
+    reporterAndRegistrar.updateFinalMonitoringData(actualData);
+    Iterable<MonitoringInfo> result =
+        Iterables.filter(
+            shortIds.toMonitoringInfo(actualData),
+            monitoringInfo -> monitoringInfo.getUrn().equals(Urns.ELEMENT_COUNT));
+    assertThat(result, containsInAnyOrder(expected.toArray()));
+  }
+
+  @Test
+  public void fusedMapFnChainException() throws Exception {
+    final String message = "testException";
+
+    ShortIdMap shortIds = new ShortIdMap();
+    BundleProgressReporter.InMemory reporterAndRegistrar = new BundleProgressReporter.InMemory();
+    PCollectionConsumerRegistry consumers =
+        new PCollectionConsumerRegistry(
+            sampler.create(), shortIds, reporterAndRegistrar, TEST_DESCRIPTOR);
+    consumers.register(P_COLLECTION_D, "sink", "sinkName", element -> {});
+    consumers.register(
+        P_COLLECTION_C,
+        "mapC",
+        "mapCName",
+        new TestFusibleMapFn(
+            s -> {
+              throw new Exception(message);
+            },
+            consumers.getMultiplexingConsumer(P_COLLECTION_D)));
+    consumers.register(
+        P_COLLECTION_A,
+        "mapA",
+        "mapAName",
+        new TestFusibleMapFn(s -> s + "a", consumers.getMultiplexingConsumer(P_COLLECTION_C)));
+
+    FnDataReceiver<WindowedValue<String>> wrapperConsumer =
+        (FnDataReceiver<WindowedValue<String>>)
+            (FnDataReceiver) consumers.getMultiplexingConsumer(P_COLLECTION_A);
+
+    expectedException.expectMessage(message);
+    expectedException.expect(Exception.class);
+    wrapperConsumer.accept(valueInGlobalWindow("elem"));
+  }
+
   /** Test that the counter increments even when there are no consumers of the PCollection. */
   @Test
   public void noConsumers() throws Exception {
@@ -35,6 +35,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.beam.fn.harness.Cache;
+import org.apache.beam.fn.harness.Cache.Decoder;
 import org.apache.beam.fn.harness.Caches;
 import org.apache.beam.fn.harness.state.StateFetchingIterators.CachingStateIterable;
 import org.apache.beam.fn.harness.state.StateFetchingIterators.CachingStateIterable.Block;
@@ -49,6 +50,9 @@ import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
 import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
 import org.apache.beam.sdk.fn.data.WeightedList;
 import org.apache.beam.sdk.fn.stream.PrefetchableIterator;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
+import org.apache.beam.sdk.util.ByteStringOutputStream;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.primitives.Ints;
@@ -296,6 +300,76 @@ public class StateFetchingIteratorsTest {
       assertEquals(Long.MAX_VALUE, blocksOverflow.getWeight());
     }
 
+    @Test
+    public void testOnlyCompleteBlocksAreEncodable() throws Exception {
+      BlocksPrefix<Integer> incomplete =
+          new BlocksPrefix<>(
+              Arrays.asList(Block.fromValues(Arrays.asList(1, 2), ByteString.copyFromUtf8("A"))),
+              BigEndianIntegerCoder.of());
+      assertNull(incomplete.encode(new ByteStringOutputStream()));
+
+      BlocksPrefix<Integer> complete =
+          new BlocksPrefix<>(
+              Arrays.asList(
+                  Block.fromValues(Arrays.asList(1, 2), ByteString.copyFromUtf8("A")),
+                  Block.fromValues(Arrays.asList(3), null)),
+              BigEndianIntegerCoder.of());
+      ByteStringOutputStream out = new ByteStringOutputStream();
+      Decoder<BlocksPrefix<Integer>> decoder = complete.encode(out);
+      Blocks<Integer> decoded = decoder.decode(out.toByteString().asReadOnlyByteBuffer());
+      assertEquals(2, decoded.getBlocks().size());
+      assertEquals(Arrays.asList(1, 2), decoded.getBlocks().get(0).getValues());
+      assertEquals(ByteString.copyFromUtf8("A"), decoded.getBlocks().get(0).getNextToken());
+      assertEquals(Arrays.asList(3), decoded.getBlocks().get(1).getValues());
+      assertNull(decoded.getBlocks().get(1).getNextToken());
+      assertEquals(complete.getWeight(), decoded.getWeight());
+    }
+
+    @Test
+    public void testOffHeapCache() throws Exception {
+      SdkHarnessOptions options = PipelineOptionsFactory.as(SdkHarnessOptions.class);
+      options.setCacheBackend(SdkHarnessOptions.CacheBackend.OFF_HEAP);
+      Cache<?, ?> cache = Caches.fromOptions(options);
+      int[] expected = new int[] {0, 1, 2, 3, 4, 5};
+      FakeBeamFnStateClient fakeStateClient =
+          new FakeBeamFnStateClient(
+              BigEndianIntegerCoder.of(),
+              ImmutableMap.of(requestForFirstChunk().getStateKey(), Ints.asList(expected)),
+              5);
+      CachingStateIterable<Integer> iterable =
+          new CachingStateIterable<>(
+              Caches.subCache(cache, "iterable"),
+              fakeStateClient,
+              requestForFirstChunk(),
+              BigEndianIntegerCoder.of());
+
+      verifyFetch(iterable.iterator(), expected);
+      int stateRequestCount = fakeStateClient.getCallCount();
+      // Subsequent reads are decoded from off-heap memory.
+      verifyFetch(iterable.iterator(), expected);
+      assertEquals(stateRequestCount, fakeStateClient.getCallCount());
+
+      iterable.append(Ints.asList(42, 43));
+      verifyFetch(iterable.iterator(), 0, 1, 2, 3, 4, 5, 42, 43);
+      iterable.clearAndAppend(Ints.asList(44));
+      verifyFetch(iterable.iterator(), 44);
+      assertEquals(stateRequestCount, fakeStateClient.getCallCount());
+    }
+
+    private StateRequest requestForFirstChunk() {
+      return StateRequest.newBuilder()
+          .setStateKey(
+              StateKey.newBuilder()
+                  .setBagUserState(
+                      StateKey.BagUserState.newBuilder()
+                          .setTransformId("transformId")
+                          .setUserStateId("stateId")
+                          .setKey(ByteString.copyFromUtf8("key"))
+                          .setWindow(ByteString.copyFromUtf8("window"))))
+          .setGet(StateGetRequest.getDefaultInstance())
+          .build();
+    }
+
     private CachingStateIterable<Integer> create(int chunkSize, int... values) {
       StateRequest requestForFirstChunk =
           StateRequest.newBuilder()
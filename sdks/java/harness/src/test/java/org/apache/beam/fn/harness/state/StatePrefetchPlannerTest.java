@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link StatePrefetchPlanner}. */
+@RunWith(JUnit4.class)
+public class StatePrefetchPlannerTest {
+  @Test
+  public void testNothingPrefetchedBeforeReadsAreObserved() {
+    StatePrefetchPlanner planner = new StatePrefetchPlanner();
+    planner.startKey();
+    planner.startKey();
+    assertEquals(0, planner.getObservedStateCount());
+  }
+
+  @Test
+  public void testPrefetchesStateReadForEveryKey() {
+    StatePrefetchPlanner planner = new StatePrefetchPlanner();
+    AtomicInteger prefetches = new AtomicInteger();
+
+    planner.startKey();
+    planner.recordRead("value", prefetches::incrementAndGet);
+    // Multiple reads for the same key count once.
+    planner.recordRead("value", prefetches::incrementAndGet);
+    assertEquals(0, prefetches.get());
+
+    for (int i = 1; i <= 10; ++i) {
+      planner.startKey();
+      assertEquals(i, prefetches.get());
+      planner.recordRead("value", prefetches::incrementAndGet);
+    }
+    assertEquals(1, planner.getObservedStateCount());
+  }
+
+  @Test
+  public void testDoesNotPrefetchRarelyReadState() {
+    StatePrefetchPlanner planner = new StatePrefetchPlanner();
+    AtomicInteger bufferPrefetches = new AtomicInteger();
+    AtomicInteger countPrefetches = new AtomicInteger();
+
+    for (int i = 0; i < 100; ++i) {
+      planner.startKey();
+      planner.recordRead("count", countPrefetches::incrementAndGet);
+      // The buffer is only read when flushing, once every 10 keys.
+      if (i % 10 == 9) {
+        planner.recordRead("buffer", bufferPrefetches::incrementAndGet);
+      }
+    }
+
+    countPrefetches.set(0);
+    bufferPrefetches.set(0);
+    planner.startKey();
+    assertEquals(1, countPrefetches.get());
+    assertEquals(0, bufferPrefetches.get());
+    assertEquals(2, planner.getObservedStateCount());
+  }
+}
@@ -40,6 +40,7 @@ import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionStateTr
 import org.apache.beam.fn.harness.control.ProcessBundleHandler;
 import org.apache.beam.fn.harness.control.ProcessBundleHandler.BundleProcessor;
 import org.apache.beam.fn.harness.control.ProcessBundleHandler.BundleProcessorCache;
+import org.apache.beam.fn.harness.control.StackSamplingProfiler;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.WorkerStatusRequest;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.WorkerStatusResponse;
 import org.apache.beam.model.fnexecution.v1.BeamFnWorkerStatusGrpc.BeamFnWorkerStatusImplBase;
@@ -169,4 +170,32 @@ public class BeamFnStatusClientTest {
                 PipelineOptionsFactory.fromArgs("--maxCacheMemoryUsageMb=234").create()));
     assertThat(client.getCacheStats(), containsString("used/max 0/234 MB"));
   }
+
+  @Test
+  public void testStackSamplesExist() {
+    ManagedChannelFactory channelFactory = ManagedChannelFactory.createInProcess();
+    BeamFnStatusClient disabled =
+        new BeamFnStatusClient(
+            apiServiceDescriptor,
+            channelFactory::forDescriptor,
+            mock(BundleProcessorCache.class),
+            PipelineOptionsFactory.create(),
+            Caches.noop());
+    assertThat(disabled.getStackSamples(), containsString("Stack sampling is disabled"));
+
+    StackSamplingProfiler profiler =
+        StackSamplingProfiler.fromOptions(
+            PipelineOptionsFactory.fromArgs("--experiments=stack_sampling_period_millis=100")
+                .create(),
+            null);
+    BeamFnStatusClient enabled =
+        new BeamFnStatusClient(
+            apiServiceDescriptor,
+            channelFactory::forDescriptor,
+            mock(BundleProcessorCache.class),
+            PipelineOptionsFactory.create(),
+            Caches.noop(),
+            profiler);
+    assertThat(enabled.getStackSamples(), containsString("No stack samples."));
+  }
 }
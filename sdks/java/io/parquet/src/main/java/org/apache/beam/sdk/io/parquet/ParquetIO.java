@@ -26,6 +26,7 @@ import com.google.auto.value.AutoValue;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
@@ -45,6 +46,8 @@ import org.apache.beam.sdk.extensions.avro.coders.AvroCoder;
 import org.apache.beam.sdk.extensions.avro.schemas.utils.AvroUtils;
 import org.apache.beam.sdk.io.FileIO;
 import org.apache.beam.sdk.io.FileIO.ReadableFile;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.io.fs.ResourceId;
 import org.apache.beam.sdk.io.hadoop.SerializableConfiguration;
 import org.apache.beam.sdk.io.parquet.ParquetIO.ReadFiles.SplitReadFn;
 import org.apache.beam.sdk.io.range.OffsetRange;
@@ -283,6 +286,23 @@ public class ParquetIO {
     return new AutoValue_ParquetIO_ParseFiles.Builder<T>().setParseFn(parseFn).build();
   }
 
+  /**
+   * Returns the number of records of a Parquet file, as recorded in its footer. Only the footer of
+   * the file is read.
+   */
+  public static long getRecordCount(ResourceId file) throws IOException {
+    ReadableByteChannel channel = FileSystems.open(file);
+    if (!(channel instanceof SeekableByteChannel)) {
+      channel.close();
+      throw new IOException(format("File %s is not seekable", file));
+    }
+    try (ParquetFileReader reader =
+        ParquetFileReader.open(
+            new ReadFiles.BeamParquetInputFile((SeekableByteChannel) channel))) {
+      return reader.getRecordCount();
+    }
+  }
+
   /** Implementation of {@link #read(Schema)}. */
   @AutoValue
   public abstract static class Read extends PTransform<PBegin, PCollection<GenericRecord>> {